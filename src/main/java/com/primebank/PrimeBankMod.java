@@ -101,6 +101,7 @@ public class PrimeBankMod {
          * cashback, webhook, etc.) con base en el directorio de datos.
          */
         PrimeBankConfig.load(event.getServer().getDataDirectory());
+        com.primebank.core.locks.AccountLockManager.configure(PrimeBankConfig.LOCK_STRIPES, PrimeBankConfig.LOCK_FAIR);
         // English: Reset in-memory state to avoid cross-world leakage before loading
         // this world's data.
         // Español: Reiniciar el estado en memoria para evitar fugas entre mundos antes
@@ -127,6 +128,16 @@ public class PrimeBankMod {
             }
         }, 5, 5, java.util.concurrent.TimeUnit.MINUTES);
         LOGGER.info("[PrimeBank] Auto-save task started (5 min interval).");
+        // English: Credit central fees collected by POS/market/transfer stripes.
+        // Español: Acreditar las comisiones centrales reunidas en las franjas de POS/mercado/transferencias.
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                com.primebank.core.ledger.CentralFees.get().settle();
+            } catch (Exception e) {
+                LOGGER.error("[PrimeBank] Fee settlement failed", e);
+            }
+        }, PrimeBankConfig.FEE_SETTLE_INTERVAL_MS, PrimeBankConfig.FEE_SETTLE_INTERVAL_MS,
+                java.util.concurrent.TimeUnit.MILLISECONDS);
 
     }
 
@@ -136,9 +147,30 @@ public class PrimeBankMod {
          * English: Server stopping: save snapshot to disk.
          * Español: Parada del servidor: guarda snapshot en disco.
          */
+        // English: Let queued async API operations land before the final snapshot.
+        // Español: Dejar que las operaciones encoladas de la API asíncrona terminen antes del snapshot final.
+        com.primebank.core.api.PrimeBankAsyncAPIImpl.shutdown();
+        // English: Apply everything still queued for the sequencer (ledger_sequencer mode).
+        // Español: Aplicar todo lo que siga en cola para el secuenciador (modo ledger_sequencer).
+        com.primebank.core.locks.LedgerSequencer.get().shutdown();
+        // English: Deliver the balance events still queued while the world is loaded.
+        // Español: Entregar los eventos de saldo aún en cola mientras el mundo sigue cargado.
+        com.primebank.core.api.BalanceEventBus.get().shutdown();
         BankPersistence.saveAllBlocking();
+        // English: Close the journal after the final snapshot so its segments are purged.
+        // Español: Cerrar el diario tras el snapshot final para que sus segmentos se purguen.
+        com.primebank.persistence.LedgerJournal.get().stop();
+        com.primebank.persistence.HistoryStore.get().stop();
         com.primebank.persistence.CompanyPersistence.saveAll();
         com.primebank.market.ValuationService.get().stop();
+        // English: Write any company save queued while valuation was still running.
+        // Español: Escribir cualquier guardado de empresa encolado mientras la valoración seguía activa.
+        com.primebank.persistence.CompanyPersistence.flush();
+        com.primebank.persistence.BankStores.get().close();
+        // English: Write and close the audit log after the last component that logs has stopped.
+        // Español: Escribir y cerrar el log de auditoría cuando ya se detuvo el último componente que registra.
+        com.primebank.core.logging.AuditLogWriter.get().close();
+        com.primebank.core.logging.TransactionLogger.shutdown();
         if (scheduler != null) {
             scheduler.shutdown();
             try {
@@ -1,6 +1,9 @@
 package com.primebank.api;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Public API for PrimeBank.
@@ -13,6 +16,11 @@ import java.util.UUID;
  */
 public interface PrimeBankAPI {
 
+    /**
+     * Maximum number of distinct players one {@link #transferBatch} call may involve.
+     */
+    int MAX_BATCH_ACCOUNTS = 254;
+
     /**
      * Gets the singleton instance of the PrimeBank API.
      *
@@ -34,6 +42,31 @@ public interface PrimeBankAPI {
      */
     long getBalance(UUID player);
 
+    /**
+     * Checks whether a player has a personal account. Never throws for unknown
+     * players, so it is a cheap guard before {@link #getBalance(UUID)}.
+     *
+     * @param player The UUID of the player. A null UUID returns false.
+     * @return Whether the account exists.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    boolean hasAccount(UUID player);
+
+    /**
+     * Gets the balances of many players in one call (e.g., a leaderboard refresh).
+     * All balances are read at one point in time: a transfer running during the call
+     * shows on both sides or on neither. Ledger operations pause only for the reads
+     * themselves. Unknown players do not throw; they are reported through
+     * {@link PrimeBankBalances#hasAccountAt(int)}.
+     *
+     * @param players The UUIDs of the players. Cannot be null; null elements are
+     *                reported as unknown.
+     * @return The balances, in the iteration order of players.
+     * @throws IllegalArgumentException   If players is null.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    PrimeBankBalances getBalances(Collection<UUID> players);
+
     /**
      * Deposits money into a player's personal account.
      *
@@ -80,4 +113,73 @@ public interface PrimeBankAPI {
      * @throws PrimeBankSecurityException If called from the client side.
      */
     PrimeBankResult transfer(UUID from, UUID to, long amount, String source, String description);
+
+    /**
+     * Applies several player-to-player transfers (payroll, checkout, auction
+     * settlement) as one atomic operation.
+     * <p>
+     * Every transfer is validated first, the accounts involved are locked once, and
+     * then either all transfers are applied or none is. A sender only needs funds for
+     * its net outflow across the batch. Transfers to oneself are skipped, recipients
+     * are created like in {@link #transfer}, and a single transaction-log entry is
+     * written for the whole batch.
+     * </p>
+     *
+     * @param transfers   The transfers to apply. Cannot be null or contain null. An
+     *                    empty list succeeds without changes.
+     * @param source      The source/context of the batch. Defaults to "Unknown" if
+     *                    null/empty.
+     * @param description The description for history records of lines without
+     *                    their own. Defaults to "Unknown" if null/empty.
+     * @return {@link PrimeBankResult#SUCCESS} if every transfer was applied;
+     *         otherwise the reason nothing was (e.g., INSUFFICIENT_FUNDS).
+     * @throws IllegalArgumentException   If transfers is null or contains null, or
+     *                                    involves more than {@link #MAX_BATCH_ACCOUNTS}
+     *                                    players.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    PrimeBankResult transferBatch(List<PrimeBankTransfer> transfers, String source, String description);
+
+    /**
+     * Returns a future that completes once the last successful deposit, withdraw or
+     * transfer made by the calling thread is durable on disk, according to the
+     * server's {@code journal_durability} policy. Waiting is optional; with policy
+     * {@code none} the future is already complete. If the journal failed (e.g. the
+     * disk is full), the future completes exceptionally, also for operations made
+     * after the failure, which are applied but not journaled.
+     *
+     * @return A future completed when the last operation of this thread is durable.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    CompletableFuture<Void> lastOperationDurable();
+
+    /**
+     * Registers a listener for balance changes of every account (players,
+     * companies and the central bank).
+     * <p>
+     * Operations only queue their events; listeners are called afterwards, outside
+     * any PrimeBank lock, so a slow listener cannot delay payments. By default they
+     * run on a single PrimeBank dispatch thread; with {@code onServerThread} they
+     * run on the server thread instead, a few events per scheduled task. If
+     * listeners fall too far behind (the server's {@code event_queue_max}), new
+     * events are dropped.
+     * </p>
+     *
+     * @param listener       The listener. Cannot be null.
+     * @param onServerThread Whether to call the listener on the server thread.
+     * @throws IllegalArgumentException   If listener is null.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    void addBalanceListener(PrimeBankBalanceListener listener, boolean onServerThread);
+
+    /**
+     * Unregisters a listener added with
+     * {@link #addBalanceListener(PrimeBankBalanceListener, boolean)}. Events already
+     * queued may still be delivered to it.
+     *
+     * @param listener The listener.
+     * @return Whether the listener was registered.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    boolean removeBalanceListener(PrimeBankBalanceListener listener);
 }
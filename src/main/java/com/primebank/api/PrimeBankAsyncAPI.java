@@ -0,0 +1,95 @@
+package com.primebank.api;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous companion of {@link PrimeBankAPI}.
+ * <p>
+ * Every method returns immediately and runs the operation on PrimeBank's bounded
+ * API executor (server config {@code api_async_threads} / {@code api_async_queue}),
+ * so lock waits and journal submission never stall the calling (tick) thread.
+ * Futures complete on an executor thread, or on the server thread when obtained
+ * through {@link #onServerThread()}. If the queue is full, mutations complete with
+ * {@link PrimeBankResult#TIMEOUT} and change nothing.
+ * </p>
+ * <p>
+ * Argument and side checks run on the calling thread, exactly like the blocking
+ * API, so misuse still throws right away.
+ * </p>
+ */
+public interface PrimeBankAsyncAPI {
+
+    /**
+     * Gets the singleton instance of the asynchronous PrimeBank API.
+     *
+     * @return The API instance; futures complete on an executor thread.
+     */
+    static PrimeBankAsyncAPI getInstance() {
+        return com.primebank.core.api.PrimeBankAsyncAPIImpl.instance();
+    }
+
+    /**
+     * Returns a view of this API whose futures complete on the server thread, so
+     * callbacks may touch the world and players directly.
+     *
+     * @return The server-thread view.
+     */
+    PrimeBankAsyncAPI onServerThread();
+
+    /**
+     * Asynchronous {@link PrimeBankAPI#getBalance(UUID)}.
+     *
+     * @param player The UUID of the player. Cannot be null.
+     * @return The balance in cents. Completes exceptionally with
+     *         {@link PrimeBankException} if the account does not exist, or with
+     *         {@link java.util.concurrent.RejectedExecutionException} if the queue is
+     *         full.
+     * @throws IllegalArgumentException   If player is null.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    CompletableFuture<Long> getBalanceAsync(UUID player);
+
+    /**
+     * Asynchronous {@link PrimeBankAPI#deposit(UUID, long, String, String)}.
+     *
+     * @return A future with the result of the blocking call, or
+     *         {@link PrimeBankResult#TIMEOUT} if the queue was full.
+     * @throws IllegalArgumentException   If player is null.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    CompletableFuture<PrimeBankResult> depositAsync(UUID player, long amount, String source, String description);
+
+    /**
+     * Asynchronous {@link PrimeBankAPI#withdraw(UUID, long, String, String)}.
+     *
+     * @return A future with the result of the blocking call, or
+     *         {@link PrimeBankResult#TIMEOUT} if the queue was full.
+     * @throws IllegalArgumentException   If player is null.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    CompletableFuture<PrimeBankResult> withdrawAsync(UUID player, long amount, String source, String description);
+
+    /**
+     * Asynchronous {@link PrimeBankAPI#transfer(UUID, UUID, long, String, String)}.
+     *
+     * @return A future with the result of the blocking call, or
+     *         {@link PrimeBankResult#TIMEOUT} if the queue was full.
+     * @throws IllegalArgumentException   If from or to is null.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    CompletableFuture<PrimeBankResult> transferAsync(UUID from, UUID to, long amount, String source,
+            String description);
+
+    /**
+     * Asynchronous {@link PrimeBankAPI#transferBatch(List, String, String)}.
+     *
+     * @return A future with the result of the blocking call, or
+     *         {@link PrimeBankResult#TIMEOUT} if the queue was full.
+     * @throws IllegalArgumentException   If transfers is null or contains null.
+     * @throws PrimeBankSecurityException If called from the client side.
+     */
+    CompletableFuture<PrimeBankResult> transferBatchAsync(List<PrimeBankTransfer> transfers, String source,
+            String description);
+}
@@ -0,0 +1,93 @@
+package com.primebank.api;
+
+import java.util.UUID;
+
+/**
+ * One change of an account balance, delivered to a
+ * {@link PrimeBankBalanceListener}.
+ * <p>
+ * Every posted operation (deposits, withdrawals, transfers, POS charges, market
+ * buys, cashback, batches and API calls) produces one event per account it
+ * changes. Central fees are reported when they are credited to the fee account,
+ * as one event per settlement.
+ * </p>
+ */
+public final class PrimeBankBalanceEvent {
+    private final String accountId;
+    private final UUID owner;
+    private final long delta;
+    private final long newBalance;
+    private final String type;
+    private final String counterpartyId;
+    private final long sequence;
+
+    public PrimeBankBalanceEvent(String accountId, UUID owner, long delta, long newBalance, String type,
+            String counterpartyId, long sequence) {
+        this.accountId = accountId;
+        this.owner = owner;
+        this.delta = delta;
+        this.newBalance = newBalance;
+        this.type = type;
+        this.counterpartyId = counterpartyId;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return The id of the changed account (e.g., "u:&lt;uuid&gt;" for a player's
+     *         personal account, "c:&lt;uuid&gt;" for a company).
+     */
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * @return The owner of the account, or null for bank-owned accounts.
+     */
+    public UUID getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return The change in cents (negative for debits).
+     */
+    public long getDelta() {
+        return delta;
+    }
+
+    /**
+     * @return The balance in cents right after the change. Operations that do not
+     *         lock the account (single-account deposits and withdrawals) may already
+     *         be included when they run at the same moment.
+     */
+    public long getNewBalance() {
+        return newBalance;
+    }
+
+    /**
+     * @return The operation type (e.g., "TRANSFER", "POS_CHARGE", "DEPOSIT_API").
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return The other account of a two-party operation, or null (single-account
+     *         operations, batches, fee settlements).
+     */
+    public String getCounterpartyId() {
+        return counterpartyId;
+    }
+
+    /**
+     * @return The journal sequence of the operation; events of one operation share
+     *         it and later operations have higher ones. 0 when the journal is off.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + accountId + " " + delta + " -> " + newBalance + " (#" + sequence + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package com.primebank.api;
+
+/**
+ * Receives balance changes registered through
+ * {@link PrimeBankAPI#addBalanceListener(PrimeBankBalanceListener, boolean)}.
+ * <p>
+ * Listeners are called after the operation has finished and its locks are
+ * released, from a PrimeBank dispatch thread or (if requested) the server thread.
+ * Exceptions thrown by a listener are logged and do not affect other listeners.
+ * </p>
+ */
+@FunctionalInterface
+public interface PrimeBankBalanceListener {
+
+    /**
+     * Called once per balance change, in the order the changes were published.
+     *
+     * @param event The change.
+     */
+    void onBalanceChange(PrimeBankBalanceEvent event);
+}
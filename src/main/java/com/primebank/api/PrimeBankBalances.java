@@ -0,0 +1,85 @@
+package com.primebank.api;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Balances of several players read by {@link PrimeBankAPI#getBalances} from one
+ * consistent point in time.
+ * <p>
+ * Entries keep the order of the requested collection and are stored as primitive
+ * {@code long} cents. Players without an account are included with
+ * {@link #hasAccountAt(int)} {@code false} and a balance of 0.
+ * </p>
+ */
+public final class PrimeBankBalances {
+    private final UUID[] players;
+    private final long[] balances;
+    private final boolean[] present;
+    private final Map<UUID, Integer> index;
+
+    public PrimeBankBalances(UUID[] players, long[] balances, boolean[] present) {
+        this.players = players;
+        this.balances = balances;
+        this.present = present;
+        this.index = new HashMap<>(players.length * 2);
+        for (int i = 0; i < players.length; i++) {
+            if (players[i] != null)
+                index.putIfAbsent(players[i], i);
+        }
+    }
+
+    /**
+     * @return The number of entries (one per requested player).
+     */
+    public int size() {
+        return players.length;
+    }
+
+    /**
+     * @param i The entry index, from 0 to {@link #size()} - 1.
+     * @return The player of the entry.
+     */
+    public UUID playerAt(int i) {
+        return players[i];
+    }
+
+    /**
+     * @param i The entry index, from 0 to {@link #size()} - 1.
+     * @return The balance in cents (0 if the player has no account).
+     */
+    public long balanceAt(int i) {
+        return balances[i];
+    }
+
+    /**
+     * @param i The entry index, from 0 to {@link #size()} - 1.
+     * @return Whether the player has an account.
+     */
+    public boolean hasAccountAt(int i) {
+        return present[i];
+    }
+
+    /**
+     * Gets a player's balance without boxing.
+     *
+     * @param player       The UUID of the player.
+     * @param defaultValue The value returned if the player was not requested or has
+     *                     no account.
+     * @return The balance in cents, or defaultValue.
+     */
+    public long get(UUID player, long defaultValue) {
+        Integer i = index.get(player);
+        return i == null || !present[i] ? defaultValue : balances[i];
+    }
+
+    /**
+     * @param player The UUID of the player.
+     * @return Whether the player was requested and has an account.
+     */
+    public boolean hasAccount(UUID player) {
+        Integer i = index.get(player);
+        return i != null && present[i];
+    }
+}
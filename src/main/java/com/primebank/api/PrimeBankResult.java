@@ -24,6 +24,12 @@ public enum PrimeBankResult {
      */
     INVALID_AMOUNT,
 
+    /**
+     * The accounts stayed busy longer than the configured lock timeout, or the asynchronous API
+     * queue was full; nothing was changed and the operation can be retried.
+     */
+    TIMEOUT,
+
     /**
      * An internal error occurred during the operation.
      */
@@ -0,0 +1,61 @@
+package com.primebank.api;
+
+import java.util.UUID;
+
+/**
+ * One player-to-player transfer inside a
+ * {@link PrimeBankAPI#transferBatch(java.util.List, String, String)} call.
+ */
+public final class PrimeBankTransfer {
+    private final UUID from;
+    private final UUID to;
+    private final long amount;
+    private final String description;
+
+    /**
+     * Creates a transfer that uses the batch description.
+     *
+     * @param from   The UUID of the sender. Cannot be null.
+     * @param to     The UUID of the recipient. Cannot be null.
+     * @param amount The amount to transfer in cents. Must be positive.
+     * @throws IllegalArgumentException If from or to is null.
+     */
+    public PrimeBankTransfer(UUID from, UUID to, long amount) {
+        this(from, to, amount, null);
+    }
+
+    /**
+     * Creates a transfer with its own history description.
+     *
+     * @param from        The UUID of the sender. Cannot be null.
+     * @param to          The UUID of the recipient. Cannot be null.
+     * @param amount      The amount to transfer in cents. Must be positive.
+     * @param description The description for this line's history records, or null
+     *                    to use the batch description.
+     * @throws IllegalArgumentException If from or to is null.
+     */
+    public PrimeBankTransfer(UUID from, UUID to, long amount, String description) {
+        if (from == null || to == null)
+            throw new IllegalArgumentException("UUIDs cannot be null");
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    public UUID getFrom() {
+        return from;
+    }
+
+    public UUID getTo() {
+        return to;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
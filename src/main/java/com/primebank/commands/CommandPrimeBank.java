@@ -13,6 +13,7 @@ import com.primebank.core.accounts.CompanyAccounts;
 import com.primebank.core.ledger.Ledger;
 import com.primebank.core.state.PrimeBankState;
 import com.primebank.persistence.BankPersistence;
+import com.primebank.persistence.LedgerJournal;
 import com.primebank.persistence.PersistencePaths;
 import com.primebank.content.items.CashUtil;
 
@@ -30,6 +31,20 @@ import net.minecraft.util.math.BlockPos;
  Español: Comando raíz para PrimeBank (operaciones de prueba temporales para la Fase 1).
 */
 public class CommandPrimeBank extends CommandBase {
+    // English: Records per /pb history page.
+    // Español: Registros por página de /pb history.
+    private static final int HISTORY_PAGE_SIZE = 10;
+    // English: One background thread for the admin benchmarks and snapshot rewrites; a second request
+    // waits for the first.
+    // Español: Un único hilo de fondo para los benchmarks de admin y las reescrituras de snapshots; un
+    // segundo pedido espera al primero.
+    private static final java.util.concurrent.ExecutorService BENCH = java.util.concurrent.Executors
+            .newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "PrimeBank-Bench");
+                t.setDaemon(true);
+                return t;
+            });
+
     @Override
     public String getName() {
         return "primebank";
@@ -75,13 +90,53 @@ public class CommandPrimeBank extends CommandBase {
         return base;
     }
 
+    /*
+     * English: Optional integer argument clamped to [min, max]; null (after telling the sender) when it
+     * is not a number.
+     * Español: Argumento entero opcional limitado a [min, max]; null (tras avisar al remitente) si no
+     * es un número.
+     */
+    private static Integer intArg(ICommandSender sender, String[] args, int index, int def, int min, int max) {
+        if (args.length <= index)
+            return def;
+        try {
+            return Math.max(min, Math.min(max, Integer.parseInt(args[index])));
+        } catch (NumberFormatException e) {
+            sender.sendMessage(new TextComponentTranslation("primebank.error.bad_number", args[index]));
+            return null;
+        }
+    }
+
+    /*
+     * English: Run an admin task (benchmark, snapshot rewrite) on the shared bench thread and send its
+     * report lines (or the failure) from the server thread.
+     * Español: Correr una tarea de admin (benchmark, reescritura de snapshots) en el hilo compartido de
+     * benchmarks y enviar sus líneas de reporte (o el fallo) desde el hilo del servidor.
+     */
+    private static void runBackground(MinecraftServer server, ICommandSender sender, String name,
+            java.util.concurrent.Callable<List<String>> bench) {
+        BENCH.execute(() -> {
+            try {
+                List<String> lines = bench.call();
+                server.addScheduledTask(() -> {
+                    for (String line : lines)
+                        sender.sendMessage(new TextComponentString(line));
+                });
+            } catch (Exception e) {
+                com.primebank.PrimeBankMod.LOGGER.error("[PrimeBank] {} failed", name, e);
+                server.addScheduledTask(() -> sender.sendMessage(new TextComponentString(
+                        name + " failed: " + e + " (see the server log)")));
+            }
+        });
+    }
+
     @Override
     public String getUsage(ICommandSender sender) {
         // English: Update usage to advertise ticker support; adminapprove now takes
         // companyId|TICKER.
         // Español: Actualizar uso para anunciar soporte de ticker; adminapprove ahora
         // recibe companyId|TICKER.
-        return "/primebank <balance|history|deposit <d>|withdraw <d>|transfer <player|uuid> <d>|depositcents <c>|withdrawcents <c>|transfercents <player|uuid> <c>|mycompanybalance [companyId|TICKER]|mycompanies|companywithdraw <companyId|TICKER> <d>|setcompanyname [for <companyId|TICKER>] <name|clear>|setcompanyticker [for <companyId|TICKER>] <ticker|clear>|adminapprove <companyId|TICKER>|setcashbackbps <bps>|marketlist <shares> <companyId|TICKER>|marketbuy <companyId|TICKER> <shares>|centralbalance|centralwithdraw <d>|reload>";
+        return "/primebank <balance|history [page]|deposit <d>|withdraw <d>|transfer <player|uuid> <d>|depositcents <c>|withdrawcents <c>|transfercents <player|uuid> <c>|mycompanybalance [companyId|TICKER]|mycompanies|companywithdraw <companyId|TICKER> <d>|setcompanyname [for <companyId|TICKER>] <name|clear>|setcompanyticker [for <companyId|TICKER>] <ticker|clear>|adminapprove <companyId|TICKER>|setcashbackbps <bps>|marketlist <shares> <companyId|TICKER>|marketbuy <companyId|TICKER> <shares>|centralbalance|centralwithdraw <d>|reload>";
     }
 
     @Override
@@ -106,25 +161,54 @@ public class CommandPrimeBank extends CommandBase {
 
         switch (sub) {
             case "balance": {
-                long bal = PrimeBankState.get().accounts().get(myAcc).getBalanceCents();
+                long bal = com.primebank.core.ledger.CentralFees.get()
+                        .settledBalance(PrimeBankState.get().accounts().get(myAcc));
                 sender.sendMessage(new TextComponentTranslation("primebank.balance", Money.formatUsd(bal)));
                 break;
             }
             case "history": {
-                com.primebank.core.accounts.Account acc = PrimeBankState.get().accounts().get(myAcc);
-                java.util.List<com.primebank.core.accounts.Account.TransactionRecord> hist = acc.getHistory();
-                if (hist.isEmpty()) {
-                    sender.sendMessage(new TextComponentTranslation("primebank.history.empty"));
-                } else {
-                    sender.sendMessage(new TextComponentTranslation("primebank.history.header"));
-                    for (com.primebank.core.accounts.Account.TransactionRecord r : hist) {
-                        sender.sendMessage(new TextComponentTranslation("primebank.history.line",
-                                r.timestamp,
-                                new TextComponentTranslation("primebank.history.type." + r.type),
-                                Money.formatUsd(r.amount),
-                                r.description));
-                    }
+                // English: Page through the full history on disk (page 1 = newest); falls back to the
+                // in-memory tail while the history store is not running.
+                // Español: Paginar el historial completo en disco (página 1 = la más nueva); usa la cola
+                // en memoria mientras el almacén de historial no está activo.
+                final int page;
+                try {
+                    page = args.length >= 2 ? Integer.parseInt(args[1]) : 1;
+                } catch (NumberFormatException e) {
+                    sender.sendMessage(new TextComponentTranslation("primebank.error.bad_number", args[1]));
+                    break;
                 }
+                final com.primebank.core.accounts.Account acc = PrimeBankState.get().accounts().get(myAcc);
+                // English: The page is read on the persistence IO pool; replies go back to the server
+                // thread.
+                // Español: La página se lee en el pool de E/S de persistencia; las respuestas vuelven
+                // al hilo del servidor.
+                com.primebank.persistence.HistoryStore.get().pageAsync(acc.getId(), page, HISTORY_PAGE_SIZE)
+                        .whenComplete((p, err) -> server.addScheduledTask(() -> {
+                            java.util.List<com.primebank.core.accounts.Account.TransactionRecord> hist = acc.getHistory();
+                            int shown = 1;
+                            int pages = 1;
+                            if (err != null) {
+                                com.primebank.PrimeBankMod.LOGGER.warn("[PrimeBank] Could not read history of {}",
+                                        acc.getId(), err.getCause() != null ? err.getCause() : err);
+                            } else if (p != null && p.total > 0) {
+                                hist = p.records;
+                                shown = p.page;
+                                pages = p.pages;
+                            }
+                            if (hist.isEmpty()) {
+                                sender.sendMessage(new TextComponentTranslation("primebank.history.empty"));
+                                return;
+                            }
+                            sender.sendMessage(new TextComponentTranslation("primebank.history.header", shown, pages));
+                            for (com.primebank.core.accounts.Account.TransactionRecord r : hist) {
+                                sender.sendMessage(new TextComponentTranslation("primebank.history.line",
+                                        r.formattedTime(),
+                                        new TextComponentTranslation("primebank.history.type." + r.type),
+                                        Money.formatUsd(r.amount),
+                                        r.description));
+                            }
+                        }));
                 break;
             }
             case "setcompanyname": {
@@ -275,7 +359,8 @@ public class CommandPrimeBank extends CommandBase {
                     }
                     companyId = targetCompanyId;
                 }
-                long bal = PrimeBankState.get().accounts().get(companyId).getBalanceCents();
+                long bal = com.primebank.core.ledger.CentralFees.get()
+                        .settledBalance(PrimeBankState.get().accounts().get(companyId));
                 String label = companyLabel(server, companyId);
                 sender.sendMessage(
                         new TextComponentTranslation("primebank.company.balance", label, Money.formatUsd(bal)));
@@ -290,7 +375,8 @@ public class CommandPrimeBank extends CommandBase {
                 for (com.primebank.core.company.Company c : all) {
                     if (c.ownerUuid != null && c.ownerUuid.equals(me)) {
                         found = true;
-                        long bal = PrimeBankState.get().accounts().get(c.id).getBalanceCents();
+                        long bal = com.primebank.core.ledger.CentralFees.get()
+                                .settledBalance(PrimeBankState.get().accounts().get(c.id));
                         String label = companyLabel(server, c.id);
                         sender.sendMessage(new TextComponentTranslation("primebank.company.list.item", label,
                                 Money.formatUsd(bal)));
@@ -715,7 +801,7 @@ public class CommandPrimeBank extends CommandBase {
                     break;
                 }
                 com.primebank.core.accounts.Account central = PrimeBankState.get().ensureCentralAccount();
-                long bal = central.getBalanceCents();
+                long bal = com.primebank.core.ledger.CentralFees.get().settledBalance(central);
                 sender.sendMessage(
                         new TextComponentTranslation("primebank.admin.central.balance", Money.formatUsd(bal)));
                 break;
@@ -759,6 +845,141 @@ public class CommandPrimeBank extends CommandBase {
                 }
                 break;
             }
+            case "stats": {
+                // English: Admin-only persistence metrics (journal batches and fsync latency).
+                // Español: Métricas de persistencia solo para admin (lotes del diario y latencia de fsync).
+                if (!com.primebank.core.admin.AdminService.isAdmin(me, server, sender)) {
+                    sender.sendMessage(new TextComponentTranslation("primebank.admin.not_admin"));
+                    break;
+                }
+                sender.sendMessage(new TextComponentString("§e-- PrimeBank stats --§r"));
+                sender.sendMessage(new TextComponentString(LedgerJournal.get().describeStats()));
+                sender.sendMessage(new TextComponentString(
+                        com.primebank.persistence.CompanyPersistence.describeStats()));
+                sender.sendMessage(new TextComponentString(
+                        com.primebank.persistence.BankStores.get().describeStats()));
+                sender.sendMessage(new TextComponentString(com.primebank.core.locks.AccountLockManager.describe()));
+                sender.sendMessage(new TextComponentString(com.primebank.core.ledger.CentralFees.get().describe()));
+                sender.sendMessage(new TextComponentString(com.primebank.core.api.BalanceEventBus.get().describe()));
+                sender.sendMessage(new TextComponentString(com.primebank.core.locks.LedgerSequencer.get().describe()));
+                sender.sendMessage(new TextComponentString(com.primebank.persistence.HistoryStore.get().describe()));
+                sender.sendMessage(new TextComponentString(com.primebank.core.logging.AuditLogWriter.get().describe()));
+                for (String line : com.primebank.core.logging.TransactionLogger.describeWebhooks())
+                    sender.sendMessage(new TextComponentString(line));
+                for (String line : com.primebank.core.locks.LockSet.describeStats())
+                    sender.sendMessage(new TextComponentString(line));
+                break;
+            }
+            case "snapshotformat": {
+                // English: Admin-only converter: switch the snapshot encoding and rewrite accounts
+                // and companies in it right away.
+                // Español: Conversor solo para admin: cambiar la codificación de snapshots y
+                // reescribir cuentas y empresas en ella de inmediato.
+                if (!com.primebank.core.admin.AdminService.isAdmin(me, server, sender)) {
+                    sender.sendMessage(new TextComponentTranslation("primebank.admin.not_admin"));
+                    break;
+                }
+                if (args.length < 2 || !("json".equalsIgnoreCase(args[1]) || "binary".equalsIgnoreCase(args[1]))) {
+                    sender.sendMessage(new TextComponentString("Usage: /pb snapshotformat <binary|json> (current: "
+                            + com.primebank.core.config.PrimeBankConfig.SNAPSHOT_FORMAT.name().toLowerCase() + ")"));
+                    break;
+                }
+                com.primebank.core.config.PrimeBankConfig.SNAPSHOT_FORMAT = com.primebank.core.config.PrimeBankConfig.SnapshotFormat
+                        .valueOf(args[1].toUpperCase(java.util.Locale.ROOT));
+                String format = args[1].toLowerCase(java.util.Locale.ROOT);
+                // English: A full rewrite of accounts and companies: keep it off the server thread.
+                // Español: Una reescritura completa de cuentas y empresas: mantenerla fuera del hilo del servidor.
+                sender.sendMessage(new TextComponentString("Rewriting snapshots as " + format + "..."));
+                runBackground(server, sender, "Snapshot rewrite", () -> {
+                    BankPersistence.compactNow();
+                    com.primebank.persistence.CompanyPersistence.saveAll();
+                    return java.util.Collections.singletonList("Snapshots rewritten as " + format
+                            + ". Set snapshot_format in serverconfig/primebank.toml to keep it after a restart.");
+                });
+                break;
+            }
+            case "snapshotexport": {
+                // English: Admin-only JSON export of every account.
+                // Español: Exportación JSON de todas las cuentas solo para admin.
+                if (!com.primebank.core.admin.AdminService.isAdmin(me, server, sender)) {
+                    sender.sendMessage(new TextComponentTranslation("primebank.admin.not_admin"));
+                    break;
+                }
+                sender.sendMessage(new TextComponentString("Exporting accounts..."));
+                runBackground(server, sender, "Snapshot export", () -> java.util.Arrays.asList(
+                        "Exported accounts to " + BankPersistence.exportJson().getPath(),
+                        "To import: stop the server, replace primebank/accounts.json with it and delete primebank/users/ and primebank/snapshots/."));
+                break;
+            }
+            case "snapshotbench": {
+                // English: Admin-only benchmark of JSON vs binary snapshots (live bank or synthetic).
+                // Español: Benchmark solo para admin de snapshots JSON vs binario (banco real o sintético).
+                if (!com.primebank.core.admin.AdminService.isAdmin(me, server, sender)) {
+                    sender.sendMessage(new TextComponentTranslation("primebank.admin.not_admin"));
+                    break;
+                }
+                Integer synthetic = intArg(sender, args, 1, 0, 0, 1_000_000);
+                Integer rounds = intArg(sender, args, 2, 3, 1, 20);
+                if (synthetic == null || rounds == null)
+                    break;
+                sender.sendMessage(new TextComponentString("Running snapshot benchmark ("
+                        + (synthetic > 0 ? synthetic + " synthetic accounts" : "live bank") + ")..."));
+                runBackground(server, sender, "Snapshot benchmark",
+                        () -> com.primebank.persistence.SnapshotBenchmark.run(synthetic, rounds));
+                break;
+            }
+            case "storebench": {
+                // English: Admin-only benchmark of the files vs kv storage backends on a scratch directory.
+                // Español: Benchmark solo para admin de los backends de archivos vs kv en un directorio temporal.
+                if (!com.primebank.core.admin.AdminService.isAdmin(me, server, sender)) {
+                    sender.sendMessage(new TextComponentTranslation("primebank.admin.not_admin"));
+                    break;
+                }
+                Integer accounts = intArg(sender, args, 1, 10000, 1, 200_000);
+                Integer rounds = intArg(sender, args, 2, 100, 1, 1000);
+                if (accounts == null || rounds == null)
+                    break;
+                sender.sendMessage(new TextComponentString("Running store benchmark (" + accounts
+                        + " synthetic accounts, " + rounds + " checkpoints)..."));
+                runBackground(server, sender, "Store benchmark", () -> com.primebank.persistence.StoreBenchmark.run(accounts, rounds));
+                break;
+            }
+            case "contentionbench": {
+                // English: Admin-only benchmark of fair-lock vs compare-and-set single-account operations,
+                // with the cost of the epoch gate and of a global append lock.
+                // Español: Benchmark solo para admin de operaciones de una cuenta con lock justo vs
+                // compare-and-set, con el costo de la compuerta de épocas y de un lock global de anexado.
+                if (!com.primebank.core.admin.AdminService.isAdmin(me, server, sender)) {
+                    sender.sendMessage(new TextComponentTranslation("primebank.admin.not_admin"));
+                    break;
+                }
+                Integer threads = intArg(sender, args, 1, 8, 1, 64);
+                Integer ops = intArg(sender, args, 2, 200000, 1, 5_000_000);
+                if (threads == null || ops == null)
+                    break;
+                sender.sendMessage(new TextComponentString("Running contention benchmark (" + threads
+                        + " threads, " + ops + " ops each)..."));
+                runBackground(server, sender, "Contention benchmark",
+                        () -> com.primebank.core.ledger.ContentionBenchmark.run(threads, ops));
+                break;
+            }
+            case "seqbench": {
+                // English: Admin-only benchmark of account locks vs the single-writer sequencer.
+                // Español: Benchmark solo para admin de locks de cuenta vs el secuenciador de un solo escritor.
+                if (!com.primebank.core.admin.AdminService.isAdmin(me, server, sender)) {
+                    sender.sendMessage(new TextComponentTranslation("primebank.admin.not_admin"));
+                    break;
+                }
+                Integer threads = intArg(sender, args, 1, 8, 1, 64);
+                Integer ops = intArg(sender, args, 2, 100000, 1, 2_000_000);
+                if (threads == null || ops == null)
+                    break;
+                sender.sendMessage(new TextComponentString("Running sequencer benchmark (" + threads
+                        + " threads, " + ops + " ops each)..."));
+                runBackground(server, sender, "Sequencer benchmark",
+                        () -> com.primebank.core.ledger.SequencerBenchmark.run(threads, ops));
+                break;
+            }
             case "apistress": {
                 if (!com.primebank.core.admin.AdminService.isAdmin(me, server, sender)) {
                     sender.sendMessage(new TextComponentTranslation("primebank.admin.not_admin"));
@@ -914,7 +1135,9 @@ public class CommandPrimeBank extends CommandBase {
             String[] subs = new String[] { "balance", "history", "deposit", "withdraw", "transfer", "depositcents",
                     "withdrawcents", "transfercents", "mycompanybalance", "mycompanies", "companywithdraw",
                     "setcompanyname", "setcompanyticker", "marketlist", "marketbuy", "adminapprove",
-                    "setcashbackbps", "centralbalance", "centralwithdraw", "reload", "apistress" };
+                    "setcashbackbps", "centralbalance", "centralwithdraw", "reload", "stats", "snapshotformat",
+                    "snapshotexport", "snapshotbench", "storebench", "contentionbench", "seqbench",
+                    "apistress" };
             return CommandBase.getListOfStringsMatchingLastWord(args, subs);
         }
 
@@ -1100,7 +1323,7 @@ public class CommandPrimeBank extends CommandBase {
         sender.sendMessage(new TextComponentString("§6PrimeBank Commands:§r"));
         sender.sendMessage(new TextComponentString("§e-- Basic --§r"));
         sender.sendMessage(new TextComponentString(" /pb balance"));
-        sender.sendMessage(new TextComponentString(" /pb history"));
+        sender.sendMessage(new TextComponentString(" /pb history [page]"));
         sender.sendMessage(new TextComponentString(" /pb deposit <amount>"));
         sender.sendMessage(new TextComponentString(" /pb withdraw <amount>"));
         sender.sendMessage(new TextComponentString(" /pb transfer <player> <amount>"));
@@ -1122,6 +1345,13 @@ public class CommandPrimeBank extends CommandBase {
             sender.sendMessage(new TextComponentString("§c-- Admin --§r"));
             sender.sendMessage(new TextComponentString(" /pb adminapprove <company>"));
             sender.sendMessage(new TextComponentString(" /pb reload"));
+            sender.sendMessage(new TextComponentString(" /pb stats"));
+            sender.sendMessage(new TextComponentString(" /pb snapshotformat <binary|json>"));
+            sender.sendMessage(new TextComponentString(" /pb snapshotexport"));
+            sender.sendMessage(new TextComponentString(" /pb snapshotbench [syntheticAccounts] [rounds]"));
+            sender.sendMessage(new TextComponentString(" /pb storebench [accounts] [rounds]"));
+            sender.sendMessage(new TextComponentString(" /pb contentionbench [threads] [opsPerThread]"));
+            sender.sendMessage(new TextComponentString(" /pb seqbench [threads] [opsPerThread]"));
         }
     }
 
@@ -44,13 +44,15 @@ public class BlockTerminalPrimeBank extends Block {
                 if (collected > 0) {
                     Ledger ledger = new Ledger(PrimeBankState.get().accounts());
                     ledger.deposit(accId, collected);
-                    long bal = PrimeBankState.get().accounts().get(accId).getBalanceCents();
+                    long bal = com.primebank.core.ledger.CentralFees.get()
+                            .settledBalance(PrimeBankState.get().accounts().get(accId));
                     playerIn.sendMessage(new TextComponentTranslation("primebank.terminal.deposit_added", Money.formatUsd(collected), Money.formatUsd(bal)));
                 } else {
                     playerIn.sendMessage(new TextComponentTranslation("primebank.terminal.no_cash"));
                 }
             } else {
-                long bal = PrimeBankState.get().accounts().get(accId).getBalanceCents();
+                long bal = com.primebank.core.ledger.CentralFees.get()
+                        .settledBalance(PrimeBankState.get().accounts().get(accId));
                 playerIn.sendMessage(new TextComponentTranslation("primebank.terminal.balance", Money.formatUsd(bal)));
                 playerIn.sendMessage(new TextComponentTranslation("primebank.terminal.prompt_deposit"));
             }
@@ -1,25 +1,65 @@
 package com.primebank.core.accounts;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.core.locks.LedgerEpoch;
 
 /*
- English: Represents a bank account with a balance in cents (long).
- Español: Representa una cuenta bancaria con saldo en centavos (long).
+ English: Represents a bank account with a balance in cents (long). Balance, journal sequence and
+ history live in an immutable State that is replaced on every change, stamped with the LedgerEpoch;
+ the last state of the previous epoch is kept so snapshots can read a consistent cut lock-free.
+ Español: Representa una cuenta bancaria con saldo en centavos (long). Saldo, secuencia del diario e
+ historial viven en un State inmutable que se reemplaza en cada cambio, marcado con la LedgerEpoch;
+ se conserva el último estado de la época anterior para que los snapshots lean un corte consistente
+ sin locks.
+ English: The state is swapped with compare-and-set, so each single-account change (deposit,
+ withdraw-if-sufficient, history append) is atomic on its own and reads never lock. Operations over
+ several accounts still hold the account locks and debit through tryWithdraw().
+ Español: El estado se reemplaza con compare-and-set, así cada cambio de una sola cuenta (depósito,
+ retiro si alcanza, agregar historial) es atómico por sí mismo y las lecturas nunca bloquean. Las
+ operaciones sobre varias cuentas siguen tomando los locks de cuenta y debitan con tryWithdraw().
 */
 public class Account {
+    private static final AtomicReferenceFieldUpdater<Account, State> STATE = AtomicReferenceFieldUpdater
+            .newUpdater(Account.class, State.class, "state");
+    // English: tryWithdrawBalance() result when the balance does not cover the amount.
+    // Español: Resultado de tryWithdrawBalance() cuando el saldo no cubre el monto.
+    public static final long INSUFFICIENT = Long.MIN_VALUE;
+
     private final String id;
     private final AccountType type;
     private final UUID ownerUuid;
-    private long balanceCents;
-
-    private final java.util.List<TransactionRecord> history = new java.util.ArrayList<>();
+    private volatile State state;
+    // English: Set on every change since the last snapshot; the tracker is notified on the
+    // clean -> dirty transition so snapshots only visit changed accounts.
+    // Español: Se activa con cada cambio desde el último snapshot; el rastreador se notifica en
+    // la transición limpio -> sucio para que los snapshots solo visiten cuentas cambiadas.
+    private volatile boolean dirty;
+    private java.util.function.Consumer<Account> dirtyTracker;
+    // English: Receives every appended record for the on-disk history (see HistoryStore).
+    // Español: Recibe cada registro agregado para el historial en disco (ver HistoryStore).
+    private java.util.function.BiConsumer<Account, TransactionRecord> historyTracker;
 
     public Account(String id, AccountType type, UUID ownerUuid, long initialBalanceCents) {
         this.id = Objects.requireNonNull(id, "id");
         this.type = Objects.requireNonNull(type, "type");
         this.ownerUuid = ownerUuid;
-        this.balanceCents = initialBalanceCents;
+        this.state = new State(initialBalanceCents, 0L, TransactionHistory.EMPTY, LedgerEpoch.current(), null);
     }
 
     public String getId() {
@@ -35,36 +75,60 @@ public class Account {
     }
 
     public long getBalanceCents() {
-        return balanceCents;
+        return state.balanceCents;
     }
 
-    public java.util.List<TransactionRecord> getHistory() {
-        return java.util.Collections.unmodifiableList(history);
+    /*
+     * English: The newest records (at most history_limit), oldest first; older ones live in
+     * HistoryStore. The list is immutable and never changes afterwards, so it can be read or copied
+     * while others append.
+     * Español: Los registros más nuevos (como máximo history_limit), el más viejo primero; los
+     * anteriores viven en HistoryStore. La lista es inmutable y no cambia después, así se puede leer
+     * o copiar mientras otros agregan.
+     */
+    public List<TransactionRecord> getHistory() {
+        return state.history;
     }
 
     public void addTransaction(TransactionRecord record) {
-        if (history.size() >= 20) {
-            history.remove(0);
-        }
-        history.add(record);
+        State s;
+        TransactionHistory base = null;
+        TransactionHistory h = null;
+        do {
+            s = state;
+            // English: Retry with the same appended view while only the balance moved (its slot is ours).
+            // Español: Reintentar con la misma vista agregada mientras solo cambió el saldo (su casilla es nuestra).
+            if (s.history != base) {
+                base = (TransactionHistory) s.history;
+                h = base.append(record, PrimeBankConfig.HISTORY_LIMIT);
+            }
+        } while (!update(s, s.balanceCents, s.journalSeq, h));
+        java.util.function.BiConsumer<Account, TransactionRecord> t = historyTracker;
+        if (t != null)
+            t.accept(this, record);
     }
 
     // Used during loading
-    public void setHistory(java.util.List<TransactionRecord> history) {
-        this.history.clear();
-        if (history != null) {
-            this.history.addAll(history);
-        }
+    public void setHistory(List<TransactionRecord> history) {
+        State s = state;
+        state = new State(s.balanceCents, s.journalSeq, TransactionHistory.of(history, PrimeBankConfig.HISTORY_LIMIT),
+                s.epoch, s.prev);
     }
 
     /*
-     * English: Increase balance by amount (>= 0).
-     * Español: Incrementa el saldo por el monto (>= 0).
+     * English: Increase balance by amount (>= 0). Returns the balance this deposit produced.
+     * Español: Incrementa el saldo por el monto (>= 0). Devuelve el saldo que produjo este depósito.
      */
-    public void deposit(long amountCents) {
+    public long deposit(long amountCents) {
         if (amountCents < 0)
             throw new IllegalArgumentException("Invalid deposit amount / Monto de depósito inválido");
-        balanceCents = Math.addExact(balanceCents, amountCents);
+        State s;
+        long after;
+        do {
+            s = state;
+            after = Math.addExact(s.balanceCents, amountCents);
+        } while (!update(s, after, s.journalSeq, s.history));
+        return after;
     }
 
     /*
@@ -73,16 +137,183 @@ public class Account {
      * suficientes.
      */
     public void withdraw(long amountCents) {
+        if (!tryWithdraw(amountCents))
+            throw new IllegalStateException("Insufficient funds / Fondos insuficientes");
+    }
+
+    /*
+     * English: Atomically withdraw amount (>= 0) if the balance covers it; false otherwise. Safe
+     * without the account lock.
+     * Español: Retirar el monto (>= 0) atómicamente si el saldo lo cubre; false si no. Seguro sin
+     * el lock de la cuenta.
+     */
+    public boolean tryWithdraw(long amountCents) {
+        return tryWithdrawBalance(amountCents) != INSUFFICIENT;
+    }
+
+    /*
+     * English: tryWithdraw() returning the balance this withdraw produced, or INSUFFICIENT.
+     * Español: tryWithdraw() que devuelve el saldo que produjo este retiro, o INSUFFICIENT.
+     */
+    public long tryWithdrawBalance(long amountCents) {
         if (amountCents < 0)
             throw new IllegalArgumentException("Invalid withdraw amount / Monto de retiro inválido");
-        if (balanceCents < amountCents)
-            throw new IllegalStateException("Insufficient funds / Fondos insuficientes");
-        balanceCents = Math.subtractExact(balanceCents, amountCents);
+        State s;
+        long after;
+        do {
+            s = state;
+            if (s.balanceCents < amountCents)
+                return INSUFFICIENT;
+            after = s.balanceCents - amountCents;
+        } while (!update(s, after, s.journalSeq, s.history));
+        return after;
+    }
+
+    public long getJournalSeq() {
+        return state.journalSeq;
+    }
+
+    public void setJournalSeq(long journalSeq) {
+        State s;
+        do {
+            s = state;
+        } while (!update(s, s.balanceCents, journalSeq, s.history));
+    }
+
+    /*
+     * English: Raise the journal sequence to seq if it is newer. Lock-free operations on the same
+     * account may stamp their sequences out of order; replay only needs the highest one.
+     * Español: Subir la secuencia del diario a seq si es más nueva. Las operaciones sin lock sobre
+     * la misma cuenta pueden marcar sus secuencias fuera de orden; la reaplicación solo necesita la
+     * más alta.
+     */
+    public void advanceJournalSeq(long seq) {
+        State s;
+        do {
+            s = state;
+            if (s.journalSeq >= seq)
+                return;
+        } while (!update(s, s.balanceCents, seq, s.history));
+    }
+
+    /*
+     * English: Apply a signed delta while replaying the journal (no funds check; the
+     * original operation already validated it).
+     * Español: Aplicar un delta con signo al reaplicar el diario (sin verificar
+     * fondos; la operación original ya lo validó).
+     */
+    public void replayDelta(long deltaCents) {
+        State s;
+        do {
+            s = state;
+        } while (!update(s, Math.addExact(s.balanceCents, deltaCents), s.journalSeq, s.history));
+    }
+
+    /*
+     * English: Replace old with a new state if no one changed it meanwhile; callers retry on
+     * false. The previous state is kept as prev only if it belongs to an older epoch, so prev is
+     * always the latest state a running snapshot may still need.
+     * Español: Reemplazar old por un nuevo estado si nadie lo cambió mientras tanto; los llamadores
+     * reintentan ante false. El estado anterior se guarda como prev solo si pertenece a una época
+     * anterior, así prev siempre es el último estado que un snapshot en curso puede necesitar.
+     */
+    private boolean update(State old, long balanceCents, long journalSeq, List<TransactionRecord> history) {
+        long epoch = LedgerEpoch.current();
+        State keep = old.epoch < epoch ? old : old.prev;
+        if (!STATE.compareAndSet(this, old, new State(balanceCents, journalSeq, history, epoch, keep)))
+            return false;
+        markDirty();
+        return true;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /*
+     * English: State as of the cut that started the given epoch, or null if the account did
+     * not exist yet.
+     * Español: Estado al momento del corte que inició la época dada, o null si la cuenta aún
+     * no existía.
+     */
+    public State stateBefore(long epoch) {
+        State s = state;
+        return s.epoch < epoch ? s : s.prev;
+    }
+
+    /*
+     * English: Immutable account state version.
+     * Español: Versión inmutable del estado de la cuenta.
+     */
+    public static final class State {
+        public final long balanceCents;
+        // English: Sequence of the last journal record applied to this account (0 = none).
+        // Español: Secuencia del último registro del diario aplicado a esta cuenta (0 = ninguno).
+        public final long journalSeq;
+        public final List<TransactionRecord> history;
+        final long epoch;
+        final State prev;
+
+        State(long balanceCents, long journalSeq, List<TransactionRecord> history, long epoch, State prev) {
+            this.balanceCents = balanceCents;
+            this.journalSeq = journalSeq;
+            this.history = history;
+            this.epoch = epoch;
+            this.prev = prev;
+        }
+
+        public long epoch() {
+            return epoch;
+        }
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /*
+     * English: Flag the account as changed since the last snapshot.
+     * Español: Marcar la cuenta como cambiada desde el último snapshot.
+     */
+    public void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            java.util.function.Consumer<Account> t = dirtyTracker;
+            if (t != null)
+                t.accept(this);
+        }
     }
 
+    /*
+     * English: Called by the snapshotter while holding the account lock, right before copying.
+     * Español: Llamado por el snapshotter con el lock de la cuenta tomado, justo antes de copiar.
+     */
+    public void clearDirty() {
+        dirty = false;
+    }
+
+    void setDirtyTracker(java.util.function.Consumer<Account> tracker) {
+        this.dirtyTracker = tracker;
+    }
+
+    void setHistoryTracker(java.util.function.BiConsumer<Account, TransactionRecord> tracker) {
+        this.historyTracker = tracker;
+    }
+
+    /*
+     * English: One history entry. The time is kept as epoch milliseconds and only formatted for
+     * display; in JSON it is written as "time", and records of older saves with a "timestamp" text
+     * are converted when read.
+     * Español: Una entrada del historial. La hora se guarda en milisegundos epoch y solo se formatea
+     * al mostrarla; en JSON se escribe como "time", y los registros de guardados viejos con un texto
+     * "timestamp" se convierten al leerlos.
+     */
+    @JsonAdapter(TransactionRecord.Json.class)
     public static class TransactionRecord {
-        public String timestamp;
-        public String type; // DEPOSIT, WITHDRAW, TRANSFER, etc.
+        private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        public long time; // epoch millis
+        public TransactionType type;
         public String otherParty; // Account ID or Name
         public long amount;
         public String description;
@@ -90,12 +321,98 @@ public class Account {
         public TransactionRecord() {
         }
 
-        public TransactionRecord(String timestamp, String type, String otherParty, long amount, String description) {
-            this.timestamp = timestamp;
+        public TransactionRecord(long time, TransactionType type, String otherParty, long amount, String description) {
+            this.time = time;
             this.type = type;
             this.otherParty = otherParty;
             this.amount = amount;
             this.description = description;
         }
+
+        /*
+         * English: Time as "yyyy-MM-dd HH:mm:ss" in the server's time zone.
+         * Español: Hora como "yyyy-MM-dd HH:mm:ss" en la zona horaria del servidor.
+         */
+        public String formattedTime() {
+            return DATE_FORMAT.format(Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()));
+        }
+
+        /*
+         * English: Epoch millis of an older "yyyy-MM-dd HH:mm:ss" timestamp (server time zone), or 0.
+         * Español: Milisegundos epoch de un timestamp viejo "yyyy-MM-dd HH:mm:ss" (zona del
+         * servidor), o 0.
+         */
+        public static long parseTimestamp(String timestamp) {
+            if (timestamp == null)
+                return 0L;
+            try {
+                return LocalDateTime.parse(timestamp, DATE_FORMAT).atZone(ZoneId.systemDefault()).toInstant()
+                        .toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return 0L;
+            }
+        }
+
+        static final class Json extends TypeAdapter<TransactionRecord> {
+            @Override
+            public void write(JsonWriter out, TransactionRecord r) throws IOException {
+                if (r == null) {
+                    out.nullValue();
+                    return;
+                }
+                out.beginObject();
+                out.name("time").value(r.time);
+                if (r.type != null)
+                    out.name("type").value(r.type.name());
+                if (r.otherParty != null)
+                    out.name("otherParty").value(r.otherParty);
+                out.name("amount").value(r.amount);
+                if (r.description != null)
+                    out.name("description").value(r.description);
+                out.endObject();
+            }
+
+            @Override
+            public TransactionRecord read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                TransactionRecord r = new TransactionRecord();
+                r.type = TransactionType.OTHER;
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        continue;
+                    }
+                    switch (name) {
+                        case "time":
+                            r.time = in.nextLong();
+                            break;
+                        case "timestamp":
+                            r.time = parseTimestamp(in.nextString());
+                            break;
+                        case "type":
+                            r.type = TransactionType.parse(in.nextString());
+                            break;
+                        case "otherParty":
+                            r.otherParty = in.nextString();
+                            break;
+                        case "amount":
+                            r.amount = in.nextLong();
+                            break;
+                        case "description":
+                            r.description = in.nextString();
+                            break;
+                        default:
+                            in.skipValue();
+                    }
+                }
+                in.endObject();
+                return r;
+            }
+        }
     }
 }
@@ -1,25 +1,67 @@
 package com.primebank.core.accounts;
 
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.primebank.persistence.HistoryStore;
+
 /*
  English: Registry of accounts stored in memory.
  Español: Registro de cuentas almacenadas en memoria.
 */
 public class AccountRegistry {
     private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    // English: Ids of accounts changed since the last snapshot.
+    // Español: Ids de cuentas cambiadas desde el último snapshot.
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
 
     public Account create(String id, AccountType type, UUID ownerUuid, long initialBalanceCents) {
         Account acc = new Account(id, type, ownerUuid, initialBalanceCents);
+        acc.setDirtyTracker(a -> dirty.add(a.getId()));
+        acc.setHistoryTracker(HistoryStore.get()::append);
         Account prev = accounts.putIfAbsent(id, acc);
         if (prev != null) return prev;
+        acc.markDirty();
         return acc;
     }
 
+    /*
+     English: Remove and return the accounts changed since the last call. The caller clears each one
+     with Account.clearDirty() before reading its state at the cut (see BankPersistence.capture).
+     Español: Quitar y devolver las cuentas cambiadas desde la última llamada. El llamador limpia cada
+     una con Account.clearDirty() antes de leer su estado en el corte (ver BankPersistence.capture).
+    */
+    public List<Account> drainDirty() {
+        List<Account> out = new ArrayList<>();
+        for (Iterator<String> it = dirty.iterator(); it.hasNext();) {
+            String id = it.next();
+            it.remove();
+            Account a = accounts.get(id);
+            if (a != null) out.add(a);
+        }
+        return out;
+    }
+
+    public int dirtyCount() {
+        return dirty.size();
+    }
+
+    /*
+     English: Forget pending changes (after loading, memory equals disk).
+     Español: Olvidar cambios pendientes (tras cargar, la memoria coincide con el disco).
+    */
+    public void markAllClean() {
+        dirty.clear();
+        for (Account a : accounts.values()) a.clearDirty();
+    }
+
     public Account get(String id) {
         return accounts.get(id);
     }
@@ -38,5 +80,6 @@ public class AccountRegistry {
     */
     public void clear() {
         accounts.clear();
+        dirty.clear();
     }
 }
@@ -0,0 +1,122 @@
+package com.primebank.core.accounts;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.primebank.core.accounts.Account.TransactionRecord;
+
+/*
+ English: Immutable view of the newest records of an account, kept as a ring of two fixed blocks of
+ `limit` slots: the block being filled and the previous (full) one. Appending claims the next free
+ slot of the current block with one CAS and returns a new view sharing both blocks, so it is O(1) and
+ copies nothing; a full block just becomes the previous one. Slots are written once and older views
+ never read past their own end, so every view stays a consistent list that snapshots and /pb history
+ can read or copy without locks. Only a slot already claimed by another version (a lost race) or a
+ changed limit falls back to copying the window.
+ Español: Vista inmutable de los registros más nuevos de una cuenta, guardada como un anillo de dos
+ bloques fijos de `limit` casillas: el bloque que se está llenando y el anterior (lleno). Agregar
+ reclama la siguiente casilla libre del bloque actual con un CAS y devuelve una vista nueva que
+ comparte ambos bloques, así es O(1) y no copia nada; un bloque lleno pasa a ser el anterior. Las
+ casillas se escriben una sola vez y las vistas viejas nunca leen más allá de su propio final, así
+ cada vista sigue siendo una lista consistente que los snapshots y /pb history pueden leer o copiar
+ sin locks. Solo una casilla ya reclamada por otra versión (una carrera perdida) o un límite cambiado
+ recurren a copiar la ventana.
+*/
+final class TransactionHistory extends AbstractList<TransactionRecord> implements RandomAccess {
+    static final TransactionHistory EMPTY = new TransactionHistory(null, 0, null);
+
+    private final Block current;
+    private final int filled;
+    private final Block previous;
+
+    private TransactionHistory(Block current, int filled, Block previous) {
+        this.current = current;
+        this.filled = filled;
+        this.previous = previous;
+    }
+
+    /*
+     * English: The newest `limit` records of the list, in order.
+     * Español: Los `limit` registros más nuevos de la lista, en orden.
+     */
+    static TransactionHistory of(List<TransactionRecord> records, int limit) {
+        if (records == null || records.isEmpty())
+            return EMPTY;
+        int n = Math.min(records.size(), limit);
+        Block b = new Block(limit);
+        List<TransactionRecord> tail = records.subList(records.size() - n, records.size());
+        for (int i = 0; i < n; i++)
+            b.records[i] = tail.get(i);
+        b.claimed.set(n);
+        return new TransactionHistory(b, n, null);
+    }
+
+    /*
+     * English: This view plus record, keeping the newest `limit` records.
+     * Español: Esta vista más record, conservando los `limit` registros más nuevos.
+     */
+    TransactionHistory append(TransactionRecord record, int limit) {
+        if (current == null || current.records.length != limit)
+            return copyWith(record, limit);
+        if (filled == limit) {
+            Block b = new Block(limit);
+            b.records[0] = record;
+            b.claimed.set(1);
+            return new TransactionHistory(b, 1, current);
+        }
+        if (!current.claimed.compareAndSet(filled, filled + 1))
+            return copyWith(record, limit);
+        current.records[filled] = record;
+        return new TransactionHistory(current, filled + 1, previous);
+    }
+
+    private TransactionHistory copyWith(TransactionRecord record, int limit) {
+        int keep = Math.min(size(), limit - 1);
+        Block b = new Block(limit);
+        int from = size() - keep;
+        for (int i = 0; i < keep; i++)
+            b.records[i] = get(from + i);
+        b.records[keep] = record;
+        b.claimed.set(keep + 1);
+        return new TransactionHistory(b, keep + 1, null);
+    }
+
+    @Override
+    public int size() {
+        return previous == null ? filled : current.records.length;
+    }
+
+    @Override
+    public TransactionRecord get(int index) {
+        int size = size();
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        int older = size - filled;
+        if (index < older)
+            return previous.records[previous.records.length - older + index];
+        return current.records[index - older];
+    }
+
+    @Override
+    public Object[] toArray() {
+        int size = size();
+        Object[] out = new Object[size];
+        int older = size - filled;
+        if (older > 0)
+            System.arraycopy(previous.records, previous.records.length - older, out, 0, older);
+        if (filled > 0)
+            System.arraycopy(current.records, 0, out, older, filled);
+        return out;
+    }
+
+    private static final class Block {
+        final TransactionRecord[] records;
+        final AtomicInteger claimed = new AtomicInteger();
+
+        Block(int capacity) {
+            records = new TransactionRecord[capacity];
+        }
+    }
+}
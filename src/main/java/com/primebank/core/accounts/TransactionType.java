@@ -0,0 +1,43 @@
+package com.primebank.core.accounts;
+
+/*
+ English: Kinds of entries in an account's transaction history. The name is what snapshots and the
+ history store write and what selects the primebank.history.type.<NAME> translation.
+ Español: Tipos de entradas del historial de transacciones de una cuenta. El nombre es lo que
+ escriben los snapshots y el almacén de historial y lo que elige la traducción
+ primebank.history.type.<NOMBRE>.
+*/
+public enum TransactionType {
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER_OUT,
+    TRANSFER_IN,
+    MARKET_BUY,
+    MARKET_SELL,
+    POS_PAY,
+    POS_RECEIVE,
+    CASHBACK_OUT,
+    CASHBACK_IN,
+    FEE_COLLECT,
+    ADMIN_WITHDRAW,
+    DEPOSIT_API,
+    WITHDRAW_API,
+    TRANSFER_API_OUT,
+    TRANSFER_API_IN,
+    OTHER;
+
+    /*
+     * English: Type for a stored name; unknown or missing names (older or newer saves) become OTHER.
+     * Español: Tipo para un nombre guardado; los nombres desconocidos o ausentes (guardados más
+     * viejos o más nuevos) pasan a OTHER.
+     */
+    public static TransactionType parse(String name) {
+        if (name != null) {
+            try {
+                return valueOf(name);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return OTHER;
+    }
+}
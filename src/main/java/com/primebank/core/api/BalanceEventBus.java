@@ -0,0 +1,244 @@
+package com.primebank.core.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.primebank.api.PrimeBankBalanceEvent;
+import com.primebank.api.PrimeBankBalanceListener;
+import com.primebank.core.accounts.Account;
+import com.primebank.core.config.PrimeBankConfig;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/*
+ English: Balance-change events for API listeners. Ledger operations only build the event and offer
+ it to a lock-free queue (nothing at all while no listener is registered); a single PrimeBank-Events
+ thread drains the queue and calls the listeners, handing server-thread listeners their events in
+ batches through the server's task queue. Listeners therefore never run under account locks, and a
+ slow one only fills the queue: past event_queue_max new events are dropped and counted.
+ Español: Eventos de cambio de saldo para listeners de la API. Las operaciones del libro mayor solo
+ construyen el evento y lo ofrecen a una cola sin locks (nada en absoluto mientras no haya listeners
+ registrados); un único hilo PrimeBank-Events vacía la cola y llama a los listeners, entregando a los
+ listeners del hilo del servidor sus eventos en lotes mediante la cola de tareas del servidor. Así los
+ listeners nunca corren bajo locks de cuenta, y uno lento solo llena la cola: pasado event_queue_max
+ los eventos nuevos se descartan y se cuentan.
+*/
+public final class BalanceEventBus {
+    private static final BalanceEventBus INSTANCE = new BalanceEventBus();
+    private static final int SERVER_BATCH = 256;
+
+    private final CopyOnWriteArrayList<Registration> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<PrimeBankBalanceEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean active;
+    private volatile boolean parked;
+    private volatile Thread dispatcher;
+    private volatile List<PrimeBankBalanceEvent> leftover;
+    private boolean warnedFull;
+
+    private BalanceEventBus() {
+    }
+
+    public static BalanceEventBus get() {
+        return INSTANCE;
+    }
+
+    public void addListener(PrimeBankBalanceListener listener, boolean onServerThread) {
+        listeners.add(new Registration(listener, onServerThread));
+        active = true;
+    }
+
+    public boolean removeListener(PrimeBankBalanceListener listener) {
+        boolean removed = false;
+        for (Registration r : listeners) {
+            if (r.listener == listener)
+                removed |= listeners.remove(r);
+        }
+        active = !listeners.isEmpty();
+        return removed;
+    }
+
+    /*
+     * English: Whether anyone listens; callers skip building events otherwise.
+     * Español: Si alguien escucha; de lo contrario los llamadores no construyen eventos.
+     */
+    public boolean active() {
+        return active;
+    }
+
+    /*
+     * English: Queue the change of one account with the balance that change produced (not re-read
+     * here, where a later change may already show). Never blocks.
+     * Español: Encolar el cambio de una cuenta con el saldo que produjo ese cambio (no se relee aquí,
+     * donde ya puede verse un cambio posterior). Nunca bloquea.
+     */
+    public void publish(Account account, long delta, long newBalance, String type, String counterpartyId,
+            long seq) {
+        if (!active)
+            return;
+        if (queued.incrementAndGet() > PrimeBankConfig.EVENT_QUEUE_MAX) {
+            queued.decrementAndGet();
+            dropped.increment();
+            if (!warnedFull) {
+                warnedFull = true;
+                com.primebank.PrimeBankMod.LOGGER.warn(
+                        "[PrimeBank] Balance event queue full; dropping events until listeners catch up / Cola de eventos llena; se descartan eventos");
+            }
+            return;
+        }
+        queue.offer(new PrimeBankBalanceEvent(account.getId(), account.getOwnerUuid(), delta, newBalance, type,
+                counterpartyId, seq));
+        published.increment();
+        Thread t = dispatcher;
+        if (t == null)
+            t = start();
+        if (parked)
+            LockSupport.unpark(t);
+    }
+
+    private synchronized Thread start() {
+        Thread t = dispatcher;
+        if (t == null) {
+            t = new Thread(this::run, "PrimeBank-Events");
+            t.setDaemon(true);
+            dispatcher = t;
+            t.start();
+        }
+        return t;
+    }
+
+    private void run() {
+        Thread self = Thread.currentThread();
+        List<PrimeBankBalanceEvent> forServer = new ArrayList<>();
+        while (dispatcher == self) {
+            PrimeBankBalanceEvent e = queue.poll();
+            if (e == null) {
+                flushToServer(forServer);
+                forServer = new ArrayList<>();
+                // English: Announce the park before re-checking, so a publisher either sees the flag or
+                // its event is seen here.
+                // Español: Anunciar la espera antes de volver a mirar, así un publicador ve la bandera
+                // o su evento se ve aquí.
+                parked = true;
+                if (queue.isEmpty() && dispatcher == self)
+                    LockSupport.park(this);
+                parked = false;
+                continue;
+            }
+            queued.decrementAndGet();
+            warnedFull = false;
+            boolean serverListeners = false;
+            for (Registration r : listeners) {
+                if (r.onServerThread)
+                    serverListeners = true;
+                else
+                    deliver(r, e);
+            }
+            if (serverListeners) {
+                forServer.add(e);
+                if (forServer.size() >= SERVER_BATCH) {
+                    flushToServer(forServer);
+                    forServer = new ArrayList<>();
+                }
+            }
+        }
+        // English: Stopping: shutdown() delivers these on its own (server) thread.
+        // Español: Deteniendo: shutdown() entrega estos en su propio hilo (del servidor).
+        leftover = forServer;
+    }
+
+    private void flushToServer(List<PrimeBankBalanceEvent> events) {
+        if (events.isEmpty())
+            return;
+        Runnable task = () -> {
+            for (PrimeBankBalanceEvent e : events) {
+                for (Registration r : listeners) {
+                    if (r.onServerThread)
+                        deliver(r, e);
+                }
+            }
+        };
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        if (server == null)
+            task.run();
+        else
+            server.addScheduledTask(task);
+    }
+
+    private void deliver(Registration r, PrimeBankBalanceEvent e) {
+        try {
+            r.listener.onBalanceChange(e);
+        } catch (Throwable t) {
+            failures.increment();
+            // English: Log the first failure of each listener with its stack; count the rest.
+            // Español: Registrar el primer fallo de cada listener con su traza; contar el resto.
+            if (!r.failed) {
+                r.failed = true;
+                com.primebank.PrimeBankMod.LOGGER.warn("[PrimeBank] Balance listener {} failed", r.listener, t);
+            }
+        }
+    }
+
+    /*
+     * English: Stop the dispatcher (server stop) and deliver what is still queued on the calling
+     * thread. Listeners stay registered; the next event starts a new dispatcher.
+     * Español: Detener el despachador (parada del servidor) y entregar lo que siga en cola en el hilo
+     * llamador. Los listeners siguen registrados; el próximo evento inicia un despachador nuevo.
+     */
+    public void shutdown() {
+        Thread t;
+        synchronized (this) {
+            t = dispatcher;
+            dispatcher = null;
+        }
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(5000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<PrimeBankBalanceEvent> rest = leftover;
+        leftover = null;
+        if (rest != null) {
+            for (PrimeBankBalanceEvent e : rest) {
+                for (Registration r : listeners) {
+                    if (r.onServerThread)
+                        deliver(r, e);
+                }
+            }
+        }
+        PrimeBankBalanceEvent e;
+        while ((e = queue.poll()) != null) {
+            queued.decrementAndGet();
+            for (Registration r : listeners)
+                deliver(r, e);
+        }
+    }
+
+    public String describe() {
+        return "events: listeners=" + listeners.size() + " queued=" + queued.get() + " published="
+                + published.sum() + " dropped=" + dropped.sum() + " failures=" + failures.sum();
+    }
+
+    private static final class Registration {
+        final PrimeBankBalanceListener listener;
+        final boolean onServerThread;
+        volatile boolean failed;
+
+        Registration(PrimeBankBalanceListener listener, boolean onServerThread) {
+            this.listener = listener;
+            this.onServerThread = onServerThread;
+        }
+    }
+}
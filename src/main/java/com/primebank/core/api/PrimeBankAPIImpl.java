@@ -1,30 +1,36 @@
 package com.primebank.core.api;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
 
 import com.primebank.api.PrimeBankAPI;
+import com.primebank.api.PrimeBankBalanceListener;
+import com.primebank.api.PrimeBankBalances;
 import com.primebank.api.PrimeBankException;
 import com.primebank.api.PrimeBankResult;
 import com.primebank.api.PrimeBankSecurityException;
+import com.primebank.api.PrimeBankTransfer;
 import com.primebank.core.Money;
 import com.primebank.core.accounts.Account;
 import com.primebank.core.accounts.AccountRegistry;
 import com.primebank.core.accounts.PlayerAccounts;
-import com.primebank.core.locks.AccountLockManager;
+import com.primebank.core.accounts.TransactionType;
+import com.primebank.core.ledger.CentralFees;
+import com.primebank.core.ledger.Ledger;
+import com.primebank.core.locks.LockSet;
+import com.primebank.core.locks.LedgerEpoch;
+import com.primebank.core.locks.LedgerSequencer;
 import com.primebank.core.logging.TransactionLogger;
 import com.primebank.core.state.PrimeBankState;
+import com.primebank.persistence.LedgerJournal;
 
 import net.minecraftforge.fml.common.FMLCommonHandler;
 
 public class PrimeBankAPIImpl implements PrimeBankAPI {
     private static final PrimeBankAPIImpl INSTANCE = new PrimeBankAPIImpl();
-    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private PrimeBankAPIImpl() {
     }
@@ -33,7 +39,7 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
         return INSTANCE;
     }
 
-    private void checkServerSide() {
+    void checkServerSide() {
         if (FMLCommonHandler.instance().getSide().isClient()) {
             throw new PrimeBankSecurityException("PrimeBank API cannot be called from the client side.");
         }
@@ -43,9 +49,8 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
         return (s == null || s.isEmpty()) ? "Unknown" : s;
     }
 
-    private void record(Account acc, String type, String other, long amount, String desc) {
-        String ts = LocalDateTime.now().format(DATE_FORMAT);
-        acc.addTransaction(new Account.TransactionRecord(ts, type, other, amount, desc));
+    private void record(Account acc, TransactionType type, String other, long amount, String desc) {
+        acc.addTransaction(new Account.TransactionRecord(System.currentTimeMillis(), type, other, amount, desc));
     }
 
     @Override
@@ -57,18 +62,56 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
         String id = PlayerAccounts.personalAccountId(player);
         AccountRegistry reg = PrimeBankState.get().accounts();
 
-        // Lock for reading to ensure visibility
-        ReentrantLock lock = AccountLockManager.getLock(id);
-        lock.lock();
-        try {
-            if (!reg.exists(id)) {
-                throw new PrimeBankException("Account not found for player: " + player);
-            }
-            Account acc = reg.get(id);
-            return acc.getBalanceCents();
-        } finally {
-            lock.unlock();
+        // English: Lock-free read: the balance lives in an immutable state published through a
+        // volatile field.
+        // Español: Lectura sin lock: el saldo vive en un estado inmutable publicado mediante un
+        // campo volatile.
+        Account acc = reg.get(id);
+        if (acc == null) {
+            throw new PrimeBankException("Account not found for player: " + player);
+        }
+        return CentralFees.get().settledBalance(acc);
+    }
+
+    @Override
+    public boolean hasAccount(UUID player) {
+        if (player == null)
+            return false;
+        checkServerSide();
+        return PrimeBankState.get().accounts().exists(PlayerAccounts.personalAccountId(player));
+    }
+
+    @Override
+    public PrimeBankBalances getBalances(Collection<UUID> players) {
+        if (players == null)
+            throw new IllegalArgumentException("Players cannot be null");
+        checkServerSide();
+
+        UUID[] ids = players.toArray(new UUID[0]);
+        Account[] accs = new Account[ids.length];
+        boolean[] present = new boolean[ids.length];
+        AccountRegistry reg = PrimeBankState.get().accounts();
+        for (int i = 0; i < ids.length; i++) {
+            accs[i] = ids[i] == null ? null : reg.get(PlayerAccounts.personalAccountId(ids[i]));
+            present[i] = accs[i] != null;
         }
+        // English: Read every balance while no ledger operation is in flight, so the set is one point in
+        // time (a transfer shows on both sides or on neither). Pending fees are added instead of
+        // settled, since nothing may be written during the pause; the pause is one read per account.
+        // Español: Leer todos los saldos mientras ninguna operación del libro mayor está en curso, así
+        // el conjunto es un único punto en el tiempo (una transferencia se ve en ambos lados o en
+        // ninguno). Las comisiones pendientes se suman en vez de liquidarse, ya que nada puede
+        // escribirse durante la pausa; la pausa es una lectura por cuenta.
+        long[] balances = new long[ids.length];
+        LedgerEpoch.quiesce(() -> {
+            CentralFees fees = CentralFees.get();
+            for (int i = 0; i < accs.length; i++) {
+                if (accs[i] != null)
+                    balances[i] = accs[i].getBalanceCents() + fees.pendingCents(accs[i]);
+            }
+            return null;
+        });
+        return new PrimeBankBalances(ids, balances, present);
     }
 
     @Override
@@ -78,31 +121,35 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
         if (amount <= 0)
             return PrimeBankResult.INVALID_AMOUNT;
         checkServerSide();
+        // English: Sequencer mode: validate here, apply on the sequencer thread.
+        // Español: Modo secuenciador: validar aquí, aplicar en el hilo secuenciador.
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> deposit(player, amount, source, description),
+                    () -> PrimeBankResult.TIMEOUT);
 
         String id = PlayerAccounts.ensurePersonal(player); // ensurePersonal is safe? It calls accounts().create if
                                                            // needed.
         // ensurePersonal calls PrimeBankState.get().accounts().create inside.
         // We should lock around ensurePersonal or inside it, but ensurePersonal relies
         // on ConcurrentHashMap putIfAbsent.
-        // However, to be perfectly safe and consistent with "getLock(id)" logic, let's
-        // just get the ID and rely on registry thread-safety for existence, locking for
-        // balance mutation.
+        // The deposit itself is a single compare-and-set on the account state, so no
+        // account lock is needed.
         // PlayerAccounts.ensurePersonal checks existence and creates if missing. It is
         // thread-safe enough for creation.
 
         String sSource = sanitize(source);
         String sDesc = sanitize(description);
 
-        ReentrantLock lock = AccountLockManager.getLock(id);
-        lock.lock();
+        LedgerEpoch.enter();
         try {
             Account acc = PrimeBankState.get().accounts().get(id);
             if (acc == null) {
                 // Should potentially not happen given ensurePersonal, but safe check
                 return PrimeBankResult.ACCOUNT_NOT_FOUND;
             }
-            acc.deposit(amount);
-            record(acc, "DEPOSIT_API", sSource, amount, sDesc);
+            long after = acc.deposit(amount);
+            LedgerJournal.get().posting("DEPOSIT_API").leg(acc, amount, after).commit();
+            record(acc, TransactionType.DEPOSIT_API, sSource, amount, sDesc);
             TransactionLogger
                     .log(String.format("API DEPOSIT: %s deposited %s to %s (Ref: %s)", sSource, amount, id, sDesc));
 
@@ -112,7 +159,7 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
             com.primebank.PrimeBankMod.LOGGER.error("[PrimeBank API] Error in deposit", e);
             return PrimeBankResult.INTERNAL_ERROR;
         } finally {
-            lock.unlock();
+            LedgerEpoch.exit();
         }
     }
 
@@ -123,6 +170,9 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
         if (amount <= 0)
             return PrimeBankResult.INVALID_AMOUNT;
         checkServerSide();
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> withdraw(player, amount, source, description),
+                    () -> PrimeBankResult.TIMEOUT);
 
         String id = PlayerAccounts.personalAccountId(player);
         // Note: For withdraw, we generally don't "ensure" account if it doesn't exist,
@@ -132,18 +182,21 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
         String sSource = sanitize(source);
         String sDesc = sanitize(description);
 
-        ReentrantLock lock = AccountLockManager.getLock(id);
-        lock.lock();
+        // English: Lock-free withdraw-if-sufficient.
+        // Español: Retiro si alcanza sin lock.
+        LedgerEpoch.enter();
         try {
             Account acc = PrimeBankState.get().accounts().get(id);
             if (acc == null) {
                 return PrimeBankResult.ACCOUNT_NOT_FOUND;
             }
-            if (acc.getBalanceCents() < amount) {
+            CentralFees.get().settle(acc);
+            long after = acc.tryWithdrawBalance(amount);
+            if (after == Account.INSUFFICIENT) {
                 return PrimeBankResult.INSUFFICIENT_FUNDS;
             }
-            acc.withdraw(amount);
-            record(acc, "WITHDRAW_API", sSource, amount, sDesc);
+            LedgerJournal.get().posting("WITHDRAW_API").leg(acc, -amount, after).commit();
+            record(acc, TransactionType.WITHDRAW_API, sSource, amount, sDesc);
             TransactionLogger
                     .log(String.format("API WITHDRAW: %s withdrew %s from %s (Ref: %s)", sSource, amount, id, sDesc));
             return PrimeBankResult.SUCCESS;
@@ -151,7 +204,7 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
             com.primebank.PrimeBankMod.LOGGER.error("[PrimeBank API] Error in withdraw", e);
             return PrimeBankResult.INTERNAL_ERROR;
         } finally {
-            lock.unlock();
+            LedgerEpoch.exit();
         }
     }
 
@@ -162,6 +215,9 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
         if (amount <= 0)
             return PrimeBankResult.INVALID_AMOUNT;
         checkServerSide();
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> transfer(from, to, amount, source, description),
+                    () -> PrimeBankResult.TIMEOUT);
 
         if (from.equals(to)) {
             return PrimeBankResult.SUCCESS; // No-op
@@ -173,16 +229,12 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
         String sSource = sanitize(source);
         String sDesc = sanitize(description);
 
-        List<String> keys = new ArrayList<>();
-        keys.add(fromId);
-        keys.add(toId);
-        Collections.sort(keys); // Strict ordering to prevent deadlock
-
-        ReentrantLock lock1 = AccountLockManager.getLock(keys.get(0));
-        ReentrantLock lock2 = AccountLockManager.getLock(keys.get(1));
-
-        lock1.lock();
-        lock2.lock();
+        // Strict stripe ordering to prevent deadlock; bounded by lock_timeout_ms
+        LockSet held = LockSet.acquire("TRANSFER_API", fromId, toId, null, null);
+        if (held == null) {
+            return PrimeBankResult.TIMEOUT;
+        }
+        LedgerEpoch.enter();
         try {
             Account accFrom = PrimeBankState.get().accounts().get(fromId);
             Account accTo = PrimeBankState.get().accounts().get(toId);
@@ -194,15 +246,20 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
                 return PrimeBankResult.ACCOUNT_NOT_FOUND; // Recipient must exist (guaranteed by ensurePersonal usually)
             }
 
-            if (accFrom.getBalanceCents() < amount) {
+            // English: Debit atomically: lock-free withdraws on the sender may run concurrently.
+            // Español: Debitar atómicamente: pueden correr retiros sin lock sobre el remitente.
+            CentralFees.get().settle(accFrom);
+            long fromAfter = accFrom.tryWithdrawBalance(amount);
+            if (fromAfter == Account.INSUFFICIENT) {
                 return PrimeBankResult.INSUFFICIENT_FUNDS;
             }
 
-            accFrom.withdraw(amount);
-            accTo.deposit(amount);
+            long toAfter = accTo.deposit(amount);
+            LedgerJournal.get().posting("TRANSFER_API").leg(accFrom, -amount, fromAfter).leg(accTo, amount, toAfter)
+                    .commit();
 
-            record(accFrom, "TRANSFER_API_OUT", toId, amount, sDesc + " (to " + toId + ")");
-            record(accTo, "TRANSFER_API_IN", fromId, amount, sDesc + " (from " + fromId + ")");
+            record(accFrom, TransactionType.TRANSFER_API_OUT, toId, amount, sDesc + " (to " + toId + ")");
+            record(accTo, TransactionType.TRANSFER_API_IN, fromId, amount, sDesc + " (from " + fromId + ")");
 
             TransactionLogger.log(String.format("API TRANSFER: %s transferred %s from %s to %s (Ref: %s)",
                     sSource, amount, fromId, toId, sDesc));
@@ -212,8 +269,88 @@ public class PrimeBankAPIImpl implements PrimeBankAPI {
             com.primebank.PrimeBankMod.LOGGER.error("[PrimeBank API] Error in transfer", e);
             return PrimeBankResult.INTERNAL_ERROR;
         } finally {
-            lock2.unlock();
-            lock1.unlock();
+            LedgerEpoch.exit();
+            held.close();
+        }
+    }
+
+    @Override
+    public PrimeBankResult transferBatch(List<PrimeBankTransfer> transfers, String source, String description) {
+        if (transfers == null)
+            throw new IllegalArgumentException("Transfers cannot be null");
+        for (PrimeBankTransfer t : transfers) {
+            if (t == null)
+                throw new IllegalArgumentException("Transfers cannot contain null");
+            if (t.getAmount() <= 0)
+                return PrimeBankResult.INVALID_AMOUNT;
+        }
+        checkServerSide();
+
+        String sSource = sanitize(source);
+        String sDesc = sanitize(description);
+
+        // English: Senders must exist; recipients are created like in transfer(). Self-transfers
+        // are no-ops.
+        // Español: Los remitentes deben existir; los destinatarios se crean como en transfer().
+        // Las transferencias a uno mismo no hacen nada.
+        List<Ledger.BatchTransfer> lines = new ArrayList<>(transfers.size());
+        java.util.Set<UUID> players = new java.util.HashSet<>();
+        for (PrimeBankTransfer t : transfers) {
+            if (t.getFrom().equals(t.getTo()))
+                continue;
+            players.add(t.getFrom());
+            players.add(t.getTo());
+            if (players.size() > MAX_BATCH_ACCOUNTS)
+                throw new IllegalArgumentException("Batch involves more than " + MAX_BATCH_ACCOUNTS + " players");
+            String fromId = PlayerAccounts.personalAccountId(t.getFrom());
+            String toId = PlayerAccounts.ensurePersonal(t.getTo());
+            String lineDesc = t.getDescription() == null || t.getDescription().isEmpty() ? sDesc : t.getDescription();
+            lines.add(new Ledger.BatchTransfer(fromId, toId, t.getAmount(), 0L, TransactionType.TRANSFER_API_OUT,
+                    TransactionType.TRANSFER_API_IN, lineDesc));
+        }
+        if (lines.isEmpty())
+            return PrimeBankResult.SUCCESS;
+
+        try {
+            Ledger.BatchResult r = new Ledger(PrimeBankState.get().accounts()).transferBatch("TRANSFER_API_BATCH",
+                    sSource + " / " + sDesc, lines);
+            switch (r.code) {
+                case "ok":
+                    return PrimeBankResult.SUCCESS;
+                case "account_not_found":
+                    return PrimeBankResult.ACCOUNT_NOT_FOUND;
+                case "insufficient":
+                    return PrimeBankResult.INSUFFICIENT_FUNDS;
+                case "overflow":
+                    return PrimeBankResult.INVALID_AMOUNT;
+                case "timeout":
+                    return PrimeBankResult.TIMEOUT;
+                default:
+                    return PrimeBankResult.INTERNAL_ERROR;
+            }
+        } catch (Exception e) {
+            com.primebank.PrimeBankMod.LOGGER.error("[PrimeBank API] Error in transferBatch", e);
+            return PrimeBankResult.INTERNAL_ERROR;
         }
     }
+
+    @Override
+    public CompletableFuture<Void> lastOperationDurable() {
+        checkServerSide();
+        return LedgerJournal.get().whenLastCommitDurable();
+    }
+
+    @Override
+    public void addBalanceListener(PrimeBankBalanceListener listener, boolean onServerThread) {
+        if (listener == null)
+            throw new IllegalArgumentException("Listener cannot be null");
+        checkServerSide();
+        BalanceEventBus.get().addListener(listener, onServerThread);
+    }
+
+    @Override
+    public boolean removeBalanceListener(PrimeBankBalanceListener listener) {
+        checkServerSide();
+        return BalanceEventBus.get().removeListener(listener);
+    }
 }
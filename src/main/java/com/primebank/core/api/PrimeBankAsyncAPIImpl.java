@@ -0,0 +1,186 @@
+package com.primebank.core.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.primebank.api.PrimeBankAsyncAPI;
+import com.primebank.api.PrimeBankResult;
+import com.primebank.api.PrimeBankTransfer;
+import com.primebank.core.config.PrimeBankConfig;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/*
+ English: Async API on a bounded pool: each call validates on the caller's thread, then runs the
+ blocking PrimeBankAPIImpl operation on a PrimeBank-API worker. A full queue is reported as TIMEOUT
+ instead of blocking the caller. The server-thread view hands completion to the server's task queue.
+ Español: API asíncrona sobre un pool acotado: cada llamada valida en el hilo del llamador y luego
+ corre la operación bloqueante de PrimeBankAPIImpl en un worker PrimeBank-API. Una cola llena se
+ informa como TIMEOUT en vez de bloquear al llamador. La vista del hilo del servidor entrega la
+ finalización a la cola de tareas del servidor.
+*/
+public final class PrimeBankAsyncAPIImpl implements PrimeBankAsyncAPI {
+    private static final PrimeBankAsyncAPIImpl INSTANCE = new PrimeBankAsyncAPIImpl(null);
+    private static final PrimeBankAsyncAPIImpl ON_SERVER = new PrimeBankAsyncAPIImpl(PrimeBankAsyncAPIImpl::runOnServer);
+    private static ThreadPoolExecutor executor;
+
+    private final Executor completion;
+
+    private PrimeBankAsyncAPIImpl(Executor completion) {
+        this.completion = completion;
+    }
+
+    public static PrimeBankAsyncAPIImpl instance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public PrimeBankAsyncAPI onServerThread() {
+        return ON_SERVER;
+    }
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (executor == null || executor.isShutdown()) {
+            int threads = PrimeBankConfig.API_ASYNC_THREADS;
+            AtomicInteger n = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(PrimeBankConfig.API_ASYNC_QUEUE), r -> {
+                        Thread t = new Thread(r, "PrimeBank-API-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+        return executor;
+    }
+
+    /*
+     * English: Stop taking work and let queued operations finish (server stop, before the final
+     * snapshot). A later call starts a fresh pool.
+     * Español: Dejar de aceptar trabajo y permitir que terminen las operaciones encoladas (parada
+     * del servidor, antes del snapshot final). Una llamada posterior inicia un pool nuevo.
+     */
+    public static void shutdown() {
+        ThreadPoolExecutor ex;
+        synchronized (PrimeBankAsyncAPIImpl.class) {
+            ex = executor;
+            executor = null;
+        }
+        if (ex == null)
+            return;
+        ex.shutdown();
+        try {
+            if (!ex.awaitTermination(10, TimeUnit.SECONDS))
+                com.primebank.PrimeBankMod.LOGGER.warn("[PrimeBank] Async API operations still running at shutdown");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void runOnServer(Runnable r) {
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        if (server == null)
+            r.run();
+        else
+            server.addScheduledTask(r);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> op, T whenBusy) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        try {
+            executor().execute(() -> {
+                T value;
+                try {
+                    value = op.get();
+                } catch (Throwable t) {
+                    complete(f, null, t);
+                    return;
+                }
+                complete(f, value, null);
+            });
+        } catch (RejectedExecutionException e) {
+            if (whenBusy != null)
+                complete(f, whenBusy, null);
+            else
+                complete(f, null, e);
+        }
+        return f;
+    }
+
+    private <T> void complete(CompletableFuture<T> f, T value, Throwable error) {
+        Runnable r = () -> {
+            if (error != null)
+                f.completeExceptionally(error);
+            else
+                f.complete(value);
+        };
+        if (completion == null)
+            r.run();
+        else
+            completion.execute(r);
+    }
+
+    private static PrimeBankAPIImpl api() {
+        return PrimeBankAPIImpl.instance();
+    }
+
+    @Override
+    public CompletableFuture<Long> getBalanceAsync(UUID player) {
+        if (player == null)
+            throw new IllegalArgumentException("UUID cannot be null");
+        api().checkServerSide();
+        return submit(() -> api().getBalance(player), null);
+    }
+
+    @Override
+    public CompletableFuture<PrimeBankResult> depositAsync(UUID player, long amount, String source,
+            String description) {
+        if (player == null)
+            throw new IllegalArgumentException("UUID cannot be null");
+        api().checkServerSide();
+        return submit(() -> api().deposit(player, amount, source, description), PrimeBankResult.TIMEOUT);
+    }
+
+    @Override
+    public CompletableFuture<PrimeBankResult> withdrawAsync(UUID player, long amount, String source,
+            String description) {
+        if (player == null)
+            throw new IllegalArgumentException("UUID cannot be null");
+        api().checkServerSide();
+        return submit(() -> api().withdraw(player, amount, source, description), PrimeBankResult.TIMEOUT);
+    }
+
+    @Override
+    public CompletableFuture<PrimeBankResult> transferAsync(UUID from, UUID to, long amount, String source,
+            String description) {
+        if (from == null || to == null)
+            throw new IllegalArgumentException("UUIDs cannot be null");
+        api().checkServerSide();
+        return submit(() -> api().transfer(from, to, amount, source, description), PrimeBankResult.TIMEOUT);
+    }
+
+    @Override
+    public CompletableFuture<PrimeBankResult> transferBatchAsync(List<PrimeBankTransfer> transfers, String source,
+            String description) {
+        if (transfers == null)
+            throw new IllegalArgumentException("Transfers cannot be null");
+        for (PrimeBankTransfer t : transfers) {
+            if (t == null)
+                throw new IllegalArgumentException("Transfers cannot contain null");
+        }
+        api().checkServerSide();
+        // English: Copy so later changes to the caller's list cannot leak into the queued batch.
+        // Español: Copiar para que cambios posteriores en la lista del llamador no afecten el lote encolado.
+        List<PrimeBankTransfer> copy = new ArrayList<>(transfers);
+        return submit(() -> api().transferBatch(copy, source, description), PrimeBankResult.TIMEOUT);
+    }
+}
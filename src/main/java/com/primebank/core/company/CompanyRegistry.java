@@ -1,8 +1,11 @@
 package com.primebank.core.company;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -12,6 +15,9 @@ import java.util.concurrent.ConcurrentHashMap;
 */
 public final class CompanyRegistry {
     private final Map<String, Company> companies = new ConcurrentHashMap<>();
+    // English: Owner UUID -> ids of the companies they own.
+    // Español: UUID del dueño -> ids de las empresas que posee.
+    private final Map<UUID, Set<String>> byOwner = new ConcurrentHashMap<>();
 
     public Company get(String id) {
         return companies.get(id);
@@ -21,9 +27,33 @@ public final class CompanyRegistry {
         return Collections.unmodifiableCollection(companies.values());
     }
 
+    /*
+     * English: Companies owned by the given player, without scanning every company.
+     * Español: Empresas del jugador dado, sin recorrer todas las empresas.
+     */
+    public List<Company> ownedBy(UUID owner) {
+        List<Company> out = new ArrayList<>();
+        if (owner == null)
+            return out;
+        Set<String> ids = byOwner.get(owner);
+        if (ids == null)
+            return out;
+        for (String id : ids) {
+            Company c = companies.get(id);
+            if (c != null)
+                out.add(c);
+        }
+        return out;
+    }
+
+    private void indexOwner(Company c) {
+        if (c.ownerUuid != null)
+            byOwner.computeIfAbsent(c.ownerUuid, k -> ConcurrentHashMap.newKeySet()).add(c.id);
+    }
+
     public Company ensureDefault(UUID owner) {
         String id = "c:" + owner.toString();
-        return companies.computeIfAbsent(id, k -> {
+        Company created = companies.computeIfAbsent(id, k -> {
             Company c = new Company();
             c.id = id;
             c.ownerUuid = owner;
@@ -31,8 +61,11 @@ public final class CompanyRegistry {
             c.description = null;
             c.approved = false;
             c.appliedAt = System.currentTimeMillis();
+            com.primebank.core.ledger.FeeRouting.invalidate();
             return c;
         });
+        indexOwner(created);
+        return created;
     }
 
     /*
@@ -64,11 +97,28 @@ public final class CompanyRegistry {
         c.approved = false;
         c.appliedAt = System.currentTimeMillis();
         companies.put(id, c);
+        indexOwner(c);
+        com.primebank.core.ledger.FeeRouting.invalidate();
         return c;
     }
 
     public void put(Company c) {
         companies.put(c.id, c);
+        indexOwner(c);
+        com.primebank.core.ledger.FeeRouting.invalidate();
+    }
+
+    /*
+     * English: Bulk insert used by the loader; builds the owner index in the same pass.
+     * Español: Inserción masiva usada por el cargador; construye el índice de dueños en la
+     * misma pasada.
+     */
+    public void putAll(Collection<Company> loaded) {
+        for (Company c : loaded) {
+            companies.put(c.id, c);
+            indexOwner(c);
+        }
+        com.primebank.core.ledger.FeeRouting.invalidate();
     }
 
     public boolean isApproved(String companyId) {
@@ -93,5 +143,7 @@ public final class CompanyRegistry {
      */
     public void clear() {
         companies.clear();
+        byOwner.clear();
+        com.primebank.core.ledger.FeeRouting.invalidate();
     }
 }
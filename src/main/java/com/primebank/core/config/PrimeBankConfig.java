@@ -47,6 +47,147 @@ public final class PrimeBankConfig {
     public static String DISCORD_VALUATION_WEBHOOK_URL = "";
     public static String DISCORD_MESSAGE_LANGUAGE = "en";
 
+    /*
+     * English: Durability policy for the ledger journal.
+     * NONE = journal disabled; ASYNC = written to the OS without fsync;
+     * GROUP = records arriving within a window share one fsync; PER_OP = fsync per record.
+     * Español: Política de durabilidad del diario del libro mayor.
+     * NONE = diario deshabilitado; ASYNC = escrito al SO sin fsync;
+     * GROUP = registros dentro de una ventana comparten un fsync; PER_OP = fsync por registro.
+     */
+    public enum JournalDurability {
+        NONE, ASYNC, GROUP, PER_OP
+    }
+
+    public static JournalDurability JOURNAL_DURABILITY = JournalDurability.GROUP;
+    public static int JOURNAL_GROUP_COMMIT_WINDOW_MS = 2;
+    public static int JOURNAL_GROUP_COMMIT_MAX_RECORDS = 256;
+
+    /*
+     * English: Incremental snapshots: compact the delta segments back into accounts.json
+     * after this many segments (or once they hold as many records as half the accounts).
+     * Español: Snapshots incrementales: compactar los segmentos delta en accounts.json tras
+     * esta cantidad de segmentos (o cuando contengan tantos registros como la mitad de las cuentas).
+     */
+    public static int SNAPSHOT_COMPACT_SEGMENTS = 64;
+
+    /*
+     * English: Number of account shard files under users/ (takes effect at the next compaction).
+     * Español: Cantidad de archivos shard de cuentas bajo users/ (aplica en la próxima compactación).
+     */
+    public static int SNAPSHOT_SHARDS = 16;
+
+    /*
+     * English: Write-behind window for company files: repeated saves of the same company within
+     * it are written once (0 = write on the calling thread).
+     * Español: Ventana de escritura diferida para archivos de empresa: los guardados repetidos de
+     * la misma empresa dentro de ella se escriben una vez (0 = escribir en el hilo llamador).
+     */
+    public static int COMPANY_SAVE_DEBOUNCE_MS = 1000;
+
+    /*
+     * English: Encoding for account shards, delta segments and company files.
+     * Español: Codificación de shards de cuentas, segmentos delta y archivos de empresa.
+     */
+    public enum SnapshotFormat {
+        JSON, BINARY
+    }
+
+    public static SnapshotFormat SNAPSHOT_FORMAT = SnapshotFormat.BINARY;
+
+    /*
+     * English: Where accounts and companies are stored: per-file snapshots or the embedded
+     * transactional key-value store (primebank/store/bank.kv). Switching migrates on next start.
+     * Español: Dónde se guardan cuentas y empresas: snapshots por archivo o el almacén
+     * clave-valor transaccional embebido (primebank/store/bank.kv). Cambiarlo migra en el próximo
+     * inicio.
+     */
+    public enum StorageBackend {
+        FILES, KV
+    }
+
+    public static StorageBackend STORAGE_BACKEND = StorageBackend.FILES;
+
+    /*
+     * English: Account lock table: number of stripes (rounded up to a power of two) and whether
+     * waiting threads are served in arrival order. Applied at server start.
+     * Español: Tabla de locks de cuentas: cantidad de franjas (redondeada a potencia de dos) y si
+     * los hilos en espera se atienden en orden de llegada. Se aplica al iniciar el servidor.
+     */
+    public static int LOCK_STRIPES = 1024;
+    public static boolean LOCK_FAIR = true;
+
+    /*
+     * English: Longest wait for the account locks of a multi-account operation before it fails
+     * with "timeout" (0 = wait indefinitely).
+     * Español: Espera máxima por los locks de cuenta de una operación de varias cuentas antes de
+     * fallar con "timeout" (0 = esperar sin límite).
+     */
+    public static int LOCK_TIMEOUT_MS = 5000;
+
+    /*
+     * English: How often fees collected in the striped accumulator are credited to the central
+     * (or redirect) account. Snapshots, cashback and central withdraws settle on their own.
+     * Español: Cada cuánto se acreditan a la cuenta central (o de redirección) las comisiones
+     * reunidas en el acumulador por franjas. Los snapshots, el cashback y los retiros del central
+     * liquidan por su cuenta.
+     */
+    public static int FEE_SETTLE_INTERVAL_MS = 1000;
+
+    /*
+     * English: Worker threads and queue capacity of the asynchronous API (PrimeBankAsyncAPI).
+     * Español: Hilos de trabajo y capacidad de cola de la API asíncrona (PrimeBankAsyncAPI).
+     */
+    public static int API_ASYNC_THREADS = 2;
+    public static int API_ASYNC_QUEUE = 4096;
+
+    /*
+     * English: Balance-change events waiting for listeners before new ones are dropped, so a slow
+     * listener costs events instead of memory.
+     * Español: Eventos de cambio de saldo en espera de los listeners antes de descartar los nuevos,
+     * así un listener lento cuesta eventos en vez de memoria.
+     */
+    public static int EVENT_QUEUE_MAX = 65536;
+
+    /*
+     * English: Execution model of ledger operations: false = on the calling thread behind account
+     * locks; true = queued in a ring buffer (capacity rounded up to a power of two, applied at server
+     * start) and applied one at a time by the sequencer thread, without account locks.
+     * Español: Modelo de ejecución de las operaciones del libro mayor: false = en el hilo llamador
+     * detrás de locks de cuenta; true = encoladas en un buffer circular (capacidad redondeada a
+     * potencia de dos, se aplica al iniciar el servidor) y aplicadas una a la vez por el hilo
+     * secuenciador, sin locks de cuenta.
+     */
+    public static boolean LEDGER_SEQUENCER = false;
+    public static int LEDGER_SEQUENCER_RING = 4096;
+
+    /*
+     * English: Transaction records kept per account; the oldest is dropped when a new one arrives.
+     * Lowering it trims each account on its next record.
+     * Español: Registros de transacciones guardados por cuenta; el más viejo se descarta cuando llega
+     * uno nuevo. Bajarlo recorta cada cuenta en su próximo registro.
+     */
+    public static int HISTORY_LIMIT = 20;
+
+    /*
+     * English: Transaction audit log (primebank/logs): flushed to disk every log_flush_ms or once
+     * log_flush_kb are buffered, rotated daily or at log_rotate_mb, and rotated files gzipped when
+     * log_compress is on.
+     * Español: Log de auditoría de transacciones (primebank/logs): se vuelca a disco cada
+     * log_flush_ms o al acumular log_flush_kb, rota a diario o al llegar a log_rotate_mb, y los
+     * archivos rotados se comprimen con gzip si log_compress está activo.
+     */
+    public static int LOG_FLUSH_MS = 1000;
+    public static int LOG_FLUSH_KB = 64;
+    public static int LOG_ROTATE_MB = 16;
+    public static boolean LOG_COMPRESS = true;
+
+    /*
+     * English: Messages waiting per Discord webhook; when full the oldest one is dropped.
+     * Español: Mensajes en espera por webhook de Discord; si se llena se descarta el más viejo.
+     */
+    public static int DISCORD_QUEUE_MAX = 1000;
+
     private PrimeBankConfig() {
     }
 
@@ -91,6 +232,64 @@ public final class PrimeBankConfig {
                     "discord_message_language = \""
                             + (DISCORD_MESSAGE_LANGUAGE == null ? "en" : DISCORD_MESSAGE_LANGUAGE)
                             + "\"",
+                    "",
+                    "# Ledger journal durability: none | async | group | per_op",
+                    "# Durabilidad del diario del libro mayor: none | async | group | per_op",
+                    "journal_durability = \"" + JOURNAL_DURABILITY.name().toLowerCase(java.util.Locale.ROOT) + "\"",
+                    "",
+                    "# Group commit: max wait (ms) and max records per fsync / Commit agrupado: espera máxima (ms) y registros máximos por fsync",
+                    "journal_group_commit_window_ms = " + JOURNAL_GROUP_COMMIT_WINDOW_MS,
+                    "journal_group_commit_max_records = " + JOURNAL_GROUP_COMMIT_MAX_RECORDS,
+                    "",
+                    "# Delta snapshot segments before compacting into accounts.json / Segmentos delta antes de compactar en accounts.json",
+                    "snapshot_compact_segments = " + SNAPSHOT_COMPACT_SEGMENTS,
+                    "",
+                    "# Account shard files under users/ / Archivos shard de cuentas bajo users/",
+                    "snapshot_shards = " + SNAPSHOT_SHARDS,
+                    "",
+                    "# Snapshot encoding: binary | json / Codificación de snapshots: binary | json",
+                    "snapshot_format = \"" + SNAPSHOT_FORMAT.name().toLowerCase(java.util.Locale.ROOT) + "\"",
+                    "",
+                    "# Storage backend: files | kv / Backend de almacenamiento: files | kv",
+                    "storage_backend = \"" + STORAGE_BACKEND.name().toLowerCase(java.util.Locale.ROOT) + "\"",
+                    "",
+                    "# Company save debounce (ms, 0 = immediate) / Espera para agrupar guardados de empresas (ms, 0 = inmediato)",
+                    "company_save_debounce_ms = " + COMPANY_SAVE_DEBOUNCE_MS,
+                    "",
+                    "# Account lock stripes (power of two) and fairness / Franjas de locks de cuentas (potencia de dos) y equidad",
+                    "lock_stripes = " + LOCK_STRIPES,
+                    "lock_fair = " + LOCK_FAIR,
+                    "",
+                    "# Max wait for account locks (ms, 0 = no limit) / Espera máxima por locks de cuentas (ms, 0 = sin límite)",
+                    "lock_timeout_ms = " + LOCK_TIMEOUT_MS,
+                    "",
+                    "# Central fee settlement interval (ms) / Intervalo de liquidación de comisiones centrales (ms)",
+                    "fee_settle_interval_ms = " + FEE_SETTLE_INTERVAL_MS,
+                    "",
+                    "# Async API worker threads and queue size / Hilos y tamaño de cola de la API asíncrona",
+                    "api_async_threads = " + API_ASYNC_THREADS,
+                    "api_async_queue = " + API_ASYNC_QUEUE,
+                    "",
+                    "# Max pending balance-change events for API listeners / Máximo de eventos de saldo pendientes para listeners de la API",
+                    "event_queue_max = " + EVENT_QUEUE_MAX,
+                    "",
+                    "# Apply ledger operations on one sequencer thread instead of account locks, and its ring size / Aplicar operaciones en un hilo secuenciador en vez de locks de cuentas, y tamaño de su buffer",
+                    "ledger_sequencer = " + LEDGER_SEQUENCER,
+                    "ledger_sequencer_ring = " + LEDGER_SEQUENCER_RING,
+                    "",
+                    "# Transaction records kept per account / Registros de transacciones guardados por cuenta",
+                    "history_limit = " + HISTORY_LIMIT,
+                    "",
+                    "# Audit log flush interval (ms) and buffer (KB) / Intervalo (ms) y buffer (KB) de volcado del log de auditoría",
+                    "log_flush_ms = " + LOG_FLUSH_MS,
+                    "log_flush_kb = " + LOG_FLUSH_KB,
+                    "",
+                    "# Rotate the audit log at this size (MB) besides daily, and gzip rotated files / Rotar el log de auditoría a este tamaño (MB) además de a diario, y comprimir los rotados",
+                    "log_rotate_mb = " + LOG_ROTATE_MB,
+                    "log_compress = " + LOG_COMPRESS,
+                    "",
+                    "# Max messages waiting per Discord webhook, oldest dropped first / Máximo de mensajes en espera por webhook de Discord, se descarta el más viejo",
+                    "discord_queue_max = " + DISCORD_QUEUE_MAX,
                     "");
             Files.write(configFile.toPath(), lines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
                     StandardOpenOption.WRITE);
@@ -117,6 +316,29 @@ public final class PrimeBankConfig {
         DISCORD_MESSAGE_LANGUAGE = "en";
         CENTRAL_FEE_REDIRECT_COMPANY_ID = null;
         CASHBACK_ENABLED = true;
+        JOURNAL_DURABILITY = JournalDurability.GROUP;
+        JOURNAL_GROUP_COMMIT_WINDOW_MS = 2;
+        JOURNAL_GROUP_COMMIT_MAX_RECORDS = 256;
+        SNAPSHOT_COMPACT_SEGMENTS = 64;
+        SNAPSHOT_SHARDS = 16;
+        SNAPSHOT_FORMAT = SnapshotFormat.BINARY;
+        COMPANY_SAVE_DEBOUNCE_MS = 1000;
+        STORAGE_BACKEND = StorageBackend.FILES;
+        LOCK_STRIPES = 1024;
+        LOCK_FAIR = true;
+        LOCK_TIMEOUT_MS = 5000;
+        FEE_SETTLE_INTERVAL_MS = 1000;
+        API_ASYNC_THREADS = 2;
+        API_ASYNC_QUEUE = 4096;
+        EVENT_QUEUE_MAX = 65536;
+        LEDGER_SEQUENCER = false;
+        LEDGER_SEQUENCER_RING = 4096;
+        HISTORY_LIMIT = 20;
+        LOG_FLUSH_MS = 1000;
+        LOG_FLUSH_KB = 64;
+        LOG_ROTATE_MB = 16;
+        LOG_COMPRESS = true;
+        DISCORD_QUEUE_MAX = 1000;
 
         File cfg = new File(serverRoot, "serverconfig/primebank.toml");
         File serverConfigDir = cfg.getParentFile();
@@ -198,6 +420,102 @@ public final class PrimeBankConfig {
                             CENTRAL_FEE_REDIRECT_COMPANY_ID = val.trim();
                         }
                     }
+                } else if (line.startsWith("journal_durability")) {
+                    foundKeys.add("journal_durability");
+                    String val = valueOf(line);
+                    if (!val.isEmpty()) {
+                        try {
+                            JOURNAL_DURABILITY = JournalDurability.valueOf(val.toUpperCase(java.util.Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            com.primebank.PrimeBankMod.LOGGER.warn("Unknown journal_durability '{}', using group", val);
+                        }
+                    }
+                } else if (line.startsWith("journal_group_commit_window_ms")) {
+                    foundKeys.add("journal_group_commit_window_ms");
+                    JOURNAL_GROUP_COMMIT_WINDOW_MS = intValueOf(line, JOURNAL_GROUP_COMMIT_WINDOW_MS, 0, 1000);
+                } else if (line.startsWith("journal_group_commit_max_records")) {
+                    foundKeys.add("journal_group_commit_max_records");
+                    JOURNAL_GROUP_COMMIT_MAX_RECORDS = intValueOf(line, JOURNAL_GROUP_COMMIT_MAX_RECORDS, 1, 65536);
+                } else if (line.startsWith("snapshot_compact_segments")) {
+                    foundKeys.add("snapshot_compact_segments");
+                    SNAPSHOT_COMPACT_SEGMENTS = intValueOf(line, SNAPSHOT_COMPACT_SEGMENTS, 1, 10000);
+                } else if (line.startsWith("snapshot_shards")) {
+                    foundKeys.add("snapshot_shards");
+                    SNAPSHOT_SHARDS = intValueOf(line, SNAPSHOT_SHARDS, 1, 256);
+                } else if (line.startsWith("snapshot_format")) {
+                    foundKeys.add("snapshot_format");
+                    String val = valueOf(line);
+                    if (!val.isEmpty()) {
+                        try {
+                            SNAPSHOT_FORMAT = SnapshotFormat.valueOf(val.toUpperCase(java.util.Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            com.primebank.PrimeBankMod.LOGGER.warn("Unknown snapshot_format '{}', using binary", val);
+                        }
+                    }
+                } else if (line.startsWith("storage_backend")) {
+                    foundKeys.add("storage_backend");
+                    String val = valueOf(line);
+                    if (!val.isEmpty()) {
+                        try {
+                            STORAGE_BACKEND = StorageBackend.valueOf(val.toUpperCase(java.util.Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            com.primebank.PrimeBankMod.LOGGER.warn("Unknown storage_backend '{}', using files", val);
+                        }
+                    }
+                } else if (line.startsWith("company_save_debounce_ms")) {
+                    foundKeys.add("company_save_debounce_ms");
+                    COMPANY_SAVE_DEBOUNCE_MS = intValueOf(line, COMPANY_SAVE_DEBOUNCE_MS, 0, 60000);
+                } else if (line.startsWith("lock_stripes")) {
+                    foundKeys.add("lock_stripes");
+                    LOCK_STRIPES = intValueOf(line, LOCK_STRIPES, 1, 32768);
+                } else if (line.startsWith("lock_fair")) {
+                    foundKeys.add("lock_fair");
+                    String val = valueOf(line);
+                    if (!val.isEmpty())
+                        LOCK_FAIR = "1".equals(val) || Boolean.parseBoolean(val);
+                } else if (line.startsWith("lock_timeout_ms")) {
+                    foundKeys.add("lock_timeout_ms");
+                    LOCK_TIMEOUT_MS = intValueOf(line, LOCK_TIMEOUT_MS, 0, 600000);
+                } else if (line.startsWith("fee_settle_interval_ms")) {
+                    foundKeys.add("fee_settle_interval_ms");
+                    FEE_SETTLE_INTERVAL_MS = intValueOf(line, FEE_SETTLE_INTERVAL_MS, 50, 600000);
+                } else if (line.startsWith("api_async_threads")) {
+                    foundKeys.add("api_async_threads");
+                    API_ASYNC_THREADS = intValueOf(line, API_ASYNC_THREADS, 1, 64);
+                } else if (line.startsWith("api_async_queue")) {
+                    foundKeys.add("api_async_queue");
+                    API_ASYNC_QUEUE = intValueOf(line, API_ASYNC_QUEUE, 16, 1000000);
+                } else if (line.startsWith("event_queue_max")) {
+                    foundKeys.add("event_queue_max");
+                    EVENT_QUEUE_MAX = intValueOf(line, EVENT_QUEUE_MAX, 1024, 10000000);
+                } else if (line.startsWith("log_flush_ms")) {
+                    foundKeys.add("log_flush_ms");
+                    LOG_FLUSH_MS = intValueOf(line, LOG_FLUSH_MS, 0, 60000);
+                } else if (line.startsWith("log_flush_kb")) {
+                    foundKeys.add("log_flush_kb");
+                    LOG_FLUSH_KB = intValueOf(line, LOG_FLUSH_KB, 1, 65536);
+                } else if (line.startsWith("log_rotate_mb")) {
+                    foundKeys.add("log_rotate_mb");
+                    LOG_ROTATE_MB = intValueOf(line, LOG_ROTATE_MB, 1, 4096);
+                } else if (line.startsWith("log_compress")) {
+                    foundKeys.add("log_compress");
+                    String val = valueOf(line);
+                    if (!val.isEmpty())
+                        LOG_COMPRESS = "1".equals(val) || Boolean.parseBoolean(val);
+                } else if (line.startsWith("discord_queue_max")) {
+                    foundKeys.add("discord_queue_max");
+                    DISCORD_QUEUE_MAX = intValueOf(line, DISCORD_QUEUE_MAX, 16, 100000);
+                } else if (line.startsWith("history_limit")) {
+                    foundKeys.add("history_limit");
+                    HISTORY_LIMIT = intValueOf(line, HISTORY_LIMIT, 1, 1000);
+                } else if (line.startsWith("ledger_sequencer_ring")) {
+                    foundKeys.add("ledger_sequencer_ring");
+                    LEDGER_SEQUENCER_RING = intValueOf(line, LEDGER_SEQUENCER_RING, 64, 1 << 20);
+                } else if (line.startsWith("ledger_sequencer")) {
+                    foundKeys.add("ledger_sequencer");
+                    String val = valueOf(line);
+                    if (!val.isEmpty())
+                        LEDGER_SEQUENCER = "1".equals(val) || Boolean.parseBoolean(val);
                 }
             }
         } catch (Exception e) {
@@ -209,10 +527,61 @@ public final class PrimeBankConfig {
                 !foundKeys.contains("discord_valuation_webhook_url") ||
                 !foundKeys.contains("discord_message_language") ||
                 !foundKeys.contains("cashback_enabled") ||
-                !foundKeys.contains("central_fee_redirect_company_id")) {
+                !foundKeys.contains("central_fee_redirect_company_id") ||
+                !foundKeys.contains("journal_durability") ||
+                !foundKeys.contains("journal_group_commit_window_ms") ||
+                !foundKeys.contains("journal_group_commit_max_records") ||
+                !foundKeys.contains("snapshot_compact_segments") ||
+                !foundKeys.contains("snapshot_shards") ||
+                !foundKeys.contains("snapshot_format") ||
+                !foundKeys.contains("company_save_debounce_ms") ||
+                !foundKeys.contains("storage_backend") ||
+                !foundKeys.contains("lock_stripes") ||
+                !foundKeys.contains("lock_fair") ||
+                !foundKeys.contains("lock_timeout_ms") ||
+                !foundKeys.contains("fee_settle_interval_ms") ||
+                !foundKeys.contains("api_async_threads") ||
+                !foundKeys.contains("api_async_queue") ||
+                !foundKeys.contains("event_queue_max") ||
+                !foundKeys.contains("ledger_sequencer") ||
+                !foundKeys.contains("ledger_sequencer_ring") ||
+                !foundKeys.contains("history_limit") ||
+                !foundKeys.contains("log_flush_ms") ||
+                !foundKeys.contains("log_flush_kb") ||
+                !foundKeys.contains("log_rotate_mb") ||
+                !foundKeys.contains("log_compress") ||
+                !foundKeys.contains("discord_queue_max")) {
 
             com.primebank.PrimeBankMod.LOGGER.info("Updating PrimeBank configuration file with missing keys...");
             save(cfg);
         }
     }
+
+    /*
+     * English: Extract the (unquoted) value of a "key = value" line.
+     * Español: Extraer el valor (sin comillas) de una línea "clave = valor".
+     */
+    private static String valueOf(String line) {
+        int eq = line.indexOf('=');
+        if (eq <= 0)
+            return "";
+        String val = line.substring(eq + 1).trim();
+        if (val.length() >= 2 && val.startsWith("\"") && val.endsWith("\"")) {
+            val = val.substring(1, val.length() - 1);
+        }
+        return val.trim();
+    }
+
+    /*
+     * English: Parse an integer value clamped to [min, max]; keep the default if invalid.
+     * Español: Parsear un valor entero limitado a [min, max]; mantener el valor por defecto si es
+     * inválido.
+     */
+    private static int intValueOf(String line, int def, int min, int max) {
+        try {
+            return Math.max(min, Math.min(max, Integer.parseInt(valueOf(line))));
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
 }
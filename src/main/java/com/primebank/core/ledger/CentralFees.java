@@ -0,0 +1,191 @@
+package com.primebank.core.ledger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.TransactionType;
+import com.primebank.core.api.BalanceEventBus;
+import com.primebank.core.locks.LedgerEpoch;
+
+/*
+ English: Striped accumulator for central-bank fee income. POS charges, market buys and transfers
+ add their fee to a per-thread stripe of the fee sink instead of locking the central (or redirect)
+ account, so unrelated sales no longer serialize on that account (they still share the journal
+ append). The fee is journaled with the charge but the sink is only credited when the stripes are
+ settled: periodically, at every snapshot cut, and before anything that reads or spends the balance
+ of an account holding pending fees (any debit through the ledger or API, cashback, admin withdraw,
+ balance displays), whether that is central or the redirect sink. Settlement raises the sink's
+ journal sequence to the newest settled fee, so replay stays exact.
+ Español: Acumulador por franjas de los ingresos por comisiones del banco central. Los cobros POS,
+ las compras de mercado y las transferencias suman su comisión a una franja por hilo del destino en
+ vez de bloquear la cuenta central (o de redirección), así ventas no relacionadas ya no se
+ serializan en esa cuenta (siguen compartiendo el anexado al diario). La comisión se registra en el
+ diario con el cobro pero el destino solo se acredita al liquidar las franjas: periódicamente, en
+ cada corte de snapshot y antes de todo lo que lea o gaste el saldo de una cuenta con comisiones
+ pendientes (cualquier débito por el libro mayor o la API, cashback, retiro de admin, mostrar
+ saldos), sea el central o el destino de redirección. La liquidación sube la secuencia del diario
+ del destino a la comisión liquidada más nueva, así la reaplicación queda exacta.
+*/
+public final class CentralFees {
+    private static final CentralFees INSTANCE = new CentralFees();
+    private static final int STRIPES = Math.max(4,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1);
+
+    private final ConcurrentHashMap<Account, Cell[]> pending = new ConcurrentHashMap<>();
+
+    private CentralFees() {
+    }
+
+    public static CentralFees get() {
+        return INSTANCE;
+    }
+
+    /*
+     * English: Record a fee for the sink (journal sequence seq, 0 when the journal is off). Call
+     * inside the operation's LedgerEpoch scope.
+     * Español: Registrar una comisión para el destino (secuencia del diario seq, 0 si el diario
+     * está apagado). Llamar dentro del alcance LedgerEpoch de la operación.
+     */
+    public void add(Account sink, long amountCents, long seq) {
+        Cell[] cells = pending.get(sink);
+        if (cells == null)
+            cells = pending.computeIfAbsent(sink, k -> newCells());
+        cells[(int) Thread.currentThread().getId() & (STRIPES - 1)].add(amountCents, seq);
+    }
+
+    private static Cell[] newCells() {
+        Cell[] cells = new Cell[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+            cells[i] = new Cell();
+        return cells;
+    }
+
+    /*
+     * English: Fees collected for the sink but not credited yet.
+     * Español: Comisiones cobradas para el destino pero aún no acreditadas.
+     */
+    public long pendingCents(Account sink) {
+        Cell[] cells = pending.get(sink);
+        long total = 0L;
+        if (cells != null)
+            for (Cell c : cells)
+                total += c.peek();
+        return total;
+    }
+
+    /*
+     * English: Credit every sink with its pending fees.
+     * Español: Acreditar a cada destino sus comisiones pendientes.
+     */
+    public void settle() {
+        LedgerEpoch.enter();
+        try {
+            settleAtCut();
+        } finally {
+            LedgerEpoch.exit();
+        }
+    }
+
+    /*
+     * English: Credit the account with its pending fees. A map lookup when it has none, so it can be
+     * called before any debit or balance read of an account that might be the sink.
+     * Español: Acreditar a la cuenta sus comisiones pendientes. Una búsqueda en el mapa si no tiene,
+     * así se puede llamar antes de cualquier débito o lectura de saldo de una cuenta que podría ser
+     * el destino.
+     */
+    public void settle(Account account) {
+        Cell[] cells = account != null ? pending.get(account) : null;
+        if (cells == null)
+            return;
+        LedgerEpoch.enter();
+        try {
+            settleInto(account, cells);
+        } finally {
+            LedgerEpoch.exit();
+        }
+    }
+
+    /*
+     * English: Balance of the account including its pending fees, for displays and pre-checks.
+     * Español: Saldo de la cuenta incluyendo sus comisiones pendientes, para mostrar y
+     * verificaciones previas.
+     */
+    public long settledBalance(Account account) {
+        settle(account);
+        return account.getBalanceCents();
+    }
+
+    /*
+     * English: Settle while the caller already excludes ledger operations (inside
+     * LedgerEpoch.cut() or an enter()/exit() scope).
+     * Español: Liquidar cuando el llamador ya excluye operaciones del libro mayor (dentro de
+     * LedgerEpoch.cut() o de un alcance enter()/exit()).
+     */
+    public void settleAtCut() {
+        for (Map.Entry<Account, Cell[]> e : pending.entrySet())
+            settleInto(e.getKey(), e.getValue());
+    }
+
+    private void settleInto(Account sink, Cell[] cells) {
+        if (cells == null)
+            return;
+        long cents = 0L;
+        long maxSeq = 0L;
+        int count = 0;
+        for (Cell c : cells) {
+            synchronized (c) {
+                cents += c.cents;
+                maxSeq = Math.max(maxSeq, c.maxSeq);
+                count += c.count;
+                c.cents = 0L;
+                c.maxSeq = 0L;
+                c.count = 0;
+            }
+        }
+        if (cents > 0L) {
+            long after = sink.deposit(cents);
+            sink.addTransaction(new Account.TransactionRecord(System.currentTimeMillis(),
+                    TransactionType.FEE_COLLECT, "FEES", cents, "Fees collected (" + count + " charges)"));
+            BalanceEventBus.get().publish(sink, cents, after, "FEE_COLLECT", null, maxSeq);
+        }
+        // English: Stamp even without an amount: the newest fee's sequence may arrive after its cents.
+        // Español: Marcar incluso sin monto: la secuencia de la comisión más nueva puede llegar
+        // después de sus centavos.
+        if (maxSeq > 0L)
+            sink.advanceJournalSeq(maxSeq);
+    }
+
+    public String describe() {
+        long cents = 0L;
+        for (Cell[] cells : pending.values())
+            for (Cell c : cells)
+                cents += c.peek();
+        return "central fees: pending=" + cents + " cents sinks=" + pending.size() + " stripes=" + STRIPES;
+    }
+
+    /*
+     * English: Drop everything pending (world change; the journal still holds the fees).
+     * Español: Descartar todo lo pendiente (cambio de mundo; el diario aún contiene las comisiones).
+     */
+    public void clear() {
+        pending.clear();
+    }
+
+    private static final class Cell {
+        long cents;
+        long maxSeq;
+        int count;
+
+        synchronized void add(long amountCents, long seq) {
+            cents += amountCents;
+            if (seq > maxSeq)
+                maxSeq = seq;
+            count++;
+        }
+
+        synchronized long peek() {
+            return cents;
+        }
+    }
+}
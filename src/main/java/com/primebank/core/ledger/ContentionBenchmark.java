@@ -0,0 +1,181 @@
+package com.primebank.core.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountType;
+import com.primebank.core.locks.LedgerEpoch;
+
+/*
+ English: Measures single-account operations under contention: every thread runs the same mix
+ (80% balance reads, 10% deposits, 10% withdraws) over a few hot accounts, first behind a fair
+ per-account lock (the previous path) and then without account locks through the account's
+ compare-and-set state. Writes pass the ledger epoch gate as in the live ledger; two extra runs show
+ what the gate costs (writes without it) and what one global append lock like the journal's costs on
+ top. Uses detached accounts, so the live bank and the journal are untouched; used by
+ /pb contentionbench.
+ Español: Mide operaciones de una sola cuenta bajo contención: cada hilo corre la misma mezcla
+ (80% lecturas de saldo, 10% depósitos, 10% retiros) sobre unas pocas cuentas calientes, primero
+ detrás de un lock justo por cuenta (la ruta anterior) y luego sin locks de cuenta mediante el estado
+ compare-and-set de la cuenta. Las escrituras pasan la compuerta de épocas como en el libro mayor
+ real; dos corridas extra muestran cuánto cuesta la compuerta (escrituras sin ella) y cuánto suma un
+ lock global de anexado como el del diario. Usa cuentas sueltas, así el banco real y el diario no se
+ tocan; usado por /pb contentionbench.
+*/
+public final class ContentionBenchmark {
+    private static final int HOT_ACCOUNTS = 4;
+    private static final long START_BALANCE = 1_000_000_000L;
+    private static final long AMOUNT = 100L;
+
+    private enum Mode {
+        FAIR_LOCK, CAS, CAS_NO_GATE, CAS_APPEND_LOCK
+    }
+
+    private ContentionBenchmark() {
+    }
+
+    /*
+     * English: Run both modes with the given threads and operations per thread. Returns report lines.
+     * Español: Correr ambos modos con los hilos y operaciones por hilo dados. Devuelve líneas de reporte.
+     */
+    public static List<String> run(int threads, int opsPerThread) throws InterruptedException {
+        threads = Math.max(1, threads);
+        opsPerThread = Math.max(1, opsPerThread);
+        List<String> out = new ArrayList<>();
+        out.add(String.format("threads=%d ops/thread=%d hotAccounts=%d mix=80%% read/10%% deposit/10%% withdraw",
+                threads, opsPerThread, HOT_ACCOUNTS));
+        // English: Warm up both paths before timing.
+        // Español: Calentar ambas rutas antes de medir.
+        for (Mode m : Mode.values())
+            measure(m, threads, Math.min(opsPerThread, 20_000));
+        out.add("fair lock: " + measure(Mode.FAIR_LOCK, threads, opsPerThread));
+        out.add("no account lock: " + measure(Mode.CAS, threads, opsPerThread));
+        out.add("  without epoch gate: " + measure(Mode.CAS_NO_GATE, threads, opsPerThread));
+        out.add("  plus global append lock: " + measure(Mode.CAS_APPEND_LOCK, threads, opsPerThread));
+        return out;
+    }
+
+    private static String measure(Mode mode, int threads, int ops) throws InterruptedException {
+        boolean locked = mode == Mode.FAIR_LOCK;
+        boolean gate = mode != Mode.CAS_NO_GATE;
+        ReentrantLock append = mode == Mode.CAS_APPEND_LOCK ? new ReentrantLock() : null;
+        Account[] accounts = new Account[HOT_ACCOUNTS];
+        ReentrantLock[] locks = new ReentrantLock[HOT_ACCOUNTS];
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            accounts[i] = new Account("bench:" + i, AccountType.PERSONAL, new UUID(0L, i), START_BALANCE);
+            locks[i] = new ReentrantLock(true);
+        }
+        AtomicLong net = new AtomicLong();
+        AtomicLong checksum = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread th = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                long myNet = 0L;
+                long sum = 0L;
+                try {
+                    start.await();
+                    for (int i = 0; i < ops; i++) {
+                        int idx = rnd.nextInt(HOT_ACCOUNTS);
+                        int op = rnd.nextInt(10);
+                        if (op < 8)
+                            sum += read(accounts[idx], locked ? locks[idx] : null);
+                        else if (op == 8)
+                            myNet += deposit(accounts[idx], locked ? locks[idx] : null, gate, append);
+                        else
+                            myNet -= withdraw(accounts[idx], locked ? locks[idx] : null, gate, append);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    net.addAndGet(myNet);
+                    checksum.addAndGet(sum);
+                    done.countDown();
+                }
+            }, "PrimeBank-ContentionBench-" + t);
+            th.setDaemon(true);
+            th.start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+        long total = 0L;
+        for (Account a : accounts)
+            total += a.getBalanceCents();
+        boolean conserved = total == START_BALANCE * HOT_ACCOUNTS + net.get();
+        long totalOps = (long) threads * ops;
+        return String.format("%,.0f ops/s (%.1f ms, %.0f ns/op)%s", totalOps / (elapsed / 1e9), elapsed / 1e6,
+                (double) elapsed * threads / totalOps, conserved ? "" : " BALANCE MISMATCH");
+    }
+
+    private static long read(Account a, ReentrantLock lock) {
+        if (lock == null)
+            return a.getBalanceCents();
+        lock.lock();
+        try {
+            return a.getBalanceCents();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long deposit(Account a, ReentrantLock lock, boolean gate, ReentrantLock append) {
+        if (lock != null)
+            lock.lock();
+        if (gate)
+            LedgerEpoch.enter();
+        try {
+            a.deposit(AMOUNT);
+            appended(append);
+            return AMOUNT;
+        } finally {
+            if (gate)
+                LedgerEpoch.exit();
+            if (lock != null)
+                lock.unlock();
+        }
+    }
+
+    private static long withdraw(Account a, ReentrantLock lock, boolean gate, ReentrantLock append) {
+        if (lock != null)
+            lock.lock();
+        if (gate)
+            LedgerEpoch.enter();
+        try {
+            if (!a.tryWithdraw(AMOUNT))
+                return 0L;
+            appended(append);
+            return AMOUNT;
+        } finally {
+            if (gate)
+                LedgerEpoch.exit();
+            if (lock != null)
+                lock.unlock();
+        }
+    }
+
+    /*
+     * English: Stand-in for the journal append: one global lock held for a sequence number.
+     * Español: Sustituto del anexado al diario: un lock global tomado por un número de secuencia.
+     */
+    private static void appended(ReentrantLock append) {
+        if (append == null)
+            return;
+        append.lock();
+        try {
+            appendSeq++;
+        } finally {
+            append.unlock();
+        }
+    }
+
+    private static long appendSeq;
+}
@@ -0,0 +1,119 @@
+package com.primebank.core.ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountRegistry;
+import com.primebank.core.accounts.AccountType;
+import com.primebank.core.company.Company;
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.core.state.PrimeBankState;
+
+/*
+ English: Resolved destination of central fee income. The redirect setting (an account id or a
+ company id/ticker) is resolved once into an immutable route holding the sink account itself, so
+ payments read one volatile field instead of trimming the setting and querying the registries on
+ every charge. The route is rebuilt after invalidate() (world reset or reload, company or ticker
+ changes) or when the setting is replaced by a config load. An unusable target is reported once
+ per setting value.
+ Español: Destino resuelto del ingreso de comisiones centrales. La configuración de redirección (un
+ id de cuenta o un id/ticker de empresa) se resuelve una vez en una ruta inmutable que guarda la
+ cuenta destino, así los pagos leen un solo campo volátil en vez de recortar la configuración y
+ consultar los registros en cada cobro. La ruta se reconstruye tras invalidate() (reinicio o
+ recarga de mundo, cambios de empresa o ticker) o cuando una carga de config reemplaza el valor.
+ Un destino inválido se reporta una sola vez por valor de configuración.
+*/
+public final class FeeRouting {
+    private static final AtomicLong VERSION = new AtomicLong();
+    private static volatile Route route;
+    private static String warnedFor;
+
+    private FeeRouting() {
+    }
+
+    /*
+     * English: Mark the current route stale; the next payment resolves it again.
+     * Español: Marcar la ruta actual como vencida; el próximo pago la resuelve de nuevo.
+     */
+    public static void invalidate() {
+        VERSION.incrementAndGet();
+    }
+
+    /*
+     * English: Account that receives central fees (never null; central when no redirect applies).
+     * Español: Cuenta que recibe las comisiones centrales (nunca null; el central si no aplica
+     * redirección).
+     */
+    public static Account sink(AccountRegistry accounts) {
+        Route r = route;
+        if (r != null && r.version == VERSION.get() && r.setting == PrimeBankConfig.CENTRAL_FEE_REDIRECT_COMPANY_ID
+                && r.accounts == accounts)
+            return r.sink;
+        return rebuild(accounts).sink;
+    }
+
+    private static synchronized Route rebuild(AccountRegistry accounts) {
+        long version = VERSION.get();
+        String setting = PrimeBankConfig.CENTRAL_FEE_REDIRECT_COMPANY_ID;
+        Route r = route;
+        if (r != null && r.version == version && r.setting == setting && r.accounts == accounts)
+            return r;
+        Account sink = resolve(accounts, setting);
+        if (sink == null)
+            sink = PrimeBankState.get().ensureCentralAccount();
+        r = new Route(setting, version, accounts, sink);
+        route = r;
+        return r;
+    }
+
+    private static Account resolve(AccountRegistry accounts, String setting) {
+        if (setting == null)
+            return null;
+        String trimmed = setting.trim();
+        if (trimmed.isEmpty())
+            return null;
+        // English: Allow redirect to either a direct account id (e.g. "c:<uuid>") or a company
+        // identifier (ticker/id).
+        // Español: Permitir redirección a un id de cuenta directo (ej. "c:<uuid>") o a un
+        // identificador de empresa (ticker/id).
+        Account direct = accounts.get(trimmed);
+        if (direct != null)
+            return direct;
+        String companyId = PrimeBankState.get().resolveCompanyIdentifier(trimmed);
+        if (companyId != null) {
+            // English: Ensure the company account exists so fee deposits don't silently fall back
+            // to central.
+            // Español: Asegurar que la cuenta de la empresa exista para que los depósitos de
+            // comisiones no vuelvan silenciosamente al central.
+            Account acc = accounts.get(companyId);
+            if (acc == null) {
+                Company c = PrimeBankState.get().companies().get(companyId);
+                if (c != null)
+                    acc = accounts.create(companyId, AccountType.COMPANY, c.ownerUuid, 0L);
+            }
+            if (acc != null)
+                return acc;
+        }
+        if (!trimmed.equals(warnedFor)) {
+            warnedFor = trimmed;
+            com.primebank.PrimeBankMod.LOGGER.warn(
+                    "[PrimeBank] Central fee redirect target '{}' not found; keeping fees in central / destino no encontrado; se mantienen las comisiones en central",
+                    trimmed);
+        }
+        return null;
+    }
+
+    private static final class Route {
+        final String setting;
+        final long version;
+        final AccountRegistry accounts;
+        final Account sink;
+
+        Route(String setting, long version, AccountRegistry accounts, Account sink) {
+            this.setting = setting;
+            this.version = version;
+            this.accounts = accounts;
+            this.sink = sink;
+        }
+    }
+}
@@ -1,27 +1,30 @@
 package com.primebank.core.ledger;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.primebank.core.Money;
 import com.primebank.core.accounts.Account;
 import com.primebank.core.accounts.AccountRegistry;
+import com.primebank.core.accounts.TransactionType;
 import com.primebank.core.config.PrimeBankConfig;
 import com.primebank.core.state.PrimeBankState;
-import com.primebank.core.locks.AccountLockManager;
+import com.primebank.core.locks.LockSet;
+import com.primebank.core.locks.LedgerEpoch;
+import com.primebank.core.locks.LedgerSequencer;
+import com.primebank.persistence.LedgerJournal;
 
 /*
- English: Ledger operations with atomic transfers and fee logic.
- Español: Operaciones del libro mayor con transferencias atómicas y lógica de comisiones.
+ English: Ledger operations with atomic transfers and fee logic. With ledger_sequencer on, every
+ public operation hands itself to the LedgerSequencer and waits for its result.
+ Español: Operaciones del libro mayor con transferencias atómicas y lógica de comisiones. Con
+ ledger_sequencer activo, cada operación pública se entrega al LedgerSequencer y espera su resultado.
 */
 public final class Ledger {
-    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private final AccountRegistry accounts;
 
     public Ledger(AccountRegistry accounts) {
@@ -29,66 +32,26 @@ public final class Ledger {
     }
 
     /*
-     * English: Resolve where central fee income should be deposited (config redirect or
-     * central fallback).
-     * Español: Resolver dónde debe depositarse el ingreso de comisiones del banco
-     * central (redirección por config o central por defecto).
+     * English: Durability future for the last operation this thread committed. Callers that must
+     * not lose the operation (e.g. before handing out items) can wait on it; others ignore it.
+     * Español: Futuro de durabilidad de la última operación confirmada por este hilo. Quien no
+     * pueda perder la operación (p. ej. antes de entregar ítems) puede esperarlo; el resto lo ignora.
      */
-    private String getCentralFeeSinkId() {
-        String cfg = PrimeBankConfig.CENTRAL_FEE_REDIRECT_COMPANY_ID;
-        if (cfg != null) {
-            String trimmed = cfg.trim();
-            if (!trimmed.isEmpty()) {
-                // English: Allow redirect to either a direct account id (e.g. "c:<uuid>")
-                // or a company identifier (ticker/id).
-                // Español: Permitir redirección a un id de cuenta directo (ej. "c:<uuid>")
-                // o a un identificador de empresa (ticker/id).
-                if (accounts.get(trimmed) != null) {
-                    return trimmed;
-                }
-
-                String resolvedCompanyId = PrimeBankState.get().resolveCompanyIdentifier(trimmed);
-                if (resolvedCompanyId != null) {
-                    // English: Ensure the company account exists so fee deposits don't silently
-                    // fall back to central.
-                    // Español: Asegurar que la cuenta de la empresa exista para que los depósitos
-                    // de comisiones no vuelvan silenciosamente al central.
-                    if (accounts.get(resolvedCompanyId) == null) {
-                        com.primebank.core.company.Company c = PrimeBankState.get().companies().get(resolvedCompanyId);
-                        if (c != null) {
-                            accounts.create(resolvedCompanyId, com.primebank.core.accounts.AccountType.COMPANY,
-                                    c.ownerUuid, 0L);
-                        }
-                    }
-                    if (accounts.get(resolvedCompanyId) != null) {
-                        return resolvedCompanyId;
-                    }
-                }
-
-                com.primebank.PrimeBankMod.LOGGER.warn(
-                        "[PrimeBank] Central fee redirect target '{}' not found; keeping fees in central / destino no encontrado; se mantienen las comisiones en central",
-                        trimmed);
-            }
-        }
-        return PrimeBankState.CENTRAL_ACCOUNT_ID;
+    public static CompletableFuture<Void> durability() {
+        return LedgerJournal.get().whenLastCommitDurable();
     }
 
     /*
-     * English: Deposit fee into central or redirected sink, recording the collection.
-     * Español: Depositar comisión en el central o destino redirigido, registrando la
-     * cobranza.
+     * English: Hand a journaled fee (see Posting.deferredLeg) to the striped accumulator, which
+     * credits the sink on settlement, and log the collection. The sink is never locked here.
+     * Español: Entregar una comisión ya registrada en el diario (ver Posting.deferredLeg) al
+     * acumulador por franjas, que acredita al destino al liquidar, y registrar la cobranza. El
+     * destino nunca se bloquea aquí.
      */
-    private void depositCentralFee(Account central, String sinkId, long amountCents, String sourceLabel) {
-        Account sink = sinkId.equals(central.getId()) ? central : accounts.get(sinkId);
-        if (sink == null) {
-            sink = central;
-            sinkId = central.getId();
-            com.primebank.PrimeBankMod.LOGGER.warn(
-                    "[PrimeBank] Fee sink missing; depositing to central instead / Destino de comisión faltante; se deposita en central");
-        }
-        sink.deposit(amountCents);
-        record(sink, "FEE_COLLECT", sourceLabel, amountCents, "Fee collected (" + sourceLabel + ")");
-        if (!sinkId.equals(central.getId())) {
+    private void collectCentralFee(Account sink, long amountCents, String sourceLabel, long seq) {
+        CentralFees.get().add(sink, amountCents, seq);
+        String sinkId = sink.getId();
+        if (!sinkId.equals(PrimeBankState.CENTRAL_ACCOUNT_ID)) {
             com.primebank.PrimeBankMod.LOGGER.info(
                     "[PrimeBank] Central fee redirect: {} cents from {} routed to {} / Redirección de comisión central: {} centavos desde {} hacia {}",
                     amountCents, sourceLabel, sinkId, amountCents, sourceLabel, sinkId);
@@ -99,9 +62,8 @@ public final class Ledger {
                 .log(String.format("FEE COLLECT: Source %s amount %s cents routed to %s", sourceLabel, amountCents, sinkId));
     }
 
-    private void record(Account acc, String type, String other, long amount, String desc) {
-        String ts = LocalDateTime.now().format(DATE_FORMAT);
-        acc.addTransaction(new Account.TransactionRecord(ts, type, other, amount, desc));
+    private void record(Account acc, TransactionType type, String other, long amount, String desc) {
+        acc.addTransaction(new Account.TransactionRecord(System.currentTimeMillis(), type, other, amount, desc));
     }
 
     /*
@@ -111,6 +73,9 @@ public final class Ledger {
      * atómicamente (mínimo con saldo del central).
      */
     public OpResult applyCashbackToBuyer(String buyerId, long cashbackCents) {
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> applyCashbackToBuyer(buyerId, cashbackCents),
+                    () -> new OpResult(false, "timeout", "Ledger busy"));
         if (cashbackCents <= 0)
             return new OpResult(true, "ok", "No cashback");
         String centralId = PrimeBankState.CENTRAL_ACCOUNT_ID;
@@ -118,16 +83,14 @@ public final class Ledger {
         Account central = accounts.get(centralId);
         if (buyer == null || central == null)
             central = PrimeBankState.get().ensureCentralAccount();
-        List<String> keys = new ArrayList<>();
-        keys.add(buyerId);
-        keys.add(centralId);
-        Collections.sort(keys);
-        List<ReentrantLock> locks = new ArrayList<>(keys.size());
-        for (String k : keys) {
-            ReentrantLock l = com.primebank.core.locks.AccountLockManager.getLock(k);
-            l.lock();
-            locks.add(l);
-        }
+        LockSet held = LockSet.acquire("CASHBACK", buyerId, centralId, null, null);
+        if (held == null)
+            return new OpResult(false, "timeout", "Accounts busy");
+        // English: Credit pending fees first so the funds check sees central's real balance.
+        // Español: Acreditar primero las comisiones pendientes para que la verificación de fondos
+        // vea el saldo real del central.
+        CentralFees.get().settle(central);
+        LedgerEpoch.enter();
         try {
             long centralBal = central.getBalanceCents();
             long amt = Math.min(cashbackCents, Math.max(0, centralBal));
@@ -142,20 +105,22 @@ public final class Ledger {
                         centralBal, cashbackCents, amt);
             }
 
-            if (amt <= 0)
+            long centralAfter = amt > 0 ? central.tryWithdrawBalance(amt) : Account.INSUFFICIENT;
+            if (centralAfter == Account.INSUFFICIENT)
                 return new OpResult(false, "central_insufficient", "Central has no funds");
-            central.withdraw(amt);
-            buyer.deposit(amt);
+            long buyerAfter = buyer.deposit(amt);
+            LedgerJournal.get().posting("CASHBACK").leg(central, -amt, centralAfter).leg(buyer, amt, buyerAfter)
+                    .commit();
 
-            record(central, "CASHBACK_OUT", buyerId, amt, "Cashback to buyer");
-            record(buyer, "CASHBACK_IN", centralId, amt, "Cashback from central");
+            record(central, TransactionType.CASHBACK_OUT, buyerId, amt, "Cashback to buyer");
+            record(buyer, TransactionType.CASHBACK_IN, centralId, amt, "Cashback from central");
 
             com.primebank.core.logging.TransactionLogger
                     .log(String.format("CASHBACK: Buyer %s received %s cents from Central", buyerId, amt));
             return new OpResult(true, "ok", "Cashback applied");
         } finally {
-            for (int i = locks.size() - 1; i >= 0; i--)
-                locks.get(i).unlock();
+            LedgerEpoch.exit();
+            held.close();
         }
     }
 
@@ -167,6 +132,10 @@ public final class Ledger {
      */
     public TransferResult marketPrimaryBuy(String buyerId, String companyId, long grossCents, int buyerFeeBps,
             int issuerFeeBps) {
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(
+                    () -> marketPrimaryBuy(buyerId, companyId, grossCents, buyerFeeBps, issuerFeeBps),
+                    () -> new TransferResult(false, "timeout", "Ledger busy", false, 0));
         if (grossCents <= 0)
             return new TransferResult(false, "amount_le_zero", "Amount must be > 0", false, 0);
         if (buyerId == null || companyId == null || buyerId.equals(companyId)) {
@@ -176,49 +145,39 @@ public final class Ledger {
         Account company = accounts.get(companyId);
         if (buyer == null || company == null)
             return new TransferResult(false, "account_not_found", "Account not found", false, 0);
-        String centralId = PrimeBankState.CENTRAL_ACCOUNT_ID;
-        Account central = accounts.get(centralId);
-        if (central == null)
-            central = PrimeBankState.get().ensureCentralAccount();
-        String sinkId = getCentralFeeSinkId();
-
-        Set<String> keys = new HashSet<>();
-        keys.add(buyerId);
-        keys.add(companyId);
-        keys.add(centralId);
-        keys.add(sinkId);
-        List<String> ordered = new ArrayList<>(keys);
-        Collections.sort(ordered);
-        List<ReentrantLock> locks = new ArrayList<>(ordered.size());
-        for (String k : ordered) {
-            ReentrantLock l = com.primebank.core.locks.AccountLockManager.getLock(k);
-            l.lock();
-            locks.add(l);
-        }
+
+        LockSet held = LockSet.acquire("MARKET_BUY", buyerId, companyId, null, null);
+        if (held == null)
+            return new TransferResult(false, "timeout", "Accounts busy", false, 0);
+        CentralFees.get().settle(buyer);
+        LedgerEpoch.enter();
         try {
             long buyerFee = Money.multiplyBps(grossCents, buyerFeeBps);
             long issuerFee = Money.multiplyBps(grossCents, issuerFeeBps);
             long totalDebit = Money.add(grossCents, buyerFee);
-            if (buyer.getBalanceCents() < totalDebit) {
+            long buyerAfter = buyer.tryWithdrawBalance(totalDebit);
+            if (buyerAfter == Account.INSUFFICIENT) {
                 return new TransferResult(false, "insufficient", "Insufficient funds", true, buyerFee);
             }
-            buyer.withdraw(totalDebit);
             long netToCompany = Money.add(grossCents, -issuerFee);
-            company.deposit(netToCompany);
+            long companyAfter = company.deposit(netToCompany);
             long toCentral = Money.add(buyerFee, issuerFee);
-            if (toCentral > 0)
-                depositCentralFee(central, sinkId, toCentral, "MARKET");
+            Account sink = toCentral > 0 ? FeeRouting.sink(accounts) : null;
+            long seq = LedgerJournal.get().posting("MARKET_BUY").leg(buyer, -totalDebit, buyerAfter)
+                    .leg(company, netToCompany, companyAfter).deferredLeg(sink, toCentral).commit();
+            if (sink != null)
+                collectCentralFee(sink, toCentral, "MARKET", seq);
 
-            record(buyer, "MARKET_BUY", companyId, totalDebit, "Shares buy (incl fees)");
-            record(company, "MARKET_SELL", buyerId, netToCompany, "Shares sell (net)");
+            record(buyer, TransactionType.MARKET_BUY, companyId, totalDebit, "Shares buy (incl fees)");
+            record(company, TransactionType.MARKET_SELL, buyerId, netToCompany, "Shares sell (net)");
 
             com.primebank.core.logging.TransactionLogger.log(
                     String.format("MARKET BUY: Buyer %s bought from Company %s. Gross: %s, BuyerFee: %s, IssuerFee: %s",
                             buyerId, companyId, grossCents, buyerFee, issuerFee));
             return new TransferResult(true, "ok", "Market primary completed", true, buyerFee);
         } finally {
-            for (int i = locks.size() - 1; i >= 0; i--)
-                locks.get(i).unlock();
+            LedgerEpoch.exit();
+            held.close();
         }
     }
 
@@ -229,6 +188,9 @@ public final class Ledger {
      * la empresa y 5% al banco central atómicamente.
      */
     public TransferResult posCharge(String buyerId, String companyId, long amountCents) {
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> posCharge(buyerId, companyId, amountCents),
+                    () -> new TransferResult(false, "timeout", "Ledger busy", false, 0));
         if (amountCents <= 0) {
             return new TransferResult(false, "amount_le_zero", "Amount must be > 0", false, 0);
         }
@@ -240,46 +202,36 @@ public final class Ledger {
         if (buyer == null || company == null) {
             return new TransferResult(false, "account_not_found", "Account not found", false, 0);
         }
-        String centralId = PrimeBankState.CENTRAL_ACCOUNT_ID;
-        Account central = accounts.get(centralId);
-        if (central == null)
-            central = PrimeBankState.get().ensureCentralAccount();
-        String sinkId = getCentralFeeSinkId();
-
-        List<String> keys = new ArrayList<>();
-        keys.add(buyerId);
-        keys.add(companyId);
-        keys.add(centralId);
-        keys.add(sinkId);
-        Collections.sort(keys);
-        List<ReentrantLock> locks = new ArrayList<>(keys.size());
-        for (String k : keys) {
-            ReentrantLock l = AccountLockManager.getLock(k);
-            l.lock();
-            locks.add(l);
-        }
+
+        LockSet held = LockSet.acquire("POS_CHARGE", buyerId, companyId, null, null);
+        if (held == null)
+            return new TransferResult(false, "timeout", "Accounts busy", false, 0);
+        CentralFees.get().settle(buyer);
+        LedgerEpoch.enter();
         try {
-            long bal = buyer.getBalanceCents();
-            if (bal < amountCents) {
+            long buyerAfter = buyer.tryWithdrawBalance(amountCents);
+            if (buyerAfter == Account.INSUFFICIENT) {
                 return new TransferResult(false, "insufficient", "Insufficient funds", false, 0);
             }
             long toCompany = Money.multiplyBps(amountCents, 9500);
             long toCentral = Money.add(amountCents, -toCompany);
-            buyer.withdraw(amountCents);
-            company.deposit(toCompany);
-            if (toCentral > 0)
-                depositCentralFee(central, sinkId, toCentral, "POS");
+            long companyAfter = company.deposit(toCompany);
+            Account sink = toCentral > 0 ? FeeRouting.sink(accounts) : null;
+            long seq = LedgerJournal.get().posting("POS_CHARGE").leg(buyer, -amountCents, buyerAfter)
+                    .leg(company, toCompany, companyAfter).deferredLeg(sink, toCentral).commit();
+            if (sink != null)
+                collectCentralFee(sink, toCentral, "POS", seq);
 
-            record(buyer, "POS_PAY", companyId, amountCents, "POS Payment");
-            record(company, "POS_RECEIVE", buyerId, toCompany, "POS Revenue (95%)");
+            record(buyer, TransactionType.POS_PAY, companyId, amountCents, "POS Payment");
+            record(company, TransactionType.POS_RECEIVE, buyerId, toCompany, "POS Revenue (95%)");
 
             com.primebank.core.logging.TransactionLogger
                     .log(String.format("POS CHARGE: Buyer %s paid Company %s. Amount: %s, ToCompany: %s, ToCentral: %s",
                             buyerId, companyId, amountCents, toCompany, toCentral));
             return new TransferResult(true, "ok", "Transfer completed", false, 0);
         } finally {
-            for (int i = locks.size() - 1; i >= 0; i--)
-                locks.get(i).unlock();
+            LedgerEpoch.exit();
+            held.close();
         }
     }
 
@@ -324,21 +276,28 @@ public final class Ledger {
      * Español: Depositar monto en una cuenta.
      */
     public OpResult deposit(String accountId, long amountCents) {
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> deposit(accountId, amountCents),
+                    () -> new OpResult(false, "timeout", "Ledger busy"));
         if (amountCents <= 0)
             return new OpResult(false, "amount_le_zero", "Amount must be > 0");
         Account acc = accounts.get(accountId);
         if (acc == null)
             return new OpResult(false, "account_not_found", "Account not found");
-        ReentrantLock lock = AccountLockManager.getLock(accountId);
-        lock.lock();
+        // English: No account lock: the deposit is a single compare-and-set on the account state (the
+        // journal append is still serialized).
+        // Español: Sin lock de cuenta: el depósito es un único compare-and-set sobre el estado de la
+        // cuenta (el anexado al diario sigue serializado).
+        LedgerEpoch.enter();
         try {
-            acc.deposit(amountCents);
-            record(acc, "DEPOSIT", "SYSTEM", amountCents, "Manual Deposit");
+            long after = acc.deposit(amountCents);
+            LedgerJournal.get().posting("DEPOSIT").leg(acc, amountCents, after).commit();
+            record(acc, TransactionType.DEPOSIT, "SYSTEM", amountCents, "Manual Deposit");
             com.primebank.core.logging.TransactionLogger
                     .log(String.format("DEPOSIT: Account %s deposited %s cents", accountId, amountCents));
             return new OpResult(true, "ok", "Deposit completed");
         } finally {
-            lock.unlock();
+            LedgerEpoch.exit();
         }
     }
 
@@ -347,24 +306,32 @@ public final class Ledger {
      * Español: Retirar monto de una cuenta.
      */
     public OpResult withdraw(String accountId, long amountCents) {
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> withdraw(accountId, amountCents),
+                    () -> new OpResult(false, "timeout", "Ledger busy"));
         if (amountCents <= 0)
             return new OpResult(false, "amount_le_zero", "Amount must be > 0");
         Account acc = accounts.get(accountId);
         if (acc == null)
             return new OpResult(false, "account_not_found", "Account not found");
-        ReentrantLock lock = AccountLockManager.getLock(accountId);
-        lock.lock();
+        // English: Withdraw-if-sufficient without an account lock (compare-and-set on the account
+        // state; the journal append is still serialized).
+        // Español: Retiro si alcanza sin lock de cuenta (compare-and-set sobre el estado de la cuenta;
+        // el anexado al diario sigue serializado).
+        CentralFees.get().settle(acc);
+        LedgerEpoch.enter();
         try {
-            if (acc.getBalanceCents() < amountCents) {
+            long after = acc.tryWithdrawBalance(amountCents);
+            if (after == Account.INSUFFICIENT) {
                 return new OpResult(false, "insufficient", "Insufficient funds");
             }
-            acc.withdraw(amountCents);
-            record(acc, "WITHDRAW", "SYSTEM", amountCents, "Manual Withdraw");
+            LedgerJournal.get().posting("WITHDRAW").leg(acc, -amountCents, after).commit();
+            record(acc, TransactionType.WITHDRAW, "SYSTEM", amountCents, "Manual Withdraw");
             com.primebank.core.logging.TransactionLogger
                     .log(String.format("WITHDRAW: Account %s withdrew %s cents", accountId, amountCents));
             return new OpResult(true, "ok", "Withdraw completed");
         } finally {
-            lock.unlock();
+            LedgerEpoch.exit();
         }
     }
 
@@ -377,6 +344,9 @@ public final class Ledger {
      * banco central.
      */
     public TransferResult transfer(String fromId, String toId, long amountCents) {
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> transfer(fromId, toId, amountCents),
+                    () -> new TransferResult(false, "timeout", "Ledger busy", false, 0));
         if (amountCents <= 0) {
             return new TransferResult(false, "amount_le_zero", "Amount must be > 0", false, 0);
         }
@@ -388,51 +358,203 @@ public final class Ledger {
         if (from == null || to == null) {
             return new TransferResult(false, "account_not_found", "Account not found", false, 0);
         }
-        String centralId = PrimeBankState.CENTRAL_ACCOUNT_ID;
-        Account central = accounts.get(centralId);
-        if (central == null) {
-            central = PrimeBankState.get().ensureCentralAccount();
-        }
-        String sinkId = getCentralFeeSinkId();
-
-        Set<String> keys = new HashSet<>();
-        keys.add(fromId);
-        keys.add(toId);
-        keys.add(centralId);
-        keys.add(sinkId);
-        List<String> ordered = new ArrayList<>(keys);
-        Collections.sort(ordered);
-
-        List<ReentrantLock> locks = new ArrayList<>(ordered.size());
-        for (String k : ordered) {
-            ReentrantLock l = AccountLockManager.getLock(k);
-            l.lock();
-            locks.add(l);
-        }
+
+        LockSet held = LockSet.acquire("TRANSFER", fromId, toId, null, null);
+        if (held == null)
+            return new TransferResult(false, "timeout", "Accounts busy", false, 0);
+        // English: Credit pending fees first when the sender is the fee sink (a company withdraw).
+        // Español: Acreditar primero las comisiones pendientes si el remitente es el destino de
+        // comisiones (un retiro de empresa).
+        CentralFees.get().settle(from);
+        LedgerEpoch.enter();
         try {
             long startingBalance = from.getBalanceCents();
             boolean feeApplied = amountCents > (startingBalance / 2);
             long fee = feeApplied ? Money.multiplyBps(amountCents, 200) : 0L;
             long totalDebit = Money.add(amountCents, fee);
-            if (startingBalance < totalDebit) {
+            long fromAfter = from.tryWithdrawBalance(totalDebit);
+            if (fromAfter == Account.INSUFFICIENT) {
                 return new TransferResult(false, "insufficient", "Insufficient funds", feeApplied, fee);
             }
-            from.withdraw(totalDebit);
-            to.deposit(amountCents);
-            if (fee > 0) {
-                depositCentralFee(central, sinkId, fee, "TRANSFER");
-            }
+            long toAfter = to.deposit(amountCents);
+            Account sink = fee > 0 ? FeeRouting.sink(accounts) : null;
+            long seq = LedgerJournal.get().posting("TRANSFER").leg(from, -totalDebit, fromAfter)
+                    .leg(to, amountCents, toAfter).deferredLeg(sink, fee).commit();
+            if (sink != null)
+                collectCentralFee(sink, fee, "TRANSFER", seq);
 
-            record(from, "TRANSFER_OUT", toId, totalDebit, "Transfer to " + toId);
-            record(to, "TRANSFER_IN", fromId, amountCents, "Transfer from " + fromId);
+            record(from, TransactionType.TRANSFER_OUT, toId, totalDebit, "Transfer to " + toId);
+            record(to, TransactionType.TRANSFER_IN, fromId, amountCents, "Transfer from " + fromId);
 
             com.primebank.core.logging.TransactionLogger
                     .log(String.format("TRANSFER: From %s to %s. Amount: %s, Fee: %s", fromId, toId, amountCents, fee));
             return new TransferResult(true, "ok", "Transfer completed", feeApplied, fee);
         } finally {
-            for (int i = locks.size() - 1; i >= 0; i--) {
-                locks.get(i).unlock();
+            LedgerEpoch.exit();
+            held.close();
+        }
+    }
+
+    /*
+     * English: Most distinct accounts in one batch (one journal record; one leg is kept for the fee
+     * sink).
+     * Español: Máximo de cuentas distintas en un lote (un registro del diario; un tramo queda para
+     * el destino de comisiones).
+     */
+    public static final int MAX_BATCH_ACCOUNTS = LedgerJournal.MAX_LEGS - 1;
+
+    /*
+     * English: Apply many transfers as one operation: every line is validated first, the locks of
+     * all involved accounts are taken once in stripe order, and then either every line is applied
+     * or none is. Each account only needs funds for its net debit across the batch. Writes one
+     * journal record and one log entry (tagged with reference); fees go to the central fee sink.
+     * Español: Aplicar muchas transferencias como una sola operación: primero se valida cada línea,
+     * se toman una vez los locks de todas las cuentas en orden de franja y luego se aplican todas
+     * las líneas o ninguna. Cada cuenta solo necesita fondos para su débito neto en el lote.
+     * Escribe un registro del diario y una entrada de log (con reference); las comisiones van al
+     * destino central.
+     */
+    public BatchResult transferBatch(String type, String reference, List<BatchTransfer> transfers) {
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> transferBatch(type, reference, transfers),
+                    () -> new BatchResult(false, "timeout", "Ledger busy", -1));
+        if (transfers == null || transfers.isEmpty())
+            return new BatchResult(true, "ok", "Nothing to transfer", -1);
+        Map<Account, Long> net = new LinkedHashMap<>();
+        long totalCents = 0L;
+        long feeCents = 0L;
+        for (int i = 0; i < transfers.size(); i++) {
+            BatchTransfer t = transfers.get(i);
+            if (t == null || t.fromId == null || t.toId == null || t.fromId.equals(t.toId))
+                return new BatchResult(false, "invalid_accounts", "Invalid accounts", i);
+            if (t.amountCents <= 0 || t.feeCents < 0)
+                return new BatchResult(false, "amount_le_zero", "Amount must be > 0", i);
+            Account from = accounts.get(t.fromId);
+            Account to = accounts.get(t.toId);
+            if (from == null || to == null)
+                return new BatchResult(false, "account_not_found", "Account not found", i);
+            try {
+                net.merge(from, -Math.addExact(t.amountCents, t.feeCents), Math::addExact);
+                net.merge(to, t.amountCents, Math::addExact);
+                totalCents = Math.addExact(totalCents, t.amountCents);
+                feeCents = Math.addExact(feeCents, t.feeCents);
+            } catch (ArithmeticException e) {
+                return new BatchResult(false, "overflow", "Amount too large", i);
+            }
+        }
+        if (net.size() > MAX_BATCH_ACCOUNTS)
+            return new BatchResult(false, "batch_too_large", "Too many accounts in one batch", -1);
+
+        List<String> ids = new ArrayList<>(net.size());
+        for (Account a : net.keySet())
+            ids.add(a.getId());
+        LockSet held = LockSet.acquireAll(type, ids);
+        if (held == null)
+            return new BatchResult(false, "timeout", "Accounts busy", -1);
+        for (Map.Entry<Account, Long> e : net.entrySet()) {
+            if (e.getValue() < 0L)
+                CentralFees.get().settle(e.getKey());
+        }
+        LedgerEpoch.enter();
+        try {
+            // English: Debit first; lock-free withdraws may still race, so undo on the first
+            // shortfall before anything is journaled.
+            // Español: Debitar primero; los retiros sin lock aún pueden competir, así que se
+            // deshace ante el primer faltante antes de registrar nada en el diario.
+            List<Map.Entry<Account, Long>> debited = new ArrayList<>();
+            Map<Account, Long> after = new HashMap<>();
+            for (Map.Entry<Account, Long> e : net.entrySet()) {
+                if (e.getValue() >= 0L)
+                    continue;
+                long left = e.getKey().tryWithdrawBalance(-e.getValue());
+                if (left == Account.INSUFFICIENT) {
+                    for (Map.Entry<Account, Long> d : debited)
+                        d.getKey().deposit(-d.getValue());
+                    return new BatchResult(false, "insufficient", "Insufficient funds",
+                            firstPayer(transfers, e.getKey().getId()));
+                }
+                debited.add(e);
+                after.put(e.getKey(), left);
+            }
+            LedgerJournal.Posting posting = LedgerJournal.get().posting(type);
+            for (Map.Entry<Account, Long> e : net.entrySet()) {
+                if (e.getValue() > 0L)
+                    after.put(e.getKey(), e.getKey().deposit(e.getValue()));
+                // English: Zero net legs are dropped by the posting, so only moved accounts need a balance.
+                // Español: El asiento descarta los tramos netos en cero, así solo las cuentas movidas
+                // necesitan saldo.
+                posting.leg(e.getKey(), e.getValue(), after.getOrDefault(e.getKey(), 0L));
+            }
+            Account sink = feeCents > 0 ? FeeRouting.sink(accounts) : null;
+            long seq = posting.deferredLeg(sink, feeCents).commit();
+            if (sink != null)
+                collectCentralFee(sink, feeCents, type, seq);
+
+            for (BatchTransfer t : transfers) {
+                record(accounts.get(t.fromId), t.outType, t.toId, t.amountCents + t.feeCents, t.description);
+                record(accounts.get(t.toId), t.inType, t.fromId, t.amountCents, t.description);
             }
+
+            com.primebank.core.logging.TransactionLogger.log(String.format(
+                    "BATCH %s: %s transfers across %s accounts. Total: %s, Fees: %s (Ref: %s)", type,
+                    transfers.size(), net.size(), totalCents, feeCents, reference));
+            return new BatchResult(true, "ok", "Batch completed", -1);
+        } finally {
+            LedgerEpoch.exit();
+            held.close();
+        }
+    }
+
+    private static int firstPayer(List<BatchTransfer> transfers, String accountId) {
+        for (int i = 0; i < transfers.size(); i++) {
+            if (transfers.get(i).fromId.equals(accountId))
+                return i;
+        }
+        return -1;
+    }
+
+    /*
+     * English: One line of a batch: from pays amount + fee, to receives amount, the fee goes to the
+     * central fee sink. outType/inType are the history types written on each side.
+     * Español: Una línea de un lote: from paga monto + comisión, to recibe el monto y la comisión va
+     * al destino central. outType/inType son los tipos de historial escritos en cada lado.
+     */
+    public static final class BatchTransfer {
+        public final String fromId;
+        public final String toId;
+        public final long amountCents;
+        public final long feeCents;
+        public final TransactionType outType;
+        public final TransactionType inType;
+        public final String description;
+
+        public BatchTransfer(String fromId, String toId, long amountCents, long feeCents, TransactionType outType,
+                TransactionType inType, String description) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.amountCents = amountCents;
+            this.feeCents = feeCents;
+            this.outType = outType;
+            this.inType = inType;
+            this.description = description;
+        }
+    }
+
+    /*
+     * English: Result of a batch; failedIndex points at the offending line (-1 if none applies).
+     * Español: Resultado de un lote; failedIndex señala la línea culpable (-1 si no aplica).
+     */
+    public static final class BatchResult {
+        public final boolean success;
+        public final String code; // en: result code for i18n; es: código de resultado para i18n
+        public final String message;
+        public final int failedIndex;
+
+        public BatchResult(boolean success, String code, String message, int failedIndex) {
+            this.success = success;
+            this.code = code;
+            this.message = message;
+            this.failedIndex = failedIndex;
         }
     }
 
@@ -441,6 +563,9 @@ public final class Ledger {
      * Español: Retiro de administrador del banco central.
      */
     public OpResult centralWithdraw(String adminName, long amountCents) {
+        if (LedgerSequencer.routes())
+            return LedgerSequencer.get().call(() -> centralWithdraw(adminName, amountCents),
+                    () -> new OpResult(false, "timeout", "Ledger busy"));
         if (amountCents <= 0)
             return new OpResult(false, "amount_le_zero", "Amount must be > 0");
         String centralId = PrimeBankState.CENTRAL_ACCOUNT_ID;
@@ -448,19 +573,20 @@ public final class Ledger {
         if (central == null)
             central = PrimeBankState.get().ensureCentralAccount();
 
-        ReentrantLock lock = AccountLockManager.getLock(centralId);
-        lock.lock();
+        CentralFees.get().settle(central);
+        LedgerEpoch.enter();
         try {
-            if (central.getBalanceCents() < amountCents) {
+            long after = central.tryWithdrawBalance(amountCents);
+            if (after == Account.INSUFFICIENT) {
                 return new OpResult(false, "insufficient", "Insufficient funds");
             }
-            central.withdraw(amountCents);
-            record(central, "ADMIN_WITHDRAW", adminName, amountCents, "Admin withdraw");
+            LedgerJournal.get().posting("CENTRAL_WITHDRAW").leg(central, -amountCents, after).commit();
+            record(central, TransactionType.ADMIN_WITHDRAW, adminName, amountCents, "Admin withdraw");
             com.primebank.core.logging.TransactionLogger
                     .log(String.format("CENTRAL WITHDRAW: Admin %s withdrew %s cents", adminName, amountCents));
             return new OpResult(true, "ok", "Withdraw completed");
         } finally {
-            lock.unlock();
+            LedgerEpoch.exit();
         }
     }
 
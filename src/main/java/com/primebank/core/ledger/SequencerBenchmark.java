@@ -0,0 +1,160 @@
+package com.primebank.core.ledger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountType;
+import com.primebank.core.locks.LedgerEpoch;
+import com.primebank.core.locks.LedgerSequencer;
+import com.primebank.core.locks.LockSet;
+
+/*
+ English: Compares the two execution models on the same two-account transfer: account locks taken by
+ each calling thread, a sequencer with callers waiting for every result, and a sequencer with callers
+ keeping a window of commands in flight. Runs a contended workload (every thread moves money among a
+ few hot accounts) and an uncontended one (each thread has its own pair). Uses detached accounts and a
+ detached sequencer, so the live bank and the journal are untouched; used by /pb seqbench.
+ Español: Compara los dos modelos de ejecución con la misma transferencia entre dos cuentas: locks de
+ cuenta tomados por cada hilo llamador, un secuenciador con llamadores esperando cada resultado, y un
+ secuenciador con llamadores que mantienen una ventana de comandos en curso. Corre una carga con
+ contención (todos los hilos mueven dinero entre unas pocas cuentas calientes) y una sin contención
+ (cada hilo tiene su propio par). Usa cuentas y un secuenciador sueltos, así el banco real y el diario
+ no se tocan; usado por /pb seqbench.
+*/
+public final class SequencerBenchmark {
+    private static final int HOT_ACCOUNTS = 4;
+    private static final int WINDOW = 64;
+    private static final long START_BALANCE = 1_000_000_000L;
+    private static final long AMOUNT = 100L;
+
+    private enum Mode {
+        LOCKS("account locks"), SEQUENCER("sequencer (wait each)"), PIPELINED("sequencer (window " + WINDOW + ")");
+
+        final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+    }
+
+    private SequencerBenchmark() {
+    }
+
+    /*
+     * English: Run every mode on both workloads. Returns report lines.
+     * Español: Correr cada modo en ambas cargas. Devuelve líneas de reporte.
+     */
+    public static List<String> run(int threads, int opsPerThread) throws InterruptedException {
+        threads = Math.max(1, threads);
+        opsPerThread = Math.max(1, opsPerThread);
+        List<String> out = new ArrayList<>();
+        out.add(String.format("threads=%d ops/thread=%d transfer of %d cents", threads, opsPerThread, AMOUNT));
+        for (boolean contended : new boolean[] { true, false }) {
+            out.add(contended ? "contended (" + HOT_ACCOUNTS + " hot accounts):" : "uncontended (one pair per thread):");
+            // English: Warm up every path before timing.
+            // Español: Calentar cada ruta antes de medir.
+            for (Mode mode : Mode.values())
+                measure(mode, contended, threads, Math.min(opsPerThread, 20_000));
+            for (Mode mode : Mode.values())
+                out.add("  " + mode.label + ": " + measure(mode, contended, threads, opsPerThread));
+        }
+        return out;
+    }
+
+    private static String measure(Mode mode, boolean contended, int threads, int ops) throws InterruptedException {
+        int n = contended ? HOT_ACCOUNTS : threads * 2;
+        Account[] accounts = new Account[n];
+        for (int i = 0; i < n; i++)
+            accounts[i] = new Account("seqbench:" + i, AccountType.PERSONAL, new UUID(0L, i), START_BALANCE);
+        LedgerSequencer sequencer = mode == Mode.LOCKS ? null
+                : LedgerSequencer.detached("PrimeBank-SeqBench-Sequencer", 4096);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int self = t;
+            Thread th = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                ArrayDeque<CompletableFuture<Boolean>> inFlight = new ArrayDeque<>();
+                try {
+                    start.await();
+                    for (int i = 0; i < ops; i++) {
+                        Account from;
+                        Account to;
+                        if (contended) {
+                            int a = rnd.nextInt(HOT_ACCOUNTS);
+                            from = accounts[a];
+                            to = accounts[(a + 1 + rnd.nextInt(HOT_ACCOUNTS - 1)) % HOT_ACCOUNTS];
+                        } else {
+                            boolean flip = (i & 1) == 0;
+                            from = accounts[self * 2 + (flip ? 0 : 1)];
+                            to = accounts[self * 2 + (flip ? 1 : 0)];
+                        }
+                        if (mode == Mode.LOCKS) {
+                            lockedTransfer(from, to);
+                        } else if (mode == Mode.SEQUENCER) {
+                            sequencer.call(() -> transfer(from, to), () -> false);
+                        } else {
+                            CompletableFuture<Boolean> f;
+                            while ((f = sequencer.offer(() -> transfer(from, to))) == null)
+                                inFlight.poll().join();
+                            inFlight.add(f);
+                            if (inFlight.size() >= WINDOW)
+                                inFlight.poll().join();
+                        }
+                    }
+                    while (!inFlight.isEmpty())
+                        inFlight.poll().join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "PrimeBank-SeqBench-" + t);
+            th.setDaemon(true);
+            th.start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+        if (sequencer != null)
+            sequencer.shutdown();
+        long total = 0L;
+        for (Account a : accounts)
+            total += a.getBalanceCents();
+        boolean conserved = total == START_BALANCE * n;
+        long totalOps = (long) threads * ops;
+        return String.format("%,.0f ops/s (%.1f ms)%s%s", totalOps / (elapsed / 1e9), elapsed / 1e6,
+                sequencer == null ? "" : String.format(" avgBatch=%.1f", sequencer.averageBatch()),
+                conserved ? "" : " BALANCE MISMATCH");
+    }
+
+    private static boolean lockedTransfer(Account from, Account to) {
+        LockSet held = LockSet.acquire("SEQBENCH", from.getId(), to.getId(), null, null);
+        if (held == null)
+            return false;
+        try {
+            return transfer(from, to);
+        } finally {
+            held.close();
+        }
+    }
+
+    private static boolean transfer(Account from, Account to) {
+        LedgerEpoch.enter();
+        try {
+            if (!from.tryWithdraw(AMOUNT))
+                return false;
+            to.deposit(AMOUNT);
+            return true;
+        } finally {
+            LedgerEpoch.exit();
+        }
+    }
+}
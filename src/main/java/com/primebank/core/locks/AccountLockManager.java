@@ -1,18 +1,138 @@
 package com.primebank.core.locks;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.concurrent.locks.ReentrantLock;
 
 /*
- English: Provides per-key reentrant locks to serialize operations on accounts/companies.
+ English: Provides per-key reentrant locks to serialize operations on accounts/companies. Keys hash
+ into a fixed, power-of-two table of lock stripes, so memory stays flat however many accounts exist
+ and taking a lock allocates nothing. Operations over several keys lock their distinct stripes in
+ ascending index order, which keeps them deadlock-free even when two keys share a stripe (see LockSet).
  Español: Proporciona locks reentrantes por clave para serializar operaciones en cuentas/compañías.
+ Las claves se distribuyen por hash en una tabla fija (potencia de dos) de franjas de lock, así la
+ memoria se mantiene estable sin importar cuántas cuentas existan y tomar un lock no asigna memoria.
+ Las operaciones sobre varias claves bloquean sus franjas distintas en orden ascendente de índice, lo
+ que evita interbloqueos incluso cuando dos claves comparten franja (ver LockSet).
 */
 public final class AccountLockManager {
-    private static final ConcurrentHashMap<String, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+    // English: stripesOf() packs stripe indices 16 bits each (index + 1).
+    // Español: stripesOf() empaqueta los índices de franja en 16 bits cada uno (índice + 1).
+    public static final int MAX_STRIPES = 1 << 15;
+
+    private static volatile ReentrantLock[] table = build(1024, true);
+    private static volatile boolean fair = true;
 
     private AccountLockManager() {}
 
+    /*
+     * English: Resize the stripe table (rounded up to a power of two) and set fairness. Call only
+     * while no ledger operation runs (server start), since keys move to new locks.
+     * Español: Redimensionar la tabla de franjas (redondeada a potencia de dos) y fijar la
+     * equidad. Llamar solo sin operaciones del libro mayor en curso (inicio del servidor), ya que
+     * las claves pasan a locks nuevos.
+     */
+    public static synchronized void configure(int stripes, boolean fairLocks) {
+        int n = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, stripes)));
+        if (n < stripes && n < MAX_STRIPES)
+            n <<= 1;
+        if (n == table.length && fairLocks == fair)
+            return;
+        table = build(n, fairLocks);
+        fair = fairLocks;
+    }
+
+    private static ReentrantLock[] build(int n, boolean fairLocks) {
+        ReentrantLock[] t = new ReentrantLock[n];
+        for (int i = 0; i < n; i++)
+            t[i] = new ReentrantLock(fairLocks);
+        return t;
+    }
+
     public static ReentrantLock getLock(String key) {
-        return LOCKS.computeIfAbsent(key, k -> new ReentrantLock(true));
+        ReentrantLock[] t = table;
+        return t[index(key, t.length)];
+    }
+
+    public static int stripeOf(String key) {
+        return index(key, table.length);
+    }
+
+    static ReentrantLock[] table() {
+        return table;
+    }
+
+    private static int index(String key, int length) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (length - 1);
+    }
+
+    /*
+     * English: Distinct stripes (index + 1) of up to four keys in a table of the given length
+     * (null keys are skipped), ascending, packed 16 bits each into a long. Used by LockSet.
+     * Español: Franjas distintas (índice + 1) de hasta cuatro claves en una tabla del largo dado
+     * (las claves nulas se omiten), ascendentes, empaquetadas en 16 bits cada una en un long.
+     * Usado por LockSet.
+     */
+    static long stripesOf(int length, String a, String b, String c, String d) {
+        long set = 0L;
+        if (a != null)
+            set = insert(set, index(a, length) + 1);
+        if (b != null)
+            set = insert(set, index(b, length) + 1);
+        if (c != null)
+            set = insert(set, index(c, length) + 1);
+        if (d != null)
+            set = insert(set, index(d, length) + 1);
+        return set;
+    }
+
+    /*
+     * English: Distinct stripes (index + 1) of any number of keys, ascending. Used by LockSet for
+     * batch operations.
+     * Español: Franjas distintas (índice + 1) de cualquier cantidad de claves, ascendentes. Usado
+     * por LockSet para operaciones por lote.
+     */
+    static int[] stripesOf(int length, Collection<String> keys) {
+        int[] out = new int[keys.size()];
+        int n = 0;
+        for (String key : keys) {
+            if (key != null)
+                out[n++] = index(key, length) + 1;
+        }
+        Arrays.sort(out, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || out[distinct - 1] != out[i])
+                out[distinct++] = out[i];
+        }
+        return Arrays.copyOf(out, distinct);
+    }
+
+    private static long insert(long set, int v) {
+        long out = 0L;
+        int shift = 0;
+        boolean placed = false;
+        for (int i = 0; i < 4; i++) {
+            int cur = (int) (set >>> (16 * i)) & 0xFFFF;
+            if (cur == 0)
+                break;
+            if (cur == v)
+                return set;
+            if (!placed && v < cur) {
+                out |= (long) v << shift;
+                shift += 16;
+                placed = true;
+            }
+            out |= (long) cur << shift;
+            shift += 16;
+        }
+        if (!placed)
+            out |= (long) v << shift;
+        return out;
+    }
+
+    public static String describe() {
+        return "locks: stripes=" + table.length + " fair=" + fair;
     }
 }
@@ -0,0 +1,123 @@
+package com.primebank.core.locks;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+ English: Epoch gate for consistent snapshots. Every ledger operation runs between enter() and exit()
+ (taken after its account locks, if any). A reader registers in a striped counter picked by its thread
+ (RCU style), so operations on different threads do not share a lock or a cache line. cut() raises a
+ flag that makes new readers wait, drains the counters so no operation is half-applied, runs the given
+ action (e.g. taking the journal boundary) and starts a new epoch. Account states stamped with an older
+ epoch form a consistent cut that the snapshotter can read without touching account locks.
+ Español: Compuerta de épocas para snapshots consistentes. Cada operación del libro mayor corre entre
+ enter() y exit() (tomados después de sus locks de cuenta, si tiene). Un lector se registra en un
+ contador por franjas elegido por su hilo (estilo RCU), así operaciones en hilos distintos no comparten
+ un lock ni una línea de caché. cut() levanta una bandera que hace esperar a los lectores nuevos, vacía
+ los contadores para que ninguna operación quede a medias, ejecuta la acción dada (p. ej. tomar el
+ límite del diario) e inicia una nueva época. Los estados de cuenta con una época anterior forman un
+ corte consistente que el snapshotter puede leer sin tocar locks de cuenta.
+*/
+public final class LedgerEpoch {
+    private static final int STRIPES = Math.max(4,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+    // English: Counters sit 128 bytes apart so stripes do not share a cache line.
+    // Español: Los contadores están a 128 bytes entre sí para que las franjas no compartan línea de caché.
+    private static final int PAD = 16;
+    private static final AtomicLongArray READERS = new AtomicLongArray(STRIPES * PAD);
+    // English: Nesting depth of the current thread; only the outermost enter()/exit() touch a counter.
+    // Español: Profundidad de anidamiento del hilo actual; solo el enter()/exit() externo toca un contador.
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+    private static final ReentrantLock CUTS = new ReentrantLock();
+    private static volatile boolean cutting;
+    private static volatile long current = 1L;
+
+    private LedgerEpoch() {
+    }
+
+    public static void enter() {
+        int[] depth = DEPTH.get();
+        if (depth[0]++ > 0)
+            return;
+        int slot = slot();
+        int spins = 0;
+        while (true) {
+            READERS.incrementAndGet(slot);
+            if (!cutting)
+                return;
+            // English: A cut is draining: step back out and wait for it to finish.
+            // Español: Un corte está vaciando: salir y esperar a que termine.
+            READERS.decrementAndGet(slot);
+            while (cutting)
+                spins = backoff(spins);
+        }
+    }
+
+    public static void exit() {
+        int[] depth = DEPTH.get();
+        if (--depth[0] > 0)
+            return;
+        READERS.decrementAndGet(slot());
+    }
+
+    public static long current() {
+        return current;
+    }
+
+    /*
+     * English: Close the current epoch and return the new one, E. States with epoch < E are the
+     * cut. Only one cut may be read at a time (callers serialize on BankPersistence). Must not be
+     * called from inside enter()/exit().
+     * Español: Cerrar la época actual y devolver la nueva, E. Los estados con época < E son el
+     * corte. Solo se puede leer un corte a la vez (los llamadores se serializan en BankPersistence).
+     * No debe llamarse desde dentro de enter()/exit().
+     */
+    public static long cut(Runnable atCut) {
+        return quiesce(() -> {
+            atCut.run();
+            return ++current;
+        });
+    }
+
+    /*
+     * English: Run the action while no ledger operation is in flight, without starting a new epoch
+     * (e.g. reading several balances at one point in time). Keep it short: new operations wait.
+     * Español: Ejecutar la acción mientras ninguna operación del libro mayor está en curso, sin
+     * iniciar una nueva época (p. ej. leer varios saldos en un mismo punto en el tiempo). Debe ser
+     * breve: las operaciones nuevas esperan.
+     */
+    public static <T> T quiesce(Supplier<T> action) {
+        if (DEPTH.get()[0] > 0)
+            throw new IllegalStateException("LedgerEpoch.quiesce() inside an operation");
+        CUTS.lock();
+        try {
+            cutting = true;
+            try {
+                int spins = 0;
+                for (int i = 0; i < STRIPES; i++) {
+                    while (READERS.get(i * PAD) != 0L)
+                        spins = backoff(spins);
+                }
+                return action.get();
+            } finally {
+                cutting = false;
+            }
+        } finally {
+            CUTS.unlock();
+        }
+    }
+
+    private static int slot() {
+        return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PAD;
+    }
+
+    private static int backoff(int spins) {
+        if (spins < 64)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(20_000L);
+        return spins + 1;
+    }
+}
@@ -0,0 +1,327 @@
+package com.primebank.core.locks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.persistence.LedgerJournal;
+
+/*
+ English: Single-writer execution model for ledger operations (ledger_sequencer = true). Callers put
+ commands into a bounded multi-producer ring buffer and get a future back; one sequencer thread
+ applies them in arrival order, draining whatever is queued in one pass. Every operation therefore
+ has a place in one total order, and the sequencer takes no account locks (see LockSet): it is the
+ only writer, and single-account paths are compare-and-set anyway. The LedgerEpoch still separates
+ operations from snapshot cuts.
+ Español: Modelo de ejecución de un solo escritor para las operaciones del libro mayor
+ (ledger_sequencer = true). Los llamadores ponen comandos en un buffer circular acotado de varios
+ productores y reciben un futuro; un único hilo secuenciador los aplica en orden de llegada,
+ vaciando en una pasada lo que haya en cola. Así cada operación tiene un lugar en un orden total, y
+ el secuenciador no toma locks de cuenta (ver LockSet): es el único escritor, y las rutas de una sola
+ cuenta son compare-and-set de todos modos. El LedgerEpoch sigue separando operaciones de los cortes
+ de snapshot.
+*/
+public final class LedgerSequencer {
+    private static volatile LedgerSequencer instance;
+
+    private final String name;
+    private final Ring ring;
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long maxBatch;
+    private volatile Thread thread;
+    private volatile boolean parked;
+
+    LedgerSequencer(String name, int capacity) {
+        this.name = name;
+        this.ring = new Ring(capacity);
+    }
+
+    /*
+     * English: The server's sequencer; the ring size is read from the config on first use.
+     * Español: El secuenciador del servidor; el tamaño del buffer se lee de la config en el primer uso.
+     */
+    public static LedgerSequencer get() {
+        LedgerSequencer s = instance;
+        if (s == null) {
+            synchronized (LedgerSequencer.class) {
+                s = instance;
+                if (s == null)
+                    instance = s = new LedgerSequencer("PrimeBank-Sequencer", PrimeBankConfig.LEDGER_SEQUENCER_RING);
+            }
+        }
+        return s;
+    }
+
+    /*
+     * English: A sequencer of its own (benchmarks), independent of the server's.
+     * Español: Un secuenciador propio (benchmarks), independiente del del servidor.
+     */
+    public static LedgerSequencer detached(String name, int capacity) {
+        return new LedgerSequencer(name, capacity);
+    }
+
+    /*
+     * English: Whether ledger operations called on this thread must be handed to the sequencer.
+     * Español: Si las operaciones llamadas en este hilo deben entregarse al secuenciador.
+     */
+    public static boolean routes() {
+        return PrimeBankConfig.LEDGER_SEQUENCER && !isSequencerThread();
+    }
+
+    public static boolean isSequencerThread() {
+        return Thread.currentThread() instanceof SequencerThread;
+    }
+
+    /*
+     * English: Queue a command. Returns null without queuing when the ring is full.
+     * Español: Encolar un comando. Devuelve null sin encolar si el buffer está lleno.
+     */
+    public <T> CompletableFuture<T> offer(Supplier<T> command) {
+        Command<T> c = enqueue(command);
+        return c == null ? null : c.result;
+    }
+
+    private <T> Command<T> enqueue(Supplier<T> command) {
+        Command<T> c = new Command<>(command);
+        if (!ring.offer(c)) {
+            rejected.increment();
+            return null;
+        }
+        // English: Read the thread only after publishing, so a stopping sequencer still drains it.
+        // Español: Leer el hilo solo después de publicar, así un secuenciador que se detiene aún lo vacía.
+        Thread t = thread;
+        if (t == null)
+            start();
+        else if (parked)
+            LockSupport.unpark(t);
+        return c;
+    }
+
+    /*
+     * English: Run a command on the sequencer and wait for its result. While the ring stays full
+     * for lock_timeout_ms the command is not queued and whenBusy supplies the result.
+     * Español: Correr un comando en el secuenciador y esperar su resultado. Si el buffer sigue
+     * lleno durante lock_timeout_ms el comando no se encola y whenBusy da el resultado.
+     */
+    public <T> T call(Supplier<T> command, Supplier<T> whenBusy) {
+        Command<T> c = enqueue(command);
+        if (c == null) {
+            long timeoutMs = PrimeBankConfig.LOCK_TIMEOUT_MS;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while ((c = enqueue(command)) == null) {
+                if (timeoutMs > 0L && System.nanoTime() - deadline >= 0L)
+                    return whenBusy.get();
+                LockSupport.parkNanos(50_000L);
+            }
+        }
+        try {
+            T value = c.result.join();
+            // English: The caller's durability future (Ledger.durability()) follows the command's commit.
+            // Español: El futuro de durabilidad del llamador (Ledger.durability()) sigue la confirmación del comando.
+            LedgerJournal.adoptThreadCommit(c.commitSeq);
+            return value;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw e;
+        }
+    }
+
+    private synchronized void start() {
+        if (thread != null)
+            return;
+        Thread t = new SequencerThread(this::run, name);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    private void run() {
+        // English: One consumer at a time: a restarted sequencer waits for the stopping one's final drain.
+        // Español: Un consumidor a la vez: un secuenciador reiniciado espera el vaciado final del que se detiene.
+        synchronized (ring) {
+            loop();
+        }
+    }
+
+    private void loop() {
+        Thread self = Thread.currentThread();
+        while (thread == self) {
+            int n = drain();
+            if (n == 0) {
+                // English: Announce the park before re-checking, so a producer either sees the flag or
+                // its command is seen here.
+                // Español: Anunciar la espera antes de volver a mirar, así un productor ve la bandera
+                // o su comando se ve aquí.
+                parked = true;
+                if (ring.isEmpty() && thread == self)
+                    LockSupport.park(this);
+                parked = false;
+            }
+        }
+        drain();
+    }
+
+    private int drain() {
+        int n = 0;
+        Command<?> c;
+        int limit = ring.capacity();
+        while (n < limit && (c = ring.poll()) != null) {
+            c.run();
+            n++;
+        }
+        if (n > 0) {
+            commands.add(n);
+            batches.incrementAndGet();
+            if (n > maxBatch)
+                maxBatch = n;
+        }
+        return n;
+    }
+
+    /*
+     * English: Stop the thread after it applied everything queued (server stop). A later command
+     * starts a new one.
+     * Español: Detener el hilo después de aplicar todo lo encolado (parada del servidor). Un comando
+     * posterior inicia uno nuevo.
+     */
+    public void shutdown() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+        }
+        if (t == null)
+            return;
+        LockSupport.unpark(t);
+        try {
+            t.join(10_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * English: Commands applied per drain pass so far.
+     * Español: Comandos aplicados por pasada de vaciado hasta ahora.
+     */
+    public double averageBatch() {
+        long b = batches.get();
+        return b == 0 ? 0.0 : (double) commands.sum() / b;
+    }
+
+    public String describe() {
+        return String.format(java.util.Locale.ROOT,
+                "sequencer: %s ring=%d queued=%d commands=%d batches=%d avgBatch=%.1f maxBatch=%d rejected=%d",
+                PrimeBankConfig.LEDGER_SEQUENCER ? "on" : "off", ring.capacity(), ring.size(), commands.sum(),
+                batches.get(), averageBatch(), maxBatch, rejected.sum());
+    }
+
+    private static final class SequencerThread extends Thread {
+        SequencerThread(Runnable r, String name) {
+            super(r, name);
+        }
+    }
+
+    private static final class Command<T> {
+        final Supplier<T> op;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        long commitSeq;
+
+        Command(Supplier<T> op) {
+            this.op = op;
+        }
+
+        void run() {
+            LedgerJournal.takeThreadCommit();
+            T value;
+            try {
+                value = op.get();
+            } catch (Throwable t) {
+                LedgerJournal.takeThreadCommit();
+                result.completeExceptionally(t);
+                return;
+            }
+            commitSeq = LedgerJournal.takeThreadCommit();
+            result.complete(value);
+        }
+    }
+
+    /*
+     * English: Bounded ring for many producers and one consumer. Each slot carries a sequence: a
+     * producer claims the next position with one CAS and publishes the slot by advancing its
+     * sequence; the consumer frees the slot by moving its sequence one lap ahead.
+     * Español: Buffer circular acotado para muchos productores y un consumidor. Cada casilla lleva
+     * una secuencia: un productor reclama la siguiente posición con un CAS y publica la casilla
+     * avanzando su secuencia; el consumidor libera la casilla moviendo su secuencia una vuelta
+     * adelante.
+     */
+    private static final class Ring {
+        private final Command<?>[] slots;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            slots = new Command<?>[size];
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++)
+                sequences.set(i, i);
+            mask = size - 1;
+        }
+
+        boolean offer(Command<?> c) {
+            while (true) {
+                long t = tail.get();
+                int i = (int) t & mask;
+                long diff = sequences.get(i) - t;
+                if (diff == 0L) {
+                    if (tail.compareAndSet(t, t + 1)) {
+                        slots[i] = c;
+                        sequences.lazySet(i, t + 1);
+                        return true;
+                    }
+                } else if (diff < 0L) {
+                    return false;
+                }
+            }
+        }
+
+        Command<?> poll() {
+            long h = head;
+            int i = (int) h & mask;
+            if (sequences.get(i) != h + 1)
+                return null;
+            Command<?> c = slots[i];
+            slots[i] = null;
+            sequences.lazySet(i, h + slots.length);
+            head = h + 1;
+            return c;
+        }
+
+        boolean isEmpty() {
+            return sequences.get((int) head & mask) != head + 1;
+        }
+
+        int size() {
+            return (int) Math.max(0L, tail.get() - head);
+        }
+
+        int capacity() {
+            return slots.length;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.primebank.core.locks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.primebank.core.config.PrimeBankConfig;
+
+/*
+ English: The account locks held by one ledger operation. acquire() takes the distinct stripes of
+ up to four account ids in stripe order (deadlock-free, no per-call collections); acquireAll() does
+ the same for the account set of a batch. Both give up after lock_timeout_ms so a stuck lock turns
+ into a "timeout" result instead of a parked server thread. Wait time and timeouts are recorded per
+ operation name for /pb stats. Close the handle (after LedgerEpoch.exit()) to release the locks.
+ Español: Los locks de cuenta que tiene una operación del libro mayor. acquire() toma las franjas
+ distintas de hasta cuatro ids de cuenta en orden de franja (sin interbloqueo, sin colecciones por
+ llamada); acquireAll() hace lo mismo para el conjunto de cuentas de un lote. Ambos se rinden tras
+ lock_timeout_ms, así un lock trabado se vuelve un resultado "timeout" en vez de un hilo del
+ servidor detenido. El tiempo de espera y los timeouts se registran por nombre de operación para
+ /pb stats. Cerrar el manejador (después de LedgerEpoch.exit()) libera los locks.
+*/
+public final class LockSet implements AutoCloseable {
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+    private static final LockSet UNLOCKED = new LockSet(0L, null, null);
+
+    private final long stripes;
+    private final int[] many;
+    private final int count;
+    private final ReentrantLock[] table;
+    private int held;
+
+    private LockSet(long stripes, int[] many, ReentrantLock[] table) {
+        this.stripes = stripes;
+        this.many = many;
+        this.table = table;
+        int n = 0;
+        if (many != null)
+            n = many.length;
+        else
+            while (n < 4 && ((stripes >>> (16 * n)) & 0xFFFF) != 0)
+                n++;
+        this.count = n;
+    }
+
+    /*
+     * English: Lock the accounts (null ids are skipped) for the named operation. Returns null if
+     * the locks could not be taken within lock_timeout_ms (0 = wait indefinitely); nothing is
+     * held then.
+     * Español: Bloquear las cuentas (los ids nulos se omiten) para la operación nombrada. Devuelve
+     * null si no se pudieron tomar los locks dentro de lock_timeout_ms (0 = esperar sin límite);
+     * en ese caso no queda nada tomado.
+     */
+    public static LockSet acquire(String operation, String a, String b, String c, String d) {
+        // English: The sequencer is the only writer in its mode, so it holds no account locks.
+        // Español: El secuenciador es el único escritor en su modo, así que no toma locks de cuenta.
+        if (LedgerSequencer.isSequencerThread())
+            return UNLOCKED;
+        ReentrantLock[] table = AccountLockManager.table();
+        return acquire(operation, new LockSet(AccountLockManager.stripesOf(table.length, a, b, c, d), null, table));
+    }
+
+    /*
+     * English: Same as acquire() for any number of account ids.
+     * Español: Igual que acquire() para cualquier cantidad de ids de cuenta.
+     */
+    public static LockSet acquireAll(String operation, Collection<String> ids) {
+        if (LedgerSequencer.isSequencerThread())
+            return UNLOCKED;
+        ReentrantLock[] table = AccountLockManager.table();
+        return acquire(operation, new LockSet(0L, AccountLockManager.stripesOf(table.length, ids), table));
+    }
+
+    private static LockSet acquire(String operation, LockSet set) {
+        long timeoutMs = PrimeBankConfig.LOCK_TIMEOUT_MS;
+        long start = System.nanoTime();
+        boolean ok = timeoutMs <= 0L ? set.lockAll() : set.tryLockAll(start + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        stats(operation).record(System.nanoTime() - start, ok);
+        if (!ok) {
+            set.close();
+            return null;
+        }
+        return set;
+    }
+
+    private boolean lockAll() {
+        for (int i = 0; i < count; i++) {
+            table[stripe(i) - 1].lock();
+            held++;
+        }
+        return true;
+    }
+
+    private boolean tryLockAll(long deadline) {
+        try {
+            for (int i = 0; i < count; i++) {
+                if (!table[stripe(i) - 1].tryLock(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+                    return false;
+                held++;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private int stripe(int i) {
+        return many != null ? many[i] : (int) (stripes >>> (16 * i)) & 0xFFFF;
+    }
+
+    /*
+     * English: Release the held stripes in reverse order.
+     * Español: Liberar las franjas tomadas en orden inverso.
+     */
+    @Override
+    public void close() {
+        for (int i = held - 1; i >= 0; i--)
+            table[stripe(i) - 1].unlock();
+        held = 0;
+    }
+
+    private static Stats stats(String operation) {
+        Stats s = STATS.get(operation);
+        if (s == null)
+            s = STATS.computeIfAbsent(operation, k -> new Stats());
+        return s;
+    }
+
+    /*
+     * English: One line per operation, longest total wait first.
+     * Español: Una línea por operación, primero la de mayor espera total.
+     */
+    public static List<String> describeStats() {
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(STATS.entrySet());
+        entries.sort((x, y) -> Long.compare(y.getValue().waitNanos.sum(), x.getValue().waitNanos.sum()));
+        List<String> out = new ArrayList<>();
+        for (Map.Entry<String, Stats> e : entries) {
+            Stats s = e.getValue();
+            long n = s.count.sum();
+            out.add(String.format(java.util.Locale.ROOT,
+                    "lockwait %s: n=%d avg=%.1fus max=%.1fms total=%.1fms timeouts=%d", e.getKey(), n,
+                    n == 0 ? 0.0 : s.waitNanos.sum() / 1e3 / n, s.maxNanos.get() / 1e6, s.waitNanos.sum() / 1e6,
+                    s.timeouts.sum()));
+        }
+        return out;
+    }
+
+    private static final class Stats {
+        final LongAdder count = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean ok) {
+            count.increment();
+            waitNanos.add(nanos);
+            if (!ok)
+                timeouts.increment();
+            long m;
+            while (nanos > (m = maxNanos.get()) && !maxNanos.compareAndSet(m, nanos)) {
+                // English: Retry until the max is published.
+                // Español: Reintentar hasta publicar el máximo.
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.primebank.core.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.primebank.PrimeBankMod;
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.persistence.PersistencePaths;
+
+/*
+ English: Long-lived writer of the transaction audit log. Callers only queue the entry; one
+ PrimeBank-AuditLog thread keeps the day's file (primebank/logs/transactions-yyyy-MM-dd.log) open,
+ writes entries in batches and flushes every log_flush_ms or once log_flush_kb are buffered. The
+ file rotates when the day changes or it reaches log_rotate_mb (the full file becomes
+ transactions-yyyy-MM-dd.N.log), and with log_compress every closed file is gzipped by the same
+ thread.
+ Español: Escritor de larga vida del log de auditoría de transacciones. Los llamadores solo encolan
+ la entrada; un hilo PrimeBank-AuditLog mantiene abierto el archivo del día
+ (primebank/logs/transactions-yyyy-MM-dd.log), escribe las entradas en lotes y vuelca cada
+ log_flush_ms o al acumular log_flush_kb. El archivo rota al cambiar el día o al llegar a
+ log_rotate_mb (el archivo lleno pasa a transactions-yyyy-MM-dd.N.log), y con log_compress cada
+ archivo cerrado se comprime con gzip en el mismo hilo.
+*/
+public final class AuditLogWriter {
+    private static final AuditLogWriter INSTANCE = new AuditLogWriter();
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String PREFIX = "transactions-";
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_BATCH = 1024;
+    private static final long ROTATE_RETRY_MS = 60_000L;
+
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rotations = new AtomicLong();
+    private volatile Thread thread;
+
+    // English: Owned by the writer thread.
+    // Español: Propiedad del hilo escritor.
+    private OutputStream out;
+    private File dir;
+    private volatile File file;
+    private LocalDate day;
+    private long size;
+    private long pending;
+    private long lastFlush;
+    // English: After a failed rotation the file keeps growing and rotation is retried from this time
+    // on (0 while rotations succeed), so a locked file is not renamed and reported on every write.
+    // Español: Tras una rotación fallida el archivo sigue creciendo y la rotación se reintenta desde
+    // este momento (0 mientras las rotaciones funcionan), así un archivo bloqueado no se renombra ni
+    // se reporta en cada escritura.
+    private long rotateRetryAt;
+
+    private AuditLogWriter() {
+    }
+
+    public static AuditLogWriter get() {
+        return INSTANCE;
+    }
+
+    /*
+     * English: "[yyyy-MM-dd HH:mm:ss] message" as written to the file (server time zone).
+     * Español: "[yyyy-MM-dd HH:mm:ss] mensaje" tal como se escribe en el archivo (zona del servidor).
+     */
+    public static String format(long timeMillis, String message) {
+        return "[" + DATE_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault()))
+                + "] " + message;
+    }
+
+    /*
+     * English: Queue one entry; never blocks on IO.
+     * Español: Encolar una entrada; nunca bloquea por IO.
+     */
+    public void append(long timeMillis, String message) {
+        queue.offer(new Entry(timeMillis, message));
+        if (thread == null)
+            start();
+    }
+
+    /*
+     * English: Wait (up to 5 s) until everything queued so far is written and flushed.
+     * Español: Esperar (hasta 5 s) a que todo lo encolado hasta ahora esté escrito y volcado.
+     */
+    public void flush() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t == null)
+            return;
+        CountDownLatch done = new CountDownLatch(1);
+        queue.offer(done);
+        try {
+            done.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * English: Write everything queued, close the file and stop the thread (server stop). A later
+     * entry starts a new one once the old thread has finished, never while it still owns the file.
+     * Español: Escribir todo lo encolado, cerrar el archivo y detener el hilo (parada del servidor).
+     * Una entrada posterior inicia uno nuevo cuando el hilo anterior terminó, nunca mientras aún es
+     * dueño del archivo.
+     */
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t == null)
+            return;
+        queue.offer(Stop.INSTANCE);
+        try {
+            t.join(10_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String describe() {
+        File f = file;
+        return "audit log: " + (f == null ? "closed" : f.getName()) + " queued=" + queue.size() + " entries="
+                + entries.get() + " flushes=" + flushes.get() + " rotations=" + rotations.get();
+    }
+
+    private synchronized void start() {
+        if (thread != null)
+            return;
+        Thread t = new Thread(this::run, "PrimeBank-AuditLog");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    private void run() {
+        try {
+            writeLoop();
+        } finally {
+            // English: The thread clears itself only after closing the file, so the next writer starts
+            // from a clean state; entries queued after the stop drain start it right away.
+            // Español: El hilo se limpia solo después de cerrar el archivo, así el siguiente escritor
+            // empieza desde un estado limpio; las entradas encoladas tras el vaciado de la parada lo
+            // inician de inmediato.
+            synchronized (this) {
+                if (thread == Thread.currentThread())
+                    thread = null;
+            }
+            if (!queue.isEmpty())
+                start();
+        }
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        try {
+            while (true) {
+                Object first;
+                if (pending == 0L) {
+                    first = queue.take();
+                } else {
+                    long wait = PrimeBankConfig.LOG_FLUSH_MS - (System.currentTimeMillis() - lastFlush);
+                    first = wait > 0L ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+                }
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH);
+                }
+                boolean stop = false;
+                for (Object o : batch) {
+                    if (o instanceof Entry) {
+                        write((Entry) o);
+                    } else if (o instanceof CountDownLatch) {
+                        flushNow();
+                        ((CountDownLatch) o).countDown();
+                    } else if (o == Stop.INSTANCE) {
+                        stop = true;
+                    }
+                }
+                batch.clear();
+                if (stop) {
+                    // English: Entries queued by other threads while stopping still get written.
+                    // Español: Las entradas encoladas por otros hilos durante la parada se escriben igual.
+                    for (Object o; (o = queue.poll()) != null;) {
+                        if (o instanceof Entry)
+                            write((Entry) o);
+                        else if (o instanceof CountDownLatch)
+                            ((CountDownLatch) o).countDown();
+                    }
+                    closeFile();
+                    return;
+                }
+                if (pending >= PrimeBankConfig.LOG_FLUSH_KB * 1024L
+                        || pending > 0L && System.currentTimeMillis() - lastFlush >= PrimeBankConfig.LOG_FLUSH_MS)
+                    flushNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeFile();
+        }
+    }
+
+    private void write(Entry e) {
+        LocalDate d = Instant.ofEpochMilli(e.time).atZone(ZoneId.systemDefault()).toLocalDate();
+        // English: An entry stamped just before midnight but queued after it stays in the new day's file.
+        // Español: Una entrada marcada justo antes de medianoche pero encolada después queda en el
+        // archivo del nuevo día.
+        if (day != null && d.isBefore(day))
+            d = day;
+        File target = logsDir();
+        try {
+            if (out == null || !d.equals(day) || !target.equals(dir))
+                open(target, d);
+            byte[] line = format(e.time, e.message).getBytes(StandardCharsets.UTF_8);
+            out.write(line);
+            out.write(NEWLINE);
+            int n = line.length + NEWLINE.length;
+            size += n;
+            pending += n;
+            entries.incrementAndGet();
+            if (size >= PrimeBankConfig.LOG_ROTATE_MB * 1024L * 1024L && System.currentTimeMillis() >= rotateRetryAt)
+                rotate();
+        } catch (IOException ex) {
+            PrimeBankMod.LOGGER.error("[PrimeBank] Failed to log transaction / Error al registrar transacción", ex);
+            closeFile();
+        }
+    }
+
+    private void open(File target, LocalDate d) throws IOException {
+        closeFile();
+        target.mkdirs();
+        dir = target;
+        day = d;
+        file = new File(target, PREFIX + d + ".log");
+        size = file.length();
+        out = new BufferedOutputStream(new FileOutputStream(file, true), 64 * 1024);
+        lastFlush = System.currentTimeMillis();
+        compressClosed();
+    }
+
+    /*
+     * English: Move the full file aside as transactions-<day>.<n>.log and continue in a fresh one.
+     * Español: Apartar el archivo lleno como transactions-<día>.<n>.log y seguir en uno nuevo.
+     */
+    private void rotate() throws IOException {
+        File full = file;
+        File target = dir;
+        LocalDate d = day;
+        closeFile();
+        int n = 1;
+        File dest;
+        while ((dest = new File(target, PREFIX + d + "." + n + ".log")).exists()
+                || new File(target, dest.getName() + ".gz").exists())
+            n++;
+        boolean moved = full.renameTo(dest);
+        open(target, d);
+        if (moved) {
+            rotations.incrementAndGet();
+            rotateRetryAt = 0L;
+            return;
+        }
+        if (rotateRetryAt == 0L)
+            PrimeBankMod.LOGGER.warn("[PrimeBank] Could not rotate audit log {}; still writing to it and retrying",
+                    full.getName());
+        rotateRetryAt = System.currentTimeMillis() + Math.max(PrimeBankConfig.LOG_FLUSH_MS, ROTATE_RETRY_MS);
+    }
+
+    /*
+     * English: Gzip every closed log of the directory (earlier days, rotated parts, leftovers of a
+     * crash): all but the current file.
+     * Español: Comprimir cada log cerrado del directorio (días anteriores, partes rotadas, restos de
+     * un fallo): todos menos el archivo actual.
+     */
+    private void compressClosed() {
+        if (!PrimeBankConfig.LOG_COMPRESS)
+            return;
+        File[] closed = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(".log")
+                && !name.equals(file.getName()));
+        if (closed == null)
+            return;
+        byte[] buf = new byte[64 * 1024];
+        for (File f : closed) {
+            File gz = new File(f.getPath() + ".gz");
+            File tmp = new File(f.getPath() + ".gz.tmp");
+            try (InputStream in = new FileInputStream(f);
+                    OutputStream zip = new GZIPOutputStream(new FileOutputStream(tmp), 64 * 1024)) {
+                for (int r; (r = in.read(buf)) > 0;)
+                    zip.write(buf, 0, r);
+            } catch (IOException e) {
+                PrimeBankMod.LOGGER.warn("[PrimeBank] Could not compress audit log {}", f.getName(), e);
+                tmp.delete();
+                continue;
+            }
+            if (tmp.renameTo(gz))
+                f.delete();
+            else
+                tmp.delete();
+        }
+    }
+
+    private void flushNow() {
+        lastFlush = System.currentTimeMillis();
+        if (out == null || pending == 0L)
+            return;
+        try {
+            out.flush();
+            flushes.incrementAndGet();
+        } catch (IOException e) {
+            PrimeBankMod.LOGGER.error("[PrimeBank] Failed to log transaction / Error al registrar transacción", e);
+            closeFile();
+        }
+        pending = 0L;
+    }
+
+    private void closeFile() {
+        OutputStream o = out;
+        out = null;
+        file = null;
+        pending = 0L;
+        if (o == null)
+            return;
+        try {
+            o.close();
+            flushes.incrementAndGet();
+        } catch (IOException e) {
+            PrimeBankMod.LOGGER.error("[PrimeBank] Failed to close the audit log", e);
+        }
+    }
+
+    private static File logsDir() {
+        // English: Before a world is loaded, fall back to the working directory.
+        // Español: Antes de cargar un mundo, usar el directorio de trabajo.
+        return PersistencePaths.base() != null ? PersistencePaths.logsDir() : new File("primebank-logs");
+    }
+
+    private static final class Entry {
+        final long time;
+        final String message;
+
+        Entry(long time, String message) {
+            this.time = time;
+            this.message = message;
+        }
+    }
+
+    private enum Stop {
+        INSTANCE
+    }
+}
@@ -0,0 +1,394 @@
+package com.primebank.core.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.primebank.PrimeBankMod;
+import com.primebank.core.config.PrimeBankConfig;
+
+/*
+ English: Delivery pipeline of one Discord webhook, independent of file logging. Messages wait in a
+ bounded queue (discord_queue_max, the oldest is dropped and counted when full) and one daemon thread
+ posts them, coalescing what is queued into one request within Discord's limits: text lines joined up
+ to 2000 characters, or up to 10 embeds of at most 6000 characters in total. A 429 waits the
+ Retry-After the server asked for, and an exhausted rate-limit bucket waits for its reset before the
+ next request; network errors and 5xx answers are retried with exponential backoff. The URL is read
+ on every request, so any HTTP endpoint (a local stub server included) can receive the payloads.
+ Español: Canal de entrega de un webhook de Discord, independiente del log en archivo. Los mensajes
+ esperan en una cola acotada (discord_queue_max, si se llena se descarta y cuenta el más viejo) y un
+ hilo daemon los envía, agrupando lo encolado en una sola petición dentro de los límites de Discord:
+ líneas de texto unidas hasta 2000 caracteres, o hasta 10 embeds de 6000 caracteres en total como
+ máximo. Un 429 espera el Retry-After que pidió el servidor, y un cupo de límite agotado espera su
+ reinicio antes de la siguiente petición; los errores de red y las respuestas 5xx se reintentan con
+ espera exponencial. La URL se lee en cada petición, así cualquier endpoint HTTP (incluido un servidor
+ local de prueba) puede recibir los envíos.
+*/
+public final class DiscordWebhookQueue {
+    /*
+     * English: How queued messages are combined into one request.
+     * Español: Cómo se combinan los mensajes encolados en una petición.
+     */
+    public enum Mode {
+        // English: Plain text lines, sent as "content".
+        // Español: Líneas de texto plano, enviadas como "content".
+        TEXT,
+        // English: Embed objects (JSON), sent in "embeds".
+        // Español: Objetos embed (JSON), enviados en "embeds".
+        EMBEDS
+    }
+
+    private static final int CONTENT_LIMIT = 2000;
+    private static final int MAX_EMBEDS = 10;
+    private static final int EMBED_CHARS = 6000;
+    private static final int TIMEOUT_MS = (int) TimeUnit.SECONDS.toMillis(5);
+    private static final int MAX_ATTEMPTS = 6;
+    // English: 429 answers tolerated for one payload; each one waits the server's Retry-After.
+    // Español: Respuestas 429 toleradas para un envío; cada una espera el Retry-After del servidor.
+    private static final int MAX_RATE_LIMITED = 10;
+    private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final String name;
+    private final Mode mode;
+    private final Supplier<String> url;
+    private final ArrayDeque<String> queue = new ArrayDeque<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private volatile Thread thread;
+    private volatile boolean stopping;
+    private volatile long stopDeadline;
+    private volatile boolean warnedInvalid;
+
+    // English: Rate-limit state, owned by the sender thread.
+    // Español: Estado del límite de peticiones, propiedad del hilo emisor.
+    private long retryAfterMs;
+    private long bucketResetAt;
+
+    public DiscordWebhookQueue(String name, Mode mode, Supplier<String> url) {
+        this.name = name;
+        this.mode = mode;
+        this.url = url;
+    }
+
+    /*
+     * English: Queue one text line (TEXT) or embed object (EMBEDS); never blocks. Ignored while no
+     * URL is configured.
+     * Español: Encolar una línea de texto (TEXT) u objeto embed (EMBEDS); nunca bloquea. Se ignora
+     * mientras no haya URL configurada.
+     */
+    public void offer(String message) {
+        if (!configured(url.get()))
+            return;
+        synchronized (queue) {
+            if (queue.size() >= PrimeBankConfig.DISCORD_QUEUE_MAX) {
+                queue.pollFirst();
+                if (dropped.getAndIncrement() == 0L)
+                    PrimeBankMod.LOGGER.warn("[PrimeBank] Discord {} webhook queue is full; dropping the oldest messages",
+                            name);
+            }
+            queue.addLast(message);
+            queue.notifyAll();
+        }
+        if (thread == null)
+            start();
+    }
+
+    /*
+     * English: Deliver what is queued for up to timeoutMs, then stop the thread (server stop). A
+     * later message starts a new one.
+     * Español: Entregar lo encolado durante hasta timeoutMs y luego detener el hilo (parada del
+     * servidor). Un mensaje posterior inicia uno nuevo.
+     */
+    public void shutdown(long timeoutMs) {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+            if (t == null)
+                return;
+            stopDeadline = System.currentTimeMillis() + timeoutMs;
+            stopping = true;
+        }
+        synchronized (queue) {
+            queue.notifyAll();
+        }
+        try {
+            t.join(timeoutMs + TIMEOUT_MS);
+            if (t.isAlive())
+                t.interrupt();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            stopping = false;
+        }
+    }
+
+    public String describe() {
+        int queued;
+        synchronized (queue) {
+            queued = queue.size();
+        }
+        return "discord " + name + ": queued=" + queued + " requests=" + requests.get() + " delivered="
+                + delivered.get() + " dropped=" + dropped.get() + " failed=" + failed.get() + " rateLimited="
+                + rateLimited.get();
+    }
+
+    private synchronized void start() {
+        if (thread != null || stopping)
+            return;
+        Thread t = new Thread(this::run, "PrimeBank-Discord-" + name);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                List<String> batch = new ArrayList<>();
+                String payload;
+                synchronized (queue) {
+                    while (queue.isEmpty()) {
+                        if (stopping)
+                            return;
+                        queue.wait(1000L);
+                    }
+                    if (stopping && System.currentTimeMillis() >= stopDeadline)
+                        return;
+                    payload = mode == Mode.TEXT ? takeText(batch) : takeEmbeds(batch);
+                }
+                deliver(payload, batch.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            int left;
+            synchronized (queue) {
+                left = queue.size();
+                if (stopping)
+                    queue.clear();
+            }
+            if (stopping && left > 0) {
+                dropped.addAndGet(left);
+                PrimeBankMod.LOGGER.warn("[PrimeBank] {} Discord {} messages were not delivered before shutdown", left,
+                        name);
+            }
+        }
+    }
+
+    // English: Lines joined with newlines up to CONTENT_LIMIT; a longer line is cut.
+    // Español: Líneas unidas con saltos de línea hasta CONTENT_LIMIT; una línea más larga se corta.
+    private String takeText(List<String> batch) {
+        StringBuilder sb = new StringBuilder();
+        String next;
+        while ((next = queue.peekFirst()) != null) {
+            String line = next.length() > CONTENT_LIMIT ? next.substring(0, CONTENT_LIMIT - 3) + "..." : next;
+            int len = sb.length() == 0 ? line.length() : sb.length() + 1 + line.length();
+            if (len > CONTENT_LIMIT)
+                break;
+            if (sb.length() > 0)
+                sb.append('\n');
+            sb.append(line);
+            batch.add(queue.pollFirst());
+        }
+        return "{\"content\": \"" + escapeJson(sb.toString()) + "\"}";
+    }
+
+    // English: The JSON length bounds the characters Discord counts, so the total is checked on it.
+    // Español: El largo del JSON acota los caracteres que cuenta Discord, así el total se mide sobre él.
+    private String takeEmbeds(List<String> batch) {
+        StringBuilder sb = new StringBuilder("{\"embeds\": [");
+        int chars = 0;
+        String next;
+        while (batch.size() < MAX_EMBEDS && (next = queue.peekFirst()) != null) {
+            if (!batch.isEmpty() && chars + next.length() > EMBED_CHARS)
+                break;
+            if (!batch.isEmpty())
+                sb.append(',');
+            sb.append(next);
+            chars += next.length();
+            batch.add(queue.pollFirst());
+        }
+        return sb.append("]}").toString();
+    }
+
+    private void deliver(String payload, int messages) throws InterruptedException {
+        int attempt = 0;
+        int limited = 0;
+        while (true) {
+            long wait = bucketResetAt - System.currentTimeMillis();
+            if (wait > 0L)
+                pause(wait);
+            String target = url.get();
+            if (!configured(target)) {
+                // English: Webhook removed from the config while messages were waiting.
+                // Español: Webhook quitado de la config mientras había mensajes esperando.
+                dropped.addAndGet(messages);
+                return;
+            }
+            int code;
+            try {
+                code = post(target, payload);
+            } catch (IOException e) {
+                code = -1;
+                if (attempt == 0)
+                    PrimeBankMod.LOGGER.warn(
+                            "[PrimeBank] Discord webhook delivery failed / Error enviando al webhook de Discord: {}",
+                            e.getMessage());
+            }
+            if (code >= 200 && code < 300) {
+                delivered.addAndGet(messages);
+                return;
+            }
+            if (code == 429) {
+                rateLimited.incrementAndGet();
+                if (++limited >= MAX_RATE_LIMITED || stopping && System.currentTimeMillis() >= stopDeadline) {
+                    failed.addAndGet(messages);
+                    PrimeBankMod.LOGGER.warn("[PrimeBank] Giving up on {} Discord {} messages after {} rate limits",
+                            messages, name, limited);
+                    return;
+                }
+                pause(retryAfterMs);
+                continue;
+            }
+            if (code != -1 && code < 500) {
+                failed.addAndGet(messages);
+                PrimeBankMod.LOGGER.warn(
+                        "[PrimeBank] Discord webhook responded with {} / Webhook de Discord respondió con {}", code,
+                        code);
+                return;
+            }
+            if (++attempt >= MAX_ATTEMPTS || stopping && System.currentTimeMillis() >= stopDeadline) {
+                failed.addAndGet(messages);
+                PrimeBankMod.LOGGER.warn("[PrimeBank] Giving up on {} Discord {} messages after {} attempts", messages,
+                        name, attempt);
+                return;
+            }
+            pause(Math.min(MAX_BACKOFF_MS, 1000L << (attempt - 1)));
+        }
+    }
+
+    // English: Sleep, but never past the shutdown deadline.
+    // Español: Dormir, pero nunca más allá del plazo de parada.
+    private void pause(long ms) throws InterruptedException {
+        if (stopping)
+            ms = Math.min(ms, Math.max(0L, stopDeadline - System.currentTimeMillis()));
+        if (ms > 0L)
+            Thread.sleep(ms);
+    }
+
+    private int post(String target, String payload) throws IOException {
+        requests.incrementAndGet();
+        HttpURLConnection conn = (HttpURLConnection) new URL(target).openConnection();
+        try {
+            conn.setConnectTimeout(TIMEOUT_MS);
+            conn.setReadTimeout(TIMEOUT_MS);
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setRequestProperty("User-Agent", "PrimeBank/DiscordLogger");
+            conn.setDoOutput(true);
+            byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+            conn.setFixedLengthStreamingMode(body.length);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(body);
+            }
+            int code = conn.getResponseCode();
+            String response = readBody(code >= 400 ? conn.getErrorStream() : conn.getInputStream());
+            // English: An exhausted bucket: hold the next request until it resets.
+            // Español: Un cupo agotado: retener la siguiente petición hasta que se reinicie.
+            if ("0".equals(conn.getHeaderField("X-RateLimit-Remaining"))) {
+                long reset = seconds(conn.getHeaderField("X-RateLimit-Reset-After"));
+                if (reset > 0L)
+                    bucketResetAt = System.currentTimeMillis() + reset;
+            }
+            if (code == 429) {
+                long after = seconds(conn.getHeaderField("Retry-After"));
+                if (after <= 0L)
+                    after = retryAfterFromBody(response);
+                retryAfterMs = after > 0L ? after : 1000L;
+            }
+            return code;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        if (in == null)
+            return "";
+        try (InputStream is = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            for (int n; (n = is.read(buf)) > 0;)
+                out.write(buf, 0, n);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // English: Seconds (possibly fractional) as milliseconds; 0 when missing or malformed.
+    // Español: Segundos (posiblemente fraccionarios) en milisegundos; 0 si faltan o son inválidos.
+    private static long seconds(String value) {
+        if (value == null)
+            return 0L;
+        try {
+            return (long) Math.ceil(Double.parseDouble(value.trim()) * 1000.0);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static long retryAfterFromBody(String body) {
+        try {
+            JsonElement root = new JsonParser().parse(body);
+            if (root.isJsonObject()) {
+                JsonObject o = root.getAsJsonObject();
+                if (o.has("retry_after"))
+                    return seconds(o.get("retry_after").getAsString());
+            }
+        } catch (RuntimeException ignored) {
+        }
+        return 0L;
+    }
+
+    private boolean configured(String target) {
+        if (target == null || target.trim().isEmpty())
+            return false;
+        // Basic validation: must be a valid http/https URL
+        String t = target.trim().toLowerCase(Locale.ROOT);
+        if (t.startsWith("http://") || t.startsWith("https://"))
+            return true;
+        if (!warnedInvalid) {
+            warnedInvalid = true;
+            PrimeBankMod.LOGGER.warn("[PrimeBank] Invalid Discord webhook URL: {}", target);
+        }
+        return false;
+    }
+
+    static String escapeJson(String s) {
+        return s.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\b", "\\b")
+                .replace("\f", "\\f")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r")
+                .replace("\t", "\\t");
+    }
+}
@@ -1,236 +1,132 @@
 package com.primebank.core.logging;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.text.NumberFormat;
 import java.util.Locale;
 
 import com.primebank.core.config.PrimeBankConfig;
 
 /*
- English: Logs transactions to a local file and optionally to a Discord webhook.
- Español: Registra transacciones en un archivo local y opcionalmente en un webhook de Discord.
+ English: Logs transactions to the audit log (see AuditLogWriter) and optionally to Discord webhooks.
+ Each webhook has its own delivery queue (see DiscordWebhookQueue), so a slow or unreachable Discord
+ never delays the file log or the other webhook.
+ Español: Registra transacciones en el log de auditoría (ver AuditLogWriter) y opcionalmente en
+ webhooks de Discord. Cada webhook tiene su propia cola de entrega (ver DiscordWebhookQueue), así un
+ Discord lento o inaccesible nunca demora el log en archivo ni el otro webhook.
 */
 public class TransactionLogger {
-    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final File LOG_FILE = new File("primebank_transactions.log");
-    private static final int DISCORD_TIMEOUT_MS = (int) TimeUnit.SECONDS.toMillis(5);
+    private static final DiscordWebhookQueue TRANSACTIONS = new DiscordWebhookQueue("transactions",
+            DiscordWebhookQueue.Mode.TEXT, () -> PrimeBankConfig.DISCORD_WEBHOOK_URL);
+    private static final DiscordWebhookQueue VALUATIONS = new DiscordWebhookQueue("valuations",
+            DiscordWebhookQueue.Mode.EMBEDS, () -> PrimeBankConfig.DISCORD_VALUATION_WEBHOOK_URL);
 
     public static void log(String message) {
-        EXECUTOR.submit(() -> {
-            String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-            String logEntry = String.format("[%s] %s", timestamp, message);
-
-            // English: Always persist locally for auditability.
-            // Español: Siempre persistir localmente para auditoría.
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(LOG_FILE, true))) {
-                writer.write(logEntry);
-                writer.newLine();
-            } catch (IOException e) {
-                com.primebank.PrimeBankMod.LOGGER
-                        .error("[PrimeBank] Failed to log transaction / Error al registrar transacción", e);
-            }
-
-            // English: Optionally forward to Discord when configured.
-            // Español: Opcionalmente reenviar a Discord cuando esté configurado.
-            sendToWebhook(PrimeBankConfig.DISCORD_WEBHOOK_URL, logEntry);
-        });
+        // English: Always persist locally for auditability.
+        // Español: Siempre persistir localmente para auditoría.
+        long now = System.currentTimeMillis();
+        AuditLogWriter.get().append(now, message);
+
+        // English: Optionally forward to Discord when configured.
+        // Español: Opcionalmente reenviar a Discord cuando esté configurado.
+        String webhookUrl = PrimeBankConfig.DISCORD_WEBHOOK_URL;
+        if (webhookUrl == null || webhookUrl.trim().isEmpty())
+            return;
+        TRANSACTIONS.offer(AuditLogWriter.format(now, message));
     }
 
     /*
      * English: Log valuation events to an optional secondary webhook. Still writes
-     * to
-     * the local audit log for consistency.
+     * to the local audit log for consistency.
      * Español: Registrar eventos de valoración a un webhook secundario opcional.
      * También escribe en el log local para consistencia.
      */
     public static void logValuation(String companyName, long valuationCents, long pricePerShareCents,
             long previousValuationCents, long previousPriceCents, int listedShares, long timestampArg) {
-        EXECUTOR.submit(() -> {
-            String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-            // English: Plain text for local log
-            // Español: Texto plano para log local
-            String logEntry = String.format(
-                    "[%s] VALUATION: %s -> valuation=%d cents (prev=%d), price=%d cents/share (prev=%d), listed=%d shares (run at %s)",
-                    timestamp, companyName, valuationCents, previousValuationCents, pricePerShareCents,
-                    previousPriceCents, listedShares, new java.util.Date(timestampArg));
-
-            // English: Persist locally as part of the audit trail.
-            // Español: Persistir localmente como parte de la trazabilidad.
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(LOG_FILE, true))) {
-                writer.write(logEntry);
-                writer.newLine();
-            } catch (IOException e) {
-                com.primebank.PrimeBankMod.LOGGER
-                        .error("[PrimeBank] Failed to log valuation / Error al registrar valoración", e);
-            }
-
-            // English: Build JSON Embed for Discord
-            // Español: Construir Embed JSON para Discord
-            String lang = PrimeBankConfig.DISCORD_MESSAGE_LANGUAGE;
-            boolean isEs = "es".equalsIgnoreCase(lang);
-
-            String title = isEs ? "Nueva Valoración" : "New Valuation";
-            String fieldCompany = isEs ? "Empresa" : "Company";
-            String fieldValuation = isEs ? "Valoración" : "Valuation";
-            String fieldPrevValuation = isEs ? "Valoración Anterior" : "Previous Valuation";
-            String fieldPrice = isEs ? "Precio por Acción" : "Price per Share";
-            String fieldPrevPrice = isEs ? "Precio Anterior" : "Previous Price";
-            String fieldDifference = isEs ? "Diferencia" : "Difference";
-            String fieldListedShares = isEs ? "Acciones Listadas" : "Listed Shares";
-            String footerText = isEs ? "Actualizado" : "Updated";
-
-            // Format numbers nicely
-            String valFormatted = "$" + formatCurrency(valuationCents);
-            String priceFormatted = "$" + formatCurrency(pricePerShareCents);
-            String prevValFormatted = "$" + formatCurrency(previousValuationCents);
-            String prevPriceFormatted = "$" + formatCurrency(previousPriceCents);
-
-            // Calculate differences
-            long valuationDiff = valuationCents - previousValuationCents;
-            long priceDiff = pricePerShareCents - previousPriceCents;
-            String valuationDiffFormatted = (valuationDiff >= 0 ? "+" : "-") + "$"
-                    + formatCurrency(Math.abs(valuationDiff));
-            String priceDiffFormatted = (priceDiff >= 0 ? "+" : "-") + "$" + formatCurrency(Math.abs(priceDiff));
-
-            // Discord Embed JSON structure
-            // Color: 0x00FF00 (Green) for positive, 0xFF0000 (Red) for negative
-            int embedColor = valuationDiff >= 0 ? 65280 : 16711680;
-
-            String jsonPayload = String.format(
-                    "{" +
-                            "\"embeds\": [{" +
-                            "\"title\": \"%s\"," +
-                            "\"color\": %d," +
-                            "\"fields\": [" +
-                            "{\"name\": \"%s\", \"value\": \"%s\", \"inline\": true}," +
-                            "{\"name\": \"%s\", \"value\": \"%s (%s)\", \"inline\": true}," +
-                            "{\"name\": \"%s\", \"value\": \"%s\", \"inline\": true}," +
-                            "{\"name\": \"%s\", \"value\": \"%s (%s)\", \"inline\": true}," +
-                            "{\"name\": \"%s\", \"value\": \"%s\", \"inline\": true}," +
-                            "{\"name\": \"%s\", \"value\": \"%d\", \"inline\": true}" +
-                            "]," +
-                            "\"footer\": {\"text\": \"%s: %s\"}" +
-                            "}]" +
-                            "}",
-                    title,
-                    embedColor,
-                    fieldCompany, escapeJson(companyName),
-                    fieldValuation, valFormatted, valuationDiffFormatted,
-                    fieldPrevValuation, prevValFormatted,
-                    fieldPrice, priceFormatted, priceDiffFormatted,
-                    fieldPrevPrice, prevPriceFormatted,
-                    fieldListedShares, listedShares,
-                    footerText, timestamp);
-
-            sendToWebhookRaw(PrimeBankConfig.DISCORD_VALUATION_WEBHOOK_URL, jsonPayload);
-        });
-    }
-
-    // New helper to send raw JSON payload
-    private static void sendToWebhookRaw(String webhookUrl, String jsonPayload) {
-        if (webhookUrl == null || webhookUrl.trim().isEmpty()) {
-            return;
-        }
-        if (!webhookUrl.startsWith("http")) {
-            com.primebank.PrimeBankMod.LOGGER.warn("[PrimeBank] Invalid Discord webhook URL: {}", webhookUrl);
+        // English: Persist locally as part of the audit trail (plain text).
+        // Español: Persistir localmente como parte de la trazabilidad (texto plano).
+        AuditLogWriter.get().append(System.currentTimeMillis(), String.format(
+                "VALUATION: %s -> valuation=%d cents (prev=%d), price=%d cents/share (prev=%d), listed=%d shares (run at %s)",
+                companyName, valuationCents, previousValuationCents, pricePerShareCents, previousPriceCents,
+                listedShares, new java.util.Date(timestampArg)));
+        String webhookUrl = PrimeBankConfig.DISCORD_VALUATION_WEBHOOK_URL;
+        if (webhookUrl == null || webhookUrl.trim().isEmpty())
             return;
-        }
-
-        try {
-            URL url = new URL(webhookUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(DISCORD_TIMEOUT_MS);
-            conn.setReadTimeout(DISCORD_TIMEOUT_MS);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("User-Agent", "PrimeBank/DiscordLogger");
-            conn.setDoOutput(true);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonPayload.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-
-            int code = conn.getResponseCode();
-            if (code < 200 || code >= 300) {
-                com.primebank.PrimeBankMod.LOGGER
-                        .warn("[PrimeBank] Discord webhook responded with {} / Webhook de Discord respondió con {}",
-                                code, code);
-            }
-            conn.disconnect();
-        } catch (Exception e) {
-            com.primebank.PrimeBankMod.LOGGER
-                    .warn("[PrimeBank] Discord webhook delivery failed / Error enviando al webhook de Discord: {}",
-                            e.getMessage());
-        }
+        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
+
+        // English: Build JSON Embed for Discord
+        // Español: Construir Embed JSON para Discord
+        String lang = PrimeBankConfig.DISCORD_MESSAGE_LANGUAGE;
+        boolean isEs = "es".equalsIgnoreCase(lang);
+
+        String title = isEs ? "Nueva Valoración" : "New Valuation";
+        String fieldCompany = isEs ? "Empresa" : "Company";
+        String fieldValuation = isEs ? "Valoración" : "Valuation";
+        String fieldPrevValuation = isEs ? "Valoración Anterior" : "Previous Valuation";
+        String fieldPrice = isEs ? "Precio por Acción" : "Price per Share";
+        String fieldPrevPrice = isEs ? "Precio Anterior" : "Previous Price";
+        String fieldDifference = isEs ? "Diferencia" : "Difference";
+        String fieldListedShares = isEs ? "Acciones Listadas" : "Listed Shares";
+        String footerText = isEs ? "Actualizado" : "Updated";
+
+        // Format numbers nicely
+        String valFormatted = "$" + formatCurrency(valuationCents);
+        String priceFormatted = "$" + formatCurrency(pricePerShareCents);
+        String prevValFormatted = "$" + formatCurrency(previousValuationCents);
+        String prevPriceFormatted = "$" + formatCurrency(previousPriceCents);
+
+        // Calculate differences
+        long valuationDiff = valuationCents - previousValuationCents;
+        long priceDiff = pricePerShareCents - previousPriceCents;
+        String valuationDiffFormatted = (valuationDiff >= 0 ? "+" : "-") + "$"
+                + formatCurrency(Math.abs(valuationDiff));
+        String priceDiffFormatted = (priceDiff >= 0 ? "+" : "-") + "$" + formatCurrency(Math.abs(priceDiff));
+
+        // Discord Embed JSON structure
+        // Color: 0x00FF00 (Green) for positive, 0xFF0000 (Red) for negative
+        int embedColor = valuationDiff >= 0 ? 65280 : 16711680;
+
+        String embed = String.format(
+                "{" +
+                        "\"title\": \"%s\"," +
+                        "\"color\": %d," +
+                        "\"fields\": [" +
+                        "{\"name\": \"%s\", \"value\": \"%s\", \"inline\": true}," +
+                        "{\"name\": \"%s\", \"value\": \"%s (%s)\", \"inline\": true}," +
+                        "{\"name\": \"%s\", \"value\": \"%s\", \"inline\": true}," +
+                        "{\"name\": \"%s\", \"value\": \"%s (%s)\", \"inline\": true}," +
+                        "{\"name\": \"%s\", \"value\": \"%s\", \"inline\": true}," +
+                        "{\"name\": \"%s\", \"value\": \"%d\", \"inline\": true}" +
+                        "]," +
+                        "\"footer\": {\"text\": \"%s: %s\"}" +
+                        "}",
+                title,
+                embedColor,
+                fieldCompany, DiscordWebhookQueue.escapeJson(companyName),
+                fieldValuation, valFormatted, valuationDiffFormatted,
+                fieldPrevValuation, prevValFormatted,
+                fieldPrice, priceFormatted, priceDiffFormatted,
+                fieldPrevPrice, prevPriceFormatted,
+                fieldListedShares, listedShares,
+                footerText, timestamp);
+
+        VALUATIONS.offer(embed);
     }
 
-    private static void sendToWebhook(String webhookUrl, String message) {
-        if (webhookUrl == null || webhookUrl.trim().isEmpty()) {
-            return;
-        }
-
-        // Basic validation: must be a valid http/https URL
-        if (!webhookUrl.startsWith("http")) {
-            com.primebank.PrimeBankMod.LOGGER.warn("[PrimeBank] Invalid Discord webhook URL: {}", webhookUrl);
-            return;
-        }
-
-        try {
-            URL url = new URL(webhookUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(DISCORD_TIMEOUT_MS);
-            conn.setReadTimeout(DISCORD_TIMEOUT_MS);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("User-Agent", "PrimeBank/DiscordLogger");
-            conn.setDoOutput(true);
-
-            String jsonPayload = String.format("{\"content\": \"%s\"}", escapeJson(message));
-
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonPayload.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-
-            int code = conn.getResponseCode(); // Trigger request
-            if (code < 200 || code >= 300) {
-                com.primebank.PrimeBankMod.LOGGER
-                        .warn("[PrimeBank] Discord webhook responded with {} / Webhook de Discord respondió con {}",
-                                code, code);
-            }
-            conn.disconnect();
-        } catch (Exception e) {
-            // English: Swallow errors to avoid breaking gameplay, but log once for admins.
-            // Español: Tragar errores para no romper el juego, pero registrar una vez para
-            // admins.
-            com.primebank.PrimeBankMod.LOGGER
-                    .warn("[PrimeBank] Discord webhook delivery failed / Error enviando al webhook de Discord: {}",
-                            e.getMessage());
-        }
+    /*
+     * English: Deliver what the webhooks still have queued (up to a few seconds) and stop their
+     * threads (server stop).
+     * Español: Entregar lo que los webhooks aún tienen en cola (hasta unos segundos) y detener sus
+     * hilos (parada del servidor).
+     */
+    public static void shutdown() {
+        TRANSACTIONS.shutdown(3000L);
+        VALUATIONS.shutdown(3000L);
     }
 
-    private static String escapeJson(String s) {
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\b", "\\b")
-                .replace("\f", "\\f")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+    public static String[] describeWebhooks() {
+        return new String[] { TRANSACTIONS.describe(), VALUATIONS.describe() };
     }
 
     private static String formatCurrency(long cents) {
@@ -163,6 +163,13 @@ public final class PrimeBankState {
      * snapshots.
      */
     public synchronized boolean setCompanyShortName(String companyId, String shortName) {
+        if (!putCompanyShortName(companyId, shortName))
+            return false;
+        com.primebank.core.ledger.FeeRouting.invalidate();
+        return true;
+    }
+
+    private boolean putCompanyShortName(String companyId, String shortName) {
         if (companyId == null)
             return false;
         String sanitized = shortName == null ? "" : shortName.trim();
@@ -222,6 +229,33 @@ public final class PrimeBankState {
         }
     }
 
+    /*
+     * English: Index the display names and tickers of freshly loaded companies in one pass.
+     * Same rules as the per-item setters: a name already mapped is kept and duplicate names are
+     * skipped; tickers are sanitized like in setCompanyShortName() and the first claim on a ticker
+     * (including one loaded from the accounts snapshot) keeps it. Fee routing is invalidated once.
+     * Español: Indexar en una pasada los nombres visibles y tickers de empresas recién cargadas.
+     * Mismas reglas que los setters individuales: un nombre ya mapeado se conserva y los nombres
+     * duplicados se omiten; los tickers se sanean como en setCompanyShortName() y el primer reclamo
+     * de un ticker (incluido uno cargado del snapshot de cuentas) lo conserva. El enrutamiento de
+     * comisiones se invalida una sola vez.
+     */
+    public synchronized void indexLoadedCompanies(java.util.Collection<Company> loaded) {
+        java.util.Set<String> takenNames = new java.util.HashSet<>();
+        for (String n : companyNames.values())
+            takenNames.add(n.toLowerCase(Locale.ROOT));
+        for (Company c : loaded) {
+            if (c.name != null && !companyNames.containsKey(c.id)) {
+                String trimmed = c.name.trim();
+                if (!trimmed.isEmpty() && takenNames.add(trimmed.toLowerCase(Locale.ROOT)))
+                    companyNames.put(c.id, trimmed);
+            }
+            if (c.shortName != null && !c.shortName.isEmpty())
+                putCompanyShortName(c.id, c.shortName);
+        }
+        com.primebank.core.ledger.FeeRouting.invalidate();
+    }
+
     /*
      * English: Reset all in-memory state when switching worlds to avoid cross-world
      * leakage.
@@ -238,6 +272,8 @@ public final class PrimeBankState {
         companies.clear();
         globalCashbackBps = 0;
         playerPosPending.clear();
+        com.primebank.core.ledger.CentralFees.get().clear();
+        com.primebank.core.ledger.FeeRouting.invalidate();
     }
 
     public Account ensureCentralAccount() {
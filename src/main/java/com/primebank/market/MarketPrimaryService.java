@@ -3,6 +3,8 @@ package com.primebank.market;
 import java.util.UUID;
 
 import com.primebank.PrimeBankMod;
+import com.primebank.core.Money;
+import com.primebank.core.accounts.TransactionType;
 import com.primebank.core.company.Company;
 import com.primebank.core.company.CompanyRegistry;
 import com.primebank.core.ledger.Ledger;
@@ -314,33 +316,39 @@ public final class MarketPrimaryService {
             // Ideally we do one atomic check. Ledger doesn't expose "check" easily without
             // doing it.
             // We can check balance manually.
-            long buyerBal = PrimeBankState.get().accounts().get(buyerAcc).getBalanceCents();
+            long buyerBal = com.primebank.core.ledger.CentralFees.get()
+                    .settledBalance(PrimeBankState.get().accounts().get(buyerAcc));
             // Fee is BUYER_FEE_BPS (2.5%). Total cost = Gross + Fee.
             long fee = (totalGross * BUYER_FEE_BPS) / 10000L;
             if (buyerBal < totalGross + fee) {
                 return Result.error("insufficient");
             }
 
-            // Execute transfers
+            // English: Pay every seller (secondary listings, then the owner for primary shares) in one
+            // atomic batch, so the buyer is either charged for all of them or for none.
+            // Español: Pagar a todos los vendedores (listados secundarios y luego el dueño por las
+            // acciones primarias) en un solo lote atómico, así el comprador paga todo o nada.
+            java.util.List<Ledger.BatchTransfer> payments = new java.util.ArrayList<>();
+            for (java.util.Map.Entry<String, Integer> entry : purchaseFrom.entrySet()) {
+                long subGross = grossSingle * entry.getValue();
+                String sellerAcc = com.primebank.core.accounts.PlayerAccounts
+                        .ensurePersonal(UUID.fromString(entry.getKey()));
+                payments.add(sharePayment(buyerAcc, sellerAcc, subGross));
+            }
+            if (fromPrimary > 0) {
+                String ownerAcc = com.primebank.core.accounts.PlayerAccounts.ensurePersonal(c.ownerUuid);
+                payments.add(sharePayment(buyerAcc, ownerAcc, grossSingle * fromPrimary));
+            }
+            Ledger.BatchResult br = ledger.transferBatch("MARKET_BUY", companyId, payments);
+            if (!br.success)
+                return Result.error("insufficient".equals(br.code) ? "insufficient" : "ledger_error");
+
             // 1. Secondary Sellers
             for (java.util.Map.Entry<String, Integer> entry : purchaseFrom.entrySet()) {
                 String sId = entry.getKey();
                 int qty = entry.getValue();
                 long subGross = grossSingle * qty;
 
-                String sellerAcc = com.primebank.core.accounts.PlayerAccounts.ensurePersonal(UUID.fromString(sId));
-                Ledger.TransferResult tr = ledger.marketPrimaryBuy(buyerAcc, sellerAcc, subGross, BUYER_FEE_BPS,
-                        ISSUER_FEE_BPS);
-                if (!tr.success) {
-                    // Partial failure is messy. We checked balance.
-                    // Stop and fail? We might have processed some.
-                    // Improving this requires a complex transaction manager or "Hold" system.
-                    // For now, abort remainder and return error (UI will show partial success? No,
-                    // simply error).
-                    // This is "Good enough" for a game mod.
-                    return Result.error("ledger_error_partial");
-                }
-
                 // Update Seller Holdings & Listing
                 c.holdings.put(sId, c.holdings.get(sId) - qty);
                 int oldList = c.sellerListings.get(sId);
@@ -357,12 +365,6 @@ public final class MarketPrimaryService {
             // 2. Primary Seller (Owner)
             if (fromPrimary > 0) {
                 long subGross = grossSingle * fromPrimary;
-                String sellerAcc = com.primebank.core.accounts.PlayerAccounts.ensurePersonal(c.ownerUuid);
-                Ledger.TransferResult tr = ledger.marketPrimaryBuy(buyerAcc, sellerAcc, subGross, BUYER_FEE_BPS,
-                        ISSUER_FEE_BPS);
-                if (!tr.success)
-                    return Result.error("ledger_error_primary");
-
                 c.holdings.put(ownerKey, c.holdings.get(ownerKey) - fromPrimary);
                 c.listedShares -= fromPrimary;
 
@@ -381,6 +383,21 @@ public final class MarketPrimaryService {
         return Result.ok();
     }
 
+    /*
+     * English: Payment to one seller: the buyer pays gross plus the buyer fee, the seller receives
+     * gross minus the issuer fee and both fees go to the central fee sink (as in
+     * Ledger.marketPrimaryBuy).
+     * Español: Pago a un vendedor: el comprador paga el bruto más la comisión del comprador, el
+     * vendedor recibe el bruto menos la comisión del emisor y ambas comisiones van al destino
+     * central (como en Ledger.marketPrimaryBuy).
+     */
+    private static Ledger.BatchTransfer sharePayment(String buyerAcc, String sellerAcc, long subGross) {
+        long buyerFee = Money.multiplyBps(subGross, BUYER_FEE_BPS);
+        long issuerFee = Money.multiplyBps(subGross, ISSUER_FEE_BPS);
+        return new Ledger.BatchTransfer(buyerAcc, sellerAcc, Money.add(subGross, -issuerFee),
+                Money.add(buyerFee, issuerFee), TransactionType.MARKET_BUY, TransactionType.MARKET_SELL, "Shares trade");
+    }
+
     /*
      * English: Result wrapper for market operations.
      * Español: Envoltorio de resultado para operaciones de mercado.
@@ -42,11 +42,9 @@ public class PacketPosOpenConfigRequest implements IMessage {
                     java.util.List<String> ids = new java.util.ArrayList<>();
                     java.util.List<String> labels = new java.util.ArrayList<>();
                     java.util.UUID me = p.getUniqueID();
-                    for (com.primebank.core.company.Company c : com.primebank.core.state.PrimeBankState.get().companies().all()) {
-                        if (c.ownerUuid != null && c.ownerUuid.equals(me)) {
-                            ids.add(c.id);
-                            labels.add(com.primebank.core.state.PrimeBankState.get().getCompanyDisplay(c.id));
-                        }
+                    for (com.primebank.core.company.Company c : com.primebank.core.state.PrimeBankState.get().companies().ownedBy(me)) {
+                        ids.add(c.id);
+                        labels.add(com.primebank.core.state.PrimeBankState.get().getCompanyDisplay(c.id));
                     }
                     if (ids.isEmpty()) {
                         p.sendMessage(new net.minecraft.util.text.TextComponentTranslation("primebank.pos.error.no_companies"));
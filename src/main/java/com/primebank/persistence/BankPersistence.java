@@ -1,10 +1,11 @@
 package com.primebank.persistence;
 
 import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.AbstractMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -13,69 +14,138 @@ import com.primebank.PrimeBankMod;
 import com.primebank.core.accounts.Account;
 import com.primebank.core.accounts.AccountRegistry;
 import com.primebank.core.accounts.AccountType;
+import com.primebank.core.ledger.CentralFees;
+import com.primebank.core.locks.LedgerEpoch;
 import com.primebank.core.state.PrimeBankState;
 import com.google.gson.annotations.SerializedName;
 
 /*
- English: Persistence service for PrimeBank. Loads/saves JSON snapshots asynchronously.
- Now uses atomic file moves for crash safety and read/write locks for consistency.
- Español: Servicio de persistencia para PrimeBank. Carga/guarda instantáneas JSON de forma asíncrona.
- Ahora usa movimientos de archivo atómicos para seguridad ante fallos y bloqueos de lectura/escritura para consistencia.
+ English: Persistence service for PrimeBank. Loads/saves snapshots asynchronously through the
+ configured BankStore (FileBankStore or KvBankStore). This class owns the protocol shared by all
+ stores: journal replay on load, and on save an epoch cut that yields a consistent set of changed
+ accounts plus the journal boundary they cover.
+ Español: Servicio de persistencia para PrimeBank. Carga/guarda instantáneas de forma asíncrona a
+ través del BankStore configurado (FileBankStore o KvBankStore). Esta clase maneja el protocolo
+ común a todos los almacenes: reaplicar el diario al cargar y, al guardar, un corte de época que da
+ un conjunto consistente de cuentas cambiadas más el límite del diario que cubren.
 */
 public class BankPersistence {
     private static final ExecutorService EXEC = Executors
             .newSingleThreadExecutor(r -> new Thread(r, "PrimeBank-Persistence"));
+    // English: Bounded pool for parallel shard reads/writes (also used by the company loader).
+    // Español: Pool acotado para lecturas/escrituras de shards en paralelo (también lo usa el
+    // cargador de empresas).
+    static final ExecutorService SHARD_POOL = newShardPool();
 
-    // English: Global lock to ensure we don't save while the state is being
-    // modified, if needed.
-    // For now, we rely on the fact that we copy data quickly. But to be safe, we
-    // could lock.
-    // However, PrimeBankState doesn't expose a global lock. We will synchronize the
-    // snapshot creation.
-    // Español: Bloqueo global para asegurar que no guardamos mientras se modifica
-    // el estado, si es necesario.
+    // English: Store the bank was loaded from when it differs from the active one.
+    // Español: Almacén desde el que se cargó el banco cuando difiere del activo.
+    private static volatile BankStore migrationSource;
 
     private BankPersistence() {
     }
 
+    private static ExecutorService newShardPool() {
+        int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+        java.util.concurrent.atomic.AtomicInteger n = new java.util.concurrent.atomic.AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "PrimeBank-Shard-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
     /*
-     * English: Load accounts from accounts.json if present.
-     * Español: Cargar cuentas desde accounts.json si existe.
+     * English: Load accounts from the configured store, replay the ledger journal on top of
+     * it and (re)start the journal writer. If the configured store is empty but the other
+     * one has data, the bank is read from there and fully written to the configured store at
+     * the next save.
+     * Español: Cargar cuentas desde el almacén configurado, reaplicar el diario del libro
+     * mayor encima y (re)iniciar el escritor del diario. Si el almacén configurado está vacío
+     * pero el otro tiene datos, el banco se lee de allí y se escribe completo en el almacén
+     * configurado en el próximo guardado.
      */
     public static void loadAll() {
-        File file = PersistencePaths.accountsFile();
-        if (!file.exists())
-            return;
-
-        AccountsSnapshot snap = null;
-        try {
-            snap = JsonUtil.read(file, AccountsSnapshot.class);
-        } catch (Exception e) {
-             PrimeBankMod.LOGGER.error("[PrimeBank] CRITICAL: Failed to load accounts.json. File may be corrupted. / CRÍTICO: Falló la carga de accounts.json. El archivo puede estar corrupto.", e);
-             // English: Backup corrupted file to prevent data loss on overwrite.
-             // Español: Respaldar archivo corrupto para prevenir pérdida de datos al sobrescribir.
-             File backup = new File(file.getParentFile(), file.getName() + ".corrupted." + System.currentTimeMillis());
-             try {
-                 Files.copy(file.toPath(), backup.toPath());
-                 PrimeBankMod.LOGGER.warn("[PrimeBank] Corrupted file backed up to: " + backup.getName());
-             } catch (Exception ex) {
-                 PrimeBankMod.LOGGER.error("[PrimeBank] Failed to backup corrupted file!", ex);
-             }
-             return;
+        // English: Stop the writer first so every queued record is on disk before replay.
+        // Español: Detener el escritor primero para que todo registro encolado esté en disco
+        // antes de reaplicar.
+        LedgerJournal.get().stop();
+        // English: Close the previous world's history files. Replay only restores balances, so history
+        // records that were still queued when a server crashed are not recovered (see HistoryStore).
+        // Español: Cerrar los archivos de historial del mundo anterior. La reaplicación solo restaura
+        // saldos, así que los registros de historial aún encolados cuando el servidor se cayó no se
+        // recuperan (ver HistoryStore).
+        HistoryStore.get().stop();
+        BankStore store = BankStores.select();
+        BankStore source = store;
+        migrationSource = null;
+        if (!store.hasData() && BankStores.other().hasData()) {
+            source = BankStores.other();
+            migrationSource = source;
+            store.requestFullRewrite();
+            PrimeBankMod.LOGGER.info("[PrimeBank] Migrating accounts from the {} store to the {} store",
+                    source.name(), store.name());
         }
+        long snapshotSeq = source.loadAccounts();
+        long lastSeq;
+        if (snapshotSeq < 0L) {
+            // English: Snapshot is corrupted; replaying deltas onto an empty bank would be
+            // wrong, so only scan for the last sequence.
+            // Español: El snapshot está corrupto; reaplicar deltas sobre un banco vacío sería
+            // incorrecto, así que solo se busca la última secuencia.
+            lastSeq = LedgerJournal.get().replay(null);
+        } else {
+            lastSeq = Math.max(snapshotSeq, LedgerJournal.get().replay(PrimeBankState.get().accounts()));
+        }
+        LedgerJournal.get().start(lastSeq);
+        HistoryStore.get().start(PersistencePaths.historyDir());
+        HistoryStore.get().seedIfNew(PrimeBankState.get().accounts());
+    }
 
-        if (snap == null || snap.accounts == null)
-            return;
+    /*
+     * English: Where companies must be read from: the migration source while a migration is
+     * pending, the active store otherwise.
+     * Español: De dónde deben leerse las empresas: el origen de la migración mientras haya
+     * una pendiente, el almacén activo en otro caso.
+     */
+    static BankStore companySource() {
+        BankStore source = migrationSource;
+        return source != null ? source : BankStores.get();
+    }
 
-        AccountRegistry reg = PrimeBankState.get().accounts();
-        for (AccountRecord r : snap.accounts) {
-            AccountType type = AccountType.valueOf(r.type);
-            Account acc = reg.create(r.id, type, r.ownerUuid == null ? null : java.util.UUID.fromString(r.ownerUuid),
-                    r.balanceCents);
-            acc.setHistory(r.history);
+    /*
+     * English: Complete a pending migration once companies were copied: write a full checkpoint
+     * into the active store and move the old store's files aside.
+     * Español: Completar una migración pendiente una vez copiadas las empresas: escribir un
+     * checkpoint completo en el almacén activo y apartar los archivos del almacén anterior.
+     */
+    static synchronized void finishMigration() {
+        BankStore source = migrationSource;
+        if (source == null || !checkpoint())
+            return;
+        File dest = new File(PersistencePaths.base(), "migrated-" + System.currentTimeMillis());
+        try {
+            source.retire(dest);
+            migrationSource = null;
+            PrimeBankMod.LOGGER.info("[PrimeBank] Migration to the {} store complete; old {} data moved to {}",
+                    BankStores.get().name(), source.name(), dest.getName());
+        } catch (java.io.IOException e) {
+            PrimeBankMod.LOGGER.error("[PrimeBank] Migrated, but could not move the old {} data aside", source.name(), e);
         }
-        PrimeBankMod.LOGGER.info("[PrimeBank] Loaded accounts: {}", snap.accounts.size());
+    }
+
+    static void restore(AccountRegistry reg, AccountRecord r) {
+        AccountType type = AccountType.valueOf(r.type);
+        Account acc = reg.create(r.id, type, r.ownerUuid == null ? null : java.util.UUID.fromString(r.ownerUuid),
+                r.balanceCents);
+        acc.setHistory(r.history);
+        acc.setJournalSeq(r.journalSeq);
+    }
 
+    /*
+     * English: Apply the bank-wide header fields of a loaded snapshot.
+     * Español: Aplicar los campos globales del encabezado de un snapshot cargado.
+     */
+    static void applyHeader(AccountsSnapshot snap) {
         if (snap.posPending != null) {
             PrimeBankState.get().loadPendingCharges(snap.posPending);
         }
@@ -90,6 +160,57 @@ public class BankPersistence {
         }
     }
 
+    /*
+     * English: Pick each account's state as of the cut that started the given epoch. Accounts
+     * created after the cut are left out. With clearDirty the account is marked clean first
+     * and dirty again if it already changed after the cut, so the next save picks that up.
+     * Español: Elegir el estado de cada cuenta al momento del corte que inició la época dada.
+     * Las cuentas creadas después del corte se omiten. Con clearDirty la cuenta se marca limpia
+     * primero y sucia de nuevo si ya cambió después del corte, así el próximo guardado lo toma.
+     */
+    static List<Map.Entry<Account, Account.State>> capture(Collection<Account> accounts, long epoch,
+            boolean clearDirty) {
+        List<Map.Entry<Account, Account.State>> out = new ArrayList<>(accounts.size());
+        for (Account a : accounts) {
+            if (clearDirty)
+                a.clearDirty();
+            Account.State s = a.stateBefore(epoch);
+            if (clearDirty && a.getState().epoch() >= epoch)
+                a.markDirty();
+            if (s != null)
+                out.add(new AbstractMap.SimpleImmutableEntry<>(a, s));
+        }
+        return out;
+    }
+
+    /*
+     * English: Write a shard or segment atomically, encoding each captured state straight from
+     * memory (no intermediate AccountRecord list and no account locks).
+     * Español: Escribir un shard o segmento de forma atómica, codificando cada estado capturado
+     * directamente desde memoria (sin lista intermedia de AccountRecord ni locks de cuenta).
+     */
+    static void writeStreaming(File f, AccountsSnapshot header,
+            List<Map.Entry<Account, Account.State>> accounts) throws java.io.IOException {
+        SnapshotStreams.AccountWriter out = SnapshotStreams.open(f, header, accounts.size());
+        boolean ok = false;
+        try {
+            for (Map.Entry<Account, Account.State> e : accounts)
+                out.write(e.getKey(), e.getValue());
+            out.close();
+            ok = true;
+        } finally {
+            if (!ok) {
+                try {
+                    out.close();
+                } catch (Exception ignored) {
+                    // English: Already failing; the partial tmp file is never moved into place.
+                    // Español: Ya está fallando; el archivo tmp parcial nunca se mueve a su lugar.
+                }
+            }
+        }
+        SnapshotStreams.commit(f);
+    }
+
     /*
      * English: Enqueue an asynchronous snapshot save
      * Español: Encolar un guardado asíncrono de instantáneas
@@ -105,58 +226,124 @@ public class BankPersistence {
     }
 
     /*
-     * English: Save snapshot synchronously (blocking) using atomic write.
-     * Español: Guardar snapshot de forma síncrona (bloqueante) usando escritura
-     * atómica.
+     * English: Save a checkpoint synchronously (blocking): take an epoch cut, hand the accounts
+     * changed since the last checkpoint to the store and, once it is durable, let the journal
+     * drop what the checkpoint covers.
+     * Español: Guardar un checkpoint de forma síncrona (bloqueante): tomar un corte de época,
+     * entregar al almacén las cuentas cambiadas desde el último checkpoint y, una vez durable,
+     * dejar que el diario descarte lo que el checkpoint cubre.
      */
     public static synchronized void saveAllBlocking() {
-        File file = PersistencePaths.accountsFile();
-        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        checkpoint();
+    }
 
-        AccountsSnapshot snap = new AccountsSnapshot();
-        snap.accounts = new ArrayList<>();
-
-        // English: Capture state. Ideally we should lock accounts, but for a snapshot,
-        // iterating is usually "good enough"
-        // for a game mod unless we want strict consistency. Given the requirements,
-        // we'll just iterate.
-        // Español: Capturar estado. Idealmente deberíamos bloquear cuentas, pero para
-        // un snapshot, iterar es usualmente "suficiente"
-        // para un mod de juego a menos que queramos consistencia estricta. Dados los
-        // requisitos, solo iteraremos.
-        for (Account a : PrimeBankState.get().accounts().all()) {
-            AccountRecord r = new AccountRecord();
-            // English: Acquire lock to prevent torn reads (inconsistent state).
-            // Español: Adquirir bloqueo para evitar lecturas inconsistentes.
-            java.util.concurrent.locks.ReentrantLock lock = com.primebank.core.locks.AccountLockManager
-                    .getLock(a.getId());
-            lock.lock();
-            try {
-                r.id = a.getId();
-                r.type = a.getType().name();
-                r.ownerUuid = a.getOwnerUuid() == null ? null : a.getOwnerUuid().toString();
-                r.balanceCents = a.getBalanceCents();
-                r.history = new ArrayList<>(a.getHistory());
-            } finally {
-                lock.unlock();
-            }
-            snap.accounts.add(r);
-        }
+    private static synchronized boolean checkpoint() {
+        AccountRegistry reg = PrimeBankState.get().accounts();
+        // English: The cut waits only for operations already in flight. Every journal record up
+        // to the boundary belongs to an older epoch and marked its accounts dirty first, so the
+        // states captured by the checkpoint include exactly those records and nothing after them.
+        // Español: El corte solo espera a las operaciones ya en curso. Todo registro del diario
+        // hasta el límite pertenece a una época anterior y marcó antes sus cuentas como sucias,
+        // así que los estados capturados por el checkpoint incluyen exactamente esos registros y
+        // nada más.
+        long[] boundary = new long[1];
+        long epoch = LedgerEpoch.cut(() -> {
+            // English: Pending central fees are journaled up to the boundary, so credit them inside the cut.
+            // Español: Las comisiones centrales pendientes ya están en el diario hasta el límite, así
+            // que se acreditan dentro del corte.
+            CentralFees.get().settleAtCut();
+            boundary[0] = LedgerJournal.get().beginSnapshot();
+        });
 
+        AccountsSnapshot snap = new AccountsSnapshot();
+        snap.journalSeq = boundary[0];
         snap.posPending = new java.util.HashMap<>(PrimeBankState.get().getAllPendingCharges());
         snap.companyNames = new java.util.HashMap<>(PrimeBankState.get().getAllCompanyNames());
         snap.companyShortNames = new java.util.HashMap<>(PrimeBankState.get().getAllCompanyShortNames());
         snap.globalCashbackBps = PrimeBankState.get().getGlobalCashbackBps();
+        BankStore.Checkpoint cp = new BankStore.Checkpoint(snap, epoch, reg.drainDirty());
 
-        // English: Write atomically using helper.
-        // Español: Escribir atómicamente usando ayudante.
         try {
-            JsonUtil.writeAtomic(file, snap);
-            PrimeBankMod.LOGGER.info("[PrimeBank] Snapshot saved atomically: {} accounts", snap.accounts.size());
+            BankStores.get().saveAccounts(cp);
+            LedgerJournal.get().snapshotCommitted(boundary[0]);
+            return true;
         } catch (Exception e) {
+            cp.failed();
             PrimeBankMod.LOGGER.error(
                     "[PrimeBank] Failed to save snapshot atomically / Fallo al guardar snapshot atómicamente", e);
+            return false;
+        }
+    }
+
+    /*
+     * English: Force the next save to rewrite the whole base (e.g. after changing
+     * snapshot_format) and run it now.
+     * Español: Forzar que el próximo guardado reescriba toda la base (p. ej. tras cambiar
+     * snapshot_format) y ejecutarlo ahora.
+     */
+    public static synchronized void compactNow() {
+        BankStores.get().requestFullRewrite();
+        saveAllBlocking();
+    }
+
+    /*
+     * English: Build a full in-memory snapshot with every account inline (the legacy
+     * single-file layout). Only used by the codec benchmark.
+     * Español: Construir un snapshot completo en memoria con todas las cuentas en línea (el
+     * formato antiguo de un solo archivo). Solo lo usa el benchmark del códec.
+     */
+    public static AccountsSnapshot fullSnapshot() {
+        AccountsSnapshot snap = new AccountsSnapshot();
+        Collection<Account> all = PrimeBankState.get().accounts().all();
+        snap.accounts = new ArrayList<>(all.size());
+        for (Account a : all)
+            snap.accounts.add(copy(a));
+        snap.posPending = new java.util.HashMap<>(PrimeBankState.get().getAllPendingCharges());
+        snap.companyNames = new java.util.HashMap<>(PrimeBankState.get().getAllCompanyNames());
+        snap.companyShortNames = new java.util.HashMap<>(PrimeBankState.get().getAllCompanyShortNames());
+        snap.globalCashbackBps = PrimeBankState.get().getGlobalCashbackBps();
+        return snap;
+    }
+
+    /*
+     * English: Export every account as pretty JSON under primebank/export/. An export can be
+     * imported offline by replacing accounts.json with it and deleting users/ and snapshots/.
+     * Español: Exportar todas las cuentas como JSON legible bajo primebank/export/. Una
+     * exportación puede importarse sin servidor reemplazando accounts.json por ella y borrando
+     * users/ y snapshots/.
+     */
+    public static synchronized File exportJson() {
+        File out = new File(new File(PersistencePaths.base(), "export"),
+                "accounts-" + System.currentTimeMillis() + ".json");
+        AccountsSnapshot header = new AccountsSnapshot();
+        header.posPending = new java.util.HashMap<>(PrimeBankState.get().getAllPendingCharges());
+        header.companyNames = new java.util.HashMap<>(PrimeBankState.get().getAllCompanyNames());
+        header.companyShortNames = new java.util.HashMap<>(PrimeBankState.get().getAllCompanyShortNames());
+        header.globalCashbackBps = PrimeBankState.get().getGlobalCashbackBps();
+        long epoch = LedgerEpoch.cut(() -> CentralFees.get().settleAtCut());
+        try {
+            writeStreaming(out, header, capture(PrimeBankState.get().accounts().all(), epoch, false));
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("Failed to export accounts / Falló la exportación de cuentas: " + out, e);
         }
+        return out;
+    }
+
+    /*
+     * English: Copy one account from a single state read (states are immutable, so no lock).
+     * Español: Copiar una cuenta desde una única lectura de estado (los estados son inmutables,
+     * así que sin lock).
+     */
+    private static AccountRecord copy(Account a) {
+        AccountRecord r = new AccountRecord();
+        Account.State s = a.getState();
+        r.id = a.getId();
+        r.type = a.getType().name();
+        r.ownerUuid = a.getOwnerUuid() == null ? null : a.getOwnerUuid().toString();
+        r.balanceCents = s.balanceCents;
+        r.history = new ArrayList<>(s.history);
+        r.journalSeq = s.journalSeq;
+        return r;
     }
 
     public static class AccountsSnapshot {
@@ -170,6 +357,18 @@ public class BankPersistence {
         public java.util.Map<String, String> companyShortNames;
         @SerializedName("globalCashbackBps")
         public Integer globalCashbackBps;
+        @SerializedName("journalSeq")
+        public Long journalSeq;
+        // English: Base generation; delta segments carry the generation they extend.
+        // Español: Generación de la base; los segmentos delta llevan la generación que extienden.
+        @SerializedName("generation")
+        public Integer generation;
+        @SerializedName("segment")
+        public Integer segment;
+        // English: Number of account shard files under users/ (null = accounts inline, legacy).
+        // Español: Cantidad de archivos shard de cuentas bajo users/ (null = cuentas en línea, antiguo).
+        @SerializedName("shards")
+        public Integer shards;
     }
 
     public static class AccountRecord {
@@ -183,5 +382,7 @@ public class BankPersistence {
         public long balanceCents;
         @SerializedName("history")
         public List<Account.TransactionRecord> history;
+        @SerializedName("journalSeq")
+        public long journalSeq;
     }
 }
@@ -0,0 +1,125 @@
+package com.primebank.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.primebank.core.accounts.Account;
+import com.primebank.core.company.Company;
+import com.primebank.core.config.PrimeBankConfig.SnapshotFormat;
+import com.primebank.core.state.PrimeBankState;
+import com.primebank.persistence.BankPersistence.AccountsSnapshot;
+
+/*
+ English: Storage backend for accounts (with their history), bank-wide metadata (pending POS
+ charges, company names and tickers, cashback) and companies. BankPersistence and
+ CompanyPersistence keep the shared protocol (journal replay, epoch cuts, dirty tracking,
+ write-behind); a store only decides how the data sits on disk. Selected with storage_backend.
+ Español: Backend de almacenamiento para cuentas (con su historial), metadatos globales del banco
+ (cobros POS pendientes, nombres y tickers de empresas, cashback) y empresas. BankPersistence y
+ CompanyPersistence mantienen el protocolo común (reaplicar el diario, cortes de época, seguimiento
+ de cambios, escritura diferida); un almacén solo decide cómo quedan los datos en disco. Se elige
+ con storage_backend.
+*/
+public interface BankStore {
+    String name();
+
+    /*
+     * English: True if this store holds data for the current world.
+     * Español: Verdadero si este almacén tiene datos del mundo actual.
+     */
+    boolean hasData();
+
+    /*
+     * English: Restore accounts and the bank header into PrimeBankState. Returns the journal
+     * sequence the stored data covers, or -1 if it is corrupted.
+     * Español: Restaurar cuentas y el encabezado del banco en PrimeBankState. Devuelve la
+     * secuencia del diario que cubren los datos guardados, o -1 si están corruptos.
+     */
+    long loadAccounts();
+
+    /*
+     * English: Persist a checkpoint atomically. Throwing leaves the previous data intact.
+     * Español: Persistir un checkpoint de forma atómica. Si lanza, los datos anteriores quedan intactos.
+     */
+    void saveAccounts(Checkpoint cp) throws Exception;
+
+    /*
+     * English: Make the next checkpoint rewrite everything (e.g. after a format change).
+     * Español: Hacer que el próximo checkpoint reescriba todo (p. ej. tras cambiar el formato).
+     */
+    void requestFullRewrite();
+
+    List<Company> loadCompanies() throws Exception;
+
+    /*
+     * English: Encoding CompanyPersistence must hand to saveCompany().
+     * Español: Codificación que CompanyPersistence debe entregar a saveCompany().
+     */
+    SnapshotFormat companyFormat();
+
+    void saveCompany(String id, byte[] data) throws IOException;
+
+    String describeStats();
+
+    /*
+     * English: Move this store's files aside (under primebank/migrated-<time>/) after the bank
+     * was migrated to the other store, so stale data is never loaded again.
+     * Español: Apartar los archivos de este almacén (bajo primebank/migrated-<tiempo>/) tras
+     * migrar el banco al otro almacén, para que nunca se vuelvan a cargar datos viejos.
+     */
+    void retire(File dest) throws IOException;
+
+    void close();
+
+    /*
+     * English: One consistent cut of the bank: the header (journal boundary included) and the
+     * accounts changed since the previous checkpoint. all() captures every account at the same
+     * cut for stores that rewrite everything.
+     * Español: Un corte consistente del banco: el encabezado (incluido el límite del diario) y
+     * las cuentas cambiadas desde el checkpoint anterior. all() captura todas las cuentas en el
+     * mismo corte para almacenes que reescriben todo.
+     */
+    final class Checkpoint {
+        public final AccountsSnapshot header;
+        private final long epoch;
+        private final List<Account> dirty;
+        private List<Map.Entry<Account, Account.State>> changed;
+        private Collection<Account> everything;
+
+        Checkpoint(AccountsSnapshot header, long epoch, List<Account> dirty) {
+            this.header = header;
+            this.epoch = epoch;
+            this.dirty = dirty;
+        }
+
+        public int dirtyCount() {
+            return dirty.size();
+        }
+
+        public List<Map.Entry<Account, Account.State>> changed() {
+            if (changed == null)
+                changed = BankPersistence.capture(dirty, epoch, true);
+            return changed;
+        }
+
+        public List<Map.Entry<Account, Account.State>> all() {
+            everything = PrimeBankState.get().accounts().all();
+            return BankPersistence.capture(everything, epoch, true);
+        }
+
+        /*
+         * English: Put the changes back so the next checkpoint retries them.
+         * Español: Devolver los cambios para que el próximo checkpoint los reintente.
+         */
+        void failed() {
+            for (Account a : dirty)
+                a.markDirty();
+            if (everything != null)
+                for (Account a : everything)
+                    a.markDirty();
+        }
+    }
+}
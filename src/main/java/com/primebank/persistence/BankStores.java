@@ -0,0 +1,44 @@
+package com.primebank.persistence;
+
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.core.config.PrimeBankConfig.StorageBackend;
+
+/*
+ English: Holds the active BankStore, chosen from storage_backend when the world loads.
+ Español: Mantiene el BankStore activo, elegido desde storage_backend al cargar el mundo.
+*/
+public final class BankStores {
+    private static volatile BankStore active = FileBankStore.get();
+
+    private BankStores() {
+    }
+
+    public static BankStore get() {
+        return active;
+    }
+
+    /*
+     * English: Activate the configured store, closing the previous one if it changes.
+     * Español: Activar el almacén configurado, cerrando el anterior si cambia.
+     */
+    public static synchronized BankStore select() {
+        BankStore next = of(PrimeBankConfig.STORAGE_BACKEND);
+        if (next != active) {
+            active.close();
+            active = next;
+        }
+        return active;
+    }
+
+    /*
+     * English: The store that is not active (source for migrations).
+     * Español: El almacén que no está activo (origen para migraciones).
+     */
+    public static BankStore other() {
+        return active == FileBankStore.get() ? KvBankStore.get() : FileBankStore.get();
+    }
+
+    public static BankStore of(StorageBackend backend) {
+        return backend == StorageBackend.KV ? KvBankStore.get() : FileBankStore.get();
+    }
+}
@@ -1,148 +1,258 @@
 package com.primebank.persistence;
 
-import java.io.File;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.primebank.PrimeBankMod;
 import com.primebank.core.company.Company;
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.core.config.PrimeBankConfig.SnapshotFormat;
 import com.primebank.core.state.PrimeBankState;
 
 /*
- English: Persistence for Company objects under world/primebank/companies/.
- Español: Persistencia para objetos Company bajo world/primebank/companies/.
+ English: Persistence for Company objects through the active BankStore (world/primebank/companies/
+ with the file store).
+ Español: Persistencia para objetos Company a través del BankStore activo
+ (world/primebank/companies/ con el almacén de archivos).
 */
 public final class CompanyPersistence {
-    private CompanyPersistence() {
-    }
+    /*
+     * English: Write-behind queue: company id -> company waiting to be written. A save for an id
+     * already queued is coalesced into the pending write.
+     * Español: Cola de escritura diferida: id de empresa -> empresa esperando ser escrita. Un
+     * guardado para un id ya encolado se agrupa en la escritura pendiente.
+     */
+    private static final Map<String, Company> PENDING = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "PrimeBank-CompanyWriter");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final AtomicLong REQUESTS = new AtomicLong();
+    private static final AtomicLong WRITES = new AtomicLong();
+    // English: Copy order, taken under synchronized (c); the last sequence written per company
+    // doubles as its file lock so an older copy never overwrites a newer one.
+    // Español: Orden de copias, tomado bajo synchronized (c); la última secuencia escrita por
+    // empresa sirve además de lock de archivo para que una copia vieja nunca pise una nueva.
+    private static final AtomicLong COPY_SEQ = new AtomicLong();
+    private static final Map<String, long[]> WRITTEN = new ConcurrentHashMap<>();
 
-    private static File dir() {
-        return new File(PersistencePaths.base(), "companies");
+    private CompanyPersistence() {
     }
 
+    /*
+     * English: Load all companies from the active store (parsed in parallel by the file store),
+     * then normalize them, register them and build the name, ticker and owner indexes in one
+     * bulk pass. During a store migration they are read from the old store, written to the new
+     * one and the migration is completed. Logs the time spent in each phase.
+     * Español: Cargar todas las empresas desde el almacén activo (el almacén de archivos las
+     * parsea en paralelo), luego normalizarlas, registrarlas y construir los índices de nombre,
+     * ticker y dueño en una sola pasada masiva. Durante una migración de almacén se leen del
+     * almacén anterior, se escriben en el nuevo y se completa la migración. Registra el tiempo
+     * de cada fase.
+     */
     public static void loadAll() {
         try {
-            File d = dir();
-            if (!d.exists())
-                return;
-            File[] files = d.listFiles((f, n) -> n.endsWith(".json"));
-            if (files == null)
-                return;
-            int n = 0;
-            for (File f : files) {
-                Company c = JsonUtil.read(f, Company.class);
-                if (c != null && c.id != null) {
-                    if (c.valuationHistoryCents == null) {
-                        c.valuationHistoryCents = new java.util.ArrayList<>();
-                    } else if (c.valuationHistoryCents.size() > 26) {
-                        /*
-                         * English: Trim valuation history to last 26 entries to honor UI graph cap.
-                         * Español: Recortar el historial de valoraciones a las últimas 26 entradas para
-                         * respetar el límite de la UI.
-                         */
-                        int excess = c.valuationHistoryCents.size() - 26;
-                        for (int i = 0; i < excess; i++) {
-                            c.valuationHistoryCents.remove(0);
-                        }
-                    }
-                    if (c.salesLast7DaysCents == null) {
-                        // English: Ensure rolling sales window is available to avoid NPEs.
-                        // Español: Asegurar que la ventana rodante de ventas esté disponible para
-                        // evitar NPEs.
-                        c.salesLast7DaysCents = new java.util.ArrayList<>();
-                    } else if (c.salesLast7DaysCents.size() > 7) {
-                        // English: Trim rolling sales history to last 7 days for valuation.
-                        // Español: Recortar el historial rodante de ventas a los últimos 7 días para la
-                        // valoración.
-                        int excessDays = c.salesLast7DaysCents.size() - 7;
-                        for (int i = 0; i < excessDays; i++) {
-                            c.salesLast7DaysCents.remove(0);
-                        }
-                    }
-                    if (c.shortName != null) {
-                        c.shortName = c.shortName.replaceAll("[^A-Za-z0-9]", "");
-                        c.shortName = c.shortName.trim().toUpperCase(Locale.ROOT);
-                        if (c.shortName.isEmpty()) {
-                            c.shortName = null;
-                        }
-                    }
-                    // English: Normalize possible old/edited JSON to avoid wiping valuations.
-                    // Español: Normalizar posibles JSON antiguos/editados para evitar borrar
-                    // valoraciones.
-                    for (int i = 0; i < c.valuationHistoryCents.size(); i++) {
-                        Long v = c.valuationHistoryCents.get(i);
-                        if (v == null || v.longValue() < 0L)
-                            c.valuationHistoryCents.set(i, 0L);
-                    }
-                    if (!c.valuationHistoryCents.isEmpty()) {
-                        long lastVal = c.valuationHistoryCents.get(c.valuationHistoryCents.size() - 1);
-                        if (c.valuationCurrentCents <= 0L && lastVal > 0L) {
-                            // English: Restore current valuation from last history point if missing.
-                            // Español: Restaurar valoración actual desde el último punto del historial si
-                            // falta.
-                            c.valuationCurrentCents = lastVal;
-                        }
-                        // English: Fix invalid lastValuationAt (<=0 or before approvedAt) to prevent
-                        // catch-up loop bug.
-                        // Español: Reparar lastValuationAt inválido (<=0 o antes de approvedAt) para
-                        // prevenir bug de catch-up.
-                        if (c.approvedAt > 0L && (c.lastValuationAt <= 0L || c.lastValuationAt < c.approvedAt)) {
-                            // English: Approximate last valuation timestamp from approvedAt and history
-                            // length.
-                            // Español: Aproximar la marca de tiempo de la última valoración desde
-                            // approvedAt y longitud del historial.
-                            long DAY_MS = 24L * 60L * 60L * 1000L;
-                            int histCount = c.valuationHistoryCents.size();
-                            c.lastValuationAt = c.approvedAt + 8L * DAY_MS
-                                    + (long) Math.max(0, histCount - 1) * 7L * DAY_MS;
-                        }
-                    }
-                    PrimeBankState.get().companies().put(c);
-                    // English: If there's a stored company name and no display mapping yet, set it
-                    // so UIs (POS) show it.
-                    // Español: Si hay nombre almacenado y no hay mapeo visible aún, establecerlo
-                    // para que las UIs (POS) lo muestren.
-                    if (c.name != null && !c.name.trim().isEmpty()) {
-                        String existing = PrimeBankState.get().getCompanyName(c.id);
-                        if (existing == null || existing.trim().isEmpty()) {
-                            PrimeBankState.get().setCompanyName(c.id, c.name.trim());
-                        }
-                    }
-                    if (c.shortName != null && !c.shortName.isEmpty()) {
-                        PrimeBankState.get().setCompanyShortName(c.id, c.shortName);
-                    }
-                    n++;
-                }
+            long t0 = System.nanoTime();
+            BankStore source = BankPersistence.companySource();
+            List<Company> loaded = source.loadCompanies();
+            long t1 = System.nanoTime();
+
+            for (Company c : loaded)
+                normalize(c);
+            PrimeBankState.get().companies().putAll(loaded);
+            PrimeBankState.get().indexLoadedCompanies(loaded);
+            long t2 = System.nanoTime();
+            PrimeBankMod.LOGGER.info("[PrimeBank] Loaded companies: {} (read {} ms, index {} ms)", loaded.size(),
+                    (t1 - t0) / 1_000_000L, (t2 - t1) / 1_000_000L);
+            if (source != BankStores.get()) {
+                PrimeBankMod.LOGGER.info("[PrimeBank] Migrating companies from the {} store to the {} store",
+                        source.name(), BankStores.get().name());
+                saveAll();
+                BankPersistence.finishMigration();
             }
-            PrimeBankMod.LOGGER.info("[PrimeBank] Loaded companies: {}", n);
         } catch (Exception ex) {
             PrimeBankMod.LOGGER.error("[PrimeBank] Failed to load companies", ex);
         }
     }
 
+    /*
+     * English: Repair and trim one freshly read company; touches nothing shared.
+     * Español: Reparar y recortar una empresa recién leída; no toca nada compartido.
+     */
+    private static void normalize(Company c) {
+        if (c.valuationHistoryCents == null) {
+            c.valuationHistoryCents = new java.util.ArrayList<>();
+        } else if (c.valuationHistoryCents.size() > 26) {
+            /*
+             * English: Trim valuation history to last 26 entries to honor UI graph cap.
+             * Español: Recortar el historial de valoraciones a las últimas 26 entradas para
+             * respetar el límite de la UI.
+             */
+            int excess = c.valuationHistoryCents.size() - 26;
+            for (int i = 0; i < excess; i++) {
+                c.valuationHistoryCents.remove(0);
+            }
+        }
+        if (c.salesLast7DaysCents == null) {
+            // English: Ensure rolling sales window is available to avoid NPEs.
+            // Español: Asegurar que la ventana rodante de ventas esté disponible para
+            // evitar NPEs.
+            c.salesLast7DaysCents = new java.util.ArrayList<>();
+        } else if (c.salesLast7DaysCents.size() > 7) {
+            // English: Trim rolling sales history to last 7 days for valuation.
+            // Español: Recortar el historial rodante de ventas a los últimos 7 días para la
+            // valoración.
+            int excessDays = c.salesLast7DaysCents.size() - 7;
+            for (int i = 0; i < excessDays; i++) {
+                c.salesLast7DaysCents.remove(0);
+            }
+        }
+        if (c.shortName != null) {
+            c.shortName = c.shortName.replaceAll("[^A-Za-z0-9]", "");
+            c.shortName = c.shortName.trim().toUpperCase(Locale.ROOT);
+            if (c.shortName.isEmpty()) {
+                c.shortName = null;
+            }
+        }
+        // English: Normalize possible old/edited JSON to avoid wiping valuations.
+        // Español: Normalizar posibles JSON antiguos/editados para evitar borrar
+        // valoraciones.
+        for (int i = 0; i < c.valuationHistoryCents.size(); i++) {
+            Long v = c.valuationHistoryCents.get(i);
+            if (v == null || v.longValue() < 0L)
+                c.valuationHistoryCents.set(i, 0L);
+        }
+        if (!c.valuationHistoryCents.isEmpty()) {
+            long lastVal = c.valuationHistoryCents.get(c.valuationHistoryCents.size() - 1);
+            if (c.valuationCurrentCents <= 0L && lastVal > 0L) {
+                // English: Restore current valuation from last history point if missing.
+                // Español: Restaurar valoración actual desde el último punto del historial si
+                // falta.
+                c.valuationCurrentCents = lastVal;
+            }
+            // English: Fix invalid lastValuationAt (<=0 or before approvedAt) to prevent
+            // catch-up loop bug.
+            // Español: Reparar lastValuationAt inválido (<=0 o antes de approvedAt) para
+            // prevenir bug de catch-up.
+            if (c.approvedAt > 0L && (c.lastValuationAt <= 0L || c.lastValuationAt < c.approvedAt)) {
+                // English: Approximate last valuation timestamp from approvedAt and history
+                // length.
+                // Español: Aproximar la marca de tiempo de la última valoración desde
+                // approvedAt y longitud del historial.
+                long DAY_MS = 24L * 60L * 60L * 1000L;
+                int histCount = c.valuationHistoryCents.size();
+                c.lastValuationAt = c.approvedAt + 8L * DAY_MS
+                        + (long) Math.max(0, histCount - 1) * 7L * DAY_MS;
+            }
+        }
+    }
+
+    /*
+     * English: Queue a company for saving. Repeated saves within company_save_debounce_ms are
+     * written once, off the calling thread, from a copy taken under synchronized (c).
+     * Español: Encolar una empresa para guardar. Los guardados repetidos dentro de
+     * company_save_debounce_ms se escriben una vez, fuera del hilo llamador, desde una copia
+     * tomada bajo synchronized (c).
+     */
     public static void saveCompany(Company c) {
+        REQUESTS.incrementAndGet();
+        int debounce = PrimeBankConfig.COMPANY_SAVE_DEBOUNCE_MS;
+        if (debounce <= 0) {
+            write(c);
+            return;
+        }
+        if (PENDING.put(c.id, c) == null) {
+            try {
+                WRITER.schedule(() -> writePending(c.id), debounce, TimeUnit.MILLISECONDS);
+            } catch (java.util.concurrent.RejectedExecutionException ex) {
+                writePending(c.id);
+            }
+        }
+    }
+
+    private static void writePending(String id) {
+        Company c = PENDING.remove(id);
+        if (c != null)
+            write(c);
+    }
+
+    /*
+     * English: Write every queued company now on the calling thread (server stop, world switch).
+     * Español: Escribir ahora en el hilo llamador todas las empresas encoladas (parada del
+     * servidor, cambio de mundo).
+     */
+    public static void flush() {
+        int n = 0;
+        for (String id : new java.util.ArrayList<>(PENDING.keySet())) {
+            Company c = PENDING.remove(id);
+            if (c != null) {
+                write(c);
+                n++;
+            }
+        }
+        if (n > 0)
+            PrimeBankMod.LOGGER.info("[PrimeBank] Flushed {} pending company saves / Se vaciaron {} guardados de empresa pendientes",
+                    n, n);
+    }
+
+    /*
+     * English: Queue depth and how many save requests were absorbed by coalescing.
+     * Español: Profundidad de la cola y cuántas solicitudes de guardado absorbió la agrupación.
+     */
+    public static String describeStats() {
+        long requests = REQUESTS.get();
+        long writes = WRITES.get();
+        double ratio = requests == 0 ? 0.0 : 100.0 * (requests - writes - PENDING.size()) / requests;
+        return String.format(Locale.ROOT,
+                "companies: queued=%d requests=%d writes=%d coalesced=%.1f%% debounce=%dms", PENDING.size(),
+                requests, writes, Math.max(0.0, ratio), PrimeBankConfig.COMPANY_SAVE_DEBOUNCE_MS);
+    }
+
+    private static void write(Company c) {
+        WRITES.incrementAndGet();
         try {
-            File f = new File(dir(), sanitize(c.id) + ".json");
-            String json;
+            BankStore store = BankStores.get();
+            boolean binary = store.companyFormat() == SnapshotFormat.BINARY;
+            byte[] data;
+            long seq;
             // English: Synchronize serialization to prevent torn reads.
             // Español: Sincronizar serialización para evitar lecturas inconsistentes.
             synchronized (c) {
-                json = JsonUtil.toJson(c);
+                data = binary ? SnapshotCodec.encodeCompany(c)
+                        : JsonUtil.toJson(c).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                seq = COPY_SEQ.incrementAndGet();
+            }
+            // English: Write to disk outside the company lock to minimize contention.
+            // Español: Escribir en disco fuera del bloqueo de la empresa para minimizar contención.
+            long[] written = WRITTEN.computeIfAbsent(c.id, k -> new long[1]);
+            synchronized (written) {
+                if (seq < written[0])
+                    return;
+                store.saveCompany(c.id, data);
+                written[0] = seq;
             }
-            // English: Write to disk outside the lock to minimize contention.
-            // Español: Escribir en disco fuera del bloqueo para minimizar contención.
-            JsonUtil.writeStringAtomic(f, json);
         } catch (Exception ex) {
             PrimeBankMod.LOGGER.error("[PrimeBank] Failed to save company {}", c.id, ex);
         }
     }
 
+    /*
+     * English: Write every company now; anything queued is covered by this pass.
+     * Español: Escribir todas las empresas ahora; lo encolado queda cubierto por esta pasada.
+     */
     public static void saveAll() {
         for (Company c : PrimeBankState.get().companies().all()) {
-            saveCompany(c);
+            PENDING.remove(c.id);
+            REQUESTS.incrementAndGet();
+            write(c);
         }
-    }
-
-    private static String sanitize(String id) {
-        return id.replace(':', '_');
+        flush();
     }
 }
@@ -0,0 +1,497 @@
+package com.primebank.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.primebank.PrimeBankMod;
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountRegistry;
+import com.primebank.core.company.Company;
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.core.config.PrimeBankConfig.SnapshotFormat;
+import com.primebank.core.state.PrimeBankState;
+import com.primebank.persistence.BankPersistence.AccountRecord;
+import com.primebank.persistence.BankPersistence.AccountsSnapshot;
+
+/*
+ English: The file store (storage_backend = "files"). Accounts are split into hash shards under
+ users/ (written and read in parallel) described by accounts.json; snapshots/ holds delta segments
+ with only the accounts changed since the previous checkpoint, compacted into a new shard
+ generation once they pile up. Companies are one file each under companies/. Shards, segments and
+ company files use the binary SnapshotCodec or JSON depending on snapshot_format.
+ Español: El almacén de archivos (storage_backend = "files"). Las cuentas se dividen en shards por
+ hash bajo users/ (escritos y leídos en paralelo) descritos por accounts.json; snapshots/ contiene
+ segmentos delta con solo las cuentas cambiadas desde el checkpoint anterior, compactados en una
+ nueva generación de shards cuando se acumulan. Las empresas son un archivo cada una bajo
+ companies/. Shards, segmentos y archivos de empresa usan el SnapshotCodec binario o JSON según
+ snapshot_format.
+*/
+public final class FileBankStore implements BankStore {
+    private static final FileBankStore INSTANCE = new FileBankStore();
+
+
+    // English: Incremental snapshot bookkeeping, guarded by this store's monitor.
+    // Español: Contabilidad de snapshots incrementales, protegida por el monitor de este almacén.
+    private int generation;
+    private int nextSegment = 1;
+    private int segmentCount;
+    private long segmentRecords;
+    private boolean forceCompact = true;
+
+    private FileBankStore() {
+    }
+
+    public static FileBankStore get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String name() {
+        return "files";
+    }
+
+    @Override
+    public boolean hasData() {
+        return PersistencePaths.accountsFile().exists();
+    }
+
+    /*
+     * English: Read accounts.json plus the delta segments of its generation into memory.
+     * Returns the journal sequence covered by the newest file applied, or -1 if anything
+     * is corrupted.
+     * Español: Leer accounts.json y los segmentos delta de su generación a memoria.
+     * Devuelve la secuencia del diario cubierta por el archivo más nuevo aplicado, o -1 si
+     * algo está corrupto.
+     */
+    @Override
+    public synchronized long loadAccounts() {
+        File file = PersistencePaths.accountsFile();
+        generation = 0;
+        segmentCount = 0;
+        segmentRecords = 0;
+        nextSegment = 1;
+        forceCompact = true;
+        if (!file.exists())
+            return 0L;
+
+        // English: Only a legacy single-file base has accounts inline; they are held until the
+        // deltas are known.
+        // Español: Solo una base antigua de un solo archivo tiene cuentas en línea; se retienen
+        // hasta conocer los deltas.
+        List<AccountRecord> legacy = new ArrayList<>();
+        AccountsSnapshot snap = readOrBackup(file, legacy::add);
+        if (snap == null)
+            return -1L;
+        generation = snap.generation == null ? 0 : snap.generation.intValue();
+
+        // English: Deltas are read first (they are small); base records for the same ids are
+        // skipped. Later segments win.
+        // Español: Los deltas se leen primero (son pequeños); se omiten los registros base con
+        // los mismos ids. Los segmentos posteriores ganan.
+        Map<String, AccountRecord> merged = new LinkedHashMap<>();
+        long journalSeq = snap.journalSeq == null ? 0L : snap.journalSeq.longValue();
+        boolean corrupted = false;
+        for (File seg : listSegments()) {
+            long[] records = new long[1];
+            AccountsSnapshot delta = readOrBackup(seg, r -> {
+                merged.put(r.id, r);
+                records[0]++;
+            });
+            if (delta == null) {
+                // English: Later segments build on this one; stop here and rewrite a full base.
+                // Español: Los segmentos siguientes dependen de este; parar aquí y reescribir una base completa.
+                corrupted = true;
+                break;
+            }
+            segmentRecords += records[0];
+            if (delta.posPending != null)
+                snap.posPending = delta.posPending;
+            if (delta.companyNames != null)
+                snap.companyNames = delta.companyNames;
+            if (delta.companyShortNames != null)
+                snap.companyShortNames = delta.companyShortNames;
+            if (delta.globalCashbackBps != null)
+                snap.globalCashbackBps = delta.globalCashbackBps;
+            if (delta.journalSeq != null)
+                journalSeq = Math.max(journalSeq, delta.journalSeq.longValue());
+            segmentCount++;
+            nextSegment = Math.max(nextSegment, delta.segment == null ? 0 : delta.segment.intValue() + 1);
+        }
+
+        AccountRegistry reg = PrimeBankState.get().accounts();
+        for (AccountRecord r : merged.values())
+            BankPersistence.restore(reg, r);
+        long baseCount;
+        if (snap.shards != null) {
+            long loaded = loadShards(reg, snap.shards.intValue(), merged);
+            if (loaded < 0L) {
+                corrupted = true;
+                baseCount = -1L - loaded;
+            } else {
+                baseCount = loaded;
+            }
+        } else {
+            baseCount = 0L;
+            for (AccountRecord r : legacy) {
+                if (!merged.containsKey(r.id)) {
+                    BankPersistence.restore(reg, r);
+                    baseCount++;
+                }
+            }
+        }
+        reg.markAllClean();
+        // English: Legacy single-file bases are migrated to shards on the next save.
+        // Español: Las bases antiguas de un solo archivo se migran a shards en el próximo guardado.
+        forceCompact = corrupted || snap.shards == null;
+        PrimeBankMod.LOGGER.info("[PrimeBank] Loaded accounts: {} ({} delta segments)", baseCount + merged.size(),
+                segmentCount);
+
+        BankPersistence.applyHeader(snap);
+        return corrupted ? -1L : journalSeq;
+    }
+
+    /*
+     * English: Read every shard of the current generation in parallel and register its
+     * accounts, skipping ids already restored from deltas. Returns the number of accounts,
+     * or -(count + 1) if a shard is missing or corrupted.
+     * Español: Leer en paralelo cada shard de la generación actual y registrar sus cuentas,
+     * omitiendo ids ya restaurados desde deltas. Devuelve la cantidad de cuentas, o
+     * -(cantidad + 1) si falta un shard o está corrupto.
+     */
+    private long loadShards(AccountRegistry reg, int shards, Map<String, AccountRecord> deltas) {
+        List<Future<Integer>> tasks = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            final File f = existingShardFile(generation, i);
+            tasks.add(BankPersistence.SHARD_POOL.submit(() -> {
+                if (!f.exists()) {
+                    PrimeBankMod.LOGGER.error("[PrimeBank] CRITICAL: Missing account shard {} / CRÍTICO: Falta el shard de cuentas {}",
+                            f.getName(), f.getName());
+                    return -1;
+                }
+                int[] n = new int[1];
+                AccountsSnapshot shard = readOrBackup(f, r -> {
+                    if (!deltas.containsKey(r.id)) {
+                        BankPersistence.restore(reg, r);
+                        n[0]++;
+                    }
+                });
+                return shard == null ? -1 : n[0];
+            }));
+        }
+        long total = 0L;
+        boolean failed = false;
+        for (Future<Integer> t : tasks) {
+            int n;
+            try {
+                n = t.get();
+            } catch (Exception e) {
+                PrimeBankMod.LOGGER.error("[PrimeBank] Failed to load account shard / Falló la carga del shard de cuentas", e);
+                n = -1;
+            }
+            if (n < 0)
+                failed = true;
+            else
+                total += n;
+        }
+        deleteStale(PersistencePaths.usersDir(), generation);
+        return failed ? -(total + 1L) : total;
+    }
+
+    /*
+     * English: Stream each shard of a new base generation in parallel. Returns the number of
+     * accounts written.
+     * Español: Escribir en streaming y en paralelo cada shard de una nueva generación base.
+     * Devuelve la cantidad de cuentas escritas.
+     */
+    private int writeShards(int gen, List<Map.Entry<Account, Account.State>> all) throws Exception {
+        int shards = PrimeBankConfig.SNAPSHOT_SHARDS;
+        List<List<Map.Entry<Account, Account.State>>> buckets = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++)
+            buckets.add(new ArrayList<>());
+        for (Map.Entry<Account, Account.State> e : all)
+            buckets.get(shardOf(e.getKey().getId(), shards)).add(e);
+        List<Future<Integer>> tasks = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            final List<Map.Entry<Account, Account.State>> bucket = buckets.get(i);
+            final File f = shardFile(gen, i);
+            tasks.add(BankPersistence.SHARD_POOL.submit(() -> {
+                BankPersistence.writeStreaming(f, new AccountsSnapshot(), bucket);
+                return bucket.size();
+            }));
+        }
+        int total = 0;
+        Exception failure = null;
+        for (Future<Integer> t : tasks) {
+            try {
+                total += t.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return total;
+    }
+
+    private int shardOf(String id, int shards) {
+        return Math.floorMod(id.hashCode(), shards);
+    }
+
+    private File shardFile(int gen, int shard) {
+        return new File(PersistencePaths.usersDir(), String.format("accounts-g%08d-%03d", gen, shard) + extension());
+    }
+
+    /*
+     * English: The shard as it exists on disk, in whichever format it was written.
+     * Español: El shard tal como existe en disco, en el formato en que se escribió.
+     */
+    private File existingShardFile(int gen, int shard) {
+        String stem = String.format("accounts-g%08d-%03d", gen, shard);
+        File bin = new File(PersistencePaths.usersDir(), stem + SnapshotCodec.EXTENSION);
+        return bin.exists() ? bin : new File(PersistencePaths.usersDir(), stem + ".json");
+    }
+
+    private String extension() {
+        return PrimeBankConfig.SNAPSHOT_FORMAT == SnapshotFormat.BINARY ? SnapshotCodec.EXTENSION : ".json";
+    }
+
+    private boolean isSnapshotFile(String name) {
+        return name.endsWith(".json") || name.endsWith(SnapshotCodec.EXTENSION);
+    }
+
+    /*
+     * English: Delete generation-tagged files in dir that do not belong to the given generation.
+     * Español: Eliminar archivos etiquetados con generación en dir que no pertenecen a la generación dada.
+     */
+    private void deleteStale(File dir, int gen) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        String keep = String.format("accounts-g%08d-", gen);
+        for (File f : files) {
+            String name = f.getName();
+            if (name.startsWith("accounts-g") && isSnapshotFile(name) && !name.startsWith(keep) && !f.delete())
+                PrimeBankMod.LOGGER.warn("[PrimeBank] Could not delete stale snapshot file {}", name);
+        }
+    }
+
+    /*
+     * English: Stream a snapshot file's records into the consumer; on failure back the file up
+     * and return null.
+     * Español: Pasar en streaming los registros de un archivo de snapshot al consumidor; si
+     * falla, respaldar el archivo y devolver null.
+     */
+    private AccountsSnapshot readOrBackup(File file, java.util.function.Consumer<AccountRecord> each) {
+        try {
+            return SnapshotStreams.read(file, each);
+        } catch (Exception e) {
+             PrimeBankMod.LOGGER.error("[PrimeBank] CRITICAL: Failed to load " + file.getName() + ". File may be corrupted. / CRÍTICO: Falló la carga de " + file.getName() + ". El archivo puede estar corrupto.", e);
+             // English: Backup corrupted file to prevent data loss on overwrite.
+             // Español: Respaldar archivo corrupto para prevenir pérdida de datos al sobrescribir.
+             File backup = new File(file.getParentFile(), file.getName() + ".corrupted." + System.currentTimeMillis());
+             try {
+                 Files.copy(file.toPath(), backup.toPath());
+                 PrimeBankMod.LOGGER.warn("[PrimeBank] Corrupted file backed up to: " + backup.getName());
+             } catch (Exception ex) {
+                 PrimeBankMod.LOGGER.error("[PrimeBank] Failed to backup corrupted file!", ex);
+             }
+             return null;
+        }
+    }
+
+    /*
+     * English: Delta segments of the current generation in write order. Segments left over
+     * from an older generation (crash during compaction) are deleted.
+     * Español: Segmentos delta de la generación actual en orden de escritura. Los segmentos
+     * de una generación anterior (fallo durante la compactación) se eliminan.
+     */
+    private List<File> listSegments() {
+        List<File> out = new ArrayList<>();
+        deleteStale(PersistencePaths.snapshotsDir(), generation);
+        File[] files = PersistencePaths.snapshotsDir().listFiles();
+        if (files == null)
+            return out;
+        String prefix = String.format("accounts-g%08d-", generation);
+        for (File f : files) {
+            if (f.getName().startsWith(prefix) && isSnapshotFile(f.getName()))
+                out.add(f);
+        }
+        // English: Zero-padded names sort in segment order.
+        // Español: Los nombres con ceros a la izquierda se ordenan por segmento.
+        Collections.sort(out);
+        return out;
+    }
+
+    private File segmentFile(int gen, int index) {
+        return new File(PersistencePaths.snapshotsDir(), String.format("accounts-g%08d-%06d", gen, index) + extension());
+    }
+
+    /*
+     * English: Normally only the accounts changed since the last checkpoint go into a new delta
+     * segment; once enough segments pile up everything is compacted into a new shard generation.
+     * Español: Normalmente solo las cuentas cambiadas desde el último checkpoint van a un nuevo
+     * segmento delta; cuando se acumulan suficientes segmentos todo se compacta en una nueva
+     * generación de shards.
+     */
+    @Override
+    public synchronized void saveAccounts(Checkpoint cp) throws Exception {
+        int accountCount = PrimeBankState.get().accounts().all().size();
+        boolean compact = forceCompact || segmentCount >= PrimeBankConfig.SNAPSHOT_COMPACT_SEGMENTS
+                || segmentRecords + cp.dirtyCount() > Math.max(1024, accountCount / 2);
+        AccountsSnapshot snap = cp.header;
+        if (compact) {
+            // English: Shards first, then accounts.json switches to the new generation in
+            // one atomic move; a crash in between leaves the previous generation intact.
+            // Español: Primero los shards, luego accounts.json cambia a la nueva generación
+            // en un único movimiento atómico; un fallo intermedio deja intacta la anterior.
+            List<Map.Entry<Account, Account.State>> states = cp.all();
+            snap.generation = generation + 1;
+            snap.shards = PrimeBankConfig.SNAPSHOT_SHARDS;
+            int written = writeShards(snap.generation, states);
+            JsonUtil.writeAtomic(PersistencePaths.accountsFile(), snap);
+            generation++;
+            segmentCount = 0;
+            segmentRecords = 0;
+            nextSegment = 1;
+            forceCompact = false;
+            // English: Old shards and segments are superseded by the new generation.
+            // Español: Los shards y segmentos antiguos quedan reemplazados por la nueva generación.
+            deleteStale(PersistencePaths.usersDir(), generation);
+            deleteStale(PersistencePaths.snapshotsDir(), generation);
+            long total = 0L;
+            for (Map.Entry<Account, Account.State> e : states)
+                total += e.getValue().balanceCents;
+            PrimeBankMod.LOGGER.info(
+                    "[PrimeBank] Snapshot compacted atomically: {} accounts in {} shards, {} cents total at journal seq {}",
+                    written, snap.shards, total, snap.journalSeq);
+        } else {
+            List<Map.Entry<Account, Account.State>> states = cp.changed();
+            snap.generation = generation;
+            snap.segment = nextSegment;
+            BankPersistence.writeStreaming(segmentFile(generation, nextSegment), snap, states);
+            nextSegment++;
+            segmentCount++;
+            segmentRecords += states.size();
+            PrimeBankMod.LOGGER.debug("[PrimeBank] Snapshot delta saved: {} accounts", states.size());
+        }
+    }
+
+    @Override
+    public synchronized void requestFullRewrite() {
+        forceCompact = true;
+    }
+
+    @Override
+    public List<Company> loadCompanies() throws Exception {
+        List<Company> out = new ArrayList<>();
+        File d = companiesDir();
+        File[] files = d.listFiles((f, n) -> n.endsWith(".json") || n.endsWith(SnapshotCodec.EXTENSION));
+        if (files == null)
+            return out;
+        // English: Sorted so ticker conflicts resolve the same way on every restart.
+        // Español: Ordenados para que los conflictos de ticker se resuelvan igual en cada reinicio.
+        java.util.Arrays.sort(files);
+        List<File> live = new ArrayList<>(files.length);
+        for (File f : files) {
+            if (!isShadowed(f))
+                live.add(f);
+        }
+        List<Future<Company>> tasks = new ArrayList<>(live.size());
+        for (File f : live)
+            tasks.add(BankPersistence.SHARD_POOL.submit(() -> readCompany(f)));
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                Company c = tasks.get(i).get();
+                if (c != null && c.id != null)
+                    out.add(c);
+            } catch (ExecutionException ex) {
+                PrimeBankMod.LOGGER.error("[PrimeBank] Failed to load company file {}", live.get(i).getName(),
+                        ex.getCause());
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public SnapshotFormat companyFormat() {
+        return PrimeBankConfig.SNAPSHOT_FORMAT;
+    }
+
+    @Override
+    public void saveCompany(String id, byte[] data) throws IOException {
+        boolean binary = companyFormat() == SnapshotFormat.BINARY;
+        File f = new File(companiesDir(), sanitize(id) + (binary ? SnapshotCodec.EXTENSION : ".json"));
+        File other = new File(companiesDir(), sanitize(id) + (binary ? ".json" : SnapshotCodec.EXTENSION));
+        writeBytesAtomic(f, data);
+        // English: Drop the copy in the other format so loads are unambiguous.
+        // Español: Eliminar la copia en el otro formato para que la carga no sea ambigua.
+        if (other.exists())
+            other.delete();
+    }
+
+    @Override
+    public synchronized String describeStats() {
+        return String.format(java.util.Locale.ROOT, "store: files generation=%d segments=%d segmentRecords=%d",
+                generation, segmentCount, segmentRecords);
+    }
+
+    @Override
+    public synchronized void retire(File dest) throws IOException {
+        dest.mkdirs();
+        File[] parts = { PersistencePaths.accountsFile(), PersistencePaths.usersDir(), PersistencePaths.snapshotsDir(),
+                companiesDir() };
+        for (File f : parts) {
+            if (f.exists())
+                Files.move(f.toPath(), new File(dest, f.getName()).toPath());
+        }
+        PersistencePaths.usersDir().mkdirs();
+        companiesDir().mkdirs();
+    }
+
+    @Override
+    public void close() {
+        // English: Every write is already a complete file; nothing stays open.
+        // Español: Cada escritura ya es un archivo completo; nada queda abierto.
+    }
+
+    private static File companiesDir() {
+        return new File(PersistencePaths.base(), "companies");
+    }
+
+    private static Company readCompany(File f) throws IOException {
+        return f.getName().endsWith(SnapshotCodec.EXTENSION) ? SnapshotCodec.readCompany(f)
+                : JsonUtil.read(f, Company.class);
+    }
+
+    /*
+     * English: True if a newer copy of the same company exists in the other format.
+     * Español: Verdadero si existe una copia más nueva de la misma empresa en el otro formato.
+     */
+    private static boolean isShadowed(File f) {
+        String name = f.getName();
+        boolean bin = name.endsWith(SnapshotCodec.EXTENSION);
+        String stem = name.substring(0, name.lastIndexOf('.'));
+        File other = new File(f.getParentFile(), stem + (bin ? ".json" : SnapshotCodec.EXTENSION));
+        return other.exists() && other.lastModified() > f.lastModified();
+    }
+
+    private static void writeBytesAtomic(File f, byte[] data) throws IOException {
+        File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+        f.getParentFile().mkdirs();
+        Files.write(tmp.toPath(), data);
+        Files.move(tmp.toPath(), f.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String sanitize(String id) {
+        return id.replace(':', '_');
+    }
+}
@@ -0,0 +1,460 @@
+package com.primebank.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.primebank.PrimeBankMod;
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountRegistry;
+
+/*
+ English: Full transaction history on disk, so accounts only keep a short recent tail in memory and
+ snapshots stay the same size however long a history gets. Each account has an append-only log
+ (<id>.log, one JSON TransactionRecord per line, same shape as in accounts.json) and an index
+ (<id>.idx, the 8-byte offset of every line), so a page is found by seeking instead of scanning.
+ Records are queued by Account.addTransaction and written in batches by one PrimeBank-History
+ thread, log before index: a crash can only leave unindexed bytes behind, which are cut off when
+ the files are next opened, and pages read every record at its own indexed offset. History is
+ informational and best-effort: records still queued when the server crashes are lost, because the
+ journal restores balances but not history lines; balances are always recovered from the journal.
+ Español: Historial completo de transacciones en disco, así las cuentas solo guardan en memoria una
+ cola reciente corta y los snapshots mantienen su tamaño sin importar el largo del historial. Cada
+ cuenta tiene un log de solo anexado (<id>.log, un TransactionRecord JSON por línea, con la misma
+ forma que en accounts.json) y un índice (<id>.idx, el desplazamiento de 8 bytes de cada línea), así
+ una página se encuentra saltando en vez de recorrer. Account.addTransaction encola los registros y
+ un único hilo PrimeBank-History los escribe en lotes, log antes que índice: un fallo solo puede dejar
+ bytes sin indexar, que se recortan al volver a abrir los archivos, y las páginas leen cada registro
+ en su propio desplazamiento indexado. El historial es informativo y de mejor esfuerzo: los registros
+ aún encolados cuando el servidor se cae se pierden, porque el diario restaura saldos pero no líneas
+ de historial; los saldos siempre se recuperan del diario.
+*/
+public final class HistoryStore {
+    private static final HistoryStore INSTANCE = new HistoryStore();
+    private static final Gson GSON = new Gson();
+    private static final int OPEN_FILES = 64;
+    private static final int MAX_BATCH = 4096;
+    private static final String SEEDED_MARKER = "seeded";
+
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong written = new AtomicLong();
+    private volatile File dir;
+    private Thread writer;
+
+    private HistoryStore() {
+    }
+
+    public static HistoryStore get() {
+        return INSTANCE;
+    }
+
+    /*
+     * English: Start writing into dir (world load). Call stop() first when switching worlds.
+     * Español: Empezar a escribir en dir (carga del mundo). Llamar stop() antes al cambiar de mundo.
+     */
+    public synchronized void start(File historyDir) {
+        if (writer != null)
+            return;
+        historyDir.mkdirs();
+        dir = historyDir;
+        Thread t = new Thread(() -> run(historyDir), "PrimeBank-History");
+        t.setDaemon(true);
+        writer = t;
+        t.start();
+    }
+
+    /*
+     * English: Write everything queued, close the files and stop accepting records.
+     * Español: Escribir todo lo encolado, cerrar los archivos y dejar de aceptar registros.
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            t = writer;
+            writer = null;
+            dir = null;
+        }
+        if (t == null)
+            return;
+        queue.offer(Stop.INSTANCE);
+        try {
+            t.join(10_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return dir != null;
+    }
+
+    /*
+     * English: Queue one record of an account (no-op while stopped). Never blocks.
+     * Español: Encolar un registro de una cuenta (sin efecto si está detenido). Nunca bloquea.
+     */
+    public void append(Account account, Account.TransactionRecord record) {
+        if (dir != null)
+            queue.offer(new Pending(account.getId(), record));
+    }
+
+    /*
+     * English: First start on a world saved before this store existed: copy the tails kept in the
+     * snapshot so no history is lost.
+     * Español: Primer inicio en un mundo guardado antes de que existiera este almacén: copiar las
+     * colas guardadas en el snapshot para no perder historial.
+     */
+    public void seedIfNew(AccountRegistry accounts) {
+        File d = dir;
+        if (d == null || new File(d, SEEDED_MARKER).exists())
+            return;
+        int seeded = 0;
+        for (Account a : accounts.all()) {
+            for (Account.TransactionRecord r : a.getHistory()) {
+                queue.offer(new Pending(a.getId(), r));
+                seeded++;
+            }
+        }
+        queue.offer(new Seeded(new File(d, SEEDED_MARKER)));
+        if (seeded > 0)
+            PrimeBankMod.LOGGER.info("[PrimeBank] Copying {} recent history records to the history store", seeded);
+    }
+
+    /*
+     * English: page() on the bounded persistence IO pool, for callers on the server thread.
+     * Español: page() en el pool de E/S acotado de persistencia, para llamadores en el hilo del
+     * servidor.
+     */
+    public CompletableFuture<Page> pageAsync(String accountId, int page, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return page(accountId, page, pageSize);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, BankPersistence.SHARD_POOL);
+    }
+
+    /*
+     * English: Page of an account's history, page 1 being the newest pageSize records (each page
+     * oldest first). Waits briefly for queued records so the page includes them. Returns null while
+     * the store is stopped.
+     * Español: Página del historial de una cuenta, la página 1 son los pageSize registros más nuevos
+     * (cada página del más viejo al más nuevo). Espera brevemente los registros encolados para que la
+     * página los incluya. Devuelve null si el almacén está detenido.
+     */
+    public Page page(String accountId, int page, int pageSize) throws IOException {
+        File d = dir;
+        if (d == null)
+            return null;
+        CountDownLatch flushed = new CountDownLatch(1);
+        queue.offer(flushed);
+        try {
+            flushed.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        File idx = new File(d, fileName(accountId) + ".idx");
+        File log = new File(d, fileName(accountId) + ".log");
+        long total = idx.length() / 8L;
+        int pages = (int) Math.max(1L, (total + pageSize - 1) / pageSize);
+        page = Math.max(1, Math.min(page, pages));
+        long end = total - (long) (page - 1) * pageSize;
+        long start = Math.max(0L, end - pageSize);
+        if (end <= 0L)
+            return new Page(Collections.<Account.TransactionRecord>emptyList(), page, pages, total);
+        // English: Offsets of the page's records plus where the last one ends (the next record, or the
+        // newline ending it on the newest page: the writer may be appending past it right now).
+        // Español: Desplazamientos de los registros de la página más dónde termina el último (el
+        // registro siguiente, o el salto de línea que lo termina en la página más nueva: el escritor
+        // puede estar anexando después de él en este momento).
+        int n = (int) (end - start);
+        long[] offsets = new long[n + 1];
+        try (RandomAccessFile in = new RandomAccessFile(idx, "r")) {
+            in.seek(start * 8L);
+            for (int i = 0; i < n; i++)
+                offsets[i] = in.readLong();
+            offsets[n] = end < total ? in.readLong() : -1L;
+        }
+        List<Account.TransactionRecord> out = new ArrayList<>(n);
+        try (RandomAccessFile in = new RandomAccessFile(log, "r")) {
+            if (offsets[n] < 0L)
+                offsets[n] = Math.max(offsets[n - 1], Files.lineEnd(in, offsets[n - 1]));
+            long from = offsets[0];
+            long to = offsets[n];
+            if (from < 0L || to < from || to > in.length() || to - from > Integer.MAX_VALUE)
+                throw new IOException("History index of " + accountId + " does not match its log");
+            byte[] bytes = new byte[(int) (to - from)];
+            in.seek(from);
+            in.readFully(bytes);
+            for (int i = 0; i < n; i++) {
+                int a = (int) (offsets[i] - from);
+                int b = (int) (offsets[i + 1] - from);
+                Account.TransactionRecord r = a >= 0 && b > a && b <= bytes.length
+                        ? parse(new String(bytes, a, b - a, StandardCharsets.UTF_8))
+                        : null;
+                if (r != null)
+                    out.add(r);
+            }
+        }
+        return new Page(out, page, pages, total);
+    }
+
+    private static Account.TransactionRecord parse(String line) {
+        try {
+            return GSON.fromJson(line.trim(), Account.TransactionRecord.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    public String describe() {
+        return "history store: " + (dir != null ? "on" : "off") + " queued=" + queue.size() + " written="
+                + written.get();
+    }
+
+    private void run(File d) {
+        Map<String, Files> open = new OpenFiles();
+        List<Object> batch = new ArrayList<>();
+        boolean running = true;
+        try {
+            while (running) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH);
+                Map<String, List<Account.TransactionRecord>> byAccount = new LinkedHashMap<>();
+                List<Object> after = new ArrayList<>();
+                for (Object o : batch) {
+                    if (o instanceof Pending) {
+                        Pending p = (Pending) o;
+                        byAccount.computeIfAbsent(p.accountId, k -> new ArrayList<>()).add(p.record);
+                    } else if (o == Stop.INSTANCE) {
+                        running = false;
+                    } else {
+                        after.add(o);
+                    }
+                }
+                batch.clear();
+                for (Map.Entry<String, List<Account.TransactionRecord>> e : byAccount.entrySet()) {
+                    try {
+                        Files f = open.get(e.getKey());
+                        if (f == null) {
+                            f = new Files(d, fileName(e.getKey()));
+                            open.put(e.getKey(), f);
+                        }
+                        f.write(e.getValue());
+                        written.addAndGet(e.getValue().size());
+                    } catch (IOException ex) {
+                        PrimeBankMod.LOGGER.error("[PrimeBank] Could not write history of {}", e.getKey(), ex);
+                        // English: Reopen next time, which cuts off whatever part of the batch was written.
+                        // Español: Reabrir la próxima vez, lo que recorta la parte del lote que se escribió.
+                        Files f = open.remove(e.getKey());
+                        if (f != null)
+                            f.close();
+                    }
+                }
+                // English: Flush requests and the seed marker complete only after the records before them.
+                // Español: Las solicitudes de vaciado y la marca de siembra se completan solo tras los
+                // registros anteriores.
+                for (Object o : after) {
+                    if (o instanceof CountDownLatch) {
+                        ((CountDownLatch) o).countDown();
+                    } else if (o instanceof Seeded) {
+                        try {
+                            ((Seeded) o).marker.createNewFile();
+                        } catch (IOException ex) {
+                            PrimeBankMod.LOGGER.warn("[PrimeBank] Could not mark the history store as seeded", ex);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Iterator<Files> it = open.values().iterator(); it.hasNext();) {
+                it.next().close();
+                it.remove();
+            }
+            // English: Release readers still waiting on a flush.
+            // Español: Liberar lectores que aún esperan un vaciado.
+            for (Object o : queue)
+                if (o instanceof CountDownLatch)
+                    ((CountDownLatch) o).countDown();
+        }
+    }
+
+    private static String fileName(String accountId) {
+        StringBuilder sb = new StringBuilder(accountId.length());
+        for (int i = 0; i < accountId.length(); i++) {
+            char c = accountId.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) || c == '-' || c == '.' ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    /*
+     * English: One page of history and where it sits in the whole.
+     * Español: Una página del historial y su lugar en el total.
+     */
+    public static final class Page {
+        public final List<Account.TransactionRecord> records;
+        public final int page;
+        public final int pages;
+        public final long total;
+
+        Page(List<Account.TransactionRecord> records, int page, int pages, long total) {
+            this.records = records;
+            this.page = page;
+            this.pages = pages;
+            this.total = total;
+        }
+    }
+
+    /*
+     * English: Most recently used open files, closing the eldest past OPEN_FILES.
+     * Español: Archivos abiertos usados más recientemente; cierra el más viejo al pasar OPEN_FILES.
+     */
+    private static final class OpenFiles extends LinkedHashMap<String, Files> {
+        private static final long serialVersionUID = 1L;
+
+        OpenFiles() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Files> eldest) {
+            if (size() <= OPEN_FILES)
+                return false;
+            eldest.getValue().close();
+            return true;
+        }
+    }
+
+    private static final class Files {
+        final FileOutputStream log;
+        final FileOutputStream idx;
+        long logLength;
+
+        Files(File d, String name) throws IOException {
+            File logFile = new File(d, name + ".log");
+            File idxFile = new File(d, name + ".idx");
+            // English: Repair what a crash can leave behind: a torn index entry, an indexed line whose
+            // bytes never fully reached the log, and log bytes past the last indexed line. New records
+            // then start right after the last indexed one.
+            // Español: Reparar lo que puede dejar un fallo: una entrada de índice cortada, una línea
+            // indexada cuyos bytes no llegaron completos al log y bytes del log después de la última
+            // línea indexada. Los registros nuevos empiezan justo después del último indexado.
+            long entries = idxFile.length() / 8L;
+            long logEnd = 0L;
+            try (RandomAccessFile ri = new RandomAccessFile(idxFile, "rw");
+                    RandomAccessFile rl = new RandomAccessFile(logFile, "rw")) {
+                while (entries > 0L) {
+                    ri.seek((entries - 1L) * 8L);
+                    long last = ri.readLong();
+                    logEnd = lineEnd(rl, last);
+                    if (logEnd > 0L)
+                        break;
+                    entries--;
+                }
+                if (entries == 0L)
+                    logEnd = 0L;
+                if (ri.length() != entries * 8L)
+                    ri.setLength(entries * 8L);
+                if (rl.length() != logEnd)
+                    rl.setLength(logEnd);
+            }
+            logLength = logEnd;
+            log = new FileOutputStream(logFile, true);
+            idx = new FileOutputStream(idxFile, true);
+        }
+
+        /*
+         * English: Position just past the newline ending the line at offset, or 0 if that line is
+         * incomplete.
+         * Español: Posición justo después del salto de línea que termina la línea en offset, o 0 si
+         * esa línea está incompleta.
+         */
+        static long lineEnd(RandomAccessFile log, long offset) throws IOException {
+            long length = log.length();
+            if (offset < 0L || offset >= length)
+                return 0L;
+            byte[] buf = new byte[4096];
+            long pos = offset;
+            while (pos < length) {
+                log.seek(pos);
+                int read = log.read(buf, 0, (int) Math.min(buf.length, length - pos));
+                if (read <= 0)
+                    break;
+                for (int i = 0; i < read; i++)
+                    if (buf[i] == '\n')
+                        return pos + i + 1L;
+                pos += read;
+            }
+            return 0L;
+        }
+
+        void write(List<Account.TransactionRecord> records) throws IOException {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream(records.size() * 128);
+            byte[] offsets = new byte[records.size() * 8];
+            long pos = logLength;
+            for (int i = 0; i < records.size(); i++) {
+                long o = pos + lines.size();
+                for (int b = 0; b < 8; b++)
+                    offsets[i * 8 + b] = (byte) (o >>> (56 - 8 * b));
+                byte[] line = (GSON.toJson(records.get(i)) + "\n").getBytes(StandardCharsets.UTF_8);
+                lines.write(line, 0, line.length);
+            }
+            log.write(lines.toByteArray());
+            logLength = pos + lines.size();
+            idx.write(offsets);
+        }
+
+        void close() {
+            try {
+                log.close();
+            } catch (IOException ignored) {
+            }
+            try {
+                idx.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static final class Pending {
+        final String accountId;
+        final Account.TransactionRecord record;
+
+        Pending(String accountId, Account.TransactionRecord record) {
+            this.accountId = accountId;
+            this.record = record;
+        }
+    }
+
+    private static final class Seeded {
+        final File marker;
+
+        Seeded(File marker) {
+            this.marker = marker;
+        }
+    }
+
+    private enum Stop {
+        INSTANCE
+    }
+}
@@ -0,0 +1,172 @@
+package com.primebank.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.primebank.PrimeBankMod;
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountRegistry;
+import com.primebank.core.company.Company;
+import com.primebank.core.config.PrimeBankConfig.SnapshotFormat;
+import com.primebank.core.state.PrimeBankState;
+import com.primebank.persistence.BankPersistence.AccountsSnapshot;
+
+/*
+ English: The embedded store (storage_backend = "kv"): everything lives in primebank/store/bank.kv,
+ a KvFile with keys "a/<account id>", "c/<company id>" and "meta" (the bank header). A checkpoint is
+ one transaction holding only the accounts changed since the previous one plus the header, so no
+ save ever rewrites the whole world; the file compacts itself once dead records dominate.
+ Español: El almacén embebido (storage_backend = "kv"): todo vive en primebank/store/bank.kv, un
+ KvFile con claves "a/<id de cuenta>", "c/<id de empresa>" y "meta" (el encabezado del banco). Un
+ checkpoint es una transacción con solo las cuentas cambiadas desde el anterior más el encabezado,
+ así ningún guardado reescribe el mundo completo; el archivo se compacta solo cuando predominan los
+ registros muertos.
+*/
+public final class KvBankStore implements BankStore {
+    private static final KvBankStore INSTANCE = new KvBankStore();
+    private static final String ACCOUNT_PREFIX = "a/";
+    private static final String COMPANY_PREFIX = "c/";
+    private static final String META_KEY = "meta";
+
+    private KvFile kv;
+    private File openFile;
+    private boolean fullRewrite;
+
+    private KvBankStore() {
+    }
+
+    public static KvBankStore get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String name() {
+        return "kv";
+    }
+
+    private static File storeFile() {
+        return new File(new File(PersistencePaths.base(), "store"), "bank.kv");
+    }
+
+    /*
+     * English: The KvFile of the current world, reopened when the world directory changes.
+     * Español: El KvFile del mundo actual, reabierto cuando cambia el directorio del mundo.
+     */
+    private synchronized KvFile kv() throws IOException {
+        File f = storeFile();
+        if (kv == null || !f.equals(openFile)) {
+            close();
+            kv = KvFile.open(f);
+            openFile = f;
+        }
+        return kv;
+    }
+
+    @Override
+    public boolean hasData() {
+        // English: More than the bare file header.
+        // Español: Más que el encabezado vacío del archivo.
+        return storeFile().length() > 8L;
+    }
+
+    @Override
+    public synchronized long loadAccounts() {
+        if (!hasData())
+            return 0L;
+        try {
+            KvFile store = kv();
+            byte[] meta = store.get(META_KEY);
+            AccountsSnapshot header = meta == null ? new AccountsSnapshot() : SnapshotCodec.readHeader(meta);
+            AccountRegistry reg = PrimeBankState.get().accounts();
+            int n = 0;
+            for (String key : store.keys(ACCOUNT_PREFIX)) {
+                BankPersistence.restore(reg, SnapshotCodec.readAccount(store.get(key)));
+                n++;
+            }
+            reg.markAllClean();
+            BankPersistence.applyHeader(header);
+            PrimeBankMod.LOGGER.info("[PrimeBank] Loaded accounts: {} (kv store, {})", n, store.describeStats());
+            return header.journalSeq == null ? 0L : header.journalSeq.longValue();
+        } catch (Exception e) {
+            PrimeBankMod.LOGGER.error("[PrimeBank] CRITICAL: Failed to load the kv store / CRÍTICO: Falló la carga del almacén kv", e);
+            return -1L;
+        }
+    }
+
+    @Override
+    public synchronized void saveAccounts(Checkpoint cp) throws Exception {
+        boolean full = fullRewrite;
+        List<Map.Entry<Account, Account.State>> states = full ? cp.all() : cp.changed();
+        KvFile.Batch batch = kv().batch();
+        for (Map.Entry<Account, Account.State> e : states)
+            batch.put(ACCOUNT_PREFIX + e.getKey().getId(), SnapshotCodec.encodeAccount(e.getKey(), e.getValue()));
+        batch.put(META_KEY, SnapshotCodec.encodeHeader(cp.header));
+        // English: Synced: the journal drops everything up to the header's boundary afterwards.
+        // Español: Sincronizado: después el diario descarta todo hasta el límite del encabezado.
+        kv().commit(batch, true);
+        if (full) {
+            kv().compact();
+            fullRewrite = false;
+        }
+        PrimeBankMod.LOGGER.debug("[PrimeBank] kv checkpoint: {} accounts", states.size());
+    }
+
+    @Override
+    public synchronized void requestFullRewrite() {
+        fullRewrite = true;
+    }
+
+    @Override
+    public synchronized List<Company> loadCompanies() throws Exception {
+        List<Company> out = new ArrayList<>();
+        if (!hasData())
+            return out;
+        KvFile store = kv();
+        for (String key : store.keys(COMPANY_PREFIX))
+            out.add(SnapshotCodec.readCompany(new ByteArrayInputStream(store.get(key))));
+        return out;
+    }
+
+    @Override
+    public SnapshotFormat companyFormat() {
+        return SnapshotFormat.BINARY;
+    }
+
+    @Override
+    public void saveCompany(String id, byte[] data) throws IOException {
+        // English: Not synced, like the per-file company writes; the next checkpoint forces it.
+        // Español: Sin sincronizar, como las escrituras de empresa por archivo; el próximo
+        // checkpoint lo fuerza.
+        KvFile store = kv();
+        store.commit(store.batch().put(COMPANY_PREFIX + id, data), false);
+    }
+
+    @Override
+    public synchronized String describeStats() {
+        return "store: kv " + (kv == null ? "closed" : kv.describeStats());
+    }
+
+    @Override
+    public synchronized void retire(File dest) throws IOException {
+        close();
+        dest.mkdirs();
+        java.nio.file.Files.move(storeFile().toPath(), new File(dest, storeFile().getName()).toPath());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (kv == null)
+            return;
+        try {
+            kv.close();
+        } catch (IOException e) {
+            PrimeBankMod.LOGGER.error("[PrimeBank] Failed to close the kv store", e);
+        }
+        kv = null;
+        openFile = null;
+    }
+}
@@ -0,0 +1,355 @@
+package com.primebank.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.primebank.PrimeBankMod;
+
+/*
+ English: Embedded single-file transactional key-value store. Every commit appends one
+ CRC-checked record holding a batch of puts and deletes, so a batch is either fully applied or,
+ if the tail was torn by a crash, ignored on open (and truncated). Only key -> (offset, length)
+ lives in memory; values are read back from the file on demand. When dead records outweigh live
+ data the file is compacted into a fresh one and swapped in with an atomic move.
+ Español: Almacén clave-valor transaccional embebido en un único archivo. Cada commit agrega un
+ registro con CRC que contiene un lote de puts y deletes, así un lote se aplica completo o, si la
+ cola quedó cortada por un fallo, se ignora al abrir (y se trunca). En memoria solo vive
+ clave -> (offset, longitud); los valores se leen del archivo bajo demanda. Cuando los registros
+ muertos superan a los datos vivos el archivo se compacta en uno nuevo y se reemplaza con un
+ movimiento atómico.
+*/
+public final class KvFile implements java.io.Closeable {
+    private static final int MAGIC = 0x50424B56; // "PBKV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final long MIN_COMPACT_BYTES = 1L << 20;
+
+    private final File file;
+    private FileChannel channel;
+    private final Map<String, long[]> index = new HashMap<>();
+    private long liveBytes;
+    private long fileBytes;
+    private long commits;
+    private long compactions;
+
+    private KvFile(File file) {
+        this.file = file;
+    }
+
+    /*
+     * English: Open (or create) the store and index every committed batch.
+     * Español: Abrir (o crear) el almacén e indexar cada lote confirmado.
+     */
+    public static KvFile open(File file) throws IOException {
+        KvFile kv = new KvFile(file);
+        file.getParentFile().mkdirs();
+        kv.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        kv.load();
+        return kv;
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size == 0L) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES);
+            h.putInt(MAGIC).put((byte) VERSION).flip();
+            writeFully(h, 0L);
+            channel.force(true);
+            fileBytes = HEADER_BYTES;
+            return;
+        }
+        ByteBuffer h = readAt(0L, HEADER_BYTES);
+        if (h == null || h.getInt() != MAGIC || h.get() != VERSION)
+            throw new IOException("Not a PrimeBank store / No es un almacén de PrimeBank: " + file);
+        long pos = HEADER_BYTES;
+        while (pos < size) {
+            ByteBuffer frame = readAt(pos, 8);
+            if (frame == null)
+                break;
+            int len = frame.getInt();
+            int crc = frame.getInt();
+            if (len <= 0 || pos + 8L + len > size)
+                break;
+            ByteBuffer payload = readAt(pos + 8L, len);
+            CRC32 c = new CRC32();
+            c.update(payload.array(), 0, len);
+            if ((int) c.getValue() != crc)
+                break;
+            applyPayload(payload, pos + 8L);
+            pos += 8L + len;
+        }
+        if (pos < size) {
+            // English: Torn or corrupted tail from a crash mid-commit: drop it.
+            // Español: Cola cortada o corrupta por un fallo a mitad de commit: descartarla.
+            PrimeBankMod.LOGGER.warn("[PrimeBank] Store {}: discarding {} bytes of incomplete commit",
+                    file.getName(), size - pos);
+            channel.truncate(pos);
+            channel.force(true);
+        }
+        fileBytes = pos;
+    }
+
+    private void applyPayload(ByteBuffer p, long base) throws IOException {
+        int n = p.getInt();
+        for (int i = 0; i < n; i++) {
+            byte op = p.get();
+            byte[] k = new byte[p.getShort() & 0xFFFF];
+            p.get(k);
+            String key = new String(k, StandardCharsets.UTF_8);
+            if (op == OP_PUT) {
+                int vlen = p.getInt();
+                long[] old = index.put(key, new long[] { base + p.position(), vlen });
+                if (old != null)
+                    liveBytes -= old[1];
+                liveBytes += vlen;
+                p.position(p.position() + vlen);
+            } else if (op == OP_DELETE) {
+                long[] old = index.remove(key);
+                if (old != null)
+                    liveBytes -= old[1];
+            } else {
+                throw new IOException("Bad store op / Operación inválida: " + op);
+            }
+        }
+    }
+
+    public synchronized byte[] get(String key) throws IOException {
+        long[] loc = index.get(key);
+        if (loc == null)
+            return null;
+        ByteBuffer b = readAt(loc[0], (int) loc[1]);
+        if (b == null)
+            throw new EOFException("Store truncated / Almacén truncado: " + key);
+        return b.array();
+    }
+
+    /*
+     * English: Keys starting with the given prefix (a copy; safe to iterate while committing).
+     * Español: Claves que empiezan con el prefijo dado (una copia; segura de recorrer mientras se confirma).
+     */
+    public synchronized List<String> keys(String prefix) {
+        List<String> out = new ArrayList<>();
+        for (String k : index.keySet()) {
+            if (k.startsWith(prefix))
+                out.add(k);
+        }
+        return out;
+    }
+
+    public synchronized boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /*
+     * English: Append the batch as one record. With sync the record is forced to disk before
+     * returning.
+     * Español: Agregar el lote como un solo registro. Con sync el registro se fuerza a disco antes
+     * de volver.
+     */
+    public synchronized void commit(Batch b, boolean sync) throws IOException {
+        if (b.ops.isEmpty())
+            return;
+        byte[] payload = b.encode();
+        CRC32 c = new CRC32();
+        c.update(payload);
+        ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+        buf.putInt(payload.length).putInt((int) c.getValue()).put(payload).flip();
+        long start = fileBytes;
+        writeFully(buf, start);
+        if (sync)
+            channel.force(false);
+        fileBytes = start + buf.limit();
+        applyPayload(ByteBuffer.wrap(payload), start + 8L);
+        commits++;
+        if (fileBytes > MIN_COMPACT_BYTES && fileBytes > 2L * liveBytes)
+            compact();
+    }
+
+    /*
+     * English: Rewrite only the live values into a new file and swap it in atomically.
+     * Español: Reescribir solo los valores vivos en un archivo nuevo y reemplazarlo atómicamente.
+     */
+    public synchronized void compact() throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Map<String, long[]> fresh = new LinkedHashMap<>();
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES);
+            h.putInt(MAGIC).put((byte) VERSION).flip();
+            while (h.hasRemaining())
+                out.write(h);
+            Batch chunk = new Batch();
+            int chunkBytes = 0;
+            for (Map.Entry<String, long[]> e : index.entrySet()) {
+                chunk.put(e.getKey(), get(e.getKey()));
+                chunkBytes += (int) e.getValue()[1];
+                if (chunkBytes >= (1 << 20)) {
+                    writeChunk(out, chunk, fresh);
+                    chunk = new Batch();
+                    chunkBytes = 0;
+                }
+            }
+            if (!chunk.ops.isEmpty())
+                writeChunk(out, chunk, fresh);
+            out.force(true);
+        }
+        // English: The channel is closed for the move (Windows cannot replace an open file) and always
+        // reopened; the index only switches to the new offsets once the move succeeded, otherwise the
+        // old file is still in place and still matches it.
+        // Español: El canal se cierra para el movimiento (Windows no puede reemplazar un archivo
+        // abierto) y siempre se reabre; el índice solo pasa a los nuevos offsets si el movimiento tuvo
+        // éxito, si no el archivo viejo sigue en su lugar y sigue coincidiendo con él.
+        boolean moved = false;
+        channel.close();
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (!moved)
+                tmp.delete();
+        }
+        index.clear();
+        index.putAll(fresh);
+        fileBytes = channel.size();
+        compactions++;
+        syncDirectory(file.getParentFile());
+    }
+
+    /*
+     * English: Make a rename in dir durable. Directories cannot be opened on every platform
+     * (Windows), where this is skipped.
+     * Español: Hacer durable un renombrado en dir. Los directorios no se pueden abrir en todas las
+     * plataformas (Windows), donde esto se omite.
+     */
+    private static void syncDirectory(File dir) {
+        if (dir == null)
+            return;
+        try (FileChannel d = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException e) {
+            // English: Not supported here; the rename is still atomic.
+            // Español: No soportado aquí; el renombrado sigue siendo atómico.
+        }
+    }
+
+    private static void writeChunk(FileChannel out, Batch chunk, Map<String, long[]> fresh) throws IOException {
+        byte[] payload = chunk.encode();
+        CRC32 c = new CRC32();
+        c.update(payload);
+        long start = out.position();
+        ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+        buf.putInt(payload.length).putInt((int) c.getValue()).put(payload).flip();
+        while (buf.hasRemaining())
+            out.write(buf);
+        // English: Recompute value offsets inside the new record.
+        // Español: Recalcular los offsets de los valores dentro del nuevo registro.
+        ByteBuffer p = ByteBuffer.wrap(payload);
+        int n = p.getInt();
+        for (int i = 0; i < n; i++) {
+            p.get();
+            byte[] k = new byte[p.getShort() & 0xFFFF];
+            p.get(k);
+            int vlen = p.getInt();
+            fresh.put(new String(k, StandardCharsets.UTF_8), new long[] { start + 8L + p.position(), vlen });
+            p.position(p.position() + vlen);
+        }
+    }
+
+    public synchronized long fileBytes() {
+        return fileBytes;
+    }
+
+    public synchronized String describeStats() {
+        return String.format(java.util.Locale.ROOT, "keys=%d live=%,d bytes file=%,d bytes commits=%d compactions=%d",
+                index.size(), liveBytes, fileBytes, commits, compactions);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private ByteBuffer readAt(long pos, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(len);
+        while (b.hasRemaining()) {
+            if (channel.read(b, pos + b.position()) < 0)
+                return null;
+        }
+        b.flip();
+        return b;
+    }
+
+    private void writeFully(ByteBuffer b, long pos) throws IOException {
+        while (b.hasRemaining())
+            channel.write(b, pos + b.position());
+    }
+
+    /*
+     * English: Puts and deletes applied together by commit(); later operations on the same key win.
+     * Español: Puts y deletes aplicados juntos por commit(); las operaciones posteriores sobre la
+     * misma clave ganan.
+     */
+    public static final class Batch {
+        private final List<Object[]> ops = new ArrayList<>();
+
+        public Batch put(String key, byte[] value) {
+            ops.add(new Object[] { key, value });
+            return this;
+        }
+
+        public Batch delete(String key) {
+            ops.add(new Object[] { key, null });
+            return this;
+        }
+
+        public int size() {
+            return ops.size();
+        }
+
+        private byte[] encode() throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeInt(ops.size());
+            for (Object[] op : ops) {
+                byte[] k = ((String) op[0]).getBytes(StandardCharsets.UTF_8);
+                byte[] v = (byte[]) op[1];
+                out.writeByte(v == null ? OP_DELETE : OP_PUT);
+                out.writeShort(k.length);
+                out.write(k);
+                if (v != null) {
+                    out.writeInt(v.length);
+                    out.write(v);
+                }
+            }
+            out.flush();
+            return bos.toByteArray();
+        }
+    }
+}
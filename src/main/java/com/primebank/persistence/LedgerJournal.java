@@ -0,0 +1,827 @@
+package com.primebank.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.primebank.PrimeBankMod;
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountRegistry;
+import com.primebank.core.accounts.AccountType;
+import com.primebank.core.api.BalanceEventBus;
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.core.config.PrimeBankConfig.JournalDurability;
+import com.primebank.core.state.PrimeBankState;
+
+/*
+ English: Append-only binary write-ahead journal for ledger postings. Every balance change gets a
+ record (sequence, epoch millis, type, account ids and signed amounts) written by a dedicated thread.
+ On load the journal is replayed on top of the last snapshot, so snapshots can be rare without losing
+ the money movement in between. Only balances are replayed; transaction history is not journaled.
+ The durability policy (PrimeBankConfig.JOURNAL_DURABILITY) decides when records are fsynced; with
+ GROUP every record that arrives inside the commit window shares one FileChannel.force().
+ Español: Diario binario de solo anexado (write-ahead) para asientos del libro mayor. Cada cambio de
+ saldo genera un registro (secuencia, época en ms, tipo, ids de cuenta y montos con signo) escrito por
+ un hilo dedicado. Al cargar se reaplica sobre el último snapshot, así los snapshots pueden ser poco
+ frecuentes sin perder los movimientos intermedios. Solo se reaplican saldos; el historial no se registra.
+ La política de durabilidad (PrimeBankConfig.JOURNAL_DURABILITY) decide cuándo se hace fsync; con
+ GROUP todo registro que llega dentro de la ventana comparte un único FileChannel.force().
+*/
+public final class LedgerJournal {
+    private static final LedgerJournal INSTANCE = new LedgerJournal();
+
+    private static final int MAGIC = 0x50424A31; // "PBJ1"
+    private static final int VERSION = 1;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+
+    // English: Guards sequence assignment and enqueue order so segment boundaries match sequences.
+    // Español: Protege la asignación de secuencia y el orden de encolado para que los límites de
+    // segmento coincidan con las secuencias.
+    private final Object appendLock = new Object();
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final PriorityBlockingQueue<Waiter> waiters = new PriorityBlockingQueue<>();
+    private static final ThreadLocal<long[]> LAST_SEQ = ThreadLocal.withInitial(() -> new long[1]);
+    // English: Thread commit recorded when a failed journal refused the record; its durability future fails.
+    // Español: Confirmación del hilo registrada cuando un diario fallido rechazó el registro; su futuro de
+    // durabilidad falla.
+    private static final long REFUSED = -1L;
+    private long nextSeq = 1L; // guarded by appendLock
+    private volatile boolean running;
+    private volatile long durableSeq;
+    // English: Set when a write or fsync failed; the journal then stops accepting records (fail-stop)
+    // until the next start().
+    // Español: Se fija cuando falló una escritura o fsync; el diario deja entonces de aceptar registros
+    // (parada ante fallo) hasta el próximo start().
+    private volatile IOException failure;
+    private JournalDurability durability = JournalDurability.GROUP;
+    private Thread writer;
+    private File dir;
+
+    // English: Writer-thread metrics, published through volatile fields for /pb stats.
+    // Español: Métricas del hilo escritor, publicadas mediante campos volátiles para /pb stats.
+    private volatile long statBatches;
+    private volatile long statRecords;
+    private volatile int statMaxBatch;
+    private volatile long statFsyncs;
+    private volatile long statFsyncNanos;
+    private volatile long statMaxFsyncNanos;
+
+    private LedgerJournal() {
+    }
+
+    public static LedgerJournal get() {
+        return INSTANCE;
+    }
+
+    /*
+     * English: Start the writer thread. New records continue after the given sequence.
+     * Español: Iniciar el hilo escritor. Los nuevos registros continúan después de la secuencia dada.
+     */
+    public synchronized void start(long lastSeq) {
+        if (running)
+            return;
+        joinWriter();
+        failure = null;
+        durability = PrimeBankConfig.JOURNAL_DURABILITY;
+        dir = PersistencePaths.journalDir();
+        dir.mkdirs();
+        synchronized (appendLock) {
+            nextSeq = Math.max(1L, lastSeq + 1L);
+            durableSeq = nextSeq - 1L;
+            queue.clear();
+            if (durability == JournalDurability.NONE) {
+                PrimeBankMod.LOGGER.warn("[PrimeBank] Ledger journal disabled (journal_durability = none)");
+                return;
+            }
+            queue.offer(new Rollover(nextSeq));
+            running = true;
+        }
+        writer = new Thread(this::writerLoop, "PrimeBank-Journal");
+        writer.setDaemon(true);
+        writer.start();
+        PrimeBankMod.LOGGER.info(
+                "[PrimeBank] Ledger journal started at seq {} ({}) / Diario del libro mayor iniciado en seq {} ({})",
+                nextSeq, durability, nextSeq, durability);
+    }
+
+    /*
+     * English: Drain pending records to disk and stop the writer thread.
+     * Español: Volcar registros pendientes a disco y detener el hilo escritor.
+     */
+    public synchronized void stop() {
+        if (writer == null)
+            return;
+        synchronized (appendLock) {
+            running = false;
+            queue.offer(Stop.INSTANCE);
+        }
+        joinWriter();
+        // English: Whatever is still waiting never reached disk.
+        // Español: Lo que siga esperando nunca llegó al disco.
+        failWaiters(failure != null ? failure
+                : new IOException("Journal stopped before the record was written / El diario se detuvo antes de escribir el registro"));
+        PrimeBankMod.LOGGER.info("[PrimeBank] Ledger journal stopped / Diario del libro mayor detenido. {}", describeStats());
+    }
+
+    private void joinWriter() {
+        Thread t = writer;
+        if (t == null)
+            return;
+        try {
+            t.join(10000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /*
+     * English: True when a completed durability future means the record survived an OS crash
+     * (GROUP or PER_OP policy).
+     * Español: Verdadero cuando un futuro de durabilidad completado significa que el registro
+     * sobrevive a un fallo del SO (política GROUP o PER_OP).
+     */
+    public boolean isFsyncing() {
+        return running && (durability == JournalDurability.GROUP || durability == JournalDurability.PER_OP);
+    }
+
+    /*
+     * English: Future completed once the record with the given sequence is durable under the
+     * configured policy. Completed immediately for seq 0 or when the journal is not running, and
+     * exceptionally when the journal failed before writing it or refused it after failing.
+     * Español: Futuro completado cuando el registro con la secuencia dada es durable según la
+     * política configurada. Se completa de inmediato para seq 0 o si el diario no está activo, y con
+     * excepción si el diario falló antes de escribirlo o lo rechazó después de fallar.
+     */
+    public CompletableFuture<Void> whenDurable(long seq) {
+        IOException failed = failure;
+        if (seq == REFUSED) {
+            if (failed == null)
+                failed = new IOException("Journal failed before the record was written / El diario falló antes de escribir el registro");
+        } else if (seq <= durableSeq)
+            return CompletableFuture.completedFuture(null);
+        if (failed != null) {
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            f.completeExceptionally(failed);
+            return f;
+        }
+        if (!running)
+            return CompletableFuture.completedFuture(null);
+        Waiter w = new Waiter(seq);
+        waiters.add(w);
+        // English: Re-check in case the writer advanced or failed between the test and the add.
+        // Español: Volver a comprobar por si el escritor avanzó o falló entre la prueba y el add.
+        if (seq <= durableSeq)
+            w.future.complete(null);
+        else if (failure != null)
+            w.future.completeExceptionally(failure);
+        else if (!running && writer == null)
+            w.future.complete(null);
+        return w.future;
+    }
+
+    /*
+     * English: Durability future for the last record committed by the calling thread.
+     * Español: Futuro de durabilidad del último registro confirmado por el hilo llamador.
+     */
+    public CompletableFuture<Void> whenLastCommitDurable() {
+        return whenDurable(LAST_SEQ.get()[0]);
+    }
+
+    /*
+     * English: Return and clear the calling thread's last committed sequence (0 if none), so an
+     * operation run for another thread (LedgerSequencer) can hand its commit to that thread.
+     * Español: Devolver y limpiar la última secuencia confirmada del hilo llamador (0 si no hay),
+     * así una operación corrida para otro hilo (LedgerSequencer) puede entregarle su confirmación.
+     */
+    public static long takeThreadCommit() {
+        long[] last = LAST_SEQ.get();
+        long seq = last[0];
+        last[0] = 0L;
+        return seq;
+    }
+
+    public static void adoptThreadCommit(long seq) {
+        if (seq != 0L)
+            LAST_SEQ.get()[0] = seq;
+    }
+
+    /*
+     * English: Human-readable batch and fsync metrics.
+     * Español: Métricas legibles de lotes y fsync.
+     */
+    public String describeStats() {
+        long batches = statBatches;
+        long fsyncs = statFsyncs;
+        return String.format(
+                "journal policy=%s seq=%d durable=%d batches=%d records=%d avgBatch=%.1f maxBatch=%d fsyncs=%d avgFsync=%.2fms maxFsync=%.2fms",
+                durability, nextSeqSnapshot() - 1L, durableSeq, batches, statRecords,
+                batches == 0 ? 0.0 : (double) statRecords / batches, statMaxBatch, fsyncs,
+                fsyncs == 0 ? 0.0 : statFsyncNanos / 1e6 / fsyncs, statMaxFsyncNanos / 1e6);
+    }
+
+    private long nextSeqSnapshot() {
+        synchronized (appendLock) {
+            return nextSeq;
+        }
+    }
+
+    /*
+     * English: Begin building a journal record. Call from inside the account locks of every leg so
+     * the assigned sequence follows the mutation order of each account.
+     * Español: Comenzar a construir un registro del diario. Llamar dentro de los locks de cuenta de
+     * cada tramo para que la secuencia siga el orden de mutación de cada cuenta.
+     */
+    public Posting posting(String type) {
+        return new Posting(type);
+    }
+
+    /*
+     * English: Mark a snapshot boundary. Records after the returned sequence go to a new segment;
+     * call snapshotCommitted with it once the snapshot is safely on disk.
+     * Español: Marcar un límite de snapshot. Los registros posteriores a la secuencia devuelta van a
+     * un segmento nuevo; llamar a snapshotCommitted con ella cuando el snapshot esté en disco.
+     */
+    public long beginSnapshot() {
+        synchronized (appendLock) {
+            long boundary = nextSeq - 1L;
+            if (running)
+                queue.offer(new Rollover(nextSeq));
+            return boundary;
+        }
+    }
+
+    /*
+     * English: Delete segments fully covered by a committed snapshot.
+     * Español: Borrar segmentos totalmente cubiertos por un snapshot confirmado.
+     */
+    public void snapshotCommitted(long boundary) {
+        synchronized (appendLock) {
+            if (running)
+                queue.offer(new Purge(boundary));
+        }
+    }
+
+    private long append(String type, String[] ids, long[] deltas) {
+        synchronized (appendLock) {
+            if (!running) {
+                // English: After a failure the operation is applied but not journaled; make the
+                // caller's durability future say so instead of reporting an older record.
+                // Español: Tras un fallo la operación se aplica pero no queda en el diario; hacer que
+                // el futuro de durabilidad del llamador lo indique en vez de informar un registro anterior.
+                LAST_SEQ.get()[0] = failure != null ? REFUSED : 0L;
+                return 0L;
+            }
+            long seq = nextSeq++;
+            queue.offer(new Entry(seq, System.currentTimeMillis(), type, ids, deltas));
+            LAST_SEQ.get()[0] = seq;
+            return seq;
+        }
+    }
+
+    /*
+     * English: Replay all segments onto the registry. A leg is applied only when its sequence is newer
+     * than the account's persisted journal sequence, which keeps replay idempotent. With a null
+     * registry the segments are only scanned. Returns the last valid sequence found.
+     * Español: Reaplicar todos los segmentos sobre el registro. Un tramo se aplica solo si su secuencia
+     * es más nueva que la secuencia persistida de la cuenta, lo que hace la reaplicación idempotente.
+     * Con registro null solo se escanean. Devuelve la última secuencia válida encontrada.
+     */
+    public long replay(AccountRegistry reg) {
+        File d = PersistencePaths.journalDir();
+        long lastSeq = 0L;
+        int applied = 0;
+        for (File f : listSegments(d)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+                if (f.length() == 0L)
+                    continue;
+                if (in.readInt() != MAGIC) {
+                    PrimeBankMod.LOGGER.warn("[PrimeBank] Skipping journal segment with bad header: {}", f.getName());
+                    continue;
+                }
+                in.readUnsignedByte(); // version
+                while (true) {
+                    Entry e = readEntry(in, f);
+                    if (e == null)
+                        break;
+                    lastSeq = Math.max(lastSeq, e.seq);
+                    if (reg != null && applyEntry(reg, e))
+                        applied++;
+                }
+            } catch (IOException ex) {
+                PrimeBankMod.LOGGER.error("[PrimeBank] Failed to replay journal segment {}", f.getName(), ex);
+            }
+        }
+        if (reg != null && applied > 0) {
+            PrimeBankMod.LOGGER.info(
+                    "[PrimeBank] Replayed {} journal records up to seq {} / Reaplicados {} registros del diario hasta seq {}",
+                    applied, lastSeq, applied, lastSeq);
+        }
+        return lastSeq;
+    }
+
+    private static Entry readEntry(DataInputStream in, File f) throws IOException {
+        int len;
+        try {
+            len = in.readInt();
+        } catch (EOFException eof) {
+            return null;
+        }
+        try {
+            long crc = in.readInt() & 0xFFFFFFFFL;
+            if (len <= 0 || len > (1 << 20))
+                throw new EOFException("bad length " + len);
+            byte[] payload = new byte[len];
+            in.readFully(payload);
+            CRC32 c = new CRC32();
+            c.update(payload, 0, len);
+            if (c.getValue() != crc) {
+                PrimeBankMod.LOGGER.warn("[PrimeBank] Journal CRC mismatch in {}; ignoring the rest of the segment",
+                        f.getName());
+                return null;
+            }
+            DataInputStream p = new DataInputStream(new java.io.ByteArrayInputStream(payload));
+            long seq = p.readLong();
+            long ts = p.readLong();
+            String type = p.readUTF();
+            int legs = p.readUnsignedByte();
+            String[] ids = new String[legs];
+            long[] deltas = new long[legs];
+            for (int i = 0; i < legs; i++) {
+                ids[i] = p.readUTF();
+                deltas[i] = p.readLong();
+            }
+            return new Entry(seq, ts, type, ids, deltas);
+        } catch (EOFException torn) {
+            // English: Torn tail from a crash mid-write; everything before it is valid.
+            // Español: Cola cortada por un fallo a mitad de escritura; todo lo anterior es válido.
+            PrimeBankMod.LOGGER.warn("[PrimeBank] Journal segment {} ends with a torn record; ignoring it", f.getName());
+            return null;
+        }
+    }
+
+    private static boolean applyEntry(AccountRegistry reg, Entry e) {
+        boolean any = false;
+        for (int i = 0; i < e.accountIds.length; i++) {
+            Account acc = reg.get(e.accountIds[i]);
+            if (acc == null)
+                acc = recreateAccount(reg, e.accountIds[i]);
+            if (acc == null || e.seq <= acc.getJournalSeq())
+                continue;
+            acc.replayDelta(e.deltas[i]);
+            acc.setJournalSeq(e.seq);
+            any = true;
+        }
+        return any;
+    }
+
+    /*
+     * English: Accounts created after the last snapshot only exist in the journal; rebuild them from
+     * the id convention (u:<uuid>, c:<uuid>[:suffix], central).
+     * Español: Las cuentas creadas después del último snapshot solo existen en el diario; se
+     * reconstruyen a partir de la convención de ids (u:<uuid>, c:<uuid>[:sufijo], central).
+     */
+    private static Account recreateAccount(AccountRegistry reg, String id) {
+        try {
+            if (PrimeBankState.CENTRAL_ACCOUNT_ID.equals(id))
+                return reg.create(id, AccountType.CENTRAL, null, 0L);
+            if (id.startsWith("u:"))
+                return reg.create(id, AccountType.PERSONAL, UUID.fromString(id.substring(2)), 0L);
+            if (id.startsWith("c:")) {
+                String rest = id.substring(2);
+                int colon = rest.indexOf(':');
+                UUID owner = UUID.fromString(colon < 0 ? rest : rest.substring(0, colon));
+                return reg.create(id, AccountType.COMPANY, owner, 0L);
+            }
+        } catch (IllegalArgumentException ignored) {
+            // English: Fall through to the warning below.
+            // Español: Continuar hacia la advertencia de abajo.
+        }
+        PrimeBankMod.LOGGER.warn("[PrimeBank] Journal references unknown account {}; skipping leg", id);
+        return null;
+    }
+
+    private static List<File> listSegments(File d) {
+        File[] files = d == null ? null : d.listFiles((f, n) -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX));
+        if (files == null)
+            return new ArrayList<>();
+        Arrays.sort(files, (a, b) -> Long.compare(segmentStart(a), segmentStart(b)));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static long segmentStart(File f) {
+        String n = f.getName();
+        try {
+            return Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private File segmentFile(long startSeq) {
+        return new File(dir, String.format("%s%020d%s", SEGMENT_PREFIX, startSeq, SEGMENT_SUFFIX));
+    }
+
+    /*
+     * English: Writer loop. Collects a batch (for GROUP: everything arriving within the commit
+     * window, up to the record cap), writes it, flushes, then forces once and completes the
+     * durability futures of the batch.
+     * Español: Bucle del escritor. Reúne un lote (en GROUP: todo lo que llega dentro de la ventana,
+     * hasta el máximo de registros), lo escribe, vuelca, fuerza una vez y completa los futuros de
+     * durabilidad del lote.
+     */
+    private void writerLoop() {
+        Segment out = null;
+        List<Object> batch = new ArrayList<>();
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+        boolean group = durability == JournalDurability.GROUP;
+        boolean perOp = durability == JournalDurability.PER_OP;
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(PrimeBankConfig.JOURNAL_GROUP_COMMIT_WINDOW_MS);
+        int maxRecords = PrimeBankConfig.JOURNAL_GROUP_COMMIT_MAX_RECORDS;
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.clear();
+                batch.add(queue.take());
+                if (group) {
+                    long deadline = System.nanoTime() + windowNanos;
+                    while (batch.size() < maxRecords) {
+                        queue.drainTo(batch, maxRecords - batch.size());
+                        long left = deadline - System.nanoTime();
+                        if (batch.size() >= maxRecords || left <= 0L)
+                            break;
+                        Object next = queue.poll(left, TimeUnit.NANOSECONDS);
+                        if (next == null)
+                            break;
+                        batch.add(next);
+                    }
+                } else if (!perOp) {
+                    queue.drainTo(batch);
+                }
+                long lastSeq = -1L;
+                int records = 0;
+                int i = 0;
+                try {
+                    for (; i < batch.size(); i++) {
+                        Object o = batch.get(i);
+                        if (o instanceof Entry) {
+                            if (out != null) {
+                                writeEntry(out.data, buf, (Entry) o);
+                                lastSeq = Math.max(lastSeq, ((Entry) o).seq);
+                                records++;
+                            }
+                        } else if (o instanceof Rollover) {
+                            if (out != null) {
+                                sync(out);
+                                out.close();
+                                out = null;
+                            }
+                            out = openSegment(((Rollover) o).startSeq);
+                        } else if (o instanceof Purge) {
+                            purge(((Purge) o).boundary);
+                        } else if (o == Stop.INSTANCE) {
+                            stop = true;
+                        }
+                    }
+                    if (out != null) {
+                        out.data.flush();
+                        if (records > 0 && (group || perOp))
+                            sync(out);
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                    // English: Nothing more is written, but purges and the stop request after the failure
+                    // point (and still queued) are honored.
+                    // Español: No se escribe nada más, pero se respetan las purgas y el pedido de parada
+                    // posteriores al punto de fallo (y aún en cola).
+                    List<Object> rest = new ArrayList<>(batch.subList(i + 1, batch.size()));
+                    queue.drainTo(rest);
+                    for (Object o : rest) {
+                        if (o instanceof Purge)
+                            purge(((Purge) o).boundary);
+                    }
+                    stop = true;
+                    continue;
+                }
+                if (records > 0) {
+                    statBatches++;
+                    statRecords += records;
+                    if (records > statMaxBatch)
+                        statMaxBatch = records;
+                }
+                if (lastSeq > 0L) {
+                    durableSeq = lastSeq;
+                    completeWaiters(lastSeq);
+                }
+            } catch (InterruptedException e) {
+                stop = true;
+            }
+        }
+        if (out != null) {
+            try {
+                sync(out);
+                out.close();
+            } catch (IOException e) {
+                PrimeBankMod.LOGGER.error("[PrimeBank] Failed to close journal segment", e);
+            }
+        }
+    }
+
+    private void sync(Segment out) throws IOException {
+        long t0 = System.nanoTime();
+        out.data.flush();
+        out.file.getChannel().force(false);
+        long took = System.nanoTime() - t0;
+        statFsyncs++;
+        statFsyncNanos += took;
+        if (took > statMaxFsyncNanos)
+            statMaxFsyncNanos = took;
+    }
+
+    /*
+     * English: Fail-stop after a write or fsync error: reject new records and fail every waiting
+     * durability future. Records after the failed batch are never written, so the journal on disk
+     * has no gap that replay could skip over.
+     * Español: Parada ante fallo tras un error de escritura o fsync: rechazar registros nuevos y
+     * fallar todo futuro de durabilidad en espera. Los registros posteriores al lote fallido nunca se
+     * escriben, así el diario en disco no tiene un hueco que la reaplicación pueda saltar.
+     */
+    private void fail(IOException e) {
+        synchronized (appendLock) {
+            failure = e;
+            running = false;
+        }
+        PrimeBankMod.LOGGER.error(
+                "[PrimeBank] Journal write failed, journal stopped until the next load / Falló la escritura del diario, diario detenido hasta la próxima carga",
+                e);
+        failWaiters(e);
+    }
+
+    private void failWaiters(Throwable cause) {
+        Waiter w;
+        while ((w = waiters.poll()) != null)
+            w.future.completeExceptionally(cause);
+    }
+
+    private void completeWaiters(long upTo) {
+        Waiter w;
+        while ((w = waiters.peek()) != null && w.seq <= upTo) {
+            waiters.poll();
+            w.future.complete(null);
+        }
+    }
+
+    private Segment openSegment(long startSeq) throws IOException {
+        File f = segmentFile(startSeq);
+        boolean fresh = !f.exists() || f.length() == 0L;
+        FileOutputStream fos = new FileOutputStream(f, true);
+        Segment out = new Segment(fos, new DataOutputStream(new BufferedOutputStream(fos, 1 << 16)));
+        if (fresh) {
+            out.data.writeInt(MAGIC);
+            out.data.writeByte(VERSION);
+        }
+        return out;
+    }
+
+    private static void writeEntry(DataOutputStream out, ByteArrayOutputStream buf, Entry e) throws IOException {
+        buf.reset();
+        DataOutputStream p = new DataOutputStream(buf);
+        p.writeLong(e.seq);
+        p.writeLong(e.epochMillis);
+        p.writeUTF(e.type);
+        p.writeByte(e.accountIds.length);
+        for (int i = 0; i < e.accountIds.length; i++) {
+            p.writeUTF(e.accountIds[i]);
+            p.writeLong(e.deltas[i]);
+        }
+        p.flush();
+        byte[] payload = buf.toByteArray();
+        CRC32 c = new CRC32();
+        c.update(payload, 0, payload.length);
+        out.writeInt(payload.length);
+        out.writeInt((int) c.getValue());
+        out.write(payload);
+    }
+
+    private void purge(long boundary) {
+        List<File> segs = listSegments(dir);
+        for (int i = 0; i + 1 < segs.size(); i++) {
+            // English: A segment ends right before the next one starts.
+            // Español: Un segmento termina justo antes de que empiece el siguiente.
+            if (segmentStart(segs.get(i + 1)) <= boundary + 1L && !segs.get(i).delete()) {
+                PrimeBankMod.LOGGER.warn("[PrimeBank] Could not delete journal segment {}", segs.get(i).getName());
+            }
+        }
+    }
+
+    /*
+     * English: Most accounts one record can carry (the leg count is stored in one byte).
+     * Español: Máximo de cuentas que admite un registro (el número de tramos se guarda en un byte).
+     */
+    public static final int MAX_LEGS = 255;
+
+    /*
+     * English: Builder for one journal record; legs carry signed balance deltas and the balance the
+     * change produced (for balance events). Room for four accounts up front; batch postings grow as
+     * needed.
+     * Español: Constructor de un registro del diario; los tramos llevan deltas de saldo con signo y
+     * el saldo que produjo el cambio (para los eventos de saldo). Espacio para cuatro cuentas de
+     * inicio; las operaciones por lote crecen según haga falta.
+     */
+    public final class Posting {
+        private final String type;
+        private Account[] accounts = new Account[4];
+        private long[] deltas = new long[4];
+        private long[] balances = new long[4];
+        private boolean[] deferred = new boolean[4];
+        private int size;
+
+        private Posting(String type) {
+            this.type = type;
+        }
+
+        /*
+         * English: An applied leg; balanceAfter is what the account's compare-and-set returned.
+         * Español: Un tramo aplicado; balanceAfter es lo que devolvió el compare-and-set de la cuenta.
+         */
+        public Posting leg(Account account, long delta, long balanceAfter) {
+            return add(account, delta, balanceAfter, false);
+        }
+
+        /*
+         * English: A leg credited later (central fees, see CentralFees): journaled now, but the account
+         * is not stamped at commit; settlement stamps it when the amount is actually applied.
+         * Español: Un tramo acreditado después (comisiones centrales, ver CentralFees): se registra
+         * ahora, pero la cuenta no se marca al confirmar; la liquidación la marca cuando el monto se
+         * aplica de verdad.
+         */
+        public Posting deferredLeg(Account account, long delta) {
+            return add(account, delta, 0L, true);
+        }
+
+        private Posting add(Account account, long delta, long balanceAfter, boolean later) {
+            if (account == null || delta == 0L)
+                return this;
+            for (int i = 0; i < size; i++) {
+                if (accounts[i] == account) {
+                    deltas[i] = Math.addExact(deltas[i], delta);
+                    if (!later)
+                        balances[i] = balanceAfter;
+                    deferred[i] &= later;
+                    return this;
+                }
+            }
+            if (size == MAX_LEGS)
+                throw new IllegalStateException("Journal record exceeds " + MAX_LEGS + " legs");
+            if (size == accounts.length) {
+                int grown = Math.min(MAX_LEGS, size * 2);
+                accounts = Arrays.copyOf(accounts, grown);
+                deltas = Arrays.copyOf(deltas, grown);
+                balances = Arrays.copyOf(balances, grown);
+                deferred = Arrays.copyOf(deferred, grown);
+            }
+            accounts[size] = account;
+            deltas[size] = delta;
+            balances[size] = balanceAfter;
+            deferred[size] = later;
+            size++;
+            return this;
+        }
+
+        /*
+         * English: Append the record, stamp each leg account with its sequence and publish one balance
+         * event per applied leg (deferred legs are published when settled). Returns 0 when the journal
+         * is not running.
+         * Español: Anexar el registro, marcar cada cuenta con su secuencia y publicar un evento de
+         * saldo por tramo aplicado (los tramos diferidos se publican al liquidarse). Devuelve 0 si el
+         * diario no está en ejecución.
+         */
+        public long commit() {
+            if (size == 0)
+                return 0L;
+            String[] ids = new String[size];
+            for (int i = 0; i < size; i++)
+                ids[i] = accounts[i].getId();
+            long seq = append(type, ids, Arrays.copyOf(deltas, size));
+            if (seq > 0L) {
+                for (int i = 0; i < size; i++)
+                    if (!deferred[i])
+                        accounts[i].advanceJournalSeq(seq);
+            }
+            if (BalanceEventBus.get().active())
+                publish(seq);
+            return seq;
+        }
+
+        private void publish(long seq) {
+            int applied = 0;
+            int first = -1;
+            int second = -1;
+            for (int i = 0; i < size; i++) {
+                if (deferred[i])
+                    continue;
+                if (applied == 0)
+                    first = i;
+                else if (applied == 1)
+                    second = i;
+                applied++;
+            }
+            BalanceEventBus bus = BalanceEventBus.get();
+            for (int i = 0; i < size; i++) {
+                if (deferred[i])
+                    continue;
+                // English: Only a two-party posting has a single counterparty.
+                // Español: Solo un asiento de dos partes tiene una única contraparte.
+                String counterparty = null;
+                if (applied == 2)
+                    counterparty = accounts[i == first ? second : first].getId();
+                bus.publish(accounts[i], deltas[i], balances[i], type, counterparty, seq);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final long seq;
+        final long epochMillis;
+        final String type;
+        final String[] accountIds;
+        final long[] deltas;
+
+        Entry(long seq, long epochMillis, String type, String[] accountIds, long[] deltas) {
+            this.seq = seq;
+            this.epochMillis = epochMillis;
+            this.type = type;
+            this.accountIds = accountIds;
+            this.deltas = deltas;
+        }
+    }
+
+    private static final class Segment {
+        final FileOutputStream file;
+        final DataOutputStream data;
+
+        Segment(FileOutputStream file, DataOutputStream data) {
+            this.file = file;
+            this.data = data;
+        }
+
+        void close() throws IOException {
+            data.close();
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        final long seq;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Waiter(long seq) {
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    private static final class Rollover {
+        final long startSeq;
+
+        Rollover(long startSeq) {
+            this.startSeq = startSeq;
+        }
+    }
+
+    private static final class Purge {
+        final long boundary;
+
+        Purge(long boundary) {
+            this.boundary = boundary;
+        }
+    }
+
+    private static final class Stop {
+        static final Stop INSTANCE = new Stop();
+    }
+}
@@ -26,6 +26,46 @@ public final class PersistencePaths {
         return new File(baseDir, "accounts.json");
     }
 
+    /*
+     English: Directory holding the ledger write-ahead journal segments.
+     Español: Directorio que contiene los segmentos del diario write-ahead del libro mayor.
+    */
+    public static File journalDir() {
+        return new File(baseDir, "journal");
+    }
+
+    /*
+     English: Directory holding the account shard files of the snapshot base.
+     Español: Directorio que contiene los archivos shard de cuentas de la base del snapshot.
+    */
+    public static File usersDir() {
+        return new File(baseDir, "users");
+    }
+
+    /*
+     English: Directory holding the transaction audit log files (see AuditLogWriter).
+     Español: Directorio que contiene los archivos del log de auditoría de transacciones (ver AuditLogWriter).
+    */
+    public static File logsDir() {
+        return new File(baseDir, "logs");
+    }
+
+    /*
+     English: Directory holding the per-account history logs and indexes (see HistoryStore).
+     Español: Directorio que contiene los logs e índices de historial por cuenta (ver HistoryStore).
+    */
+    public static File historyDir() {
+        return new File(usersDir(), "history");
+    }
+
+    /*
+     English: Directory holding incremental account snapshot segments.
+     Español: Directorio que contiene los segmentos incrementales de snapshot de cuentas.
+    */
+    public static File snapshotsDir() {
+        return new File(baseDir, "snapshots");
+    }
+
     private static void ensureDirs() {
         if (baseDir != null && !baseDir.exists()) {
             baseDir.mkdirs();
@@ -42,5 +82,11 @@ public final class PersistencePaths {
         if (!pos.exists()) pos.mkdirs();
         File logs = new File(baseDir, "logs");
         if (!logs.exists()) logs.mkdirs();
+        File journal = journalDir();
+        if (!journal.exists()) journal.mkdirs();
+        File history = historyDir();
+        if (!history.exists()) history.mkdirs();
+        File snapshots = snapshotsDir();
+        if (!snapshots.exists()) snapshots.mkdirs();
     }
 }
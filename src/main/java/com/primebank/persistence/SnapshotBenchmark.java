@@ -0,0 +1,121 @@
+package com.primebank.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.TransactionType;
+import com.primebank.persistence.BankPersistence.AccountRecord;
+import com.primebank.persistence.BankPersistence.AccountsSnapshot;
+
+/*
+ English: Compares the pretty-printed Gson path with SnapshotCodec on size and encode/decode time.
+ Runs in memory so disk speed does not skew the numbers; used by /pb snapshotbench.
+ Español: Compara la ruta Gson con formato legible contra SnapshotCodec en tamaño y tiempo de
+ codificación/decodificación. Corre en memoria para que el disco no distorsione los números; usado
+ por /pb snapshotbench.
+*/
+public final class SnapshotBenchmark {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    // English: 2025-01-01 12:00:00 UTC, the time of synthetic history records.
+    // Español: 2025-01-01 12:00:00 UTC, la hora de los registros de historial sintéticos.
+    private static final long SYNTHETIC_TIME = 1735732800000L;
+
+    private SnapshotBenchmark() {
+    }
+
+    /*
+     * English: Benchmark the live bank, or a synthetic one with the given number of accounts
+     * when syntheticAccounts > 0. Returns report lines.
+     * Español: Medir el banco en vivo, o uno sintético con la cantidad de cuentas dada cuando
+     * syntheticAccounts > 0. Devuelve líneas de reporte.
+     */
+    public static List<String> run(int syntheticAccounts, int rounds) throws Exception {
+        AccountsSnapshot snap = syntheticAccounts > 0 ? synthetic(syntheticAccounts) : BankPersistence.fullSnapshot();
+        rounds = Math.max(1, rounds);
+        byte[] json = encodeJson(snap);
+        byte[] bin = encodeBinary(snap);
+        // English: Warm up both paths once before timing.
+        // Español: Calentar ambas rutas una vez antes de medir.
+        decodeJson(json);
+        SnapshotCodec.readAccounts(new ByteArrayInputStream(bin));
+
+        long jsonWrite = 0L, jsonRead = 0L, binWrite = 0L, binRead = 0L;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            encodeJson(snap);
+            long t1 = System.nanoTime();
+            decodeJson(json);
+            long t2 = System.nanoTime();
+            encodeBinary(snap);
+            long t3 = System.nanoTime();
+            SnapshotCodec.readAccounts(new ByteArrayInputStream(bin));
+            long t4 = System.nanoTime();
+            jsonWrite += t1 - t0;
+            jsonRead += t2 - t1;
+            binWrite += t3 - t2;
+            binRead += t4 - t3;
+        }
+        List<String> out = new ArrayList<>();
+        out.add(String.format("accounts=%d rounds=%d", snap.accounts.size(), rounds));
+        out.add(String.format("json:   %,d bytes, save %.1f ms, load %.1f ms", json.length, jsonWrite / 1e6 / rounds,
+                jsonRead / 1e6 / rounds));
+        out.add(String.format("binary: %,d bytes, save %.1f ms, load %.1f ms", bin.length, binWrite / 1e6 / rounds,
+                binRead / 1e6 / rounds));
+        out.add(String.format("binary/json size: %.1f%%", json.length == 0 ? 0.0 : 100.0 * bin.length / json.length));
+        return out;
+    }
+
+    private static byte[] encodeJson(AccountsSnapshot snap) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (Writer w = new OutputStreamWriter(bos, StandardCharsets.UTF_8)) {
+            GSON.toJson(snap, w);
+        }
+        return bos.toByteArray();
+    }
+
+    private static AccountsSnapshot decodeJson(byte[] data) throws Exception {
+        try (InputStreamReader r = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)) {
+            return GSON.fromJson(r, AccountsSnapshot.class);
+        }
+    }
+
+    private static byte[] encodeBinary(AccountsSnapshot snap) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        SnapshotCodec.writeAccounts(bos, snap);
+        return bos.toByteArray();
+    }
+
+    private static AccountsSnapshot synthetic(int accounts) {
+        AccountsSnapshot snap = new AccountsSnapshot();
+        snap.accounts = new ArrayList<>(accounts);
+        java.util.Random rnd = new java.util.Random(42L);
+        TransactionType[] types = { TransactionType.DEPOSIT, TransactionType.WITHDRAW, TransactionType.TRANSFER_IN,
+                TransactionType.TRANSFER_OUT, TransactionType.POS_PAY };
+        for (int i = 0; i < accounts; i++) {
+            UUID owner = new UUID(rnd.nextLong(), rnd.nextLong());
+            AccountRecord r = new AccountRecord();
+            r.id = "u:" + owner;
+            r.type = "PERSONAL";
+            r.ownerUuid = owner.toString();
+            r.balanceCents = rnd.nextInt(10_000_000);
+            r.journalSeq = i;
+            r.history = new ArrayList<>();
+            for (int h = 0; h < 20; h++) {
+                r.history.add(new Account.TransactionRecord(SYNTHETIC_TIME + h * 1000L,
+                        types[rnd.nextInt(types.length)], "central", rnd.nextInt(100_000), "Synthetic"));
+            }
+            snap.accounts.add(r);
+        }
+        return snap;
+    }
+}
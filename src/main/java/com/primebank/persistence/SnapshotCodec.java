@@ -0,0 +1,648 @@
+package com.primebank.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.TransactionType;
+import com.primebank.core.company.Company;
+import com.primebank.persistence.BankPersistence.AccountRecord;
+import com.primebank.persistence.BankPersistence.AccountsSnapshot;
+
+/*
+ English: Versioned binary codec for account snapshots and companies. A file is a magic number and
+ version followed by blocks: [varint length][int crc32][payload], terminated by a zero length. Longs
+ are zig-zag varints; ids and transaction types go through a per-file string table so each distinct
+ value is written once. Account records are grouped RECORDS_PER_BLOCK per block.
+ Español: Códec binario versionado para snapshots de cuentas y empresas. Un archivo es un número
+ mágico y una versión seguidos de bloques: [longitud varint][crc32 int][contenido], terminados por una
+ longitud cero. Los long son varints zig-zag; ids y tipos de transacción pasan por una tabla de
+ cadenas por archivo, así cada valor distinto se escribe una vez. Los registros de cuenta se agrupan
+ de a RECORDS_PER_BLOCK por bloque.
+*/
+public final class SnapshotCodec {
+    private static final int ACCOUNTS_MAGIC = 0x50425331; // "PBS1"
+    private static final int COMPANY_MAGIC = 0x50424331; // "PBC1"
+    private static final int ACCOUNT_MAGIC = 0x50424131; // "PBA1"
+    // English: 2 = transaction time as epoch millis and type as enum name; version 1 files (text
+    // timestamps) are still read.
+    // Español: 2 = hora de transacción en milisegundos epoch y tipo como nombre de enum; los archivos
+    // versión 1 (timestamps de texto) se siguen leyendo.
+    private static final int VERSION = 2;
+    private static final int RECORDS_PER_BLOCK = 256;
+
+    public static final String EXTENSION = ".bin";
+
+    private SnapshotCodec() {
+    }
+
+    public static void writeAccounts(OutputStream os, AccountsSnapshot snap) throws IOException {
+        Writer w = new Writer(os, ACCOUNTS_MAGIC);
+        writeHeader(w, snap, snap.accounts == null ? -1 : snap.accounts.size());
+        if (snap.accounts != null) {
+            int inBlock = 0;
+            for (AccountRecord r : snap.accounts) {
+                writeRecord(w, r);
+                if (++inBlock == RECORDS_PER_BLOCK) {
+                    w.endBlock();
+                    inBlock = 0;
+                }
+            }
+            if (inBlock > 0)
+                w.endBlock();
+        }
+        w.finish();
+    }
+
+    private static void writeHeader(Writer w, AccountsSnapshot snap, int count) throws IOException {
+        w.optLong(snap.journalSeq);
+        w.optLong(snap.generation == null ? null : Long.valueOf(snap.generation.longValue()));
+        w.optLong(snap.segment == null ? null : Long.valueOf(snap.segment.longValue()));
+        w.optLong(snap.shards == null ? null : Long.valueOf(snap.shards.longValue()));
+        w.optLong(snap.globalCashbackBps == null ? null : Long.valueOf(snap.globalCashbackBps.longValue()));
+        w.longMap(snap.posPending);
+        w.stringMap(snap.companyNames);
+        w.stringMap(snap.companyShortNames);
+        w.varint(count + 1);
+        w.endBlock();
+    }
+
+    /*
+     * English: Streaming writer: the header is written up front and each live account is
+     * encoded straight from an immutable Account.State captured at the cut, so no account lock is
+     * needed and no AccountRecord copies are built. Only the current block (RECORDS_PER_BLOCK
+     * records) is buffered.
+     * Español: Escritor en streaming: el encabezado se escribe al inicio y cada cuenta viva se
+     * codifica directamente desde un Account.State inmutable capturado en el corte, así no hace
+     * falta lock de cuenta ni se construyen copias AccountRecord. Solo se mantiene en memoria el
+     * bloque actual (RECORDS_PER_BLOCK registros).
+     */
+    public static final class StreamWriter implements SnapshotStreams.AccountWriter {
+        private final OutputStream os;
+        private final Writer w;
+        private final int count;
+        private int written;
+        private int inBlock;
+
+        StreamWriter(OutputStream os, AccountsSnapshot header, int count) throws IOException {
+            this.os = os;
+            this.w = new Writer(os, ACCOUNTS_MAGIC);
+            this.count = count;
+            writeHeader(w, header, count);
+        }
+
+        private StreamWriter(OutputStream os, int magic, int count) throws IOException {
+            this.os = os;
+            this.w = new Writer(os, magic);
+            this.count = count;
+        }
+
+        @Override
+        public void write(Account a, Account.State s) throws IOException {
+            if (written == count)
+                throw new IOException("More accounts than announced / Más cuentas de las anunciadas");
+            w.str(a.getId());
+            w.str(a.getType().name());
+            w.uuid(a.getOwnerUuid());
+            w.varlong(s.balanceCents);
+            w.varlong(s.journalSeq);
+            List<Account.TransactionRecord> h = s.history;
+            w.varint(h.size() + 1);
+            for (Account.TransactionRecord t : h)
+                writeTransaction(w, t);
+            written++;
+            if (++inBlock == RECORDS_PER_BLOCK) {
+                w.endBlock();
+                inBlock = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (written != count)
+                    throw new IOException("Fewer accounts than announced / Menos cuentas de las anunciadas");
+                if (inBlock > 0)
+                    w.endBlock();
+                w.finish();
+            } finally {
+                os.close();
+            }
+        }
+    }
+
+    public static AccountsSnapshot readAccounts(InputStream is) throws IOException {
+        return readAccounts(is, null);
+    }
+
+    /*
+     * English: Read a snapshot; with a non-null consumer every record is handed over as soon as
+     * it is decoded and the returned header has no account list.
+     * Español: Leer un snapshot; con un consumidor no nulo cada registro se entrega apenas se
+     * decodifica y el encabezado devuelto no tiene lista de cuentas.
+     */
+    public static AccountsSnapshot readAccounts(InputStream is, java.util.function.Consumer<AccountRecord> each)
+            throws IOException {
+        Reader r = new Reader(is, ACCOUNTS_MAGIC);
+        AccountsSnapshot snap = new AccountsSnapshot();
+        r.nextBlock();
+        snap.journalSeq = r.optLong();
+        Long l = r.optLong();
+        snap.generation = l == null ? null : Integer.valueOf(l.intValue());
+        l = r.optLong();
+        snap.segment = l == null ? null : Integer.valueOf(l.intValue());
+        l = r.optLong();
+        snap.shards = l == null ? null : Integer.valueOf(l.intValue());
+        l = r.optLong();
+        snap.globalCashbackBps = l == null ? null : Integer.valueOf(l.intValue());
+        snap.posPending = r.longMap();
+        snap.companyNames = r.stringMap();
+        snap.companyShortNames = r.stringMap();
+        int count = r.varint() - 1;
+        if (count >= 0) {
+            if (each == null) {
+                snap.accounts = new ArrayList<>(count);
+                each = snap.accounts::add;
+            }
+            int read = 0;
+            while (read < count) {
+                r.nextBlock();
+                while (r.hasMore() && read < count) {
+                    each.accept(readRecord(r));
+                    read++;
+                }
+            }
+        }
+        r.finish();
+        return snap;
+    }
+
+    private static void writeRecord(Writer w, AccountRecord r) throws IOException {
+        w.str(r.id);
+        w.str(r.type);
+        w.uuid(r.ownerUuid == null ? null : UUID.fromString(r.ownerUuid));
+        w.varlong(r.balanceCents);
+        w.varlong(r.journalSeq);
+        List<Account.TransactionRecord> h = r.history;
+        w.varint(h == null ? 0 : h.size() + 1);
+        if (h != null) {
+            for (Account.TransactionRecord t : h)
+                writeTransaction(w, t);
+        }
+    }
+
+    private static void writeTransaction(Writer w, Account.TransactionRecord t) throws IOException {
+        w.varlong(t.time);
+        w.str(t.type == null ? null : t.type.name());
+        w.str(t.otherParty);
+        w.varlong(t.amount);
+        w.raw(t.description);
+    }
+
+    private static AccountRecord readRecord(Reader r) throws IOException {
+        AccountRecord rec = new AccountRecord();
+        rec.id = r.str();
+        rec.type = r.str();
+        UUID owner = r.uuid();
+        rec.ownerUuid = owner == null ? null : owner.toString();
+        rec.balanceCents = r.varlong();
+        rec.journalSeq = r.varlong();
+        int n = r.varint() - 1;
+        if (n >= 0) {
+            rec.history = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Account.TransactionRecord t = new Account.TransactionRecord();
+                t.time = r.version == 1 ? Account.TransactionRecord.parseTimestamp(r.raw()) : r.varlong();
+                t.type = TransactionType.parse(r.str());
+                t.otherParty = r.str();
+                t.amount = r.varlong();
+                t.description = r.raw();
+                rec.history.add(t);
+            }
+        }
+        return rec;
+    }
+
+    /*
+     * English: Encode one account state as a standalone value (used by the key-value store).
+     * Español: Codificar el estado de una cuenta como un valor independiente (usado por el
+     * almacén clave-valor).
+     */
+    public static byte[] encodeAccount(Account a, Account.State s) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        StreamWriter w = new StreamWriter(bos, ACCOUNT_MAGIC, 1);
+        w.write(a, s);
+        w.close();
+        return bos.toByteArray();
+    }
+
+    public static AccountRecord readAccount(byte[] data) throws IOException {
+        Reader r = new Reader(new ByteArrayInputStream(data), ACCOUNT_MAGIC);
+        r.nextBlock();
+        AccountRecord rec = readRecord(r);
+        r.finish();
+        return rec;
+    }
+
+    /*
+     * English: Encode only the bank-wide header fields (pending charges, company names, cashback,
+     * journal sequence) of a snapshot.
+     * Español: Codificar solo los campos globales del encabezado (cobros pendientes, nombres de
+     * empresas, cashback, secuencia del diario) de un snapshot.
+     */
+    public static byte[] encodeHeader(AccountsSnapshot header) throws IOException {
+        AccountsSnapshot h = new AccountsSnapshot();
+        h.journalSeq = header.journalSeq;
+        h.globalCashbackBps = header.globalCashbackBps;
+        h.posPending = header.posPending;
+        h.companyNames = header.companyNames;
+        h.companyShortNames = header.companyShortNames;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+        writeAccounts(bos, h);
+        return bos.toByteArray();
+    }
+
+    public static AccountsSnapshot readHeader(byte[] data) throws IOException {
+        return readAccounts(new ByteArrayInputStream(data));
+    }
+
+    /*
+     * English: Encode a company into a byte array (call while holding the company monitor).
+     * Español: Codificar una empresa en un arreglo de bytes (llamar con el monitor de la empresa).
+     */
+    public static byte[] encodeCompany(Company c) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(512);
+        Writer w = new Writer(bos, COMPANY_MAGIC);
+        w.str(c.id);
+        w.uuid(c.ownerUuid);
+        w.raw(c.name);
+        w.raw(c.shortName);
+        w.raw(c.description);
+        w.varint(c.approved ? 1 : 0);
+        w.varlong(c.appliedAt);
+        w.varlong(c.approvedAt);
+        w.varlong(c.salesWeekCents);
+        w.longList(c.salesLast7DaysCents);
+        w.varlong(c.valuationCurrentCents);
+        w.varlong(c.lastValuationAt);
+        w.longList(c.valuationHistoryCents);
+        w.intMap(c.holdings);
+        w.varlong(c.listedShares);
+        w.intMap(c.sellerListings);
+        w.endBlock();
+        w.finish();
+        return bos.toByteArray();
+    }
+
+    public static Company readCompany(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return readCompany(in);
+        }
+    }
+
+    public static Company readCompany(InputStream is) throws IOException {
+        Reader r = new Reader(is, COMPANY_MAGIC);
+        r.nextBlock();
+        Company c = new Company();
+        c.id = r.str();
+        c.ownerUuid = r.uuid();
+        c.name = r.raw();
+        c.shortName = r.raw();
+        c.description = r.raw();
+        c.approved = r.varint() != 0;
+        c.appliedAt = r.varlong();
+        c.approvedAt = r.varlong();
+        c.salesWeekCents = r.varlong();
+        c.salesLast7DaysCents = r.longList();
+        c.valuationCurrentCents = r.varlong();
+        c.lastValuationAt = r.varlong();
+        c.valuationHistoryCents = r.longList();
+        c.holdings = r.intMap();
+        c.listedShares = (int) r.varlong();
+        c.sellerListings = r.intMap();
+        r.finish();
+        return c;
+    }
+
+    /*
+     * English: Block writer with the shared string table.
+     * Español: Escritor de bloques con la tabla de cadenas compartida.
+     */
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream(8192);
+        private final Map<String, Integer> table = new HashMap<>();
+        private final CRC32 crc = new CRC32();
+
+        Writer(OutputStream os, int magic) throws IOException {
+            out = new DataOutputStream(os);
+            out.writeInt(magic);
+            out.writeByte(VERSION);
+        }
+
+        void endBlock() throws IOException {
+            crc.reset();
+            crc.update(block.toByteArray(), 0, block.size());
+            writeVarint(out, block.size());
+            out.writeInt((int) crc.getValue());
+            block.writeTo(out);
+            block.reset();
+        }
+
+        void finish() throws IOException {
+            writeVarint(out, 0);
+            out.flush();
+        }
+
+        void varint(int v) throws IOException {
+            writeVarint(block, v);
+        }
+
+        void varlong(long v) {
+            long z = (v << 1) ^ (v >> 63);
+            while ((z & ~0x7FL) != 0L) {
+                block.write((int) ((z & 0x7F) | 0x80));
+                z >>>= 7;
+            }
+            block.write((int) z);
+        }
+
+        void optLong(Long v) {
+            block.write(v == null ? 0 : 1);
+            if (v != null)
+                varlong(v.longValue());
+        }
+
+        void uuid(UUID u) {
+            block.write(u == null ? 0 : 1);
+            if (u != null) {
+                fixed(u.getMostSignificantBits());
+                fixed(u.getLeastSignificantBits());
+            }
+        }
+
+        private void fixed(long v) {
+            for (int i = 56; i >= 0; i -= 8)
+                block.write((int) (v >>> i));
+        }
+
+        // English: Uninterned string: 0 = null, otherwise length + 1 and UTF-8 bytes.
+        // Español: Cadena sin tabla: 0 = null, si no longitud + 1 y bytes UTF-8.
+        void raw(String s) throws IOException {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varint(b.length + 1);
+            block.write(b);
+        }
+
+        // English: Interned string: 0 = null, 1 = new value follows, n >= 2 = table[n - 2].
+        // Español: Cadena en tabla: 0 = null, 1 = sigue valor nuevo, n >= 2 = tabla[n - 2].
+        void str(String s) throws IOException {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            Integer idx = table.get(s);
+            if (idx != null) {
+                varint(idx.intValue() + 2);
+                return;
+            }
+            varint(1);
+            raw(s);
+            table.put(s, table.size());
+        }
+
+        void longList(List<Long> list) {
+            writeVarint(block, list == null ? 0 : list.size() + 1);
+            if (list != null)
+                for (Long v : list)
+                    varlong(v == null ? 0L : v.longValue());
+        }
+
+        void longMap(Map<String, Long> m) throws IOException {
+            varint(m == null ? 0 : m.size() + 1);
+            if (m != null) {
+                for (Map.Entry<String, Long> e : m.entrySet()) {
+                    str(e.getKey());
+                    varlong(e.getValue() == null ? 0L : e.getValue().longValue());
+                }
+            }
+        }
+
+        void intMap(Map<String, Integer> m) throws IOException {
+            varint(m == null ? 0 : m.size() + 1);
+            if (m != null) {
+                for (Map.Entry<String, Integer> e : m.entrySet()) {
+                    str(e.getKey());
+                    varlong(e.getValue() == null ? 0L : e.getValue().longValue());
+                }
+            }
+        }
+
+        void stringMap(Map<String, String> m) throws IOException {
+            varint(m == null ? 0 : m.size() + 1);
+            if (m != null) {
+                for (Map.Entry<String, String> e : m.entrySet()) {
+                    str(e.getKey());
+                    raw(e.getValue());
+                }
+            }
+        }
+    }
+
+    /*
+     * English: Block reader; verifies each block's CRC before decoding it.
+     * Español: Lector de bloques; verifica el CRC de cada bloque antes de decodificarlo.
+     */
+    private static final class Reader {
+        private final DataInputStream in;
+        private final int version;
+        private final List<String> table = new ArrayList<>();
+        private final CRC32 crc = new CRC32();
+        private byte[] buf = new byte[0];
+        private int pos;
+        private int limit;
+
+        Reader(InputStream is, int magic) throws IOException {
+            in = new DataInputStream(is);
+            if (in.readInt() != magic)
+                throw new IOException("Bad snapshot magic / Número mágico de snapshot inválido");
+            version = in.readUnsignedByte();
+            if (version < 1 || version > VERSION)
+                throw new IOException("Unsupported snapshot version " + version);
+        }
+
+        void nextBlock() throws IOException {
+            int len = readVarint(in);
+            if (len <= 0)
+                throw new EOFException("Snapshot ended early / El snapshot terminó antes de tiempo");
+            int expected = in.readInt();
+            if (buf.length < len)
+                buf = new byte[Math.max(len, buf.length * 2)];
+            in.readFully(buf, 0, len);
+            crc.reset();
+            crc.update(buf, 0, len);
+            if ((int) crc.getValue() != expected)
+                throw new IOException("Snapshot block CRC mismatch / CRC de bloque de snapshot no coincide");
+            pos = 0;
+            limit = len;
+        }
+
+        boolean hasMore() {
+            return pos < limit;
+        }
+
+        void finish() throws IOException {
+            if (readVarint(in) != 0)
+                throw new IOException("Trailing data in snapshot / Datos sobrantes en el snapshot");
+        }
+
+        private int next() throws IOException {
+            if (pos >= limit)
+                throw new EOFException("Snapshot block truncated / Bloque de snapshot truncado");
+            return buf[pos++] & 0xFF;
+        }
+
+        int varint() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = next();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return v;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        long varlong() throws IOException {
+            long z = 0L;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = next();
+                z |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return (z >>> 1) ^ -(z & 1L);
+            }
+            throw new IOException("Malformed varlong");
+        }
+
+        Long optLong() throws IOException {
+            return next() == 0 ? null : Long.valueOf(varlong());
+        }
+
+        UUID uuid() throws IOException {
+            if (next() == 0)
+                return null;
+            return new UUID(fixed(), fixed());
+        }
+
+        private long fixed() throws IOException {
+            long v = 0L;
+            for (int i = 0; i < 8; i++)
+                v = (v << 8) | next();
+            return v;
+        }
+
+        String raw() throws IOException {
+            int n = varint() - 1;
+            if (n < 0)
+                return null;
+            if (n > limit - pos)
+                throw new EOFException("Snapshot string truncated / Cadena de snapshot truncada");
+            String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return s;
+        }
+
+        String str() throws IOException {
+            int ref = varint();
+            if (ref == 0)
+                return null;
+            if (ref == 1) {
+                String s = raw();
+                table.add(s);
+                return s;
+            }
+            if (ref - 2 >= table.size())
+                throw new IOException("Bad string table reference / Referencia de tabla de cadenas inválida");
+            return table.get(ref - 2);
+        }
+
+        List<Long> longList() throws IOException {
+            int n = varint() - 1;
+            List<Long> out = new ArrayList<>(Math.max(0, n));
+            for (int i = 0; i < n; i++)
+                out.add(varlong());
+            return out;
+        }
+
+        Map<String, Long> longMap() throws IOException {
+            int n = varint() - 1;
+            if (n < 0)
+                return null;
+            Map<String, Long> m = new HashMap<>();
+            for (int i = 0; i < n; i++)
+                m.put(str(), varlong());
+            return m;
+        }
+
+        Map<String, Integer> intMap() throws IOException {
+            int n = varint() - 1;
+            Map<String, Integer> m = new HashMap<>();
+            for (int i = 0; i < n; i++)
+                m.put(str(), (int) varlong());
+            return m;
+        }
+
+        Map<String, String> stringMap() throws IOException {
+            int n = varint() - 1;
+            if (n < 0)
+                return null;
+            Map<String, String> m = new HashMap<>();
+            for (int i = 0; i < n; i++)
+                m.put(str(), raw());
+            return m;
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int v) {
+        try {
+            while ((v & ~0x7F) != 0) {
+                out.write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out.write(v);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
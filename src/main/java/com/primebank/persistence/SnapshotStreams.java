@@ -0,0 +1,205 @@
+package com.primebank.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.primebank.core.accounts.Account;
+import com.primebank.persistence.BankPersistence.AccountRecord;
+import com.primebank.persistence.BankPersistence.AccountsSnapshot;
+
+/*
+ English: Streaming read/write of account snapshot files in either format, picked by file extension.
+ Writers encode each live Account directly (no AccountRecord list); readers hand records to a
+ consumer one at a time. The JSON layout is the same one Gson produces for AccountsSnapshot.
+ Español: Lectura/escritura en streaming de archivos de snapshot de cuentas en cualquiera de los dos
+ formatos, elegido por la extensión. Los escritores codifican cada Account vivo directamente (sin
+ lista de AccountRecord); los lectores entregan los registros a un consumidor de a uno. El formato JSON
+ es el mismo que Gson produce para AccountsSnapshot.
+*/
+public final class SnapshotStreams {
+    private static final Gson GSON = new Gson();
+    private static final Type LONG_MAP = new TypeToken<Map<String, Long>>() {
+    }.getType();
+    private static final Type STRING_MAP = new TypeToken<Map<String, String>>() {
+    }.getType();
+
+    private SnapshotStreams() {
+    }
+
+    /*
+     * English: Receives an account with the immutable state to persist for it (no lock needed).
+     * Español: Recibe una cuenta con el estado inmutable a persistir (no requiere lock).
+     */
+    public interface AccountWriter extends Closeable {
+        void write(Account a, Account.State s) throws IOException;
+    }
+
+    public static boolean isBinary(File f) {
+        return f.getName().endsWith(SnapshotCodec.EXTENSION);
+    }
+
+    /*
+     * English: Open a writer on the file's ".tmp" sibling; commit() moves it into place.
+     * Español: Abrir un escritor sobre el archivo hermano ".tmp"; commit() lo mueve a su lugar.
+     */
+    public static AccountWriter open(File file, AccountsSnapshot header, int count) throws IOException {
+        File tmp = tmpFile(file);
+        file.getParentFile().mkdirs();
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16);
+        try {
+            return isBinary(file) ? new SnapshotCodec.StreamWriter(os, header, count) : new JsonAccountWriter(os, header);
+        } catch (IOException | RuntimeException e) {
+            os.close();
+            throw e;
+        }
+    }
+
+    public static void commit(File file) throws IOException {
+        Files.move(tmpFile(file).toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static File tmpFile(File file) {
+        return new File(file.getParentFile(), file.getName() + ".tmp");
+    }
+
+    /*
+     * English: Stream a snapshot file. Records go to the consumer; the returned header has
+     * accounts == null.
+     * Español: Leer un archivo de snapshot en streaming. Los registros van al consumidor; el
+     * encabezado devuelto tiene accounts == null.
+     */
+    public static AccountsSnapshot read(File file, Consumer<AccountRecord> each) throws IOException {
+        if (isBinary(file)) {
+            try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+                return SnapshotCodec.readAccounts(in, each);
+            }
+        }
+        try (JsonReader r = new JsonReader(
+                new InputStreamReader(new BufferedInputStream(new FileInputStream(file), 1 << 16), StandardCharsets.UTF_8))) {
+            AccountsSnapshot snap = new AccountsSnapshot();
+            if (r.peek() == JsonToken.NULL) {
+                r.nextNull();
+                return snap;
+            }
+            r.beginObject();
+            while (r.hasNext()) {
+                String name = r.nextName();
+                switch (name) {
+                    case "accounts":
+                        if (r.peek() == JsonToken.NULL) {
+                            r.nextNull();
+                            break;
+                        }
+                        r.beginArray();
+                        while (r.hasNext())
+                            each.accept(GSON.<AccountRecord>fromJson(r, AccountRecord.class));
+                        r.endArray();
+                        break;
+                    case "journalSeq":
+                        snap.journalSeq = GSON.fromJson(r, Long.class);
+                        break;
+                    case "generation":
+                        snap.generation = GSON.fromJson(r, Integer.class);
+                        break;
+                    case "segment":
+                        snap.segment = GSON.fromJson(r, Integer.class);
+                        break;
+                    case "shards":
+                        snap.shards = GSON.fromJson(r, Integer.class);
+                        break;
+                    case "globalCashbackBps":
+                        snap.globalCashbackBps = GSON.fromJson(r, Integer.class);
+                        break;
+                    case "posPending":
+                        snap.posPending = GSON.fromJson(r, LONG_MAP);
+                        break;
+                    case "companyNames":
+                        snap.companyNames = GSON.fromJson(r, STRING_MAP);
+                        break;
+                    case "companyShortNames":
+                        snap.companyShortNames = GSON.fromJson(r, STRING_MAP);
+                        break;
+                    default:
+                        r.skipValue();
+                }
+            }
+            r.endObject();
+            return snap;
+        }
+    }
+
+    /*
+     * English: JSON writer producing the same pretty layout as JsonUtil, one account at a time.
+     * Español: Escritor JSON que produce el mismo formato legible que JsonUtil, una cuenta a la vez.
+     */
+    private static final class JsonAccountWriter implements AccountWriter {
+        private final JsonWriter w;
+
+        JsonAccountWriter(OutputStream os, AccountsSnapshot header) throws IOException {
+            w = new JsonWriter(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)));
+            w.setIndent("  ");
+            w.beginObject();
+            if (header.posPending != null)
+                GSON.toJson(header.posPending, LONG_MAP, w.name("posPending"));
+            if (header.companyNames != null)
+                GSON.toJson(header.companyNames, STRING_MAP, w.name("companyNames"));
+            if (header.companyShortNames != null)
+                GSON.toJson(header.companyShortNames, STRING_MAP, w.name("companyShortNames"));
+            if (header.globalCashbackBps != null)
+                w.name("globalCashbackBps").value(header.globalCashbackBps);
+            if (header.journalSeq != null)
+                w.name("journalSeq").value(header.journalSeq);
+            if (header.generation != null)
+                w.name("generation").value(header.generation);
+            if (header.segment != null)
+                w.name("segment").value(header.segment);
+            if (header.shards != null)
+                w.name("shards").value(header.shards);
+            w.name("accounts").beginArray();
+        }
+
+        @Override
+        public void write(Account a, Account.State s) throws IOException {
+            w.beginObject();
+            w.name("id").value(a.getId());
+            w.name("type").value(a.getType().name());
+            if (a.getOwnerUuid() != null)
+                w.name("ownerUuid").value(a.getOwnerUuid().toString());
+            w.name("balanceCents").value(s.balanceCents);
+            w.name("history").beginArray();
+            for (Account.TransactionRecord t : s.history)
+                GSON.toJson(t, Account.TransactionRecord.class, w);
+            w.endArray();
+            w.name("journalSeq").value(s.journalSeq);
+            w.endObject();
+        }
+
+        @Override
+        public void close() throws IOException {
+            w.endArray();
+            w.endObject();
+            w.close();
+        }
+    }
+}
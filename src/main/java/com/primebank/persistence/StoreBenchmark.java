@@ -0,0 +1,220 @@
+package com.primebank.persistence;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountType;
+import com.primebank.core.accounts.TransactionType;
+import com.primebank.core.config.PrimeBankConfig;
+import com.primebank.persistence.BankPersistence.AccountsSnapshot;
+
+/*
+ English: Runs the same checkpoint workload on both storage backends in a scratch directory:
+ synthetic accounts, then rounds that touch a few random accounts and checkpoint them. The files
+ backend writes a delta segment per round and rewrites every shard each snapshot_compact_segments
+ rounds; the kv backend commits one synced transaction per round. Used by /pb storebench.
+ Español: Corre la misma carga de checkpoints en ambos backends de almacenamiento en un directorio
+ temporal: cuentas sintéticas y luego rondas que tocan algunas cuentas al azar y las guardan. El
+ backend de archivos escribe un segmento delta por ronda y reescribe todos los shards cada
+ snapshot_compact_segments rondas; el backend kv confirma una transacción sincronizada por ronda.
+ Usado por /pb storebench.
+*/
+public final class StoreBenchmark {
+    private static final int TOUCHED_PER_ROUND = 200;
+    // English: 2025-01-01 12:00:00 UTC, the time of synthetic history records.
+    // Español: 2025-01-01 12:00:00 UTC, la hora de los registros de historial sintéticos.
+    private static final long SYNTHETIC_TIME = 1735732800000L;
+
+    private StoreBenchmark() {
+    }
+
+    /*
+     * English: Benchmark both backends with the given number of accounts and rounds. Returns
+     * report lines.
+     * Español: Medir ambos backends con la cantidad de cuentas y rondas dada. Devuelve líneas de
+     * reporte.
+     */
+    public static List<String> run(int accounts, int rounds) throws Exception {
+        accounts = Math.max(1, accounts);
+        rounds = Math.max(1, rounds);
+        File dir = Files.createTempDirectory("primebank-storebench").toFile();
+        try {
+            List<String> out = new ArrayList<>();
+            out.add(String.format("accounts=%d rounds=%d touched/round=%d", accounts, rounds,
+                    Math.min(TOUCHED_PER_ROUND, accounts)));
+            out.add(runFiles(new File(dir, "files"), accounts, rounds));
+            out.add(runKv(new File(dir, "kv"), accounts, rounds));
+            return out;
+        } finally {
+            deleteRecursive(dir);
+        }
+    }
+
+    private static String runFiles(File dir, int accounts, int rounds) throws Exception {
+        List<Account> all = synthetic(accounts);
+        Random rnd = new Random(7L);
+        AccountsSnapshot header = new AccountsSnapshot();
+        int shards = Math.max(1, PrimeBankConfig.SNAPSHOT_SHARDS);
+        int compactEvery = Math.max(1, PrimeBankConfig.SNAPSHOT_COMPACT_SEGMENTS);
+        dir.mkdirs();
+        long t0 = System.nanoTime();
+        long written = writeShards(dir, header, all, shards);
+        int segments = 0;
+        for (int r = 1; r <= rounds; r++) {
+            List<Map.Entry<Account, Account.State>> changed = touch(all, rnd);
+            if (segments >= compactEvery) {
+                for (File f : listSegments(dir))
+                    f.delete();
+                segments = 0;
+                written += writeShards(dir, header, all, shards);
+            } else {
+                File seg = new File(dir, String.format("segment-%06d%s", ++segments, SnapshotCodec.EXTENSION));
+                BankPersistence.writeStreaming(seg, header, changed);
+                written += seg.length();
+            }
+        }
+        long t1 = System.nanoTime();
+        final int[] loaded = { 0 };
+        for (int s = 0; s < shards; s++)
+            SnapshotStreams.read(shardFile(dir, s), rec -> loaded[0]++);
+        for (File f : listSegments(dir))
+            SnapshotStreams.read(f, rec -> loaded[0]++);
+        long t2 = System.nanoTime();
+        return String.format("files: save %.1f ms total (%.2f ms/round), %,d bytes written, %,d on disk, load %.1f ms (%d records)",
+                (t1 - t0) / 1e6, (t1 - t0) / 1e6 / rounds, written, diskBytes(dir), (t2 - t1) / 1e6, loaded[0]);
+    }
+
+    private static String runKv(File dir, int accounts, int rounds) throws Exception {
+        List<Account> all = synthetic(accounts);
+        Random rnd = new Random(7L);
+        byte[] meta = SnapshotCodec.encodeHeader(new AccountsSnapshot());
+        File file = new File(dir, "bank.kv");
+        long written = 0L;
+        long t0 = System.nanoTime();
+        try (KvFile kv = KvFile.open(file)) {
+            KvFile.Batch first = kv.batch();
+            for (Account a : all)
+                first.put("a/" + a.getId(), SnapshotCodec.encodeAccount(a, a.getState()));
+            first.put("meta", meta);
+            written += commit(kv, first);
+            for (int r = 1; r <= rounds; r++) {
+                KvFile.Batch batch = kv.batch();
+                for (Map.Entry<Account, Account.State> e : touch(all, rnd))
+                    batch.put("a/" + e.getKey().getId(), SnapshotCodec.encodeAccount(e.getKey(), e.getValue()));
+                batch.put("meta", meta);
+                written += commit(kv, batch);
+            }
+        }
+        long t1 = System.nanoTime();
+        int loaded = 0;
+        try (KvFile kv = KvFile.open(file)) {
+            for (String key : kv.keys("a/")) {
+                SnapshotCodec.readAccount(kv.get(key));
+                loaded++;
+            }
+        }
+        long t2 = System.nanoTime();
+        return String.format("kv:    save %.1f ms total (%.2f ms/round), %,d bytes written, %,d on disk, load %.1f ms (%d records)",
+                (t1 - t0) / 1e6, (t1 - t0) / 1e6 / rounds, written, file.length(), (t2 - t1) / 1e6, loaded);
+    }
+
+    // English: Bytes appended by one commit (compactions are not counted).
+    // Español: Bytes agregados por un commit (las compactaciones no se cuentan).
+    private static long commit(KvFile kv, KvFile.Batch batch) throws Exception {
+        long before = kv.fileBytes();
+        kv.commit(batch, true);
+        return Math.max(0L, kv.fileBytes() - before);
+    }
+
+    private static long writeShards(File dir, AccountsSnapshot header, List<Account> all, int shards)
+            throws Exception {
+        List<List<Map.Entry<Account, Account.State>>> split = new ArrayList<>(shards);
+        for (int s = 0; s < shards; s++)
+            split.add(new ArrayList<Map.Entry<Account, Account.State>>());
+        for (int i = 0; i < all.size(); i++) {
+            Account a = all.get(i);
+            split.get(i % shards).add(new AbstractMap.SimpleImmutableEntry<>(a, a.getState()));
+        }
+        long bytes = 0L;
+        for (int s = 0; s < shards; s++) {
+            File f = shardFile(dir, s);
+            BankPersistence.writeStreaming(f, header, split.get(s));
+            bytes += f.length();
+        }
+        return bytes;
+    }
+
+    private static File shardFile(File dir, int shard) {
+        return new File(dir, String.format("shard-%03d%s", shard, SnapshotCodec.EXTENSION));
+    }
+
+    private static List<File> listSegments(File dir) {
+        List<File> out = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> name.startsWith("segment-") && name.endsWith(SnapshotCodec.EXTENSION));
+        if (files != null)
+            for (File f : files)
+                out.add(f);
+        return out;
+    }
+
+    /*
+     * English: Change a fixed number of random accounts (a deposit plus a history entry) and
+     * return their new states, as a checkpoint would capture them.
+     * Español: Cambiar una cantidad fija de cuentas al azar (un depósito más una entrada de
+     * historial) y devolver sus nuevos estados, como los capturaría un checkpoint.
+     */
+    private static List<Map.Entry<Account, Account.State>> touch(List<Account> all, Random rnd) {
+        int n = Math.min(TOUCHED_PER_ROUND, all.size());
+        Map<String, Map.Entry<Account, Account.State>> changed = new java.util.LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            Account a = all.get(rnd.nextInt(all.size()));
+            long amount = 1 + rnd.nextInt(10_000);
+            a.deposit(amount);
+            a.addTransaction(new Account.TransactionRecord(SYNTHETIC_TIME, TransactionType.DEPOSIT, "central",
+                    amount, "Synthetic"));
+            changed.put(a.getId(), new AbstractMap.SimpleImmutableEntry<>(a, a.getState()));
+        }
+        return new ArrayList<>(changed.values());
+    }
+
+    private static List<Account> synthetic(int accounts) {
+        List<Account> out = new ArrayList<>(accounts);
+        Random rnd = new Random(42L);
+        TransactionType[] types = { TransactionType.DEPOSIT, TransactionType.WITHDRAW, TransactionType.TRANSFER_IN,
+                TransactionType.TRANSFER_OUT, TransactionType.POS_PAY };
+        for (int i = 0; i < accounts; i++) {
+            UUID owner = new UUID(rnd.nextLong(), rnd.nextLong());
+            Account a = new Account("u:" + owner, AccountType.PERSONAL, owner, rnd.nextInt(10_000_000));
+            for (int h = 0; h < 20; h++) {
+                a.addTransaction(new Account.TransactionRecord(SYNTHETIC_TIME + h * 1000L,
+                        types[rnd.nextInt(types.length)], "central", rnd.nextInt(100_000), "Synthetic"));
+            }
+            out.add(a);
+        }
+        return out;
+    }
+
+    private static long diskBytes(File dir) {
+        long total = 0L;
+        File[] files = dir.listFiles();
+        if (files != null)
+            for (File f : files)
+                total += f.length();
+        return total;
+    }
+
+    private static void deleteRecursive(File f) {
+        File[] children = f.listFiles();
+        if (children != null)
+            for (File c : children)
+                deleteRecursive(c);
+        f.delete();
+    }
+}
@@ -0,0 +1,94 @@
+package com.primebank.core.accounts;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.primebank.core.accounts.Account.TransactionRecord;
+
+/*
+ English: The history ring keeps the newest `limit` records in order, every view stays unchanged after
+ later appends (including a lost race on the same slot), and a changed limit trims or widens the
+ window.
+ Español: El anillo del historial conserva los `limit` registros más nuevos en orden, cada vista queda
+ igual tras agregados posteriores (incluida una carrera perdida por la misma casilla), y un límite
+ cambiado recorta o amplía la ventana.
+*/
+public class TransactionHistoryTest {
+    @Test
+    public void keepsTheNewestRecordsInOrder() {
+        TransactionHistory h = TransactionHistory.EMPTY;
+        for (int i = 0; i < 25; i++)
+            h = h.append(record(i), 10);
+        assertAmounts(h, 15, 25);
+        assertEquals(10, h.toArray().length);
+        assertArrayEquals(new ArrayList<>(h).toArray(), h.toArray());
+    }
+
+    @Test
+    public void olderViewsDoNotChange() {
+        TransactionHistory base = TransactionHistory.EMPTY;
+        for (int i = 0; i < 13; i++)
+            base = base.append(record(i), 10);
+        TransactionHistory winner = base.append(record(100), 10);
+        // English: A second append to the same view finds its slot claimed and copies instead.
+        // Español: Un segundo agregado a la misma vista encuentra su casilla reclamada y copia.
+        TransactionHistory loser = base.append(record(200), 10);
+
+        assertAmounts(base, 3, 13);
+        assertEquals(100L, winner.get(9).amount);
+        assertEquals(200L, loser.get(9).amount);
+        assertEquals(4L, winner.get(0).amount);
+        assertEquals(4L, loser.get(0).amount);
+    }
+
+    @Test
+    public void changedLimitResizesTheWindow() {
+        List<TransactionRecord> records = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+            records.add(record(i));
+        TransactionHistory h = TransactionHistory.of(records, 20);
+        assertAmounts(h, 10, 30);
+        assertAmounts(h.append(record(30), 5), 26, 31);
+        assertAmounts(h.append(record(30), 40), 10, 31);
+    }
+
+    @Test
+    public void readersSeeConsistentViewsDuringAppends() throws InterruptedException {
+        AtomicReference<TransactionHistory> latest = new AtomicReference<>(TransactionHistory.EMPTY);
+        Thread writer = new Thread(() -> {
+            TransactionHistory h = TransactionHistory.EMPTY;
+            for (int i = 0; i < 200_000; i++) {
+                h = h.append(record(i), 50);
+                latest.set(h);
+            }
+        });
+        writer.start();
+        long reads = 0L;
+        while (writer.isAlive() || reads == 0L) {
+            Object[] view = latest.get().toArray();
+            for (int i = 1; i < view.length; i++)
+                assertEquals(((TransactionRecord) view[i - 1]).amount + 1L, ((TransactionRecord) view[i]).amount);
+            reads++;
+        }
+        writer.join();
+        assertTrue(reads > 0L);
+        assertAmounts(latest.get(), 200_000 - 50, 200_000);
+    }
+
+    private static TransactionRecord record(long amount) {
+        return new TransactionRecord(1L, TransactionType.DEPOSIT, "x", amount, "test");
+    }
+
+    private static void assertAmounts(List<TransactionRecord> h, int from, int to) {
+        assertEquals(to - from, h.size());
+        for (int i = from; i < to; i++)
+            assertEquals((long) i, h.get(i - from).amount);
+    }
+}
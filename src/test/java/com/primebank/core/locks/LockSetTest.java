@@ -0,0 +1,128 @@
+package com.primebank.core.locks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.primebank.core.config.PrimeBankConfig;
+
+/*
+ English: Account locking for ledger operations: stripes are taken once each and in stripe order, so
+ opposite-order transfers never deadlock, and a lock held too long turns into a null result that
+ leaves nothing held.
+ Español: Bloqueo de cuentas para operaciones del libro mayor: cada franja se toma una sola vez y en
+ orden de franja, así las transferencias en orden opuesto nunca se interbloquean, y un lock tomado
+ demasiado tiempo se vuelve un resultado nulo que no deja nada tomado.
+*/
+public class LockSetTest {
+    @After
+    public void tearDown() {
+        PrimeBankConfig.LOCK_TIMEOUT_MS = 5000;
+    }
+
+    @Test
+    public void duplicateIdsAndSharedStripesAreLockedOnce() {
+        String a = "u:a";
+        String twin = sameStripeAs(a);
+        try (LockSet set = LockSet.acquire("test", a, a, twin, null)) {
+            assertNotNull(set);
+            assertEquals(1, AccountLockManager.getLock(a).getHoldCount());
+        }
+        assertFalse(AccountLockManager.getLock(a).isHeldByCurrentThread());
+
+        try (LockSet set = LockSet.acquireAll("test", Arrays.asList(a, twin, null, a))) {
+            assertNotNull(set);
+            assertEquals(1, AccountLockManager.getLock(a).getHoldCount());
+        }
+        assertFalse(AccountLockManager.getLock(a).isHeldByCurrentThread());
+    }
+
+    @Test(timeout = 30_000L)
+    public void oppositeOrderTransfersDoNotDeadlock() throws InterruptedException {
+        PrimeBankConfig.LOCK_TIMEOUT_MS = 0;
+        String a = "u:a";
+        String b = otherStripeThan(a);
+        AtomicInteger done = new AtomicInteger();
+        Thread one = new Thread(() -> transfer(a, b, done));
+        Thread two = new Thread(() -> transfer(b, a, done));
+        one.start();
+        two.start();
+        one.join();
+        two.join();
+        assertEquals(2 * 20_000, done.get());
+    }
+
+    @Test
+    public void timeoutReleasesWhatWasTaken() throws InterruptedException {
+        PrimeBankConfig.LOCK_TIMEOUT_MS = 100;
+        String a = "u:a";
+        String b = otherStripeThan(a);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            AccountLockManager.getLock(b).lock();
+            try {
+                holding.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                AccountLockManager.getLock(b).unlock();
+            }
+        });
+        holder.start();
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        try {
+            long start = System.nanoTime();
+            assertNull(LockSet.acquire("timeout-test", a, b, null, null));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90L));
+            assertFalse(AccountLockManager.getLock(a).isLocked());
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        boolean recorded = false;
+        for (String line : LockSet.describeStats())
+            recorded |= line.startsWith("lockwait timeout-test:") && line.endsWith("timeouts=1");
+        assertTrue(LockSet.describeStats().toString(), recorded);
+
+        try (LockSet set = LockSet.acquire("timeout-test", a, b, null, null)) {
+            assertNotNull(set);
+        }
+    }
+
+    private static void transfer(String from, String to, AtomicInteger done) {
+        for (int i = 0; i < 20_000; i++) {
+            try (LockSet set = LockSet.acquire("test", from, to, null, null)) {
+                if (set != null)
+                    done.incrementAndGet();
+            }
+        }
+    }
+
+    private static String sameStripeAs(String id) {
+        for (int i = 0;; i++) {
+            String other = "u:" + i;
+            if (AccountLockManager.stripeOf(other) == AccountLockManager.stripeOf(id))
+                return other;
+        }
+    }
+
+    private static String otherStripeThan(String id) {
+        for (int i = 0;; i++) {
+            String other = "u:" + i;
+            if (AccountLockManager.stripeOf(other) != AccountLockManager.stripeOf(id))
+                return other;
+        }
+    }
+}
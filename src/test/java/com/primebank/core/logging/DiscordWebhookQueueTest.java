@@ -0,0 +1,166 @@
+package com.primebank.core.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ English: Delivery of one webhook against a local stub server that answers with scripted responses:
+ Retry-After (header or JSON body) is honored on 429, an exhausted rate-limit bucket holds the next
+ request, 5xx answers are retried, and a payload is given up after too many 429s.
+ Español: Entrega de un webhook contra un servidor local de prueba que responde con respuestas
+ preparadas: en un 429 se respeta el Retry-After (encabezado o cuerpo JSON), un cupo de límite agotado
+ retiene la siguiente petición, las respuestas 5xx se reintentan, y un envío se abandona tras demasiados
+ 429.
+*/
+public class DiscordWebhookQueueTest {
+    private HttpServer server;
+    private final LinkedBlockingQueue<Response> script = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<Long> received = new LinkedBlockingQueue<>();
+    private final List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+    private DiscordWebhookQueue queue;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/hook", this::handle);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/hook";
+        queue = new DiscordWebhookQueue("test", DiscordWebhookQueue.Mode.TEXT, () -> url);
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutdown(0L);
+        server.stop(0);
+    }
+
+    @Test
+    public void rateLimitWaitsForRetryAfterHeader() throws Exception {
+        script.add(new Response(429, "{}").header("Retry-After", "0.3"));
+        queue.offer("hello");
+        long first = nextRequest();
+        long second = nextRequest();
+        assertTrue("retried after " + (second - first) + " ms", second - first >= 290L);
+        queue.shutdown(5_000L);
+        assertStats("delivered=1", "failed=0", "rateLimited=1");
+        assertEquals("{\"content\": \"hello\"}", bodies.get(1));
+    }
+
+    @Test
+    public void rateLimitReadsRetryAfterFromBody() throws Exception {
+        script.add(new Response(429, "{\"retry_after\": 0.3, \"global\": false}"));
+        queue.offer("hello");
+        long first = nextRequest();
+        long second = nextRequest();
+        assertTrue("retried after " + (second - first) + " ms", second - first >= 290L);
+        queue.shutdown(5_000L);
+        assertStats("delivered=1", "rateLimited=1");
+    }
+
+    @Test
+    public void exhaustedBucketHoldsTheNextRequest() throws Exception {
+        script.add(new Response(204, null).header("X-RateLimit-Remaining", "0").header("X-RateLimit-Reset-After",
+                "0.3"));
+        queue.offer("one");
+        long first = nextRequest();
+        queue.offer("two");
+        long second = nextRequest();
+        assertTrue("sent after " + (second - first) + " ms", second - first >= 290L);
+        queue.shutdown(5_000L);
+        assertStats("delivered=2", "rateLimited=0");
+    }
+
+    @Test
+    public void serverErrorIsRetried() throws Exception {
+        script.add(new Response(502, "bad gateway"));
+        queue.offer("hello");
+        nextRequest();
+        nextRequest();
+        queue.shutdown(5_000L);
+        assertStats("requests=2", "delivered=1", "failed=0");
+    }
+
+    @Test
+    public void givesUpAfterRepeatedRateLimits() throws Exception {
+        for (int i = 0; i < 20; i++)
+            script.add(new Response(429, "{}").header("Retry-After", "0.01"));
+        queue.offer("hello");
+        queue.shutdown(10_000L);
+        assertStats("requests=10", "delivered=0", "failed=1", "rateLimited=10");
+    }
+
+    private long nextRequest() throws InterruptedException {
+        Long at = received.poll(10, TimeUnit.SECONDS);
+        assertTrue("no request reached the stub server", at != null);
+        return at;
+    }
+
+    private void assertStats(String... expected) {
+        String stats = queue.describe();
+        for (String e : expected)
+            assertTrue(stats, stats.contains(" " + e));
+    }
+
+    // English: Answer with the next scripted response, or 204 when the script is empty.
+    // Español: Responder con la siguiente respuesta preparada, o 204 si no quedan.
+    private void handle(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            for (int n; (n = in.read(buf)) > 0;)
+                body.write(buf, 0, n);
+            bodies.add(new String(body.toByteArray(), StandardCharsets.UTF_8));
+        }
+        Response r = script.poll();
+        if (r == null)
+            r = new Response(204, null);
+        for (String[] h : r.headers)
+            ex.getResponseHeaders().add(h[0], h[1]);
+        received.add(System.currentTimeMillis());
+        if (r.body == null) {
+            ex.sendResponseHeaders(r.code, -1L);
+        } else {
+            byte[] b = r.body.getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(r.code, b.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(b);
+            }
+        }
+        ex.close();
+    }
+
+    private static final class Response {
+        final int code;
+        final String body;
+        final List<String[]> headers = new ArrayList<>();
+
+        Response(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+
+        Response header(String name, String value) {
+            headers.add(new String[] { name, value });
+            return this;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.primebank.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.primebank.core.accounts.Account;
+import com.primebank.core.accounts.AccountRegistry;
+import com.primebank.core.accounts.AccountType;
+import com.primebank.core.accounts.TransactionType;
+
+/*
+ English: Paging and crash repair of the on-disk history: pages come newest first, bytes a crash left
+ past the index are cut off before the next record, an unreadable line is skipped, and a record being
+ written during a read does not hide the newest one.
+ Español: Paginación y reparación ante fallos del historial en disco: las páginas vienen de la más
+ nueva a la más vieja, los bytes que un fallo dejó después del índice se recortan antes del siguiente
+ registro, una línea ilegible se omite, y un registro que se escribe durante una lectura no oculta al
+ más nuevo.
+*/
+public class HistoryStoreTest {
+    private static final String ID = "u:test";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final HistoryStore store = HistoryStore.get();
+    private File dir;
+    private Account account;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = tmp.newFolder("history");
+        account = new AccountRegistry().create(ID, AccountType.PERSONAL, UUID.randomUUID(), 0L);
+        store.start(dir);
+    }
+
+    @After
+    public void tearDown() {
+        store.stop();
+    }
+
+    @Test
+    public void pagesHoldTheNewestRecordsOldestFirst() throws IOException {
+        add(0, 25);
+        HistoryStore.Page first = store.page(ID, 1, 10);
+        assertEquals(25L, first.total);
+        assertEquals(3, first.pages);
+        assertAmounts(first, 15, 25);
+        assertAmounts(store.page(ID, 3, 10), 0, 5);
+        assertEquals(3, store.page(ID, 99, 10).page);
+    }
+
+    @Test
+    public void tornTailIsCutOffBeforeTheNextRecord() throws IOException {
+        add(0, 5);
+        store.stop();
+        appendBytes(log(), "{\"torn".getBytes(StandardCharsets.UTF_8));
+        appendBytes(idx(), new byte[3]);
+
+        store.start(dir);
+        add(5, 6);
+        HistoryStore.Page p = store.page(ID, 1, 10);
+        assertEquals(6L, p.total);
+        assertAmounts(p, 0, 6);
+        assertEquals(6L * 8L, idx().length());
+    }
+
+    @Test
+    public void indexedLineMissingFromTheLogIsDropped() throws IOException {
+        add(0, 5);
+        store.stop();
+        // English: The last line lost its newline: its index entry points at an incomplete record.
+        // Español: La última línea perdió su salto de línea: su entrada de índice apunta a un registro
+        // incompleto.
+        try (RandomAccessFile raf = new RandomAccessFile(log(), "rw")) {
+            raf.setLength(raf.length() - 1L);
+        }
+
+        store.start(dir);
+        add(5, 6);
+        HistoryStore.Page p = store.page(ID, 1, 10);
+        assertEquals(5L, p.total);
+        assertEquals(5, p.records.size());
+        assertEquals(3L, p.records.get(3).amount);
+        assertEquals(5L, p.records.get(4).amount);
+    }
+
+    @Test
+    public void unreadableLineIsSkipped() throws IOException {
+        add(0, 10);
+        long offset;
+        try (RandomAccessFile raf = new RandomAccessFile(idx(), "r")) {
+            raf.seek(3L * 8L);
+            offset = raf.readLong();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(log(), "rw")) {
+            raf.seek(offset);
+            raf.write("}}}}".getBytes(StandardCharsets.UTF_8));
+        }
+        HistoryStore.Page p = store.page(ID, 1, 10);
+        assertEquals(9, p.records.size());
+        assertEquals(2L, p.records.get(2).amount);
+        assertEquals(4L, p.records.get(3).amount);
+    }
+
+    @Test
+    public void recordBeingWrittenDoesNotHideTheNewest() throws IOException {
+        add(0, 10);
+        // English: The writer puts log bytes before index bytes; simulate a read between the two.
+        // Español: El escritor escribe los bytes del log antes que los del índice; simular una lectura
+        // entre ambos.
+        appendBytes(log(), "{\"time\":1,\"amount\":99}\n{\"time\":".getBytes(StandardCharsets.UTF_8));
+        HistoryStore.Page p = store.page(ID, 1, 10);
+        assertEquals(10L, p.total);
+        assertAmounts(p, 0, 10);
+    }
+
+    // English: Records are written by the store's thread; reading a page waits until they are on disk.
+    // Español: Los registros los escribe el hilo del almacén; leer una página espera a que estén en disco.
+    private void add(int from, int to) throws IOException {
+        for (int i = from; i < to; i++)
+            account.addTransaction(new Account.TransactionRecord(1L, TransactionType.DEPOSIT, "x", i, "test"));
+        store.page(ID, 1, 1);
+    }
+
+    private static void assertAmounts(HistoryStore.Page p, int from, int to) {
+        assertEquals(to - from, p.records.size());
+        for (int i = from; i < to; i++)
+            assertEquals((long) i, p.records.get(i - from).amount);
+    }
+
+    private File log() {
+        return new File(dir, "u_test.log");
+    }
+
+    private File idx() {
+        return new File(dir, "u_test.idx");
+    }
+
+    private static void appendBytes(File f, byte[] bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(raf.length());
+            raf.write(bytes);
+        }
+    }
+}
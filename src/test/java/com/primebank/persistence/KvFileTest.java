@@ -0,0 +1,139 @@
+package com.primebank.persistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ English: Recovery of the single-file key-value store: committed batches survive a reopen, a torn or
+ corrupted tail is dropped without touching earlier commits, and compaction keeps every live value.
+ Español: Recuperación del almacén clave-valor de un solo archivo: los lotes confirmados sobreviven a
+ una reapertura, una cola cortada o corrupta se descarta sin tocar los commits anteriores, y la
+ compactación conserva cada valor vivo.
+*/
+public class KvFileTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(tmp.newFolder("store"), "bank.kv");
+    }
+
+    @Test
+    public void committedBatchesSurviveReopen() throws IOException {
+        try (KvFile kv = KvFile.open(file)) {
+            kv.commit(kv.batch().put("a/1", bytes("one")).put("a/2", bytes("two")), true);
+            kv.commit(kv.batch().put("a/1", bytes("uno")).delete("a/2").put("c/1", bytes("co")), true);
+        }
+        try (KvFile kv = KvFile.open(file)) {
+            assertArrayEquals(bytes("uno"), kv.get("a/1"));
+            assertNull(kv.get("a/2"));
+            assertArrayEquals(bytes("co"), kv.get("c/1"));
+            assertEquals(1, kv.keys("a/").size());
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedOnOpen() throws IOException {
+        long committed;
+        try (KvFile kv = KvFile.open(file)) {
+            kv.commit(kv.batch().put("a/1", bytes("one")), true);
+            committed = kv.fileBytes();
+            kv.commit(kv.batch().put("a/1", bytes("lost")).put("a/2", bytes("lost")), true);
+        }
+        // English: Cut the second commit in half, as a crash mid-write would.
+        // Español: Cortar el segundo commit a la mitad, como lo haría un fallo a mitad de escritura.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength((committed + raf.length()) / 2L);
+        }
+        try (KvFile kv = KvFile.open(file)) {
+            assertArrayEquals(bytes("one"), kv.get("a/1"));
+            assertNull(kv.get("a/2"));
+            assertEquals(committed, file.length());
+            kv.commit(kv.batch().put("a/3", bytes("three")), true);
+        }
+        try (KvFile kv = KvFile.open(file)) {
+            assertArrayEquals(bytes("one"), kv.get("a/1"));
+            assertArrayEquals(bytes("three"), kv.get("a/3"));
+        }
+    }
+
+    @Test
+    public void corruptedCommitIsDroppedWithEverythingAfterIt() throws IOException {
+        long committed;
+        try (KvFile kv = KvFile.open(file)) {
+            kv.commit(kv.batch().put("a/1", bytes("one")), true);
+            committed = kv.fileBytes();
+            kv.commit(kv.batch().put("a/2", bytes("two")), true);
+            kv.commit(kv.batch().put("a/3", bytes("three")), true);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(committed + 12L);
+            raf.write(~raf.read() & 0xFF);
+        }
+        try (KvFile kv = KvFile.open(file)) {
+            assertArrayEquals(bytes("one"), kv.get("a/1"));
+            assertNull(kv.get("a/2"));
+            assertNull(kv.get("a/3"));
+            assertEquals(committed, file.length());
+        }
+    }
+
+    @Test
+    public void compactionKeepsLiveValues() throws IOException {
+        byte[] big = new byte[64 * 1024];
+        try (KvFile kv = KvFile.open(file)) {
+            // English: Overwrite the same keys until dead records trigger an automatic compaction.
+            // Español: Sobrescribir las mismas claves hasta que los registros muertos disparen una
+            // compactación automática.
+            for (int round = 0; round < 40; round++) {
+                KvFile.Batch b = kv.batch();
+                for (int i = 0; i < 4; i++) {
+                    big[0] = (byte) round;
+                    big[1] = (byte) i;
+                    b.put("a/" + i, big.clone());
+                }
+                kv.commit(b, false);
+            }
+            kv.commit(kv.batch().put("meta", bytes("header")).delete("a/3"), true);
+            assertTrue(kv.describeStats(), kv.fileBytes() < 40L * 4L * big.length);
+            assertLive(kv);
+            kv.compact();
+            assertLive(kv);
+        }
+        assertFalse(new File(file.getParentFile(), file.getName() + ".tmp").exists());
+        try (KvFile kv = KvFile.open(file)) {
+            assertLive(kv);
+        }
+    }
+
+    private static void assertLive(KvFile kv) throws IOException {
+        for (int i = 0; i < 3; i++) {
+            byte[] v = kv.get("a/" + i);
+            assertEquals(64 * 1024, v.length);
+            assertEquals(39, v[0]);
+            assertEquals(i, v[1]);
+        }
+        assertNull(kv.get("a/3"));
+        assertArrayEquals(bytes("header"), kv.get("meta"));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package com.primebank.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.primebank.core.accounts.PlayerAccounts;
+import com.primebank.core.ledger.CentralFees;
+import com.primebank.core.ledger.Ledger;
+import com.primebank.core.logging.AuditLogWriter;
+import com.primebank.core.state.PrimeBankState;
+
+/*
+ English: Crash recovery through the ledger journal: operations after the last checkpoint come back on
+ load, loading twice does not apply them twice, and a write failure stops the journal and fails the
+ durability futures of what it did not write.
+ Español: Recuperación ante fallos mediante el diario del libro mayor: las operaciones posteriores al
+ último checkpoint vuelven al cargar, cargar dos veces no las aplica dos veces, y un fallo de escritura
+ detiene el diario y falla los futuros de durabilidad de lo que no escribió.
+*/
+public class LedgerJournalTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Ledger ledger;
+    private String alice;
+    private String bob;
+
+    @Before
+    public void setUp() throws IOException {
+        PersistencePaths.setWorldDir(tmp.newFolder("world"));
+        PrimeBankState.get().resetForNewWorld();
+        BankPersistence.loadAll();
+        PrimeBankState.get().ensureCentralAccount();
+        ledger = new Ledger(PrimeBankState.get().accounts());
+        alice = PlayerAccounts.ensurePersonal(UUID.randomUUID());
+        bob = PlayerAccounts.ensurePersonal(UUID.randomUUID());
+    }
+
+    @After
+    public void tearDown() {
+        LedgerJournal.get().stop();
+        HistoryStore.get().stop();
+        BankStores.get().close();
+        AuditLogWriter.get().close();
+        PrimeBankState.get().resetForNewWorld();
+    }
+
+    @Test
+    public void replayRestoresOperationsAfterTheLastCheckpoint() throws Exception {
+        assertTrue(ledger.deposit(alice, 10_000L).success);
+        BankPersistence.saveAllBlocking();
+        assertTrue(ledger.transfer(alice, bob, 6_000L).success);
+        assertTrue(ledger.deposit(bob, 5L).success);
+        assertTrue(ledger.withdraw(alice, 100L).success);
+        Ledger.durability().get(5, TimeUnit.SECONDS);
+        long[] before = balances();
+
+        crashAndLoad();
+
+        assertBalances(before);
+    }
+
+    @Test
+    public void replayIsIdempotent() throws Exception {
+        assertTrue(ledger.deposit(alice, 10_000L).success);
+        assertTrue(ledger.transfer(alice, bob, 2_500L).success);
+        Ledger.durability().get(5, TimeUnit.SECONDS);
+        long[] before = balances();
+
+        // English: Crash after a checkpoint but before its segments were purged: the snapshot already
+        // holds every record the journal replays again.
+        // Español: Fallo tras un checkpoint pero antes de purgar sus segmentos: el snapshot ya contiene
+        // cada registro que el diario vuelve a reaplicar.
+        File saved = tmp.newFolder("journal-copy");
+        for (File f : PersistencePaths.journalDir().listFiles())
+            Files.copy(f.toPath(), new File(saved, f.getName()).toPath());
+        BankPersistence.saveAllBlocking();
+        LedgerJournal.get().stop();
+        for (File f : saved.listFiles())
+            Files.copy(f.toPath(), new File(PersistencePaths.journalDir(), f.getName()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+
+        crashAndLoad();
+        assertBalances(before);
+        crashAndLoad();
+        assertBalances(before);
+    }
+
+    @Test
+    public void writeFailureStopsTheJournalAndFailsDurability() throws Exception {
+        assertTrue(ledger.deposit(alice, 10_000L).success);
+        Ledger.durability().get(5, TimeUnit.SECONDS);
+        // English: A directory in place of the next segment makes the rollover fail.
+        // Español: Un directorio en lugar del siguiente segmento hace fallar el cambio de segmento.
+        long last = LedgerJournal.takeThreadCommit();
+        assertTrue(new File(PersistencePaths.journalDir(), String.format("journal-%020d.bin", last + 1L)).mkdirs());
+        assertEquals(last, LedgerJournal.get().beginSnapshot());
+        assertTrue(ledger.deposit(bob, 1L).success);
+
+        assertDurabilityFails();
+        assertFalse(LedgerJournal.get().isRunning());
+
+        // English: Operations after the failure are applied but refused by the journal.
+        // Español: Las operaciones posteriores al fallo se aplican pero el diario las rechaza.
+        assertTrue(ledger.deposit(alice, 1L).success);
+        assertEquals(10_001L, PrimeBankState.get().accounts().get(alice).getBalanceCents());
+        assertDurabilityFails();
+    }
+
+    private void assertDurabilityFails() throws Exception {
+        try {
+            Ledger.durability().get(5, TimeUnit.SECONDS);
+            fail("durability future completed after a journal failure");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+    }
+
+    // English: Drop everything in memory and load the world again, like a server start after a crash.
+    // Español: Descartar todo lo que está en memoria y volver a cargar el mundo, como un inicio del
+    // servidor tras un fallo.
+    private void crashAndLoad() {
+        PrimeBankState.get().resetForNewWorld();
+        BankPersistence.loadAll();
+        PrimeBankState.get().ensureCentralAccount();
+    }
+
+    private long[] balances() {
+        CentralFees.get().settle();
+        return new long[] { balance(alice), balance(bob), balance(PrimeBankState.CENTRAL_ACCOUNT_ID) };
+    }
+
+    private void assertBalances(long[] expected) {
+        long[] actual = balances();
+        assertEquals("alice", expected[0], actual[0]);
+        assertEquals("bob", expected[1], actual[1]);
+        assertEquals("central", expected[2], actual[2]);
+    }
+
+    private static long balance(String id) {
+        return PrimeBankState.get().accounts().get(id).getBalanceCents();
+    }
+}